@@ -0,0 +1,58 @@
+package com.spicep.cryptowallet.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.spicep.cryptowallet.dto.request.AssetInfoDto;
+import com.spicep.cryptowallet.dto.request.WalletInfoDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the JSON serialization of the wallet view returned by GET /api/wallets/{id}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WalletInfoSerializationBenchmark {
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    private int assetCount;
+
+    private ObjectWriter writer;
+    private WalletInfoDto walletInfo;
+
+    @Setup
+    public void setUp() {
+        writer = new ObjectMapper().writerFor(WalletInfoDto.class);
+
+        Random random = new Random(42);
+        List<AssetInfoDto> assets = new ArrayList<>(assetCount);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < assetCount; i++) {
+            AssetInfoDto asset = new AssetInfoDto();
+            asset.setSymbol("coin-" + i);
+            asset.setQuantity(BigDecimal.valueOf(random.nextInt(1_000_000), 4));
+            asset.setPrice(BigDecimal.valueOf(random.nextInt(10_000_000), 2));
+            asset.setValue(asset.getQuantity().multiply(asset.getPrice()).setScale(2, RoundingMode.HALF_UP));
+            total = total.add(asset.getValue());
+            assets.add(asset);
+        }
+
+        walletInfo = new WalletInfoDto();
+        walletInfo.setId("1");
+        walletInfo.setAssets(assets);
+        walletInfo.setTotal(total);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return writer.writeValueAsBytes(walletInfo);
+    }
+}
@@ -0,0 +1,65 @@
+package com.spicep.cryptowallet.entity;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the valuation of a portfolio, reading the materialized values of {@link Asset#getValue()}
+ * against recomputing them from the quantities and prices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AssetValueBenchmark {
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    private int assetCount;
+
+    private List<Asset> assets;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        assets = new ArrayList<>(assetCount);
+
+        for (int i = 0; i < assetCount; i++) {
+            Asset asset = new Asset();
+            asset.setSymbol("coin-" + i);
+            asset.setQuantity(BigDecimal.valueOf(random.nextInt(1_000_000), 2));
+            asset.reprice(BigDecimal.valueOf(random.nextInt(10_000_000), 2));
+            assets.add(asset);
+        }
+    }
+
+    @Benchmark
+    public void assetValues(Blackhole blackhole) {
+        for (Asset asset : assets) {
+            blackhole.consume(asset.getValue());
+        }
+    }
+
+    @Benchmark
+    public BigDecimal portfolioValue() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Asset asset : assets) {
+            total = total.add(asset.getValue());
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal recomputedPortfolioValue() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Asset asset : assets) {
+            total = total.add(asset.getQuantity().multiply(asset.getPrice()).setScale(2, RoundingMode.HALF_UP));
+        }
+        return total;
+    }
+}
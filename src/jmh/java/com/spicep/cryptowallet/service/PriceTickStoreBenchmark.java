@@ -0,0 +1,131 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.entity.PriceHistory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the recent price lookups of {@link PriceTickStore} against the same ticks held
+ * as {@link PriceHistory} entities in sorted maps.
+ * Run with {@code -prof gc} to compare the allocations per lookup, e.g. {@code -Djmh.args="PriceTickStore -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PriceTickStoreBenchmark {
+
+    private static final int SYMBOL_COUNT = 1000;
+    private static final long TICK_MILLIS = 60_000;
+    private static final long START_MILLIS = 1_735_689_600_000L;
+    private static final int RANGE_TICKS = 60;
+    private static final int LOOKUPS = 1024;
+
+    @Param({"60", "1440"})
+    private int ticksPerSymbol;
+
+    private PriceTickStore tickStore;
+    private Map<String, NavigableMap<Instant, PriceHistory>> entitiesBySymbol;
+    private String[] lookupSymbols;
+    private long[] lookupTimes;
+    private long[] rangeTimes;
+    private long[] rangePrices;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        tickStore = new PriceTickStore(ticksPerSymbol, new SimpleMeterRegistry());
+        entitiesBySymbol = new HashMap<>();
+
+        for (int s = 0; s < SYMBOL_COUNT; s++) {
+            String symbol = "coin-" + s;
+            NavigableMap<Instant, PriceHistory> entities = new ConcurrentSkipListMap<>();
+            for (int t = 0; t < ticksPerSymbol; t++) {
+                long time = START_MILLIS + t * TICK_MILLIS;
+                BigDecimal price = BigDecimal.valueOf(random.nextInt(10_000_000), 2);
+                tickStore.record(symbol, time, price);
+
+                PriceHistory entity = new PriceHistory();
+                entity.setSymbol(symbol);
+                entity.setPrice(price);
+                entity.setTimestamp(Instant.ofEpochMilli(time));
+                entities.put(entity.getTimestamp(), entity);
+            }
+            entitiesBySymbol.put(symbol, entities);
+        }
+
+        lookupSymbols = new String[LOOKUPS];
+        lookupTimes = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookupSymbols[i] = "coin-" + random.nextInt(SYMBOL_COUNT);
+            lookupTimes[i] = START_MILLIS + (long) (random.nextDouble() * ticksPerSymbol * TICK_MILLIS);
+        }
+        rangeTimes = new long[RANGE_TICKS];
+        rangePrices = new long[RANGE_TICKS];
+    }
+
+    @Benchmark
+    public long tickStoreLatest() {
+        return tickStore.latestPrice(lookupSymbols[nextLookup()]);
+    }
+
+    @Benchmark
+    public BigDecimal entityLatest() {
+        return entitiesBySymbol.get(lookupSymbols[nextLookup()]).lastEntry().getValue().getPrice();
+    }
+
+    @Benchmark
+    public long tickStoreAtOrBefore() {
+        int lookup = nextLookup();
+        return tickStore.priceAtOrBefore(lookupSymbols[lookup], lookupTimes[lookup]);
+    }
+
+    @Benchmark
+    public BigDecimal entityAtOrBefore() {
+        int lookup = nextLookup();
+        Map.Entry<Instant, PriceHistory> entry = entitiesBySymbol.get(lookupSymbols[lookup])
+                .floorEntry(Instant.ofEpochMilli(lookupTimes[lookup]));
+        return entry == null ? null : entry.getValue().getPrice();
+    }
+
+    @Benchmark
+    public long tickStoreRange() {
+        int lookup = nextLookup();
+        long from = lookupTimes[lookup];
+        int copied = tickStore.range(lookupSymbols[lookup], from, from + RANGE_TICKS * TICK_MILLIS, rangeTimes, rangePrices);
+
+        long sum = 0;
+        for (int i = 0; i < copied; i++) {
+            sum += rangePrices[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void entityRange(Blackhole blackhole) {
+        int lookup = nextLookup();
+        Instant from = Instant.ofEpochMilli(lookupTimes[lookup]);
+
+        BigDecimal sum = BigDecimal.ZERO;
+        for (PriceHistory entity : entitiesBySymbol.get(lookupSymbols[lookup])
+                .subMap(from, true, from.plusMillis(RANGE_TICKS * TICK_MILLIS), false).values()) {
+            sum = sum.add(entity.getPrice());
+        }
+        blackhole.consume(sum);
+    }
+
+    private int nextLookup() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return next;
+    }
+}
@@ -0,0 +1,41 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CoinCap client that answers from memory, so benchmarks measure our code and not the network.
+ * Every symbol is priced deterministically from its hash.
+ */
+class StubApiClientService extends ApiClientService {
+
+    StubApiClientService() {
+        super(WebClient.create(), new SimpleMeterRegistry());
+    }
+
+    @Override
+    public Mono<CoinCapAssetDto> fetchCurrentAssetDataBySymbol(String symbol) {
+        CoinCapAssetDto asset = new CoinCapAssetDto();
+        asset.setId(symbol);
+        asset.setPriceUsd(priceOf(symbol));
+        return Mono.just(asset);
+    }
+
+    @Override
+    public Map<String, BigDecimal> getCurrentPrices(Collection<String> symbols) {
+        Map<String, BigDecimal> prices = new LinkedHashMap<>();
+        symbols.forEach(symbol -> prices.put(symbol, priceOf(symbol)));
+        return prices;
+    }
+
+    static BigDecimal priceOf(String symbol) {
+        return BigDecimal.valueOf(Math.floorMod(symbol.hashCode(), 10_000_000) + 1, 2);
+    }
+}
@@ -0,0 +1,72 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.request.AssetEvaluationRequestDto;
+import com.spicep.cryptowallet.dto.response.WalletEvaluationResponse;
+import com.spicep.cryptowallet.repository.AssetRepository;
+import com.spicep.cryptowallet.repository.UserRepository;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Benchmarks the evaluation of a wallet.
+ * {@code summarize} measures the performance, best and worst asset computation alone,
+ * {@code evaluateAtCurrentPrices} the whole evaluation with every current price already cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WalletEvaluationBenchmark {
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    private int assetCount;
+
+    private WalletService walletService;
+    private List<AssetEvaluationRequestDto> inputAssets;
+    private List<BigDecimal> referencePrices;
+    private LocalDate referenceDate;
+
+    @Setup
+    public void setUp() {
+        ApiClientService clientService = new StubApiClientService();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PriceCacheService priceCacheService = new PriceCacheService(clientService, new PriceTickStore(1, meterRegistry),
+                meterRegistry, Duration.ofHours(1), 2L * assetCount, 0);
+        walletService = new WalletService(mock(WalletRepository.class), mock(UserRepository.class),
+                mock(AssetRepository.class), priceCacheService, new HistoricalPriceService(clientService, null, null, null, 100, 300000),
+                mock(ApplicationEventPublisher.class));
+
+        Random random = new Random(42);
+        inputAssets = new ArrayList<>(assetCount);
+        referencePrices = new ArrayList<>(assetCount);
+        for (int i = 0; i < assetCount; i++) {
+            String symbol = "coin-" + i;
+            BigDecimal quantity = BigDecimal.valueOf(random.nextInt(1_000_000) + 1, 4);
+            BigDecimal value = BigDecimal.valueOf(random.nextInt(10_000_000) + 1, 2);
+            inputAssets.add(new AssetEvaluationRequestDto(symbol, quantity, value));
+            referencePrices.add(priceCacheService.getCurrentPrice(symbol));
+        }
+        referenceDate = LocalDate.now();
+    }
+
+    @Benchmark
+    public WalletEvaluationResponse summarize() {
+        return walletService.summarizeEvaluation(inputAssets, referencePrices, referenceDate);
+    }
+
+    @Benchmark
+    public WalletEvaluationResponse evaluateAtCurrentPrices() {
+        return walletService.evaluateWallet(inputAssets, referenceDate);
+    }
+}
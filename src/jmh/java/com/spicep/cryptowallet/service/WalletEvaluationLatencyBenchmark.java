@@ -0,0 +1,71 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.request.AssetEvaluationRequestDto;
+import com.spicep.cryptowallet.dto.response.WalletEvaluationResponse;
+import com.spicep.cryptowallet.repository.AssetRepository;
+import com.spicep.cryptowallet.repository.UserRepository;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Benchmarks how the latency of a wallet evaluation at a past date scales with the number of assets,
+ * with one reference price lookup at a time ({@code concurrency} 1) and with concurrent lookups.
+ * Every lookup simulates an upstream round-trip of {@link #LOOKUP_LATENCY_MILLIS}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WalletEvaluationLatencyBenchmark {
+
+    private static final long LOOKUP_LATENCY_MILLIS = 20;
+
+    @Param({"1", "10", "25", "50"})
+    private int assetCount;
+
+    @Param({"1", "16"})
+    private int concurrency;
+
+    private WalletService walletService;
+    private List<AssetEvaluationRequestDto> inputAssets;
+    private LocalDate referenceDate;
+
+    @Setup
+    public void setUp() {
+        HistoricalPriceService historicalPriceService = new HistoricalPriceService(new StubApiClientService(),
+                null, null, null, 100, 300000) {
+            @Override
+            public BigDecimal getPriceForDate(String symbol, LocalDate date) {
+                try {
+                    Thread.sleep(LOOKUP_LATENCY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return StubApiClientService.priceOf(symbol);
+            }
+        };
+        walletService = new WalletService(mock(WalletRepository.class), mock(UserRepository.class),
+                mock(AssetRepository.class), mock(PriceCacheService.class), historicalPriceService,
+                mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(walletService, "evaluationConcurrency", concurrency);
+
+        inputAssets = IntStream.range(0, assetCount)
+                .mapToObj(i -> new AssetEvaluationRequestDto("coin-" + i, BigDecimal.valueOf(i + 1), BigDecimal.valueOf(100L * (i + 1))))
+                .toList();
+        referenceDate = LocalDate.now().minusDays(1);
+    }
+
+    @Benchmark
+    public WalletEvaluationResponse evaluateAtPastPrices() {
+        return walletService.evaluateWallet(inputAssets, referenceDate);
+    }
+}
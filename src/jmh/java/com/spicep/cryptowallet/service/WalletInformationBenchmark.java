@@ -0,0 +1,76 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.projection.WalletAssetRow;
+import com.spicep.cryptowallet.dto.request.WalletInfoDto;
+import com.spicep.cryptowallet.repository.AssetRepository;
+import com.spicep.cryptowallet.repository.UserRepository;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Benchmarks the aggregation of {@link WalletService#getWalletInformation(Long)}.
+ * The repository returns prepared rows, so only the valuation and DTO mapping are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WalletInformationBenchmark {
+
+    private static final Long WALLET_ID = 1L;
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    private int assetCount;
+
+    private WalletService walletService;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> symbols = new ArrayList<>(assetCount);
+        List<BigDecimal> quantities = new ArrayList<>(assetCount);
+        List<BigDecimal> values = new ArrayList<>(assetCount);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < assetCount; i++) {
+            String symbol = "coin-" + i;
+            BigDecimal quantity = BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+            BigDecimal value = quantity.multiply(StubApiClientService.priceOf(symbol)).setScale(2, RoundingMode.HALF_UP);
+            symbols.add(symbol);
+            quantities.add(quantity);
+            values.add(value);
+            total = total.add(value);
+        }
+
+        List<WalletAssetRow> rows = new ArrayList<>(assetCount);
+        for (int i = 0; i < assetCount; i++) {
+            rows.add(new WalletAssetRow(WALLET_ID, total, symbols.get(i), quantities.get(i),
+                    StubApiClientService.priceOf(symbols.get(i)), values.get(i)));
+        }
+
+        WalletRepository walletRepository = mock(WalletRepository.class);
+        when(walletRepository.findWalletAssetRows(WALLET_ID)).thenReturn(rows);
+
+        ApiClientService clientService = new StubApiClientService();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        walletService = new WalletService(walletRepository, mock(UserRepository.class), mock(AssetRepository.class),
+                new PriceCacheService(clientService, new PriceTickStore(1, meterRegistry), meterRegistry, Duration.ofHours(1), 100, 0),
+                new HistoricalPriceService(clientService, null, null, null, 100, 300000), mock(ApplicationEventPublisher.class));
+    }
+
+    @Benchmark
+    public WalletInfoDto walletInformation() {
+        return walletService.getWalletInformation(WALLET_ID);
+    }
+}
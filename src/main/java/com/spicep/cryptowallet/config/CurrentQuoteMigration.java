@@ -0,0 +1,35 @@
+package com.spicep.cryptowallet.config;
+
+import com.spicep.cryptowallet.repository.CurrentQuoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Migrates existing data to the current_quote table on startup.
+ * Assets stored before the table existed carry their own price, so a quote is created for every held symbol
+ * that has none yet. Symbols that already have a quote are left untouched, which makes the migration safe to rerun.
+ */
+@Component
+@Order(1)
+public class CurrentQuoteMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CurrentQuoteMigration.class);
+
+    private final CurrentQuoteRepository currentQuoteRepository;
+
+    public CurrentQuoteMigration(CurrentQuoteRepository currentQuoteRepository) {
+        this.currentQuoteRepository = currentQuoteRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int created = currentQuoteRepository.backfillFromAssets();
+        if (created > 0) {
+            logger.info("Created {} current quotes from stored asset prices", created);
+        }
+    }
+}
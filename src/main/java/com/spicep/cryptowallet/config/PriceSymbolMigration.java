@@ -0,0 +1,40 @@
+package com.spicep.cryptowallet.config;
+
+import com.spicep.cryptowallet.repository.PriceHistoryRepository;
+import com.spicep.cryptowallet.repository.PriceRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lowers the case of the symbols of the price history and rollups stored under the spelling of the assets,
+ * so prices are looked up under a single spelling.
+ * Symbols already in lower case are left untouched, which makes the migration safe to rerun.
+ */
+@Component
+@Order(3)
+public class PriceSymbolMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceSymbolMigration.class);
+
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final PriceRollupRepository priceRollupRepository;
+
+    public PriceSymbolMigration(PriceHistoryRepository priceHistoryRepository,
+                                PriceRollupRepository priceRollupRepository) {
+        this.priceHistoryRepository = priceHistoryRepository;
+        this.priceRollupRepository = priceRollupRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int ticks = priceHistoryRepository.lowerCaseSymbols();
+        int rollups = priceRollupRepository.lowerCaseSymbols();
+        if (ticks > 0 || rollups > 0) {
+            logger.info("Lowered the case of the symbols of {} price ticks and {} price rollups", ticks, rollups);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.spicep.cryptowallet.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Configuration of the reactive stack.
+ * Tomcat is on the classpath for the servlet stack and would otherwise be picked to run WebFlux,
+ * so the reactive stack explicitly runs on Netty.
+ */
+@Profile("reactive")
+@Configuration
+public class ReactiveConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,35 @@
+package com.spicep.cryptowallet.config;
+
+import com.spicep.cryptowallet.repository.WalletRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Computes the materialized asset values and wallet totals of data stored before they existed.
+ * Runs after {@link CurrentQuoteMigration} so assets are valued with the quotes of their symbols.
+ * Only missing values are computed, which makes the migration safe to rerun.
+ */
+@Component
+@Order(2)
+public class WalletValueMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletValueMigration.class);
+
+    private final WalletRepository walletRepository;
+
+    public WalletValueMigration(WalletRepository walletRepository) {
+        this.walletRepository = walletRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int valued = walletRepository.backfillValues();
+        if (valued > 0) {
+            logger.info("Computed the values of {} stored assets", valued);
+        }
+    }
+}
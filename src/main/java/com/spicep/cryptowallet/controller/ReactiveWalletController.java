@@ -0,0 +1,129 @@
+package com.spicep.cryptowallet.controller;
+
+import com.spicep.cryptowallet.dto.request.AddAssetRequest;
+import com.spicep.cryptowallet.dto.request.BatchEvaluationRequest;
+import com.spicep.cryptowallet.dto.request.CreateWalletRequest;
+import com.spicep.cryptowallet.dto.request.WalletEvaluationRequest;
+import com.spicep.cryptowallet.dto.request.WalletInfoDto;
+import com.spicep.cryptowallet.dto.response.AssetResponseDto;
+import com.spicep.cryptowallet.dto.response.CreateWalletResponse;
+import com.spicep.cryptowallet.dto.response.PerformanceSeriesResponse;
+import com.spicep.cryptowallet.dto.response.PortfolioEvaluationResult;
+import com.spicep.cryptowallet.dto.response.WalletEvaluationResponse;
+import com.spicep.cryptowallet.service.BatchEvaluationService;
+import com.spicep.cryptowallet.service.PerformanceSeriesService;
+import com.spicep.cryptowallet.service.ReactiveWalletService;
+import com.spicep.cryptowallet.service.WalletStreamService;
+import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Non-blocking controller for managing wallet-related operations.
+ * Mirrors {@link WalletController} and replaces it when the "reactive" profile is active.
+ */
+
+@Profile("reactive")
+@RestController
+@RequestMapping("/api/wallets")
+public class ReactiveWalletController {
+
+    private final ReactiveWalletService walletService;
+    private final WalletStreamService walletStreamService;
+    private final BatchEvaluationService batchEvaluationService;
+    private final PerformanceSeriesService performanceSeriesService;
+
+
+    public ReactiveWalletController(ReactiveWalletService walletService, WalletStreamService walletStreamService,
+                                    BatchEvaluationService batchEvaluationService,
+                                    PerformanceSeriesService performanceSeriesService) {
+        this.walletService = walletService;
+        this.walletStreamService = walletStreamService;
+        this.batchEvaluationService = batchEvaluationService;
+        this.performanceSeriesService = performanceSeriesService;
+    }
+
+
+    @PostMapping
+    public Mono<ResponseEntity<CreateWalletResponse>> createWallet(@Valid @RequestBody CreateWalletRequest createWalletRequest) {
+        return walletService.createNewWallet(createWalletRequest.getEmail())
+                .map(wallet -> new ResponseEntity<>(
+                        new CreateWalletResponse(wallet.getId(), createWalletRequest.getEmail()), HttpStatus.CREATED));
+    }
+
+    @PostMapping("/{walletId}/assets")
+    public Mono<ResponseEntity<AssetResponseDto>> addAsset(@PathVariable Long walletId, @Valid @RequestBody AddAssetRequest addAssetRequest) {
+        return walletService.addAsset(walletId, addAssetRequest.getSymbol(), addAssetRequest.getQuantity())
+                .map(asset -> new ResponseEntity<>(new AssetResponseDto(asset.getId(),
+                        asset.getSymbol(),
+                        asset.getQuantity(),
+                        asset.getPrice(),
+                        asset.getValue()), HttpStatus.CREATED));
+    }
+
+    @GetMapping("/{walletId}")
+    public Mono<ResponseEntity<WalletInfoDto>> getWalletInfo(@PathVariable Long walletId) {
+        return walletService.getWalletInformation(walletId)
+                .map(ResponseEntity::ok);
+    }
+
+    /**
+     * Streams the wallet information as Server-Sent Events.
+     * A new event is sent whenever the price of a held asset changes.
+     */
+    @GetMapping(value = "/{walletId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<WalletInfoDto> streamWalletInfo(@PathVariable Long walletId) {
+        return walletService.getWalletInformation(walletId)
+                .flatMapMany(walletStreamService::streamWallet);
+    }
+
+
+    @PostMapping("/evaluate")
+    public Mono<ResponseEntity<WalletEvaluationResponse>> evaluateWallet(
+            @Valid @RequestBody WalletEvaluationRequest request,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date) {
+
+        return walletService.evaluateWallet(
+                        request.getAssets(),
+                        date != null ? date : LocalDate.now())
+                .map(ResponseEntity::ok);
+    }
+
+    /**
+     * Evaluates many portfolios, see {@link WalletController#evaluateWallets(BatchEvaluationRequest, LocalDate)}.
+     */
+    @PostMapping(value = "/evaluate/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PortfolioEvaluationResult> evaluateWallets(
+            @RequestBody BatchEvaluationRequest request,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date) {
+
+        List<LocalDate> dates = request.getDates() != null && !request.getDates().isEmpty()
+                ? request.getDates()
+                : List.of(date != null ? date : LocalDate.now());
+
+        return batchEvaluationService.evaluate(request.getPortfolios(), dates);
+    }
+
+    /**
+     * Evaluates a wallet over a range of dates, see {@link WalletController#evaluateWalletSeries(WalletEvaluationRequest, LocalDate, LocalDate, String)}.
+     */
+    @PostMapping("/evaluate/series")
+    public Mono<ResponseEntity<PerformanceSeriesResponse>> evaluateWalletSeries(
+            @Valid @RequestBody WalletEvaluationRequest request,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
+            @RequestParam(defaultValue = "d1") String interval) {
+
+        return performanceSeriesService.evaluateSeries(request.getAssets(), from, to, interval)
+                .map(ResponseEntity::ok);
+    }
+}
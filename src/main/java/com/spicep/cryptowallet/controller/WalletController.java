@@ -1,36 +1,70 @@
 package com.spicep.cryptowallet.controller;
 
 import com.spicep.cryptowallet.dto.request.AddAssetRequest;
+import com.spicep.cryptowallet.dto.request.BatchEvaluationRequest;
 import com.spicep.cryptowallet.dto.request.CreateWalletRequest;
 import com.spicep.cryptowallet.dto.request.WalletEvaluationRequest;
 import com.spicep.cryptowallet.dto.request.WalletInfoDto;
 import com.spicep.cryptowallet.dto.response.AssetResponseDto;
 import com.spicep.cryptowallet.dto.response.CreateWalletResponse;
+import com.spicep.cryptowallet.dto.response.PerformanceSeriesResponse;
+import com.spicep.cryptowallet.dto.response.PortfolioEvaluationResult;
 import com.spicep.cryptowallet.dto.response.WalletEvaluationResponse;
+import com.spicep.cryptowallet.dto.response.WalletImportResult;
 import com.spicep.cryptowallet.entity.Asset;
 import com.spicep.cryptowallet.entity.Wallet;
+import com.spicep.cryptowallet.service.BatchEvaluationService;
+import com.spicep.cryptowallet.service.PerformanceSeriesService;
+import com.spicep.cryptowallet.service.WalletImportService;
 import com.spicep.cryptowallet.service.WalletService;
+import com.spicep.cryptowallet.service.WalletStreamService;
 import jakarta.validation.Valid;
+import org.reactivestreams.Subscription;
+import org.springframework.context.annotation.Profile;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Controller for managing wallet-related operations.
+ * Replaced by {@link ReactiveWalletController} when the "reactive" profile is active.
  */
 
+@Profile("!reactive")
 @RestController
 @RequestMapping("/api/wallets")
 public class WalletController {
 
     private final WalletService walletService;
+    private final WalletStreamService walletStreamService;
+    private final BatchEvaluationService batchEvaluationService;
+    private final PerformanceSeriesService performanceSeriesService;
+    private final WalletImportService walletImportService;
 
 
-    public WalletController(WalletService walletService) {
+    public WalletController(WalletService walletService, WalletStreamService walletStreamService,
+                            BatchEvaluationService batchEvaluationService,
+                            PerformanceSeriesService performanceSeriesService,
+                            WalletImportService walletImportService) {
         this.walletService = walletService;
+        this.walletStreamService = walletStreamService;
+        this.batchEvaluationService = batchEvaluationService;
+        this.performanceSeriesService = performanceSeriesService;
+        this.walletImportService = walletImportService;
     }
 
 
@@ -59,6 +93,23 @@ public class WalletController {
         return ResponseEntity.ok(walletInfoDto);
     }
 
+    /**
+     * Streams the wallet information as Server-Sent Events.
+     * A new event is sent whenever the price of a held asset changes.
+     * The stream has no timeout, it stays open while the client is connected.
+     */
+    @GetMapping(value = "/{walletId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamWalletInfo(@PathVariable Long walletId) {
+        WalletInfoDto walletInfoDto = walletService.getWalletInformation(walletId);
+
+        SseEmitter emitter = new SseEmitter(0L);
+        WalletStreamSubscriber subscriber = new WalletStreamSubscriber(emitter);
+        emitter.onCompletion(subscriber::dispose);
+        emitter.onError(error -> subscriber.dispose());
+        walletStreamService.streamWallet(walletInfoDto).subscribe(subscriber);
+        return emitter;
+    }
+
 
     @PostMapping("/evaluate")
     public ResponseEntity<WalletEvaluationResponse> evaluateWallet(
@@ -71,4 +122,97 @@ public class WalletController {
 
         return ResponseEntity.ok(evaluation);
     }
+
+    /**
+     * Evaluates many portfolios on the dates of the request, or on the given date if there are none.
+     * Results are streamed as newline-delimited JSON, one line per portfolio and date.
+     */
+    @PostMapping(value = "/evaluate/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PortfolioEvaluationResult> evaluateWallets(
+            @RequestBody BatchEvaluationRequest request,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date) {
+
+        List<LocalDate> dates = request.getDates() != null && !request.getDates().isEmpty()
+                ? request.getDates()
+                : List.of(date != null ? date : LocalDate.now());
+
+        return batchEvaluationService.evaluate(request.getPortfolios(), dates);
+    }
+
+    /**
+     * Evaluates a wallet at every point of an interval between two dates, e.g. daily over a year.
+     */
+    @PostMapping("/evaluate/series")
+    public Mono<ResponseEntity<PerformanceSeriesResponse>> evaluateWalletSeries(
+            @Valid @RequestBody WalletEvaluationRequest request,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
+            @RequestParam(defaultValue = "d1") String interval) {
+
+        return performanceSeriesService.evaluateSeries(request.getAssets(), from, to, interval)
+                .map(ResponseEntity::ok);
+    }
+
+    /**
+     * Imports wallets and assets from a CSV file of {@code email,symbol,quantity} lines.
+     * The request body is streamed, so files of any size can be imported.
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<WalletImportResult> importCsv(InputStream body) throws IOException {
+        return importWallets(body, WalletImportService.Format.CSV);
+    }
+
+    /**
+     * Imports wallets and assets from newline-delimited JSON, one {@code {"email", "symbol", "quantity"}} object per line.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<WalletImportResult> importNdjson(InputStream body) throws IOException {
+        return importWallets(body, WalletImportService.Format.NDJSON);
+    }
+
+    private ResponseEntity<WalletImportResult> importWallets(InputStream body, WalletImportService.Format format) throws IOException {
+        try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            return ResponseEntity.ok(walletImportService.importWallets(reader, format));
+        }
+    }
+
+    /**
+     * Writes a wallet stream to an SSE response, requesting the next valuation only once the previous one is sent.
+     */
+    private static class WalletStreamSubscriber extends BaseSubscriber<WalletInfoDto> {
+
+        private final SseEmitter emitter;
+
+        WalletStreamSubscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(1);
+        }
+
+        @Override
+        protected void hookOnNext(WalletInfoDto walletInfoDto) {
+            try {
+                emitter.send(walletInfoDto, MediaType.APPLICATION_JSON);
+            } catch (IOException e) {
+                // The client disconnected, the stream is cancelled
+                cancel();
+                emitter.completeWithError(e);
+                return;
+            }
+            request(1);
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            emitter.completeWithError(throwable);
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            emitter.complete();
+        }
+    }
 }
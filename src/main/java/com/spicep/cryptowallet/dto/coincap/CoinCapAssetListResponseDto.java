@@ -0,0 +1,14 @@
+package com.spicep.cryptowallet.dto.coincap;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Taken from api.coincap.io/v2/assets?ids={id1,id2,...} response
+ */
+@Data
+public class CoinCapAssetListResponseDto {
+    private List<CoinCapAssetDto> data;
+    private long timestamp;
+}
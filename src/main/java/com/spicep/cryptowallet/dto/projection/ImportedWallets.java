@@ -0,0 +1,12 @@
+package com.spicep.cryptowallet.dto.projection;
+
+import java.util.Map;
+
+/**
+ * Wallets of the users of a bulk import chunk.
+ *
+ * @param walletIds The wallet id of each user email
+ * @param created The number of wallets created for the chunk
+ */
+public record ImportedWallets(Map<String, Long> walletIds, int created) {
+}
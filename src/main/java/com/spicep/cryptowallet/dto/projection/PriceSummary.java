@@ -0,0 +1,15 @@
+package com.spicep.cryptowallet.dto.projection;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Sum and count of the prices recorded for a symbol over a period, with the times of the first and last ones.
+ *
+ * @param sum The sum of the prices, null if none was recorded
+ * @param count The number of prices
+ * @param first The time of the first price, null if none was recorded
+ * @param last The time of the last price, null if none was recorded
+ */
+public record PriceSummary(BigDecimal sum, Long count, Instant first, Instant last) {
+}
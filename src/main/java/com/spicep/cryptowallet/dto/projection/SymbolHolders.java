@@ -0,0 +1,10 @@
+package com.spicep.cryptowallet.dto.projection;
+
+/**
+ * Row of the holder count query: the number of wallets holding a symbol.
+ *
+ * @param symbol The asset symbol
+ * @param holders The number of wallets holding the symbol
+ */
+public record SymbolHolders(String symbol, Long holders) {
+}
@@ -0,0 +1,16 @@
+package com.spicep.cryptowallet.dto.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Row of the wallet view query: one row per asset, or a single row without asset for an empty wallet.
+ *
+ * @param walletId The wallet id
+ * @param total The materialized total value of the wallet
+ * @param symbol The asset symbol, null for an empty wallet
+ * @param quantity The asset quantity
+ * @param price The price of the asset
+ * @param value The materialized value of the asset
+ */
+public record WalletAssetRow(Long walletId, BigDecimal total, String symbol, BigDecimal quantity, BigDecimal price, BigDecimal value) {
+}
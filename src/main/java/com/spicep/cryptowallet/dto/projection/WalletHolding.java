@@ -0,0 +1,13 @@
+package com.spicep.cryptowallet.dto.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Quantity of a symbol added to a wallet by a bulk import.
+ *
+ * @param walletId The wallet id
+ * @param symbol The asset symbol
+ * @param quantity The quantity to add
+ */
+public record WalletHolding(Long walletId, String symbol, BigDecimal quantity) {
+}
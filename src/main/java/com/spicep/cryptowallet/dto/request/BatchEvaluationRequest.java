@@ -0,0 +1,14 @@
+package com.spicep.cryptowallet.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@AllArgsConstructor
+@Data
+public class BatchEvaluationRequest {
+    private List<PortfolioEvaluationRequest> portfolios;
+    private List<LocalDate> dates;
+}
@@ -0,0 +1,13 @@
+package com.spicep.cryptowallet.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Data
+public class PortfolioEvaluationRequest {
+    private String id;
+    private List<AssetEvaluationRequestDto> assets;
+}
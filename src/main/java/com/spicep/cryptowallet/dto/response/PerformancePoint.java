@@ -0,0 +1,19 @@
+package com.spicep.cryptowallet.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Value of a portfolio at one point of a performance series.
+ */
+@AllArgsConstructor
+@Data
+public class PerformancePoint {
+    private Instant time;
+    private BigDecimal total;
+    private Map<String, BigDecimal> performanceByAsset;
+}
@@ -0,0 +1,16 @@
+package com.spicep.cryptowallet.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@AllArgsConstructor
+@Data
+public class PerformanceSeriesResponse {
+    private LocalDate from;
+    private LocalDate to;
+    private String interval;
+    private List<PerformancePoint> points;
+}
@@ -0,0 +1,21 @@
+package com.spicep.cryptowallet.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Evaluation of one portfolio of a batch on one date.
+ * Holds either the evaluation, or the error that prevented it.
+ */
+@AllArgsConstructor
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PortfolioEvaluationResult {
+    private String portfolioId;
+    private LocalDate date;
+    private WalletEvaluationResponse evaluation;
+    private String error;
+}
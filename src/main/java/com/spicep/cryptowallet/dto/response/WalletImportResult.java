@@ -0,0 +1,16 @@
+package com.spicep.cryptowallet.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Data
+public class WalletImportResult {
+    private long lines;
+    private long wallets;
+    private long assets;
+    private long rejected;
+    private List<String> errors;
+}
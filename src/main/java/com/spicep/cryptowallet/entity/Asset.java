@@ -22,21 +22,55 @@ public class Asset {
     @Column(name = "symbol")
     private String symbol;
 
+    /**
+     * Price the value of the asset was last computed with. Updated with the value by the price updates.
+     */
     @Column(name = "price")
     private BigDecimal price;
 
     @Column(name = "quantity")
     private BigDecimal quantity;
 
+    /**
+     * Value of the asset at its price, maintained on writes so reads do not compute it.
+     */
+    @Column(name = "market_value")
+    private BigDecimal value;
+
     @ManyToOne
     @JoinColumn(name = "wallet_id")
     private Wallet wallet;
 
-    public BigDecimal getValue() {
-        if (price == null || quantity == null) {
-            return BigDecimal.ZERO;
-        }
-        return price.multiply(quantity).setScale(2, RoundingMode.HALF_UP);
+    /**
+     * Sets the price of the asset and updates its value.
+     *
+     * @param newPrice The new price, rounded to cents as the price updates do
+     * @return The change of the value, to be applied to the wallet total
+     */
+    public BigDecimal reprice(BigDecimal newPrice) {
+        BigDecimal previousValue = value != null ? value : BigDecimal.ZERO;
+        price = roundPrice(newPrice);
+        value = quantity == null ? BigDecimal.ZERO : valueOf(quantity, price);
+        return value.subtract(previousValue);
+    }
+
+    /**
+     * @param price A price
+     * @return The price rounded to cents, as stored
+     */
+    public static BigDecimal roundPrice(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Computes the value of a quantity with the quantity and price as stored, the columns keeping two decimals.
+     *
+     * @param quantity The asset quantity
+     * @param price The asset price
+     * @return The value rounded to cents
+     */
+    public static BigDecimal valueOf(BigDecimal quantity, BigDecimal price) {
+        return quantity.setScale(2, RoundingMode.HALF_UP).multiply(roundPrice(price)).setScale(2, RoundingMode.HALF_UP);
     }
 
     public void addQuantity(BigDecimal additionalQuantity) {
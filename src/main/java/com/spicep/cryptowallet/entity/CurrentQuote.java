@@ -0,0 +1,28 @@
+package com.spicep.cryptowallet.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Entity class representing the latest known price of a symbol.
+ * There is a single row per symbol, shared by every asset of that symbol.
+ * Quotes are also read by update time, by the instances following the price updates of the others.
+ */
+@Data
+@Entity
+@Table(name = "current_quote", indexes = @Index(name = "idx_current_quote_updated_at", columnList = "updated_at"))
+public class CurrentQuote {
+
+    @Id
+    @Column(name = "symbol")
+    private String symbol;
+
+    @Column(name = "price", nullable = false)
+    private BigDecimal price;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
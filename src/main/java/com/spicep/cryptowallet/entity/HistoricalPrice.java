@@ -0,0 +1,35 @@
+package com.spicep.cryptowallet.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Entity class representing the price of an asset for a closed UTC day and interval.
+ * Prices of past days never change, so they are fetched from the API only once.
+ */
+@Data
+@Entity
+@Table(name = "historical_price",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"symbol", "price_interval", "price_date"}))
+public class HistoricalPrice {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "symbol", nullable = false)
+    private String symbol;
+
+    @Column(name = "price_interval", nullable = false)
+    private String interval;
+
+    @Column(name = "price_date", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "price", nullable = false)
+    private BigDecimal price;
+}
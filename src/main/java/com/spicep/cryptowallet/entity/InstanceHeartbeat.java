@@ -0,0 +1,23 @@
+package com.spicep.cryptowallet.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Entity class representing the last heartbeat of an application instance.
+ * Instances with a recent heartbeat share the price updates between them.
+ */
+@Data
+@Entity
+@Table(name = "instance_heartbeat")
+public class InstanceHeartbeat {
+
+    @Id
+    @Column(name = "instance_id")
+    private String instanceId;
+
+    @Column(name = "last_seen", nullable = false)
+    private Instant lastSeen;
+}
@@ -9,10 +9,15 @@ import java.time.Instant;
 /**
  * Entity class representing the price history of an asset.
  * This class is independent of the assets to keep records of deleted ones, for example.
+ * Ticks are read by symbol and time range, and rolled up and deleted by time range, hence the two indexes.
+ * Ticks older than the retention period only remain as {@link PriceRollup}s.
+ * Symbols are stored in lower case, whatever the spelling of the assets.
  */
 @Data
 @Entity
-@Table(name="price_history")
+@Table(name="price_history", indexes = {
+        @Index(name = "idx_price_history_symbol_date", columnList = "symbol, date"),
+        @Index(name = "idx_price_history_date", columnList = "date")})
 public class PriceHistory {
 
     @Id
@@ -0,0 +1,88 @@
+package com.spicep.cryptowallet.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Entity class representing the open, high, low and close prices of a symbol over an hour or a day,
+ * with the sum of its prices so the average price of the period can be derived.
+ * Price history ticks are rolled up into hourly rows, and hourly rows into daily ones, so that
+ * old ticks can be deleted while the history keeps its shape.
+ */
+@Data
+@Entity
+@Table(name = "price_rollup",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"symbol", "resolution", "bucket_start"}))
+public class PriceRollup {
+
+    /**
+     * Length of the period covered by a rollup
+     */
+    public enum Resolution {
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Resolution(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public ChronoUnit getUnit() {
+            return unit;
+        }
+
+        /**
+         * @return The start of the UTC period containing the instant
+         */
+        public Instant bucketOf(Instant instant) {
+            return instant.truncatedTo(unit);
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "symbol", nullable = false)
+    private String symbol;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "resolution", nullable = false)
+    private Resolution resolution;
+
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+
+    @Column(name = "open_price", nullable = false)
+    private BigDecimal open;
+
+    @Column(name = "high_price", nullable = false)
+    private BigDecimal high;
+
+    @Column(name = "low_price", nullable = false)
+    private BigDecimal low;
+
+    @Column(name = "close_price", nullable = false)
+    private BigDecimal close;
+
+    @Column(name = "tick_count", nullable = false)
+    private int tickCount;
+
+    // Sum of the tick prices of the period, unknown for the rollups written before it was recorded
+    @Column(name = "price_sum")
+    private BigDecimal priceSum;
+
+    // Time of the first tick of the period, unknown for the rollups written before it was recorded
+    @Column(name = "open_time")
+    private Instant openTime;
+
+    // Time of the last tick of the period, unknown for the rollups written before it was recorded
+    @Column(name = "close_time")
+    private Instant closeTime;
+}
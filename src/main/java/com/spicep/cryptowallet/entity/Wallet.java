@@ -3,6 +3,7 @@ package com.spicep.cryptowallet.entity;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,4 +26,17 @@ public class Wallet {
 
     @OneToMany(mappedBy = "wallet", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Asset> assets = new ArrayList<>();
+
+    /**
+     * Sum of the asset values, maintained incrementally on writes.
+     * Null only for wallets created before the column existed, until it is computed on startup.
+     */
+    @Column(name = "total_value")
+    private BigDecimal totalValue = BigDecimal.ZERO;
+
+    public void addToTotalValue(BigDecimal delta) {
+        if (totalValue != null) {
+            totalValue = totalValue.add(delta);
+        }
+    }
 }
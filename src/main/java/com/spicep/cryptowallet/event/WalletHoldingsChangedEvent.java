@@ -0,0 +1,10 @@
+package com.spicep.cryptowallet.event;
+
+/**
+ * Event published when the assets of a wallet change, e.g. when an asset is added.
+ *
+ * @param walletId The id of the changed wallet
+ * @param symbol The symbol of the changed asset
+ */
+public record WalletHoldingsChangedEvent(Long walletId, String symbol) {
+}
@@ -7,6 +7,7 @@ import com.spicep.cryptowallet.exception.wallet.WalletAlreadyExistsException;
 import com.spicep.cryptowallet.exception.wallet.WalletException;
 import com.spicep.cryptowallet.exception.wallet.WalletNotFoundException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -46,7 +47,10 @@ public class GlobalExceptionHandler {
                 ex.getMessage()
         );
 
-        return new ResponseEntity<>(error, status);
+        // The content type is set explicitly so the error is also written to clients accepting only event streams
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(error);
     }
 
     @ExceptionHandler(CoinCapException.class)
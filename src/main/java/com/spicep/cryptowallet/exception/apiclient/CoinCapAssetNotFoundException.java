@@ -8,4 +8,8 @@ public class CoinCapAssetNotFoundException extends CoinCapException {
     public CoinCapAssetNotFoundException(String message) {
         super(message);
     }
+
+    public CoinCapAssetNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
\ No newline at end of file
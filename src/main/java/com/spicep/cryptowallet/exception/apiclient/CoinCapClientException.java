@@ -8,4 +8,8 @@ public class CoinCapClientException extends CoinCapException {
     public CoinCapClientException(String message) {
         super(message);
     }
+
+    public CoinCapClientException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
\ No newline at end of file
@@ -8,4 +8,8 @@ public class CoinCapException extends RuntimeException {
     public CoinCapException(String message) {
         super(message);
     }
+
+    public CoinCapException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
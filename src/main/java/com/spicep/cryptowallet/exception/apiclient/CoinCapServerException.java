@@ -8,4 +8,8 @@ public class CoinCapServerException extends CoinCapException {
     public CoinCapServerException(String message) {
         super(message);
     }
+
+    public CoinCapServerException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
\ No newline at end of file
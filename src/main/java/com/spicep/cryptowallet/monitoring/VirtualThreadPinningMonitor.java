@@ -0,0 +1,83 @@
+package com.spicep.cryptowallet.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Logs virtual threads that stay pinned to their carrier thread, using the JFR jdk.VirtualThreadPinned event.
+ * A virtual thread is pinned when it blocks inside a synchronized block or a native frame,
+ * e.g. in Hibernate or the JDBC driver, and then holds a carrier thread for the whole wait.
+ * Only active when virtual threads are enabled.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    private final Counter pinnedCounter;
+    private final Duration threshold;
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${crypto.virtual.pinned-threshold:20ms}") Duration threshold) {
+        this.pinnedCounter = Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads pinned to their carrier for longer than the threshold")
+                .register(meterRegistry);
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+
+        logger.info("Logging virtual threads pinned for longer than {} ms", threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        logger.warn("Virtual thread {} was pinned for {} ms at:\n{}",
+                event.getThread() != null ? event.getThread().getJavaName() : "unknown",
+                event.getDuration().toMillis(),
+                describeStackTrace(event));
+    }
+
+    private static String describeStackTrace(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "\t(no stack trace)";
+        }
+
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        return frames.stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> "\tat " + frame.getMethod().getType().getName() + "."
+                        + frame.getMethod().getName() + ":" + frame.getLineNumber())
+                .collect(Collectors.joining("\n"));
+    }
+}
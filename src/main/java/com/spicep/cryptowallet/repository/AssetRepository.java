@@ -1,7 +1,9 @@
 package com.spicep.cryptowallet.repository;
 
+import com.spicep.cryptowallet.dto.projection.SymbolHolders;
 import com.spicep.cryptowallet.entity.Asset;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,5 +14,9 @@ public interface AssetRepository extends JpaRepository<Asset,Long> {
 
     Optional<Asset> findByWalletIdAndSymbol (Long wallet_id, String symbol);
 
-    List<Asset> findBySymbol(String symbol);
+    /**
+     * @return The number of wallets holding each symbol, one row per distinct symbol
+     */
+    @Query("SELECT new com.spicep.cryptowallet.dto.projection.SymbolHolders(a.symbol, COUNT(a)) FROM Asset a GROUP BY a.symbol")
+    List<SymbolHolders> findHolderCounts();
 }
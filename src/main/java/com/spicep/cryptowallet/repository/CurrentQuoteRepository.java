@@ -0,0 +1,21 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.entity.CurrentQuote;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface CurrentQuoteRepository extends JpaRepository<CurrentQuote, String>, CurrentQuoteRepositoryCustom {
+
+    /**
+     * @param since The exclusive lower bound of the update time
+     * @return The quotes updated after the given time, oldest first
+     */
+    @Query("SELECT q FROM CurrentQuote q WHERE q.updatedAt > :since ORDER BY q.updatedAt")
+    List<CurrentQuote> findUpdatedSince(@Param("since") Instant since);
+}
@@ -0,0 +1,28 @@
+package com.spicep.cryptowallet.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Set-based writes of current quotes.
+ */
+public interface CurrentQuoteRepositoryCustom {
+
+    /**
+     * Inserts or updates the quotes of the given symbols with JDBC batches.
+     * Within a transaction, a quote inserted meanwhile by another writer fails the upsert with a
+     * {@link org.springframework.dao.DuplicateKeyException}, and the transaction has to be retried.
+     *
+     * @param pricesBySymbol The latest prices by symbol
+     * @param updatedAt The time of the prices
+     */
+    void upsertAll(Map<String, BigDecimal> pricesBySymbol, Instant updatedAt);
+
+    /**
+     * Creates the missing quotes of held symbols from the prices stored on their assets.
+     *
+     * @return The number of created quotes
+     */
+    int backfillFromAssets();
+}
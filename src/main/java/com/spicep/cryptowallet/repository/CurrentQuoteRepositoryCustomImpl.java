@@ -0,0 +1,115 @@
+package com.spicep.cryptowallet.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * JDBC implementation of {@link CurrentQuoteRepositoryCustom}.
+ * Upserts update the existing rows first and insert the rest, which works on every supported database.
+ * Quotes inserted meanwhile by another instance are updated instead, each statement committing on its own,
+ * so such a conflict does not abort the other writes. Within a transaction the conflict may have aborted it,
+ * so it is thrown for the caller to retry the transaction.
+ * Quotes are written in symbol order, the order in which writers lock them.
+ */
+class CurrentQuoteRepositoryCustomImpl implements CurrentQuoteRepositoryCustom {
+
+    private static final String UPDATE_SQL = "UPDATE current_quote SET price = ?, updated_at = ? WHERE symbol = ?";
+    private static final String INSERT_SQL = "INSERT INTO current_quote (symbol, price, updated_at) VALUES (?, ?, ?)";
+    private static final String SELECT_SYMBOLS_SQL = "SELECT symbol FROM current_quote WHERE symbol IN (:symbols)";
+    private static final String BACKFILL_SQL = """
+            INSERT INTO current_quote (symbol, price, updated_at)
+            SELECT a.symbol, MAX(a.price), CURRENT_TIMESTAMP
+            FROM asset a
+            WHERE a.price IS NOT NULL
+              AND NOT EXISTS (SELECT 1 FROM current_quote q WHERE q.symbol = a.symbol)
+            GROUP BY a.symbol
+            """;
+
+    // Inserts conflicting with the quotes inserted by other instances are retried as updates
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    CurrentQuoteRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    public void upsertAll(Map<String, BigDecimal> pricesBySymbol, Instant updatedAt) {
+        OffsetDateTime timestamp = updatedAt.atOffset(ZoneOffset.UTC);
+        List<Map.Entry<String, BigDecimal>> entries = new ArrayList<>(new TreeMap<>(pricesBySymbol).entrySet());
+
+        for (int attempt = 1; !entries.isEmpty(); attempt++) {
+            List<Map.Entry<String, BigDecimal>> missing = updateExisting(entries, timestamp);
+            if (missing.isEmpty()) {
+                return;
+            }
+
+            try {
+                jdbcTemplate.batchUpdate(INSERT_SQL, missing.stream()
+                        .map(entry -> new Object[]{entry.getKey(), entry.getValue(), timestamp})
+                        .toList());
+                return;
+            } catch (DuplicateKeyException e) {
+                if (attempt == MAX_UPSERT_ATTEMPTS || TransactionSynchronizationManager.isActualTransactionActive()) {
+                    throw e;
+                }
+                // Another instance inserted some of the quotes first, the missing ones are updated or inserted again
+                entries = missing;
+            }
+        }
+    }
+
+    /**
+     * Updates the existing quotes.
+     *
+     * @return The entries without a quote
+     */
+    private List<Map.Entry<String, BigDecimal>> updateExisting(List<Map.Entry<String, BigDecimal>> entries,
+                                                              OffsetDateTime timestamp) {
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, entries.stream()
+                .map(entry -> new Object[]{entry.getValue(), timestamp, entry.getKey()})
+                .toList());
+        // Drivers may execute a batch without reporting its counts, the existing quotes are then read back
+        Set<String> quoted = Arrays.stream(updated).anyMatch(count -> count == Statement.SUCCESS_NO_INFO)
+                ? new HashSet<>(namedParameterJdbcTemplate.queryForList(SELECT_SYMBOLS_SQL,
+                        Map.of("symbols", entries.stream().map(Map.Entry::getKey).toList()), String.class))
+                : Set.of();
+
+        List<Map.Entry<String, BigDecimal>> missing = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            boolean exists = updated[i] == Statement.SUCCESS_NO_INFO ? quoted.contains(entries.get(i).getKey()) : updated[i] > 0;
+            if (!exists) {
+                missing.add(entries.get(i));
+            }
+        }
+        return missing;
+    }
+
+    @Override
+    public int backfillFromAssets() {
+        try {
+            return jdbcTemplate.update(BACKFILL_SQL);
+        } catch (DuplicateKeyException e) {
+            // A price update created the same quotes first, they are more recent anyway
+            return 0;
+        }
+    }
+}
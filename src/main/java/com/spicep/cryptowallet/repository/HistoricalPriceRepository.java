@@ -0,0 +1,14 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.entity.HistoricalPrice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface HistoricalPriceRepository extends JpaRepository<HistoricalPrice, Long> {
+
+    Optional<HistoricalPrice> findBySymbolAndIntervalAndDay(String symbol, String interval, LocalDate day);
+}
@@ -0,0 +1,23 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.entity.InstanceHeartbeat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface InstanceHeartbeatRepository extends JpaRepository<InstanceHeartbeat, String>, InstanceHeartbeatRepositoryCustom {
+
+    /**
+     * Retrieves the instances alive since a given time.
+     *
+     * @param since Oldest heartbeat of a live instance (inclusive)
+     * @return The ids of the live instances, sorted
+     */
+    @Query("SELECT h.instanceId FROM InstanceHeartbeat h WHERE h.lastSeen >= :since ORDER BY h.instanceId")
+    List<String> findLiveInstances(@Param("since") Instant since);
+}
@@ -0,0 +1,30 @@
+package com.spicep.cryptowallet.repository;
+
+import java.time.Instant;
+
+/**
+ * Set-based writes of instance heartbeats.
+ * Heartbeats are written and compared with the clock of the database, shared by every instance.
+ */
+public interface InstanceHeartbeatRepositoryCustom {
+
+    /**
+     * Inserts or updates the heartbeat of an instance, at the current time of the database.
+     *
+     * @param instanceId The instance id
+     */
+    void beat(String instanceId);
+
+    /**
+     * @return The current time of the database
+     */
+    Instant currentTime();
+
+    /**
+     * Deletes the heartbeats of the instances gone since a given time.
+     *
+     * @param cutoff Heartbeats strictly before this time are deleted
+     * @return The number of deleted heartbeats
+     */
+    int deleteOlderThan(Instant cutoff);
+}
@@ -0,0 +1,49 @@
+package com.spicep.cryptowallet.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * JDBC implementation of {@link InstanceHeartbeatRepositoryCustom}.
+ * Heartbeats update the existing row first and insert it when missing, which works on every supported database.
+ * The heartbeat times are set by the database, so the clocks of the instances do not need to agree.
+ */
+class InstanceHeartbeatRepositoryCustomImpl implements InstanceHeartbeatRepositoryCustom {
+
+    private static final String UPDATE_SQL = "UPDATE instance_heartbeat SET last_seen = CURRENT_TIMESTAMP WHERE instance_id = ?";
+    private static final String INSERT_SQL = "INSERT INTO instance_heartbeat (instance_id, last_seen) VALUES (?, CURRENT_TIMESTAMP)";
+    private static final String CURRENT_TIME_SQL = "SELECT CURRENT_TIMESTAMP";
+    private static final String DELETE_SQL = "DELETE FROM instance_heartbeat WHERE last_seen < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    InstanceHeartbeatRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void beat(String instanceId) {
+        if (jdbcTemplate.update(UPDATE_SQL, instanceId) == 0) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, instanceId);
+            } catch (DuplicateKeyException e) {
+                // Only the instance itself writes its row, it was inserted by an overlapping heartbeat
+                jdbcTemplate.update(UPDATE_SQL, instanceId);
+            }
+        }
+    }
+
+    @Override
+    public Instant currentTime() {
+        return jdbcTemplate.queryForObject(CURRENT_TIME_SQL, OffsetDateTime.class).toInstant();
+    }
+
+    @Override
+    public int deleteOlderThan(Instant cutoff) {
+        return jdbcTemplate.update(DELETE_SQL, cutoff.atOffset(ZoneOffset.UTC));
+    }
+}
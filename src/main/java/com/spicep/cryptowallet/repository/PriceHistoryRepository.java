@@ -1,13 +1,55 @@
 package com.spicep.cryptowallet.repository;
 
+import com.spicep.cryptowallet.dto.projection.PriceSummary;
 import com.spicep.cryptowallet.entity.PriceHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface PriceHistoryRepository extends JpaRepository<PriceHistory, Long > {
+public interface PriceHistoryRepository extends JpaRepository<PriceHistory, Long >, PriceHistoryRepositoryCustom {
 
-    List<PriceHistory> findAllBySymbol(String symbol);
+    /**
+     * Retrieves the ticks of a symbol over a time range, using the (symbol, date) index.
+     *
+     * @param symbol The token symbol, in lower case as stored
+     * @param from Start of the range (inclusive)
+     * @param to End of the range (exclusive)
+     * @return The ticks of the range, oldest first
+     */
+    @Query("""
+            SELECT p FROM PriceHistory p
+            WHERE p.symbol = :symbol AND p.timestamp >= :from AND p.timestamp < :to
+            ORDER BY p.timestamp
+            """)
+    List<PriceHistory> findBySymbolInRange(@Param("symbol") String symbol, @Param("from") Instant from, @Param("to") Instant to);
+
+    /**
+     * Summarizes the ticks of a symbol over a time range, using the (symbol, date) index.
+     *
+     * @param symbol The token symbol, in lower case as stored
+     * @param from Start of the range (inclusive)
+     * @param to End of the range (exclusive)
+     * @return The sum and count of the prices of the range and the times of its first and last ticks,
+     * with a zero count if there is none
+     */
+    @Query("""
+            SELECT new com.spicep.cryptowallet.dto.projection.PriceSummary(SUM(p.price), COUNT(p), MIN(p.timestamp), MAX(p.timestamp))
+            FROM PriceHistory p
+            WHERE p.symbol = :symbol AND p.timestamp >= :from AND p.timestamp < :to
+            """)
+    Optional<PriceSummary> summarizeRange(@Param("symbol") String symbol,
+                                          @Param("from") Instant from,
+                                          @Param("to") Instant to);
+
+    /**
+     * @return The time of the oldest stored tick, empty if there is none
+     */
+    @Query("SELECT MIN(p.timestamp) FROM PriceHistory p")
+    Optional<Instant> findFirstTimestamp();
 }
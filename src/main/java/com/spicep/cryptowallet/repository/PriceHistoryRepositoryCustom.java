@@ -0,0 +1,37 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.entity.PriceHistory;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Batched inserts and deletes of price history records.
+ */
+public interface PriceHistoryRepositoryCustom {
+
+    /**
+     * Inserts the given records with a single JDBC batch, their symbols in lower case.
+     * Generated ids are not read back.
+     *
+     * @param priceHistories The records to insert
+     */
+    void insertAll(List<PriceHistory> priceHistories);
+
+    /**
+     * Lowers the case of the symbols of the ticks stored before symbols were normalized.
+     *
+     * @return The number of updated ticks
+     */
+    int lowerCaseSymbols();
+
+    /**
+     * Deletes a batch of the records older than a given time.
+     * Deleting in batches keeps transactions and locks short on large tables.
+     *
+     * @param cutoff The records strictly before this time are deleted
+     * @param limit The maximum number of records to delete
+     * @return The number of deleted records, lower than the limit once none are left
+     */
+    int deleteOlderThan(Instant cutoff, int limit);
+}
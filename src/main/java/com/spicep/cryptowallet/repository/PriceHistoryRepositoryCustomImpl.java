@@ -0,0 +1,59 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.entity.PriceHistory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link PriceHistoryRepositoryCustom}.
+ * Hibernate disables insert batching for IDENTITY ids, so the records are inserted with plain JDBC.
+ */
+class PriceHistoryRepositoryCustomImpl implements PriceHistoryRepositoryCustom {
+
+    private static final String INSERT_SQL = "INSERT INTO price_history (symbol, price, date) VALUES (?, ?, ?)";
+    private static final String DELETE_OLDER_THAN_SQL = """
+            DELETE FROM price_history
+            WHERE id IN (SELECT id FROM price_history WHERE date < ? LIMIT ?)
+            """;
+    private static final String LOWER_CASE_SYMBOLS_SQL =
+            "UPDATE price_history SET symbol = LOWER(symbol) WHERE symbol <> LOWER(symbol)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    PriceHistoryRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(List<PriceHistory> priceHistories) {
+        if (priceHistories.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> arguments = priceHistories.stream()
+                .map(priceHistory -> new Object[]{
+                        priceHistory.getSymbol().toLowerCase(),
+                        priceHistory.getPrice(),
+                        priceHistory.getTimestamp().atOffset(ZoneOffset.UTC)})
+                .toList();
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, arguments);
+    }
+
+    @Override
+    @Transactional
+    public int lowerCaseSymbols() {
+        return jdbcTemplate.update(LOWER_CASE_SYMBOLS_SQL);
+    }
+
+    @Override
+    @Transactional
+    public int deleteOlderThan(Instant cutoff, int limit) {
+        return jdbcTemplate.update(DELETE_OLDER_THAN_SQL, cutoff.atOffset(ZoneOffset.UTC), limit);
+    }
+}
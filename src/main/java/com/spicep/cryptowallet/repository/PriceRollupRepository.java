@@ -0,0 +1,66 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.dto.projection.PriceSummary;
+import com.spicep.cryptowallet.entity.PriceRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PriceRollupRepository extends JpaRepository<PriceRollup, Long>, PriceRollupRepositoryCustom {
+
+    /**
+     * Retrieves the rollups of a symbol over a time range.
+     *
+     * @param symbol The token symbol, in lower case as stored
+     * @param resolution The period covered by each rollup
+     * @param from Start of the range (inclusive)
+     * @param to End of the range (exclusive)
+     * @return The rollups starting in the range, oldest first
+     */
+    @Query("""
+            SELECT r FROM PriceRollup r
+            WHERE r.symbol = :symbol AND r.resolution = :resolution AND r.bucketStart >= :from AND r.bucketStart < :to
+            ORDER BY r.bucketStart
+            """)
+    List<PriceRollup> findBySymbolInRange(@Param("symbol") String symbol,
+                                          @Param("resolution") PriceRollup.Resolution resolution,
+                                          @Param("from") Instant from,
+                                          @Param("to") Instant to);
+
+    /**
+     * Summarizes the prices of a symbol over one period from its rollup.
+     *
+     * @param symbol The token symbol, in lower case as stored
+     * @param resolution The period covered by the rollup
+     * @param bucketStart Start of the period
+     * @return The sum and count of the prices of the period and the times of its first and last ticks,
+     * empty if it is not rolled up or was rolled up before the sum was recorded
+     */
+    @Query("""
+            SELECT new com.spicep.cryptowallet.dto.projection.PriceSummary(r.priceSum, CAST(r.tickCount AS Long), r.openTime, r.closeTime)
+            FROM PriceRollup r
+            WHERE r.symbol = :symbol AND r.resolution = :resolution AND r.bucketStart = :bucketStart
+              AND r.priceSum IS NOT NULL
+            """)
+    Optional<PriceSummary> findSummary(@Param("symbol") String symbol,
+                                       @Param("resolution") PriceRollup.Resolution resolution,
+                                       @Param("bucketStart") Instant bucketStart);
+
+    /**
+     * @return The start of the oldest rollup of the resolution, empty if there is none
+     */
+    @Query("SELECT MIN(r.bucketStart) FROM PriceRollup r WHERE r.resolution = :resolution")
+    Optional<Instant> findFirstBucketStart(@Param("resolution") PriceRollup.Resolution resolution);
+
+    /**
+     * @return The start of the latest rollup of the resolution, empty if there is none
+     */
+    @Query("SELECT MAX(r.bucketStart) FROM PriceRollup r WHERE r.resolution = :resolution")
+    Optional<Instant> findLastBucketStart(@Param("resolution") PriceRollup.Resolution resolution);
+}
@@ -0,0 +1,40 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.entity.PriceRollup;
+
+import java.time.Instant;
+
+/**
+ * Computation and deletion of price rollups.
+ */
+public interface PriceRollupRepositoryCustom {
+
+    /**
+     * Computes the rollups of every symbol for the periods of a time range, replacing those already stored.
+     * Hourly rollups are computed from the price history ticks, daily rollups from the hourly rollups.
+     *
+     * @param resolution The period covered by each rollup
+     * @param from Start of the range, aligned on the resolution (inclusive)
+     * @param to End of the range, aligned on the resolution (exclusive)
+     * @return The number of rollups stored
+     */
+    int rollUp(PriceRollup.Resolution resolution, Instant from, Instant to);
+
+    /**
+     * Deletes a batch of the rollups of a resolution starting before a given time.
+     *
+     * @param resolution The period covered by the rollups to delete
+     * @param cutoff The rollups starting strictly before this time are deleted
+     * @param limit The maximum number of rollups to delete
+     * @return The number of deleted rollups, lower than the limit once none are left
+     */
+    int deleteOlderThan(PriceRollup.Resolution resolution, Instant cutoff, int limit);
+
+    /**
+     * Lowers the case of the symbols of the rollups stored before symbols were normalized.
+     * When a period was also rolled up under the lower case symbol, that rollup is kept.
+     *
+     * @return The number of updated rollups
+     */
+    int lowerCaseSymbols();
+}
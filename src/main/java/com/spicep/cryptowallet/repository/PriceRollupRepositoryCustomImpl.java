@@ -0,0 +1,155 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.entity.PriceRollup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC implementation of {@link PriceRollupRepositoryCustom}.
+ * Sources are streamed in time order and aggregated in memory, one entry per symbol and period,
+ * so the open and close prices need no database specific functions.
+ * The times of the open and close are kept with the prices, so readers know whether a period was recorded throughout.
+ * The sum of the prices is kept too, so daily rollups give the average price of their day.
+ * Symbols are stored in lower case, as the ticks are.
+ */
+class PriceRollupRepositoryCustomImpl implements PriceRollupRepositoryCustom {
+
+    private static final String TICKS_SQL = """
+            SELECT symbol, date, price, price, price, price, 1, date, price, date
+            FROM price_history
+            WHERE date >= ? AND date < ?
+            ORDER BY date, id
+            """;
+    private static final String HOURLY_ROLLUPS_SQL = """
+            SELECT symbol, bucket_start, open_price, high_price, low_price, close_price, tick_count, close_time, price_sum, open_time
+            FROM price_rollup
+            WHERE resolution = 'HOUR' AND bucket_start >= ? AND bucket_start < ?
+            ORDER BY bucket_start
+            """;
+    private static final String DELETE_RANGE_SQL =
+            "DELETE FROM price_rollup WHERE resolution = ? AND bucket_start >= ? AND bucket_start < ?";
+    private static final String INSERT_SQL = """
+            INSERT INTO price_rollup (symbol, resolution, bucket_start, open_price, high_price, low_price, close_price, tick_count, close_time,
+                                      price_sum, open_time)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String DELETE_OLDER_THAN_SQL = """
+            DELETE FROM price_rollup
+            WHERE id IN (SELECT id FROM price_rollup WHERE resolution = ? AND bucket_start < ? LIMIT ?)
+            """;
+    private static final String DELETE_SHADOWED_SYMBOLS_SQL = """
+            DELETE FROM price_rollup
+            WHERE symbol <> LOWER(symbol)
+              AND EXISTS (SELECT 1 FROM price_rollup r
+                          WHERE r.symbol = LOWER(price_rollup.symbol)
+                            AND r.resolution = price_rollup.resolution
+                            AND r.bucket_start = price_rollup.bucket_start)
+            """;
+    private static final String LOWER_CASE_SYMBOLS_SQL =
+            "UPDATE price_rollup SET symbol = LOWER(symbol) WHERE symbol <> LOWER(symbol)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private record BucketKey(String symbol, Instant bucketStart) {
+    }
+
+    /**
+     * Open, high, low and close prices of a period, merged from its sources in time order.
+     * The sum is unknown once a source's is, as for the hourly rollups written before it was recorded.
+     */
+    private static final class Ohlc {
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private int tickCount;
+        private Instant closeTime;
+        private BigDecimal priceSum;
+        private Instant openTime;
+
+        void merge(BigDecimal sourceOpen, BigDecimal sourceHigh, BigDecimal sourceLow, BigDecimal sourceClose, int sourceTicks,
+                   Instant sourceCloseTime, BigDecimal sourceSum, Instant sourceOpenTime) {
+            if (open == null) {
+                open = sourceOpen;
+                high = sourceHigh;
+                low = sourceLow;
+                priceSum = sourceSum;
+                openTime = sourceOpenTime;
+            } else {
+                high = high.max(sourceHigh);
+                low = low.min(sourceLow);
+                priceSum = priceSum != null && sourceSum != null ? priceSum.add(sourceSum) : null;
+            }
+            close = sourceClose;
+            tickCount += sourceTicks;
+            closeTime = sourceCloseTime;
+        }
+    }
+
+    PriceRollupRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public int rollUp(PriceRollup.Resolution resolution, Instant from, Instant to) {
+        OffsetDateTime start = from.atOffset(ZoneOffset.UTC);
+        OffsetDateTime end = to.atOffset(ZoneOffset.UTC);
+        String sourceSql = resolution == PriceRollup.Resolution.HOUR ? TICKS_SQL : HOURLY_ROLLUPS_SQL;
+
+        Map<BucketKey, Ohlc> buckets = new LinkedHashMap<>();
+        jdbcTemplate.query(sourceSql, rs -> {
+            Instant time = rs.getObject(2, OffsetDateTime.class).toInstant();
+            OffsetDateTime closeTime = rs.getObject(8, OffsetDateTime.class);
+            OffsetDateTime openTime = rs.getObject(10, OffsetDateTime.class);
+            buckets.computeIfAbsent(new BucketKey(rs.getString(1).toLowerCase(), resolution.bucketOf(time)), key -> new Ohlc())
+                    .merge(rs.getBigDecimal(3), rs.getBigDecimal(4), rs.getBigDecimal(5), rs.getBigDecimal(6), rs.getInt(7),
+                            closeTime != null ? closeTime.toInstant() : null, rs.getBigDecimal(9),
+                            openTime != null ? openTime.toInstant() : null);
+        }, start, end);
+
+        // Reruns replace the rollups of the range, so the job can safely retry a range
+        jdbcTemplate.update(DELETE_RANGE_SQL, resolution.name(), start, end);
+
+        List<Object[]> rows = buckets.entrySet().stream()
+                .map(entry -> new Object[]{
+                        entry.getKey().symbol(),
+                        resolution.name(),
+                        entry.getKey().bucketStart().atOffset(ZoneOffset.UTC),
+                        entry.getValue().open,
+                        entry.getValue().high,
+                        entry.getValue().low,
+                        entry.getValue().close,
+                        entry.getValue().tickCount,
+                        entry.getValue().closeTime != null ? entry.getValue().closeTime.atOffset(ZoneOffset.UTC) : null,
+                        entry.getValue().priceSum,
+                        entry.getValue().openTime != null ? entry.getValue().openTime.atOffset(ZoneOffset.UTC) : null})
+                .toList();
+
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+        return rows.size();
+    }
+
+    @Override
+    @Transactional
+    public int lowerCaseSymbols() {
+        jdbcTemplate.update(DELETE_SHADOWED_SYMBOLS_SQL);
+        return jdbcTemplate.update(LOWER_CASE_SYMBOLS_SQL);
+    }
+
+    @Override
+    @Transactional
+    public int deleteOlderThan(PriceRollup.Resolution resolution, Instant cutoff, int limit) {
+        return jdbcTemplate.update(DELETE_OLDER_THAN_SQL, resolution.name(), cutoff.atOffset(ZoneOffset.UTC), limit);
+    }
+}
@@ -1,9 +1,45 @@
 package com.spicep.cryptowallet.repository;
 
+import com.spicep.cryptowallet.dto.projection.WalletAssetRow;
 import com.spicep.cryptowallet.entity.Wallet;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface WalletRepository extends JpaRepository<Wallet, Long > {
+public interface WalletRepository extends JpaRepository<Wallet, Long >, WalletRepositoryCustom {
+
+    /**
+     * Finds a wallet and locks it until the end of the transaction.
+     * Writers of the wallet total take this lock after the locks of their symbols, so its incremental updates
+     * never interleave with another change of the same assets.
+     *
+     * @param walletId The wallet id
+     * @return The locked wallet
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.id = :walletId")
+    Optional<Wallet> findByIdForUpdate(@Param("walletId") Long walletId);
+
+    /**
+     * Reads the assets of a wallet with their materialized values and the wallet total in a single query.
+     *
+     * @param walletId The wallet id
+     * @return One row per asset, a single row without asset for an empty wallet, or no rows if the wallet does not exist
+     */
+    @Query("""
+            SELECT new com.spicep.cryptowallet.dto.projection.WalletAssetRow(
+                w.id, w.totalValue, a.symbol, a.quantity, a.price, a.value)
+            FROM Wallet w
+            LEFT JOIN w.assets a
+            WHERE w.id = :walletId
+            ORDER BY a.id
+            """)
+    List<WalletAssetRow> findWalletAssetRows(@Param("walletId") Long walletId);
 }
@@ -0,0 +1,61 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.dto.projection.ImportedWallets;
+import com.spicep.cryptowallet.dto.projection.WalletHolding;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based maintenance of the materialized asset values and wallet totals, and bulk imports of wallets.
+ */
+public interface WalletRepositoryCustom {
+
+    /**
+     * Revalues the assets of the given symbols and applies the change of their values to the wallet totals.
+     * Only assets whose price changed are written, with their wallets, so the cost grows with the number of holders.
+     * Takes the locks of {@link #lockSymbols(Collection)}, then the locks of the holder wallets in id order.
+     *
+     * @param pricesBySymbol The new prices by symbol
+     * @return The number of revalued assets
+     */
+    int applyPrices(Map<String, BigDecimal> pricesBySymbol);
+
+    /**
+     * Locks the quotes of the given symbols until the end of the transaction.
+     * Writers of assets take this lock before the lock of the wallet, so a price change and a change of quantity
+     * of the same asset never interleave. Symbols without a quote yet are not locked.
+     *
+     * @param symbols The asset symbols
+     */
+    void lockSymbols(Collection<String> symbols);
+
+    /**
+     * Computes the values of assets and totals of wallets stored before they were materialized.
+     * Assets are valued with the quote of their symbol, or their own price if there is none.
+     *
+     * @return The number of valued assets
+     */
+    int backfillValues();
+
+    /**
+     * Retrieves the wallets of the users with the given emails, creating the missing users and wallets
+     * with JDBC batches.
+     *
+     * @param emails The user emails
+     * @return The wallet id of each email, and the number of created wallets
+     */
+    ImportedWallets findOrCreateWallets(Collection<String> emails);
+
+    /**
+     * Adds quantities to the assets of wallets with JDBC batches, creating the missing assets.
+     * The changed assets are revalued at the given prices and the totals of their wallets are recomputed.
+     *
+     * @param holdings The quantities to add, at most one per wallet and symbol
+     * @param pricesBySymbol The current price of each symbol of the holdings
+     * @return The number of created assets
+     */
+    int addHoldings(List<WalletHolding> holdings, Map<String, BigDecimal> pricesBySymbol);
+}
@@ -0,0 +1,233 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.dto.projection.ImportedWallets;
+import com.spicep.cryptowallet.dto.projection.WalletHolding;
+import com.spicep.cryptowallet.entity.Asset;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * JDBC implementation of {@link WalletRepositoryCustom}.
+ * A price change of a symbol changes the total of each holding wallet by
+ * {@code round(quantity * newPrice) - value} of its asset, which is applied to the wallets before the assets are revalued.
+ * A price change therefore writes one asset and one wallet row per holder.
+ * <p>
+ * Writers of the assets of a symbol first lock the quote of the symbol, see {@link #lockSymbols(Collection)},
+ * so a price change never computes the change of a total from an asset being changed by another writer.
+ * Price changes of other symbols only add to the same totals, and are not serialized.
+ * Values are rounded to cents per asset as in {@link Asset#reprice(BigDecimal)},
+ * so a total is always exactly the sum of its asset values.
+ * Bulk imports add quantities as {@link Asset#addQuantity(BigDecimal)} does,
+ * quantities being stored with two decimals.
+ */
+class WalletRepositoryCustomImpl implements WalletRepositoryCustom {
+
+    private static final String LOCK_SYMBOLS_SQL = """
+            SELECT symbol FROM current_quote WHERE symbol IN (:symbols) ORDER BY symbol FOR UPDATE
+            """;
+    private static final String LOCK_HOLDER_WALLETS_SQL = """
+            SELECT id FROM wallets
+            WHERE id IN (SELECT a.wallet_id FROM asset a WHERE a.symbol IN (:symbols) AND a.market_value IS NOT NULL)
+            ORDER BY id FOR UPDATE
+            """;
+    private static final String UPDATE_TOTALS_SQL = """
+            UPDATE wallets SET total_value = total_value + (
+                SELECT COALESCE(SUM(ROUND(a.quantity * ?, 2) - a.market_value), 0)
+                FROM asset a
+                WHERE a.wallet_id = wallets.id AND a.symbol = ? AND a.price <> ? AND a.market_value IS NOT NULL)
+            WHERE total_value IS NOT NULL
+              AND id IN (SELECT a.wallet_id FROM asset a WHERE a.symbol = ? AND a.price <> ? AND a.market_value IS NOT NULL)
+            """;
+    private static final String UPDATE_VALUES_SQL = """
+            UPDATE asset SET price = ?, market_value = ROUND(quantity * ?, 2)
+            WHERE symbol = ? AND price <> ? AND market_value IS NOT NULL
+            """;
+    private static final String BACKFILL_VALUES_SQL = """
+            UPDATE asset SET
+                price = COALESCE((SELECT q.price FROM current_quote q WHERE q.symbol = asset.symbol), price),
+                market_value = ROUND(quantity * COALESCE((SELECT q.price FROM current_quote q WHERE q.symbol = asset.symbol), price), 2)
+            WHERE market_value IS NULL
+            """;
+    private static final String BACKFILL_TOTALS_SQL = """
+            UPDATE wallets SET total_value = (
+                SELECT COALESCE(SUM(a.market_value), 0) FROM asset a WHERE a.wallet_id = wallets.id)
+            WHERE total_value IS NULL
+            """;
+
+    private static final String SELECT_USER_EMAILS_SQL = "SELECT email FROM users WHERE email IN (:emails)";
+    private static final String INSERT_USER_SQL = "INSERT INTO users (email) VALUES (?)";
+    private static final String INSERT_MISSING_WALLETS_SQL = """
+            INSERT INTO wallets (user_id, total_value)
+            SELECT u.id, 0 FROM users u
+            WHERE u.email IN (:emails) AND NOT EXISTS (SELECT 1 FROM wallets w WHERE w.user_id = u.id)
+            """;
+    private static final String SELECT_WALLET_IDS_SQL = """
+            SELECT u.email, w.id FROM users u JOIN wallets w ON w.user_id = u.id
+            WHERE u.email IN (:emails)
+            """;
+    private static final String LOCK_WALLETS_SQL = "SELECT id FROM wallets WHERE id IN (:walletIds) ORDER BY id FOR UPDATE";
+    private static final String ADD_QUANTITY_SQL = """
+            UPDATE asset SET quantity = quantity + ?, price = ?, market_value = ROUND((quantity + ?) * ?, 2)
+            WHERE wallet_id = ? AND symbol = ?
+            """;
+    private static final String SELECT_HELD_ASSETS_SQL = "SELECT wallet_id, symbol FROM asset WHERE wallet_id IN (:walletIds)";
+    private static final String INSERT_ASSET_SQL = """
+            INSERT INTO asset (wallet_id, symbol, quantity, price, market_value) VALUES (?, ?, ?, ?, ?)
+            """;
+    private static final String RECOMPUTE_TOTALS_SQL = """
+            UPDATE wallets SET total_value = (
+                SELECT COALESCE(SUM(a.market_value), 0) FROM asset a WHERE a.wallet_id = wallets.id)
+            WHERE id IN (:walletIds)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    WalletRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    @Transactional
+    public int applyPrices(Map<String, BigDecimal> pricesBySymbol) {
+        if (pricesBySymbol.isEmpty()) {
+            return 0;
+        }
+
+        // The statements below start after the lock, so they see the assets as left by any concurrent writer
+        lockSymbols(pricesBySymbol.keySet());
+        // The holder wallets are then taken in id order, as imports take them, so price changes of different symbols
+        // held by the same wallets wait for each other instead of deadlocking
+        namedParameterJdbcTemplate.query(LOCK_HOLDER_WALLETS_SQL, Map.of("symbols", pricesBySymbol.keySet()),
+                (RowCallbackHandler) row -> { });
+
+        List<Map.Entry<String, BigDecimal>> prices = pricesBySymbol.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), Asset.roundPrice(entry.getValue())))
+                .toList();
+
+        jdbcTemplate.batchUpdate(UPDATE_TOTALS_SQL, prices.stream()
+                .map(price -> new Object[]{price.getValue(), price.getKey(), price.getValue(), price.getKey(), price.getValue()})
+                .toList());
+
+        int[] revalued = jdbcTemplate.batchUpdate(UPDATE_VALUES_SQL, prices.stream()
+                .map(price -> new Object[]{price.getValue(), price.getValue(), price.getKey(), price.getValue()})
+                .toList());
+
+        return Arrays.stream(revalued).map(count -> Math.max(count, 0)).sum();
+    }
+
+    @Override
+    @Transactional
+    public void lockSymbols(Collection<String> symbols) {
+        if (!symbols.isEmpty()) {
+            // Taken in symbol order so concurrent writers cannot deadlock
+            namedParameterJdbcTemplate.queryForList(LOCK_SYMBOLS_SQL, Map.of("symbols", symbols), String.class);
+        }
+    }
+
+    @Override
+    @Transactional
+    public int backfillValues() {
+        int valued = jdbcTemplate.update(BACKFILL_VALUES_SQL);
+        jdbcTemplate.update(BACKFILL_TOTALS_SQL);
+        return valued;
+    }
+
+    @Override
+    @Transactional
+    public ImportedWallets findOrCreateWallets(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return new ImportedWallets(Map.of(), 0);
+        }
+
+        Map<String, Collection<String>> parameters = Map.of("emails", emails);
+        Set<String> existingEmails = new HashSet<>(
+                namedParameterJdbcTemplate.queryForList(SELECT_USER_EMAILS_SQL, parameters, String.class));
+        List<Object[]> newUsers = emails.stream()
+                .filter(email -> !existingEmails.contains(email))
+                .map(email -> new Object[]{email})
+                .toList();
+        if (!newUsers.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_USER_SQL, newUsers);
+        }
+        int created = namedParameterJdbcTemplate.update(INSERT_MISSING_WALLETS_SQL, parameters);
+
+        Map<String, Long> walletIds = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_WALLET_IDS_SQL, parameters,
+                (RowCallbackHandler) row -> walletIds.put(row.getString(1), row.getLong(2)));
+        return new ImportedWallets(walletIds, created);
+    }
+
+    @Override
+    @Transactional
+    public int addHoldings(List<WalletHolding> holdings, Map<String, BigDecimal> pricesBySymbol) {
+        if (holdings.isEmpty()) {
+            return 0;
+        }
+
+        // Same locks as adding an asset, the wallets are taken in id order so concurrent imports cannot deadlock
+        Set<String> symbols = new HashSet<>();
+        Set<Long> walletIds = new TreeSet<>();
+        holdings.forEach(holding -> {
+            symbols.add(holding.symbol());
+            walletIds.add(holding.walletId());
+        });
+        lockSymbols(symbols);
+        Map<String, Collection<Long>> parameters = Map.of("walletIds", walletIds);
+        namedParameterJdbcTemplate.queryForList(LOCK_WALLETS_SQL, parameters, Long.class);
+
+        List<Object[]> updates = new ArrayList<>(holdings.size());
+        for (WalletHolding holding : holdings) {
+            BigDecimal quantity = holding.quantity().setScale(2, RoundingMode.HALF_UP);
+            BigDecimal price = Asset.roundPrice(pricesBySymbol.get(holding.symbol()));
+            updates.add(new Object[]{quantity, price, quantity, price, holding.walletId(), holding.symbol()});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(ADD_QUANTITY_SQL, updates);
+        // Drivers may execute a batch without reporting its counts, the held assets are then read back
+        Set<Map.Entry<Long, String>> heldAssets = Arrays.stream(updated).anyMatch(count -> count == Statement.SUCCESS_NO_INFO)
+                ? findHeldAssets(parameters) : Set.of();
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < holdings.size(); i++) {
+            WalletHolding holding = holdings.get(i);
+            boolean missing = updated[i] == Statement.SUCCESS_NO_INFO
+                    ? !heldAssets.contains(Map.entry(holding.walletId(), holding.symbol()))
+                    : updated[i] == 0;
+            if (missing) {
+                Object[] update = updates.get(i);
+                BigDecimal quantity = (BigDecimal) update[0];
+                BigDecimal price = (BigDecimal) update[1];
+                inserts.add(new Object[]{update[4], update[5], quantity, price, Asset.valueOf(quantity, price)});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ASSET_SQL, inserts);
+        }
+
+        namedParameterJdbcTemplate.update(RECOMPUTE_TOTALS_SQL, parameters);
+        return inserts.size();
+    }
+
+    private Set<Map.Entry<Long, String>> findHeldAssets(Map<String, Collection<Long>> parameters) {
+        Set<Map.Entry<Long, String>> heldAssets = new HashSet<>();
+        namedParameterJdbcTemplate.query(SELECT_HELD_ASSETS_SQL, parameters,
+                (RowCallbackHandler) row -> heldAssets.add(Map.entry(row.getLong(1), row.getString(2))));
+        return heldAssets;
+    }
+}
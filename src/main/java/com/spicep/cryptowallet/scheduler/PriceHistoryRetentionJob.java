@@ -0,0 +1,178 @@
+package com.spicep.cryptowallet.scheduler;
+
+import com.spicep.cryptowallet.entity.PriceRollup;
+import com.spicep.cryptowallet.repository.PriceHistoryRepository;
+import com.spicep.cryptowallet.repository.PriceRollupRepository;
+import com.spicep.cryptowallet.service.InstanceShardCoordinator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Class responsible for keeping the price history bounded.
+ * Closed hours of ticks are rolled up into hourly OHLC rows and closed days of hourly rows into daily ones.
+ * Ticks older than {@code crypto.history.retention.raw} and hourly rollups older than
+ * {@code crypto.history.retention.hourly} are then deleted in batches, never before they are rolled up.
+ * Daily rollups are kept forever.
+ * Only one instance runs the job, the owner of its key for the {@link InstanceShardCoordinator}.
+ * While the instances disagree on the owner, a range rolled up by another instance is left to it.
+ * Disabled with {@code crypto.history.retention.enabled=false}.
+ * Stored rollups and deleted rows are published as metrics.
+ */
+@Component
+@ConditionalOnProperty(name = "crypto.history.retention.enabled", havingValue = "true", matchIfMissing = true)
+public class PriceHistoryRetentionJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceHistoryRetentionJob.class);
+
+    // Periods rolled up per transaction
+    private static final int BUCKETS_PER_BATCH = 24;
+
+    // Owned by the instance running the job, like a symbol
+    static final String JOB_KEY = "price-history-retention";
+
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final PriceRollupRepository priceRollupRepository;
+    private final InstanceShardCoordinator instanceShardCoordinator;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+
+    @Value("${crypto.history.retention.raw:30d}")
+    private Duration rawRetention = Duration.ofDays(30);
+
+    @Value("${crypto.history.retention.hourly:365d}")
+    private Duration hourlyRetention = Duration.ofDays(365);
+
+    @Value("${crypto.history.retention.delete-batch-size:10000}")
+    private int deleteBatchSize = 10000;
+
+    @Autowired
+    public PriceHistoryRetentionJob(PriceHistoryRepository priceHistoryRepository,
+                                    PriceRollupRepository priceRollupRepository,
+                                    InstanceShardCoordinator instanceShardCoordinator,
+                                    MeterRegistry meterRegistry) {
+        this(priceHistoryRepository, priceRollupRepository, instanceShardCoordinator, meterRegistry, Clock.systemUTC());
+    }
+
+    // Constructor needed for tests
+    PriceHistoryRetentionJob(PriceHistoryRepository priceHistoryRepository,
+                             PriceRollupRepository priceRollupRepository,
+                             InstanceShardCoordinator instanceShardCoordinator,
+                             MeterRegistry meterRegistry,
+                             Clock clock) {
+        this.priceHistoryRepository = priceHistoryRepository;
+        this.priceRollupRepository = priceRollupRepository;
+        this.instanceShardCoordinator = instanceShardCoordinator;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    /**
+     * Rolls up the closed periods and deletes the rows past their retention, every hour.
+     * Skipped unless this instance owns the job.
+     */
+    @Scheduled(cron = "${crypto.history.retention.cron:0 5 * * * *}")
+    public void run() {
+        if (!instanceShardCoordinator.owns(JOB_KEY)) {
+            logger.debug("Price history retention left to another instance");
+            return;
+        }
+
+        Instant now = clock.instant();
+
+        Instant hoursRolledUpTo = rollUp(PriceRollup.Resolution.HOUR,
+                priceHistoryRepository::findFirstTimestamp, now);
+        Instant daysRolledUpTo = rollUp(PriceRollup.Resolution.DAY,
+                () -> priceRollupRepository.findFirstBucketStart(PriceRollup.Resolution.HOUR), now);
+
+        // Rows are only deleted once rolled up
+        if (hoursRolledUpTo != null) {
+            deleteInBatches("price_history", earliest(now.minus(rawRetention), hoursRolledUpTo),
+                    cutoff -> priceHistoryRepository.deleteOlderThan(cutoff, deleteBatchSize));
+        }
+        if (daysRolledUpTo != null) {
+            deleteInBatches("price_rollup", earliest(now.minus(hourlyRetention), daysRolledUpTo),
+                    cutoff -> priceRollupRepository.deleteOlderThan(PriceRollup.Resolution.HOUR, cutoff, deleteBatchSize));
+        }
+    }
+
+    /**
+     * Rolls up the closed periods of a resolution following the latest stored rollup.
+     *
+     * @param resolution The period covered by each rollup
+     * @param firstSource Time of the oldest source row, where the first run starts
+     * @param now The current time
+     * @return The end of the rolled up periods, null if there is nothing to roll up yet
+     */
+    private Instant rollUp(PriceRollup.Resolution resolution, Supplier<Optional<Instant>> firstSource, Instant now) {
+        Optional<Instant> lastRollup = priceRollupRepository.findLastBucketStart(resolution);
+        Optional<Instant> start = lastRollup.map(bucketStart -> bucketStart.plus(1, resolution.getUnit()))
+                .or(() -> firstSource.get().map(resolution::bucketOf));
+        if (start.isEmpty()) {
+            return null;
+        }
+
+        Instant from = start.get();
+        Instant end = resolution.bucketOf(now);
+        Duration batch = resolution.getUnit().getDuration().multipliedBy(BUCKETS_PER_BATCH);
+        int stored = 0;
+
+        while (from.isBefore(end)) {
+            Instant to = earliest(from.plus(batch), end);
+            try {
+                stored += priceRollupRepository.rollUp(resolution, from, to);
+            } catch (DuplicateKeyException e) {
+                // Another instance is rolling up the same range, the next run continues after its rollups
+                logger.info("{} price rollups from {} stored by another instance", resolution.name().toLowerCase(), from);
+                break;
+            }
+            from = to;
+        }
+
+        if (stored > 0) {
+            logger.info("Stored {} {} price rollups up to {}", stored, resolution.name().toLowerCase(), from);
+            Counter.builder("price.history.rollups")
+                    .description("Price rollups stored by the retention job")
+                    .tag("resolution", resolution.name().toLowerCase())
+                    .register(meterRegistry)
+                    .increment(stored);
+        }
+        return from;
+    }
+
+    private void deleteInBatches(String table, Instant cutoff, ToIntFunction<Instant> deleteBatch) {
+        long deleted = 0;
+        int batchDeleted;
+        do {
+            batchDeleted = deleteBatch.applyAsInt(cutoff);
+            deleted += batchDeleted;
+        } while (batchDeleted >= deleteBatchSize);
+
+        if (deleted > 0) {
+            logger.info("Deleted {} rows of {} older than {}", deleted, table, cutoff);
+            Counter.builder("price.history.deleted")
+                    .description("Rows deleted by the retention job")
+                    .tag("table", table)
+                    .register(meterRegistry)
+                    .increment(deleted);
+        }
+    }
+
+    private static Instant earliest(Instant first, Instant second) {
+        return first.isBefore(second) ? first : second;
+    }
+}
@@ -1,129 +1,449 @@
 package com.spicep.cryptowallet.scheduler;
 
 
-import com.spicep.cryptowallet.entity.Asset;
+import com.spicep.cryptowallet.entity.CurrentQuote;
 import com.spicep.cryptowallet.entity.PriceHistory;
-import com.spicep.cryptowallet.repository.AssetRepository;
-import com.spicep.cryptowallet.repository.PriceHistoryRepository;
-import com.spicep.cryptowallet.service.ApiClientService;
+import com.spicep.cryptowallet.repository.CurrentQuoteRepository;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import com.spicep.cryptowallet.service.InstanceShardCoordinator;
+import com.spicep.cryptowallet.service.PriceCacheService;
+import com.spicep.cryptowallet.service.PriceHistoryWriter;
+import com.spicep.cryptowallet.service.PriceProvider;
+import com.spicep.cryptowallet.service.PriceTickHub;
+import com.spicep.cryptowallet.service.PriceTickStore;
+import com.spicep.cryptowallet.service.TrackedSymbolRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Class responsible for periodically updating the prices of assets.
- * It fetches the latest prices from an external API and updates the asset prices in the database.
+ * It fetches the latest prices from an external API, updates the current quotes in the database
+ * and applies the price changes to the values of the assets and wallets holding them.
+ * The price history is written behind, see {@link PriceHistoryWriter}.
+ * <p>
+ * The scheduler polls every {@code crypto.update.poll-rate} milliseconds, and each poll refreshes the symbols
+ * whose refresh is due, see {@link RefreshPlanner}: widely held symbols every {@code crypto.update.hot-rate}
+ * milliseconds, symbols held by a single wallet every {@code crypto.update.cold-rate} milliseconds, within
+ * {@code crypto.update.requests-per-minute} upstream requests.
+ * Polls are spaced by a fixed delay, and a poll starting while another one runs is skipped.
+ * With several instances, each one only refreshes the symbols it owns, see {@link InstanceShardCoordinator},
+ * and the request budget is shared between them. Every poll also reads the quotes written by the other instances
+ * since the previous one, and feeds them to the price cache, the tick store and the live wallet streams
+ * of this instance, as if it had fetched them.
+ * A symbol first held through another instance is unknown to its owner until the owner rebuilds its
+ * {@link TrackedSymbolRegistry}, so the instance tracking it fetches it until it has a quote, and the owner
+ * starts tracking the symbols it owns when it follows a quote written by another instance.
+ * Disabled with {@code crypto.update.enabled=false}.
+ * Tick duration and lag, the number of priced, deferred symbols and written rows, and skipped polls
+ * are published as metrics.
  */
 @Component
+@ConditionalOnProperty(name = "crypto.update.enabled", havingValue = "true", matchIfMissing = true)
 public class PriceUpdateScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(PriceUpdateScheduler.class);
 
-    private final ApiClientService clientService;
-    private final AssetRepository assetRepository;
-    private final PriceHistoryRepository priceHistoryRepository;
-    private ThreadPoolTaskExecutor taskExecutor;
+    // A tick rolled back by a lock failure, or by a quote inserted meanwhile by another instance, is retried
+    private static final int MAX_APPLY_ATTEMPTS = 3;
+
+    private final PriceProvider priceProvider;
+    private final TrackedSymbolRegistry trackedSymbolRegistry;
+    private final InstanceShardCoordinator instanceShardCoordinator;
+    private final PriceHistoryWriter priceHistoryWriter;
+    private final CurrentQuoteRepository currentQuoteRepository;
+    private final WalletRepository walletRepository;
+    private final PriceCacheService priceCacheService;
+    private final PriceTickHub priceTickHub;
+    private final PriceTickStore priceTickStore;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer tickTimer;
+    private final Timer tickLagTimer;
+    private final Counter pricedSymbolsCounter;
+    private final Counter missingSymbolsCounter;
+    private final Counter deferredSymbolsCounter;
+    private final Counter skippedPollsCounter;
+    private final Counter quoteRowsCounter;
+    private final Counter assetRowsCounter;
+    private final Counter failedSymbolsCounter;
+    private final Counter followedQuotesCounter;
+    // Update time of the last quote of each symbol, written or followed by this instance
+    private final Map<String, Instant> followedQuotes = new ConcurrentHashMap<>();
+    private Instant followedSince = Instant.EPOCH;
+    private boolean caughtUp;
+    private Executor taskExecutor;
+    private Semaphore upstreamPermits;
+    private RefreshPlanner refreshPlanner;
+    private final AtomicBoolean updating = new AtomicBoolean();
+
+    @Value("${crypto.update.hot-rate:5000}")
+    private long hotRate = 5000;
+
+    @Value("${crypto.update.cold-rate:300000}")
+    private long coldRate = 300000;
+
+    @Value("${crypto.update.requests-per-minute:60}")
+    private int requestsPerMinute = 60;
+
+    @Value("${crypto.update.sharding.follow-lookback:5s}")
+    private Duration followLookback = Duration.ofSeconds(5);
 
     @Value("${crypto.update.max-threads:3}")
     private int maxThreads;
 
-    public PriceUpdateScheduler(ApiClientService clientService,
-                                AssetRepository assetRepository,
-                                PriceHistoryRepository priceHistoryRepository) {
-        this.clientService = clientService;
-        this.assetRepository = assetRepository;
-        this.priceHistoryRepository = priceHistoryRepository;
+    @Value("${crypto.update.max-concurrent-requests:${crypto.update.max-threads:3}}")
+    private int maxConcurrentRequests;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    public PriceUpdateScheduler(PriceProvider priceProvider,
+                                TrackedSymbolRegistry trackedSymbolRegistry,
+                                InstanceShardCoordinator instanceShardCoordinator,
+                                PriceHistoryWriter priceHistoryWriter,
+                                CurrentQuoteRepository currentQuoteRepository,
+                                WalletRepository walletRepository,
+                                PriceCacheService priceCacheService,
+                                PriceTickHub priceTickHub,
+                                PriceTickStore priceTickStore,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry) {
+        this.priceProvider = priceProvider;
+        this.trackedSymbolRegistry = trackedSymbolRegistry;
+        this.instanceShardCoordinator = instanceShardCoordinator;
+        this.priceHistoryWriter = priceHistoryWriter;
+        this.currentQuoteRepository = currentQuoteRepository;
+        this.walletRepository = walletRepository;
+        this.priceCacheService = priceCacheService;
+        this.priceTickHub = priceTickHub;
+        this.priceTickStore = priceTickStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.tickTimer = Timer.builder("price.update.tick")
+                .description("Duration of a price update")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.tickLagTimer = Timer.builder("price.update.lag")
+                .description("Delay of the price refreshes past their due time")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.pricedSymbolsCounter = Counter.builder("price.update.symbols")
+                .description("Symbols requested by price updates")
+                .tag("outcome", "priced")
+                .register(meterRegistry);
+        this.missingSymbolsCounter = Counter.builder("price.update.symbols")
+                .description("Symbols requested by price updates")
+                .tag("outcome", "missing")
+                .register(meterRegistry);
+        this.deferredSymbolsCounter = Counter.builder("price.update.deferred")
+                .description("Due symbols deferred to a later price update by the request budget")
+                .register(meterRegistry);
+        this.skippedPollsCounter = Counter.builder("price.update.skipped")
+                .description("Price update polls skipped while the previous one was running")
+                .register(meterRegistry);
+        this.quoteRowsCounter = Counter.builder("price.update.rows")
+                .description("Rows written by price updates")
+                .tag("table", "current_quote")
+                .register(meterRegistry);
+        this.assetRowsCounter = Counter.builder("price.update.rows")
+                .description("Rows written by price updates")
+                .tag("table", "asset")
+                .register(meterRegistry);
+        this.failedSymbolsCounter = Counter.builder("price.update.symbols")
+                .description("Symbols requested by price updates")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        this.followedQuotesCounter = Counter.builder("price.update.followed")
+                .description("Quotes written by other instances and applied to this one")
+                .register(meterRegistry);
     }
 
+    /**
+     * Creates the refresh planner and the executor for the update tasks.
+     * With virtual threads every task gets its own thread, and the number of concurrent
+     * CoinCap requests is capped by a semaphore instead of the pool size.
+     */
     @PostConstruct
     public void initialize() {
+        this.upstreamPermits = new Semaphore(maxConcurrentRequests);
+        this.refreshPlanner = new RefreshPlanner(hotRate, coldRate, requestsPerMinute);
+
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("price-updater-");
+            executor.setVirtualThreads(true);
+            this.taskExecutor = executor;
+
+            logger.info("Price update scheduler initialized with virtual threads and up to {} concurrent requests",
+                    maxConcurrentRequests);
+            return;
+        }
 
-        this.taskExecutor = new ThreadPoolTaskExecutor();
-        this.taskExecutor.setCorePoolSize(maxThreads);
-        this.taskExecutor.setMaxPoolSize(maxThreads);
-        this.taskExecutor.setThreadNamePrefix("price-updater-");
-        this.taskExecutor.initialize();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxThreads);
+        executor.setMaxPoolSize(maxThreads);
+        executor.setThreadNamePrefix("price-updater-");
+        executor.initialize();
+        this.taskExecutor = executor;
 
         logger.info("Price update scheduler initialized with {} threads", maxThreads);
     }
 
     /**
-     * Periodically updates the prices of all assets.
+     * Periodically updates the prices of the assets whose refresh is due.
+     * Skipped while a previous update is still running.
      */
-    @Scheduled(fixedRateString = "${crypto.update.rate:60000}")
+    @Scheduled(fixedDelayString = "${crypto.update.poll-rate:1000}")
     public void updatePrices() {
-        logger.info("Starting scheduled price update");
+        if (!updating.compareAndSet(false, true)) {
+            logger.debug("Skipping price update, the previous one is still running");
+            skippedPollsCounter.increment();
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            updateDuePrices();
+        } finally {
+            tickTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            updating.set(false);
+        }
+    }
 
-        List<String> uniqueSymbols = assetRepository.findAll().stream()
-                .map(Asset::getSymbol)
-                .distinct()
-                .toList();
+    private void updateDuePrices() {
+        logger.debug("Starting scheduled price update");
 
-        if (uniqueSymbols.isEmpty()) {
-            logger.info("No tokens to update");
-            return;
+        if (instanceShardCoordinator.getInstanceCount() > 1) {
+            try {
+                followOtherInstances();
+            } catch (Exception e) {
+                logger.error("Error reading the prices updated by other instances", e);
+            }
         }
 
-        logger.info("Found {} unique tokens to update", uniqueSymbols.size());
+        // Maintained in memory, discovering the symbols does not query the assets
+        Map<String, Long> trackedSymbols = trackedSymbolRegistry.getHolderCounts();
+        Map<String, Long> holdersBySymbol = instanceShardCoordinator.ownedSymbols(trackedSymbols);
+        if (instanceShardCoordinator.getInstanceCount() > 1) {
+            holdersBySymbol = withUnquotedSymbols(holdersBySymbol, trackedSymbols);
+        }
 
-        for (int i = 0; i < uniqueSymbols.size(); i += maxThreads) {
-            int endIndex = Math.min(i + maxThreads, uniqueSymbols.size());
-            List<String> batch = uniqueSymbols.subList(i, endIndex);
+        if (holdersBySymbol.isEmpty()) {
+            logger.debug("No tokens to update");
+            return;
+        }
 
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
+        RefreshPlanner.Plan plan = refreshPlanner.plan(holdersBySymbol, priceProvider.getBulkChunkSize(),
+                System.currentTimeMillis(), instanceShardCoordinator.getInstanceCount());
+        if (plan.maxDelayMillis() >= 0) {
+            tickLagTimer.record(plan.maxDelayMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (plan.deferred() > 0) {
+            logger.info("Deferred {} due tokens, the request budget is spent", plan.deferred());
+            deferredSymbolsCounter.increment(plan.deferred());
+        }
+        if (plan.requests().isEmpty()) {
+            return;
+        }
 
-            for (String symbol : batch) {
-                futures.add(CompletableFuture.runAsync(() -> {
-                    try {
-                        updateSingleToken(symbol);
-                    } catch (Exception e) {
-                        logger.error("Error updating price for {}", symbol, e);
-                    }
-                }, taskExecutor));
-            }
+        logger.debug("Updating prices of {} tokens with {} requests",
+                plan.requests().stream().mapToInt(List::size).sum(), plan.requests().size());
 
-            // Wait for all tokens in this batch to complete
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        // Each chunk is fetched with a single request, chunks are processed concurrently
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (List<String> chunk : plan.requests()) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    updateChunk(chunk);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.warn("Interrupted while waiting to update prices for {} tokens", chunk.size());
+                } catch (Exception e) {
+                    logger.error("Error updating prices for {} tokens", chunk.size(), e);
+                }
+            }, taskExecutor));
         }
 
-        logger.info("Price update completed");
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        logger.debug("Price update completed");
     }
 
     /**
-     * Updates the price of a single token.
-     * @param symbol The token symbol
+     * Adds the tracked symbols of other instances that have no quote yet, their owner may not know them.
+     * @param owned The holder counts of the symbols owned by this instance
+     * @param tracked The holder counts of the symbols tracked by this instance
+     * @return The holder counts of the symbols to refresh
      */
-    private void updateSingleToken(String symbol) {
-        logger.info("Updating price for: {}", symbol);
+    private Map<String, Long> withUnquotedSymbols(Map<String, Long> owned, Map<String, Long> tracked) {
+        Map<String, Long> refreshed = null;
+        for (Map.Entry<String, Long> entry : tracked.entrySet()) {
+            if (!owned.containsKey(entry.getKey()) && !followedQuotes.containsKey(entry.getKey())) {
+                if (refreshed == null) {
+                    refreshed = new HashMap<>(owned);
+                }
+                refreshed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return refreshed != null ? refreshed : owned;
+    }
 
+    /**
+     * Fetches the prices of a chunk of tokens in a single request and stores them.
+     * @param symbols The token symbols
+     * @throws InterruptedException if interrupted while waiting for a request permit
+     */
+    private void updateChunk(List<String> symbols) throws InterruptedException {
+        Map<String, BigDecimal> prices;
+        upstreamPermits.acquire();
         try {
-            BigDecimal currentPrice = clientService.getAssetPrice(symbol);
+            prices = priceProvider.getCurrentPrices(symbols);
+        } finally {
+            upstreamPermits.release();
+        }
+        priceCacheService.putAll(prices);
 
+        for (String symbol : symbols) {
+            if (!prices.containsKey(symbol)) {
+                logger.warn("No price returned for {}", symbol);
+                missingSymbolsCounter.increment();
+            }
+        }
+
+        if (!prices.isEmpty()) {
+            storePrices(prices);
+        }
+    }
+
+    /**
+     * Stores the latest prices of a set of tokens.
+     * The history is queued for the write-behind writer. The quotes are upserted with one batch, and the values
+     * of the assets and totals of the wallets holding the tokens are updated with set-based statements, which write
+     * one asset and one wallet row per holder. Quotes and values are written in one transaction, so a failed
+     * tick leaves neither of them changed.
+     * The prices are first recorded in the in-memory tick store, which does not depend on the database.
+     * The stored prices are then published to the live wallet streams.
+     * @param prices The latest prices by token symbol
+     */
+    private void storePrices(Map<String, BigDecimal> prices) {
+        // Stored as read back from the database, so following the quotes skips the ones written here
+        Instant timestamp = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        priceTickStore.record(prices, timestamp);
+
+        List<PriceHistory> priceHistories = new ArrayList<>(prices.size());
+        prices.forEach((symbol, price) -> {
             PriceHistory priceHistory = new PriceHistory();
             priceHistory.setSymbol(symbol);
-            priceHistory.setPrice(currentPrice);
-            priceHistory.setTimestamp(Instant.now());
-            priceHistoryRepository.save(priceHistory);
-
-            List<Asset> assets = assetRepository.findBySymbol(symbol);
-            for (Asset asset : assets) {
-                asset.setPrice(currentPrice);
-                assetRepository.save(asset);
+            priceHistory.setPrice(price);
+            priceHistory.setTimestamp(timestamp);
+            priceHistories.add(priceHistory);
+        });
+
+        priceHistoryWriter.enqueue(priceHistories);
+        Integer revalued = applyPrices(prices, timestamp);
+        if (revalued == null) {
+            return;
+        }
+
+        prices.keySet().forEach(symbol -> followedQuotes.put(symbol, timestamp));
+        quoteRowsCounter.increment(prices.size());
+        assetRowsCounter.increment(revalued);
+        pricedSymbolsCounter.increment(prices.size());
+        priceTickHub.publish(prices, timestamp);
+
+        logger.debug("Updated prices of {} tokens", prices.size());
+    }
+
+    /**
+     * Upserts the quotes and applies them to the assets and wallets in one transaction.
+     * @return The number of revalued assets, null if the tick was given up
+     */
+    private Integer applyPrices(Map<String, BigDecimal> prices, Instant timestamp) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    currentQuoteRepository.upsertAll(prices, timestamp);
+                    return walletRepository.applyPrices(prices);
+                });
+            } catch (PessimisticLockingFailureException | DuplicateKeyException e) {
+                if (attempt == MAX_APPLY_ATTEMPTS) {
+                    logger.error("Gave up storing the prices of {} tokens after {} attempts", prices.size(), attempt, e);
+                    failedSymbolsCounter.increment(prices.size());
+                    return null;
+                }
+                logger.debug("Retrying the price update of {} tokens after a conflict", prices.size(), e);
+            }
+        }
+    }
+
+    /**
+     * Applies the quotes of the symbols owned by other instances, updated since the previous poll.
+     * The quotes of the last {@code crypto.update.sharding.follow-lookback} are read again, so quotes committed
+     * late or stamped by a clock running behind are not missed, and quotes already applied or written here are skipped.
+     * Symbols owned by this instance and quoted by another one are tracked, past the quotes read on the first poll.
+     */
+    private void followOtherInstances() {
+        List<CurrentQuote> quotes = currentQuoteRepository.findUpdatedSince(followedSince.minus(followLookback));
+
+        Map<Instant, Map<String, BigDecimal>> ticks = new TreeMap<>();
+        for (CurrentQuote quote : quotes) {
+            if (quote.getUpdatedAt().isAfter(followedSince)) {
+                followedSince = quote.getUpdatedAt();
+            }
+            Instant followed = followedQuotes.get(quote.getSymbol());
+            if (followed != null && !quote.getUpdatedAt().isAfter(followed)) {
+                continue;
+            }
+            if (instanceShardCoordinator.owns(quote.getSymbol())) {
+                // Fetched by another instance, which tracked the symbol first
+                if (caughtUp) {
+                    trackedSymbolRegistry.track(quote.getSymbol());
+                }
+                continue;
             }
 
-            logger.info("Updated price for {} to {}", symbol, currentPrice);
-        } catch (Exception e) {
-            logger.error("Failed to update price for {}", symbol, e);
+            followedQuotes.put(quote.getSymbol(), quote.getUpdatedAt());
+            ticks.computeIfAbsent(quote.getUpdatedAt(), timestamp -> new HashMap<>())
+                    .put(quote.getSymbol(), quote.getPrice());
         }
+
+        caughtUp = true;
+
+        // One tick per price update of the owners, in time order
+        ticks.forEach((timestamp, prices) -> {
+            priceCacheService.putAll(prices);
+            priceTickStore.record(prices, timestamp);
+            priceTickHub.publish(prices, timestamp);
+            followedQuotesCounter.increment(prices.size());
+        });
     }
-}
\ No newline at end of file
+}
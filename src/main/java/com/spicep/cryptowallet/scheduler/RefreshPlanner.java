@@ -0,0 +1,144 @@
+package com.spicep.cryptowallet.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plans the symbols refreshed by each price update poll.
+ * <p>
+ * Each symbol is refreshed on its own cadence, the cold rate divided by the number of wallets holding it,
+ * bounded by the hot rate and the cold rate, so widely held symbols are refreshed every few seconds
+ * and the long tail every few minutes.
+ * A poll refreshes the symbols whose refresh is due, the most held first, within a budget of
+ * {@code requestsPerMinute} upstream requests over any minute, shared evenly by the instances updating prices.
+ * Symbols left out are deferred to the next poll.
+ * When the last request of a poll has room left, it is filled with the symbols due soonest.
+ * <p>
+ * Not thread-safe, the scheduler plans one poll at a time.
+ */
+class RefreshPlanner {
+
+    private static final long BUDGET_WINDOW_MILLIS = 60_000;
+
+    private final long hotRate;
+    private final long coldRate;
+    private final int requestsPerMinute;
+    private final Map<String, Long> nextRefresh = new HashMap<>();
+    private final Deque<Long> requestTimes = new ArrayDeque<>();
+
+    /**
+     * @param hotRate Shortest interval between two refreshes of a symbol, in milliseconds
+     * @param coldRate Interval between two refreshes of a symbol held by a single wallet, in milliseconds
+     * @param requestsPerMinute Upstream requests allowed over any minute, unlimited if not positive
+     */
+    RefreshPlanner(long hotRate, long coldRate, int requestsPerMinute) {
+        if (hotRate > coldRate) {
+            throw new IllegalArgumentException("The hot rate must not exceed the cold rate");
+        }
+        this.hotRate = hotRate;
+        this.coldRate = coldRate;
+        this.requestsPerMinute = requestsPerMinute;
+    }
+
+    /**
+     * Plans the requests of a poll and marks their symbols as refreshed.
+     * Symbols no longer held are forgotten, new symbols are due at once.
+     *
+     * @param holdersBySymbol The number of wallets holding each tracked symbol
+     * @param chunkSize The number of symbols fetched per request
+     * @param now The current time, in epoch milliseconds
+     * @param instances The number of instances sharing the request budget
+     * @return The planned requests
+     */
+    Plan plan(Map<String, Long> holdersBySymbol, int chunkSize, long now, int instances) {
+        nextRefresh.keySet().retainAll(holdersBySymbol.keySet());
+        while (!requestTimes.isEmpty() && requestTimes.peekFirst() <= now - BUDGET_WINDOW_MILLIS) {
+            requestTimes.pollFirst();
+        }
+
+        List<Candidate> due = new ArrayList<>();
+        List<Candidate> notDue = new ArrayList<>();
+        holdersBySymbol.forEach((symbol, holders) -> {
+            Long dueAt = nextRefresh.get(symbol);
+            Candidate candidate = new Candidate(symbol, holders, dueAt);
+            if (dueAt == null || dueAt <= now) {
+                due.add(candidate);
+            } else {
+                notDue.add(candidate);
+            }
+        });
+        if (due.isEmpty()) {
+            return new Plan(List.of(), 0, -1);
+        }
+
+        due.sort(Comparator.comparingLong(Candidate::holders).reversed()
+                .thenComparingLong(Candidate::dueAtOrZero));
+
+        int budget = requestsPerMinute > 0
+                ? Math.max(Math.max(requestsPerMinute / Math.max(instances, 1), 1) - requestTimes.size(), 0)
+                : Integer.MAX_VALUE;
+        int requestCount = Math.min(budget, (due.size() + chunkSize - 1) / chunkSize);
+        int dueRefreshed = Math.min(due.size(), requestCount * chunkSize);
+
+        List<Candidate> refreshed = new ArrayList<>(due.subList(0, dueRefreshed));
+        long maxDelay = -1;
+        for (Candidate candidate : refreshed) {
+            if (candidate.dueAt() != null) {
+                maxDelay = Math.max(maxDelay, now - candidate.dueAt());
+            }
+        }
+
+        // The last request costs the same with a full chunk
+        int room = requestCount * chunkSize - dueRefreshed;
+        if (room > 0 && !notDue.isEmpty()) {
+            notDue.sort(Comparator.comparingLong(Candidate::dueAtOrZero));
+            refreshed.addAll(notDue.subList(0, Math.min(room, notDue.size())));
+        }
+
+        List<List<String>> requests = new ArrayList<>(requestCount);
+        for (int i = 0; i < refreshed.size(); i += chunkSize) {
+            requests.add(refreshed.subList(i, Math.min(i + chunkSize, refreshed.size())).stream()
+                    .map(Candidate::symbol)
+                    .toList());
+        }
+
+        for (Candidate candidate : refreshed) {
+            nextRefresh.put(candidate.symbol(), now + interval(candidate.holders()));
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            requestTimes.addLast(now);
+        }
+
+        return new Plan(requests, due.size() - dueRefreshed, maxDelay);
+    }
+
+    /**
+     * @param holders The number of wallets holding a symbol
+     * @return The interval between two refreshes of the symbol, in milliseconds
+     */
+    long interval(long holders) {
+        return Math.max(hotRate, coldRate / Math.max(holders, 1));
+    }
+
+    /**
+     * Requests planned by a poll.
+     *
+     * @param requests The symbols of each request
+     * @param deferred The number of due symbols deferred to a later poll by the request budget
+     * @param maxDelayMillis The longest delay of a refreshed symbol past its due time, -1 if only new symbols are refreshed
+     */
+    record Plan(List<List<String>> requests, int deferred, long maxDelayMillis) {
+    }
+
+    private record Candidate(String symbol, long holders, Long dueAt) {
+
+        long dueAtOrZero() {
+            return dueAt == null ? 0 : dueAt;
+        }
+    }
+}
@@ -3,55 +3,124 @@ package com.spicep.cryptowallet.service;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAssetDto;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAssetHistoryDto;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAssetHistoryResponseDto;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetListResponseDto;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAssetResponseDto;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapAssetNotFoundException;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapClientException;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapException;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapServerException;
 import com.spicep.cryptowallet.exception.asset.AssetNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.util.Collections;
-import java.util.List;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 /**
- * Service class to interact with the CoinCap API.
+ * Service class to interact with the CoinCap API, the default {@link PriceProvider}.
+ * Every call has a deadline covering its retries. Server errors, rate limiting and I/O errors are retried
+ * with a jittered exponential backoff, or after the delay the API asks for in its Retry-After header.
+ * Calls go through a circuit breaker that fails them immediately while the API keeps failing.
+ * Errors are translated to {@link CoinCapException}s.
+ * Every request is timed in the {@code coincap.requests} timer, tagged by endpoint and outcome.
  * <a href="https://docs.coincap.io/"/>
  */
 @Service
-public class ApiClientService {
+@ConditionalOnProperty(name = "crypto.price.provider", havingValue = "coincap", matchIfMissing = true)
+public class ApiClientService implements PriceProvider {
 
     private static final Logger log = LoggerFactory.getLogger(ApiClientService.class);
     private static final ZoneId UTC_ZONE = ZoneId.of("UTC");
     private static final String BASE_URL = "https://api.coincap.io/v2";
+    private static final int DEFAULT_BULK_CHUNK_SIZE = 100;
+    private static final String REQUEST_TIMER = "coincap.requests";
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
 
     private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreaker circuitBreaker;
+    private final ConnectionProvider connectionProvider;
+
+    @Value("${crypto.api.bulk-chunk-size:" + DEFAULT_BULK_CHUNK_SIZE + "}")
+    private int bulkChunkSize = DEFAULT_BULK_CHUNK_SIZE;
+
+    @Value("${crypto.api.call-timeout:15s}")
+    private Duration callTimeout = Duration.ofSeconds(15);
+
+    @Value("${crypto.api.retry.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    @Value("${crypto.api.retry.min-backoff:200ms}")
+    private Duration minBackoff = Duration.ofMillis(200);
+
+    @Value("${crypto.api.retry.max-backoff:5s}")
+    private Duration maxBackoff = Duration.ofSeconds(5);
 
     /**
-     * Enum for CoinCap API intervals
+     * Enum for CoinCap API intervals, with the longest range a single history request accepts for each
      */
     @Getter
     public enum CoinCapInterval {
-        MINUTE_1("m1"),
-        MINUTE_5("m5"),
-        MINUTE_15("m15"),
-        MINUTE_30("m30"),
-        HOUR_1("h1"),
-        HOUR_2("h2"),
-        HOUR_6("h6"),
-        HOUR_12("h12"),
-        DAY_1("d1");
+        MINUTE_1("m1", Duration.ofDays(1)),
+        MINUTE_5("m5", Duration.ofDays(5)),
+        MINUTE_15("m15", Duration.ofDays(7)),
+        MINUTE_30("m30", Duration.ofDays(14)),
+        HOUR_1("h1", Duration.ofDays(30)),
+        HOUR_2("h2", Duration.ofDays(61)),
+        HOUR_6("h6", Duration.ofDays(183)),
+        HOUR_12("h12", Duration.ofDays(365)),
+        DAY_1("d1", Duration.ofDays(2000));
 
         private final String value;
+        private final Duration maxRange;
 
-        CoinCapInterval(String value) {
+        CoinCapInterval(String value, Duration maxRange) {
             this.value = value;
+            this.maxRange = maxRange;
+        }
+
+        /**
+         * @param value The interval as used by the CoinCap API, e.g. "d1"
+         * @return The matching interval, empty if there is none
+         */
+        public static Optional<CoinCapInterval> fromValue(String value) {
+            return Arrays.stream(values())
+                    .filter(interval -> interval.value.equals(value))
+                    .findFirst();
         }
 
         @Override
@@ -60,17 +129,83 @@ public class ApiClientService {
         }
     }
 
-    // Constructor needed for tests
-    private ApiClientService(WebClient webClient) {
-        this.webClient = webClient;
+    /**
+     * Endpoints of the CoinCap API, used to tag the request metrics
+     */
+    enum Endpoint {
+        ASSET("asset"),
+        ASSETS("assets"),
+        HISTORY("history");
+
+        private final String tag;
+
+        Endpoint(String tag) {
+            this.tag = tag;
+        }
     }
 
+    // Constructors needed for tests
+    ApiClientService(WebClient webClient, MeterRegistry meterRegistry) {
+        this(webClient, meterRegistry, new CircuitBreaker(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION));
+    }
+
+    ApiClientService(WebClient webClient, MeterRegistry meterRegistry, CircuitBreaker circuitBreaker) {
+        this(webClient, meterRegistry, circuitBreaker, null);
+    }
+
+    /**
+     * @param connectTimeout Time allowed to open a connection
+     * @param readTimeout Time allowed for a response once a request is sent
+     * @param maxConnections Size of the connection pool, requests beyond it wait for a free connection
+     * @param pendingAcquireTimeout Time a request may wait for a free connection
+     * @param failureThreshold Number of consecutive failures opening the circuit
+     * @param openDuration Time the circuit stays open before a call probes the API again
+     */
     @Autowired
-    public ApiClientService(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder
-                .baseUrl(BASE_URL)
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .build();
+    public ApiClientService(WebClient.Builder webClientBuilder, MeterRegistry meterRegistry,
+                            @Value("${crypto.api.connect-timeout:2s}") Duration connectTimeout,
+                            @Value("${crypto.api.read-timeout:5s}") Duration readTimeout,
+                            @Value("${crypto.api.max-connections:50}") int maxConnections,
+                            @Value("${crypto.api.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+                            @Value("${crypto.api.circuit.failure-threshold:" + DEFAULT_FAILURE_THRESHOLD + "}") int failureThreshold,
+                            @Value("${crypto.api.circuit.open-duration:30s}") Duration openDuration) {
+        this(webClientBuilder, meterRegistry, ConnectionProvider.builder("coincap")
+                        .maxConnections(maxConnections)
+                        .pendingAcquireTimeout(pendingAcquireTimeout)
+                        .metrics(true)
+                        .build(),
+                connectTimeout, readTimeout, new CircuitBreaker(failureThreshold, openDuration));
+    }
+
+    private ApiClientService(WebClient.Builder webClientBuilder, MeterRegistry meterRegistry, ConnectionProvider connectionProvider,
+                             Duration connectTimeout, Duration readTimeout, CircuitBreaker circuitBreaker) {
+        this(webClientBuilder
+                        .baseUrl(BASE_URL)
+                        .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+                                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                                .responseTimeout(readTimeout)))
+                        .build(),
+                meterRegistry, circuitBreaker, connectionProvider);
+    }
+
+    private ApiClientService(WebClient webClient, MeterRegistry meterRegistry, CircuitBreaker circuitBreaker,
+                             ConnectionProvider connectionProvider) {
+        this.webClient = webClient;
+        this.meterRegistry = meterRegistry;
+        this.circuitBreaker = circuitBreaker;
+        this.connectionProvider = connectionProvider;
+
+        Gauge.builder("coincap.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("State of the CoinCap circuit breaker: 0 closed, 1 open, 2 half open")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void close() {
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
     }
 
     /**
@@ -78,19 +213,28 @@ public class ApiClientService {
      *
      * @param symbol The asset symbol
      * @return CoinCapAssetDto containing asset information
-     * @throws AssetNotFoundException if the asset is not found
+     * @throws AssetNotFoundException if the asset has no data
+     * @throws CoinCapAssetNotFoundException if the asset is unknown to CoinCap
+     * @throws CoinCapServerException if the API is unavailable
      */
     public CoinCapAssetDto getCurrentAssetDataBySymbol(String symbol) {
-        CoinCapAssetResponseDto response = webClient.get()
+        return fetchCurrentAssetDataBySymbol(symbol).block();
+    }
+
+    /**
+     * Non-blocking version of {@link #getCurrentAssetDataBySymbol(String)}.
+     *
+     * @param symbol The asset symbol
+     * @return Mono of the asset information, failing with AssetNotFoundException if the asset is not found
+     */
+    @Override
+    public Mono<CoinCapAssetDto> fetchCurrentAssetDataBySymbol(String symbol) {
+        return call(Endpoint.ASSET, webClient.get()
                 .uri("/assets/{id}", symbol.toLowerCase())
                 .retrieve()
-                .bodyToMono(CoinCapAssetResponseDto.class)
-                .block();
-
-        if (response != null && response.getData() != null) {
-            return response.getData();
-        }
-        throw new AssetNotFoundException("Asset not found for symbol: " + symbol);
+                .bodyToMono(CoinCapAssetResponseDto.class))
+                .flatMap(response -> Mono.justOrEmpty(response.getData()))
+                .switchIfEmpty(Mono.error(() -> new AssetNotFoundException("Asset not found for symbol: " + symbol)));
     }
 
 
@@ -99,6 +243,54 @@ public class ApiClientService {
         return asset.getPriceUsd();
     }
 
+    /**
+     * Retrieves the current prices of several assets using the multi-asset endpoint.
+     * Symbols are requested in chunks of {@code crypto.api.bulk-chunk-size}, one request per chunk.
+     * Example <a href="https://api.coincap.io/v2/assets?ids=bitcoin,ethereum"/>
+     *
+     * @param symbols The asset symbols
+     * @return Map of each requested symbol to its current price, symbols unknown to CoinCap are left out
+     */
+    @Override
+    public Map<String, BigDecimal> getCurrentPrices(Collection<String> symbols) {
+        // CoinCap ids are lowercase, keep track of the symbols as they were requested
+        Map<String, List<String>> symbolsById = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            symbolsById.computeIfAbsent(symbol.toLowerCase(), id -> new ArrayList<>()).add(symbol);
+        }
+
+        List<String> ids = new ArrayList<>(symbolsById.keySet());
+        Map<String, BigDecimal> prices = new HashMap<>();
+
+        for (int i = 0; i < ids.size(); i += bulkChunkSize) {
+            List<String> chunk = ids.subList(i, Math.min(i + bulkChunkSize, ids.size()));
+
+            CoinCapAssetListResponseDto response = call(Endpoint.ASSETS, webClient.get()
+                    .uri("/assets?ids={ids}&limit={limit}", String.join(",", chunk), chunk.size())
+                    .retrieve()
+                    .bodyToMono(CoinCapAssetListResponseDto.class))
+                    .block();
+
+            if (response == null || response.getData() == null) {
+                continue;
+            }
+
+            for (CoinCapAssetDto asset : response.getData()) {
+                List<String> requested = symbolsById.get(asset.getId());
+                if (requested != null && asset.getPriceUsd() != null) {
+                    requested.forEach(symbol -> prices.put(symbol, asset.getPriceUsd()));
+                }
+            }
+        }
+
+        return prices;
+    }
+
+    @Override
+    public int getBulkChunkSize() {
+        return bulkChunkSize;
+    }
+
 
     /**
      * Retrieves historical price data for a specific asset on a given date.
@@ -108,33 +300,243 @@ public class ApiClientService {
      * @param symbol The asset symbol
      * @param interval The time interval
      * @param date The date to get prices for
-     * @return List of price data for the specified date
+     * @return List of price data for the specified date, empty if the API rejects the request
+     * @throws CoinCapServerException if the API is unavailable
      */
+    @Override
     public List<CoinCapAssetHistoryDto> getAssetPriceForDate(String symbol, String interval, LocalDate date) {
 
         long startMillis = date.atStartOfDay(UTC_ZONE).toInstant().toEpochMilli();
         long endMillis = date.atStartOfDay(UTC_ZONE).plusDays(1).toInstant().toEpochMilli();
 
         try {
-            CoinCapAssetHistoryResponseDto response = webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/assets/{id}/history")
-                            .queryParam("interval", interval)
-                            .queryParam("start", startMillis)
-                            .queryParam("end", endMillis)
-                            .build(symbol.toLowerCase()))
-                    .retrieve()
-                    .bodyToMono(CoinCapAssetHistoryResponseDto.class)
-                    .block();
+            return getAssetHistory(symbol, interval, startMillis, endMillis);
+        } catch (CoinCapClientException | CoinCapAssetNotFoundException e) {
+            log.error("Error fetching price data for {} on {}: {}", symbol, date, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Retrieves historical price data for a specific asset over a time range, in a single request.
+     *
+     * @param symbol The asset symbol
+     * @param interval The time interval
+     * @param startMillis Start of the range, in epoch milliseconds (inclusive)
+     * @param endMillis End of the range, in epoch milliseconds (exclusive)
+     * @return List of price data for the range, oldest first
+     */
+    @Override
+    public List<CoinCapAssetHistoryDto> getAssetHistory(String symbol, String interval, long startMillis, long endMillis) {
+        return fetchAssetHistory(symbol, interval, startMillis, endMillis).block();
+    }
+
+    /**
+     * Non-blocking version of {@link #getAssetHistory(String, String, long, long)}.
+     *
+     * @param symbol The asset symbol
+     * @param interval The time interval
+     * @param startMillis Start of the range, in epoch milliseconds (inclusive)
+     * @param endMillis End of the range, in epoch milliseconds (exclusive)
+     * @return Mono of the price data for the range, oldest first
+     */
+    @Override
+    public Mono<List<CoinCapAssetHistoryDto>> fetchAssetHistory(String symbol, String interval, long startMillis, long endMillis) {
+        return call(Endpoint.HISTORY, webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/assets/{id}/history")
+                        .queryParam("interval", interval)
+                        .queryParam("start", startMillis)
+                        .queryParam("end", endMillis)
+                        .build(symbol.toLowerCase()))
+                .retrieve()
+                .bodyToMono(CoinCapAssetHistoryResponseDto.class))
+                .map(response -> response.getData() != null ? response.getData() : Collections.<CoinCapAssetHistoryDto>emptyList())
+                .defaultIfEmpty(Collections.emptyList());
+    }
+
+    /**
+     * Retrieves historical price data for a specific asset over a time range of any length.
+     * The range is split in windows no longer than the interval accepts, which are requested one after the other.
+     *
+     * @param symbol The asset symbol
+     * @param interval The time interval
+     * @param startMillis Start of the range, in epoch milliseconds (inclusive)
+     * @param endMillis End of the range, in epoch milliseconds (exclusive)
+     * @return Mono of the price data for the range, oldest first
+     */
+    @Override
+    public Mono<List<CoinCapAssetHistoryDto>> fetchAssetHistoryRange(String symbol, CoinCapInterval interval,
+                                                                     long startMillis, long endMillis) {
+        long windowMillis = interval.getMaxRange().toMillis();
+        List<long[]> windows = new ArrayList<>();
+        for (long windowStart = startMillis; windowStart < endMillis; windowStart += windowMillis) {
+            windows.add(new long[]{windowStart, Math.min(windowStart + windowMillis, endMillis)});
+        }
 
-            if (response != null && response.getData() != null) {
-                return response.getData();
+        return Flux.fromIterable(windows)
+                .concatMap(window -> fetchAssetHistory(symbol, interval.getValue(), window[0], window[1]))
+                .flatMapIterable(Function.identity())
+                // Windows do not overlap, but the API may return a point on the end of a window
+                .filter(price -> price.getTime() >= startMillis && price.getTime() < endMillis)
+                .distinct(CoinCapAssetHistoryDto::getTime)
+                .collectList();
+    }
+
+    /**
+     * Sends a request with the resilience policies of the client.
+     * Each attempt is timed and goes through the circuit breaker, the deadline covers all attempts.
+     *
+     * @param endpoint The requested endpoint
+     * @param request The request, sent on each subscription
+     * @return The request, failing with a CoinCapException
+     */
+    private <T> Mono<T> call(Endpoint endpoint, Mono<T> request) {
+        return circuitBreaker.protect(timed(endpoint, request), ApiClientService::isUpstreamFailure,
+                        () -> new CoinCapServerException("CoinCap API is unavailable, calls are suspended"))
+                .doOnError(CoinCapServerException.class, e -> rejectedCounter(endpoint).increment())
+                .retryWhen(retry(endpoint))
+                .timeout(callTimeout)
+                .onErrorMap(e -> !(e instanceof CoinCapException || e instanceof AssetNotFoundException), this::translate);
+    }
+
+    /**
+     * Retries upstream failures until the attempts run out.
+     * A Retry-After header is honoured if it asks for no more than the maximum backoff, longer waits are not retried.
+     */
+    private Retry retry(Endpoint endpoint) {
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            Throwable failure = signal.failure();
+            if (signal.totalRetries() + 1 >= maxAttempts || !isUpstreamFailure(failure)) {
+                return Mono.error(failure);
             }
 
-            return Collections.emptyList();
-        } catch (Exception e) {
-            log.error("Error fetching price data for {} on {}: {}", symbol, date, e.getMessage());
-            return Collections.emptyList();
+            Duration delay = retryAfter(failure).orElseGet(() -> backoff(signal.totalRetries()));
+            if (delay.compareTo(maxBackoff) > 0) {
+                return Mono.error(failure);
+            }
+
+            log.debug("Retrying {} request in {} ms: {}", endpoint.tag, delay.toMillis(), failure.getMessage());
+            retryCounter(endpoint).increment();
+            return Mono.delay(delay);
+        }));
+    }
+
+    /**
+     * Exponential backoff with equal jitter, so that clients failing together do not retry together.
+     */
+    private Duration backoff(long retry) {
+        long ceiling = Math.min(maxBackoff.toMillis(), minBackoff.toMillis() << Math.min(retry, 20));
+        return Duration.ofMillis(ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1));
+    }
+
+    /**
+     * @return The delay asked for by a Retry-After header, either in seconds or as an HTTP date
+     */
+    static Optional<Duration> retryAfter(Throwable failure) {
+        if (!(failure instanceof WebClientResponseException responseException)) {
+            return Optional.empty();
+        }
+
+        String retryAfter = responseException.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(Duration.ofSeconds(Math.max(Long.parseLong(retryAfter.trim()), 0)));
+        } catch (NumberFormatException e) {
+            try {
+                Instant retryAt = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                Duration delay = Duration.between(Instant.now(), retryAt);
+                return Optional.of(delay.isNegative() ? Duration.ZERO : delay);
+            } catch (DateTimeParseException ignored) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * @return Whether an error means the API is failing, as opposed to rejecting a request that would fail again
+     */
+    private static boolean isUpstreamFailure(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError()
+                    || responseException.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        return e instanceof WebClientRequestException;
+    }
+
+    private Throwable translate(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            String message = "CoinCap API responded with status " + status;
+            if (status == HttpStatus.NOT_FOUND.value()) {
+                return new CoinCapAssetNotFoundException(message, e);
+            }
+            if (isUpstreamFailure(e)) {
+                return new CoinCapServerException(message, e);
+            }
+            return new CoinCapClientException(message, e);
+        }
+        if (e instanceof TimeoutException) {
+            return new CoinCapServerException("CoinCap API did not respond within " + callTimeout, e);
+        }
+        if (e instanceof WebClientRequestException) {
+            return new CoinCapServerException("CoinCap API could not be reached: " + e.getMessage(), e);
+        }
+        return e;
+    }
+
+    private Counter retryCounter(Endpoint endpoint) {
+        return Counter.builder("coincap.retries")
+                .description("Requests to the CoinCap API sent again after a failure")
+                .tag("endpoint", endpoint.tag)
+                .register(meterRegistry);
+    }
+
+    private Counter rejectedCounter(Endpoint endpoint) {
+        return Counter.builder("coincap.circuit.rejected")
+                .description("Calls to the CoinCap API failed immediately by the open circuit")
+                .tag("endpoint", endpoint.tag)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the duration and outcome of a request when it completes, fails or is cancelled.
+     *
+     * @param endpoint The requested endpoint
+     * @param request The request, sent on subscription
+     * @return The same request, timed
+     */
+    private <T> Mono<T> timed(Endpoint endpoint, Mono<T> request) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return request
+                    .doOnSuccess(response -> record(endpoint, "success", start))
+                    .doOnError(e -> record(endpoint, outcomeOf(e), start))
+                    .doOnCancel(() -> record(endpoint, "cancelled", start));
+        });
+    }
+
+    private void record(Endpoint endpoint, String outcome, long start) {
+        Timer.builder(REQUEST_TIMER)
+                .description("Requests to the CoinCap API")
+                .tag("endpoint", endpoint.tag)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static String outcomeOf(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is4xxClientError() ? "client_error" : "server_error";
+        }
+        if (e instanceof WebClientRequestException) {
+            return "io_error";
         }
+        return "error";
     }
 }
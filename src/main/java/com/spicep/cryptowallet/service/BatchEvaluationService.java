@@ -0,0 +1,186 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.request.AssetEvaluationRequestDto;
+import com.spicep.cryptowallet.dto.request.PortfolioEvaluationRequest;
+import com.spicep.cryptowallet.dto.response.PortfolioEvaluationResult;
+import com.spicep.cryptowallet.exception.wallet.WalletException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Service class that evaluates many portfolios on one or more dates in a single request.
+ * Portfolios of a batch usually hold the same symbols, so the price of each (symbol, date) pair is resolved
+ * only once for the whole batch, up to {@code crypto.evaluation.concurrency} at a time.
+ * When a batch spans several dates, the past prices of each symbol are first prefetched with one upstream call.
+ * The portfolios are then evaluated in parallel and each result is emitted as soon as it is ready.
+ */
+@Service
+public class BatchEvaluationService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchEvaluationService.class);
+
+    private final WalletService walletService;
+    private final ReactiveWalletService reactiveWalletService;
+    private final HistoricalPriceService historicalPriceService;
+
+    @Value("${crypto.evaluation.concurrency:8}")
+    private int evaluationConcurrency = 8;
+
+    @Value("${crypto.evaluation.batch.timeout:60s}")
+    private Duration batchTimeout = Duration.ofSeconds(60);
+
+    @Value("${crypto.evaluation.batch.max-evaluations:100000}")
+    private int maxEvaluations = 100_000;
+
+    private record PriceKey(String symbol, LocalDate date) {
+        // Symbols differing only in case are one asset, priced once
+        private PriceKey {
+            symbol = symbol.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public BatchEvaluationService(WalletService walletService, ReactiveWalletService reactiveWalletService,
+                                  HistoricalPriceService historicalPriceService) {
+        this.walletService = walletService;
+        this.reactiveWalletService = reactiveWalletService;
+        this.historicalPriceService = historicalPriceService;
+    }
+
+    /**
+     * Evaluates every portfolio on every date.
+     * A portfolio that cannot be evaluated, for instance because an asset is invalid or a price is missing,
+     * gets a result with the error and does not fail the rest of the batch.
+     *
+     * @param portfolios The portfolios to evaluate
+     * @param dates The dates to evaluate the portfolios against
+     * @return Flux of one result per portfolio and date, in no particular order
+     * @throws WalletException if the batch is empty or too large
+     */
+    public Flux<PortfolioEvaluationResult> evaluate(List<PortfolioEvaluationRequest> portfolios, List<LocalDate> dates) {
+        if (portfolios == null || portfolios.isEmpty()) {
+            throw new WalletException("Portfolio list cannot be empty");
+        }
+        if (dates == null || dates.isEmpty()) {
+            throw new WalletException("Date list cannot be empty");
+        }
+
+        List<LocalDate> distinctDates = dates.stream().distinct().toList();
+        if ((long) portfolios.size() * distinctDates.size() > maxEvaluations) {
+            throw new WalletException("A batch cannot hold more than " + maxEvaluations + " evaluations");
+        }
+
+        Set<PriceKey> priceKeys = new LinkedHashSet<>();
+        for (LocalDate date : distinctDates) {
+            for (PortfolioEvaluationRequest portfolio : portfolios) {
+                if (portfolio.getAssets() != null) {
+                    portfolio.getAssets().stream()
+                            .filter(asset -> validateAsset(asset) == null)
+                            .forEach(asset -> priceKeys.add(new PriceKey(asset.getSymbol(), date)));
+                }
+            }
+        }
+
+        log.info("Evaluating {} portfolios on {} dates with {} distinct prices",
+                portfolios.size(), distinctDates.size(), priceKeys.size());
+
+        return prefetchPrices(priceKeys, distinctDates)
+                .thenMany(Flux.fromIterable(priceKeys))
+                .flatMap(key -> reactiveWalletService.resolveReferencePrice(key.symbol(), key.date())
+                                .map(price -> Map.entry(key, price))
+                                // A missing price only fails the portfolios holding it
+                                .onErrorResume(e -> {
+                                    log.warn("Price of {} on {} is not available: {}", key.symbol(), key.date(), e.getMessage());
+                                    return Mono.empty();
+                                }),
+                        evaluationConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .timeout(batchTimeout)
+                .onErrorMap(TimeoutException.class,
+                        e -> new WalletException("Batch evaluation did not complete within " + batchTimeout))
+                .flatMapMany(prices -> Flux.fromIterable(distinctDates)
+                        .concatMap(date -> Flux.fromIterable(portfolios)
+                                .map(portfolio -> Map.entry(portfolio, date)))
+                        .parallel()
+                        .runOn(Schedulers.parallel())
+                        .map(evaluation -> evaluatePortfolio(evaluation.getKey(), evaluation.getValue(), prices))
+                        .sequential());
+    }
+
+    /**
+     * Prefetches the prices of each symbol on the dates of the batch, when there are several.
+     * A failed prefetch is not an error, the prices are then fetched one by one.
+     */
+    private Mono<Void> prefetchPrices(Set<PriceKey> priceKeys, List<LocalDate> dates) {
+        if (dates.size() < 2) {
+            return Mono.empty();
+        }
+
+        Set<String> symbols = new LinkedHashSet<>();
+        priceKeys.forEach(key -> symbols.add(key.symbol()));
+        return Flux.fromIterable(symbols)
+                .flatMap(symbol -> historicalPriceService.prefetch(symbol, dates)
+                                .onErrorResume(e -> {
+                                    log.warn("Prices of {} could not be prefetched: {}", symbol, e.getMessage());
+                                    return Mono.empty();
+                                }),
+                        evaluationConcurrency)
+                .then();
+    }
+
+    private PortfolioEvaluationResult evaluatePortfolio(PortfolioEvaluationRequest portfolio, LocalDate date,
+                                                        Map<PriceKey, BigDecimal> prices) {
+        List<AssetEvaluationRequestDto> assets = portfolio.getAssets();
+        if (assets == null || assets.isEmpty()) {
+            return new PortfolioEvaluationResult(portfolio.getId(), date, null, "Asset list cannot be empty");
+        }
+
+        List<BigDecimal> referencePrices = new ArrayList<>(assets.size());
+        for (AssetEvaluationRequestDto asset : assets) {
+            String invalidAsset = validateAsset(asset);
+            if (invalidAsset != null) {
+                return new PortfolioEvaluationResult(portfolio.getId(), date, null, invalidAsset);
+            }
+
+            BigDecimal price = prices.get(new PriceKey(asset.getSymbol(), date));
+            if (price == null) {
+                return new PortfolioEvaluationResult(portfolio.getId(), date, null,
+                        "No price data available for " + asset.getSymbol() + " on " + date);
+            }
+            referencePrices.add(price);
+        }
+
+        try {
+            return new PortfolioEvaluationResult(portfolio.getId(), date,
+                    walletService.summarizeEvaluation(assets, referencePrices, date), null);
+        } catch (WalletException e) {
+            return new PortfolioEvaluationResult(portfolio.getId(), date, null, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Failed to evaluate portfolio {} on {}", portfolio.getId(), date, e);
+            return new PortfolioEvaluationResult(portfolio.getId(), date, null, "Portfolio could not be evaluated");
+        }
+    }
+
+    /**
+     * @return The reason the asset cannot be evaluated, null if it is valid
+     */
+    private static String validateAsset(AssetEvaluationRequestDto asset) {
+        if (asset == null || asset.getSymbol() == null || asset.getSymbol().isBlank()) {
+            return "Asset symbol cannot be empty";
+        }
+        if (asset.getQuantity() == null || asset.getQuantity().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Quantity of " + asset.getSymbol() + " must be positive";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,130 @@
+package com.spicep.cryptowallet.service;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker guarding the calls to an upstream API.
+ * After a number of consecutive failures the circuit opens and calls fail immediately.
+ * Once the open duration has elapsed a single probe call is let through: the circuit closes
+ * again if it succeeds and reopens if it fails.
+ */
+class CircuitBreaker {
+
+    /**
+     * States of the circuit, the ordinal is published as a gauge
+     */
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    // Constructor needed for tests
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("The failure threshold must be at least 1");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Runs a call through the circuit.
+     * A cancelled call neither succeeds nor fails, it only gives a probe slot back.
+     *
+     * @param call The call, subscribed only when the circuit lets it through
+     * @param isFailure Tells the errors that count as failures of the upstream apart from the expected ones
+     * @param rejection Error to fail with when the circuit is open
+     * @return The call, guarded by the circuit
+     */
+    <T> Mono<T> protect(Mono<T> call, Predicate<Throwable> isFailure, Supplier<? extends Throwable> rejection) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                return Mono.error(rejection.get());
+            }
+            return call
+                    .doOnSuccess(response -> onSuccess())
+                    .doOnError(e -> {
+                        if (isFailure.test(e)) {
+                            onFailure();
+                        } else {
+                            onSuccess();
+                        }
+                    })
+                    .doOnCancel(this::onCancel);
+        });
+    }
+
+    synchronized State getState() {
+        if (state == State.OPEN && openElapsed()) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN && openElapsed()) {
+            state = State.HALF_OPEN;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probeInFlight) {
+                    yield false;
+                }
+                probeInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    synchronized void onSuccess() {
+        // Calls started before the circuit opened do not close it
+        if (state == State.OPEN) {
+            return;
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        if (state == State.OPEN) {
+            return;
+        }
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+        }
+        probeInFlight = false;
+    }
+
+    private synchronized void onCancel() {
+        probeInFlight = false;
+    }
+
+    private boolean openElapsed() {
+        return nanoClock.getAsLong() - openedAt >= openNanos;
+    }
+}
@@ -0,0 +1,315 @@
+package com.spicep.cryptowallet.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetHistoryDto;
+import com.spicep.cryptowallet.dto.projection.PriceSummary;
+import com.spicep.cryptowallet.entity.HistoricalPrice;
+import com.spicep.cryptowallet.entity.PriceRollup;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapServerException;
+import com.spicep.cryptowallet.repository.HistoricalPriceRepository;
+import com.spicep.cryptowallet.repository.PriceHistoryRepository;
+import com.spicep.cryptowallet.repository.PriceRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Service class that stores the prices of closed UTC days.
+ * <p>
+ * The price of a day is its daily ({@code d1}) price, the average of its prices, whichever source gives it:
+ * days recorded locally are priced at the average of their ticks, or of their daily rollup once the ticks are expired,
+ * and the other days at their {@code d1} price from the {@link PriceProvider}, so a day keeps its price once recorded.
+ * Recorded ticks and rollups only give the price of a day when they reach its first and last
+ * {@code crypto.update.cold-rate} milliseconds, the longest interval between two refreshes of a held symbol.
+ * Days recorded in part, after a downtime or for a symbol held since the middle of the day, are gaps.
+ * <p>
+ * Prices are looked up in memory first, then in the locally recorded price history. Days that were not
+ * recorded are looked up in the historical_price table, and only fetched when missing there too.
+ * Fetched prices are written through to the table. The current day is still moving, so its prices are never stored.
+ * Blocking and non-blocking lookups of a day share a single non-blocking load, which the blocking ones wait for.
+ * The days of a symbol needed together, e.g. by a batch evaluation, can be prefetched with one upstream call.
+ * Symbols are stored and looked up in lower case in every price table.
+ */
+@Service
+public class HistoricalPriceService {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoricalPriceService.class);
+    private static final ZoneId UTC_ZONE = ZoneId.of("UTC");
+
+    // Prices of the days that were not recorded are fetched and stored at this interval
+    static final String DAILY_INTERVAL = ApiClientService.CoinCapInterval.DAY_1.getValue();
+
+    private final PriceProvider priceProvider;
+    private final HistoricalPriceRepository historicalPriceRepository;
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final PriceRollupRepository priceRollupRepository;
+    private final Duration coldRate;
+    private final Clock clock;
+    private final AsyncCache<PriceKey, BigDecimal> memory;
+
+    private record PriceKey(String symbol, LocalDate day) {
+    }
+
+    @Autowired
+    public HistoricalPriceService(PriceProvider priceProvider,
+                                  HistoricalPriceRepository historicalPriceRepository,
+                                  PriceHistoryRepository priceHistoryRepository,
+                                  PriceRollupRepository priceRollupRepository,
+                                  @Value("${crypto.cache.history.max-size:100000}") long maxSize,
+                                  @Value("${crypto.update.cold-rate:300000}") long coldRate) {
+        this(priceProvider, historicalPriceRepository, priceHistoryRepository, priceRollupRepository, maxSize,
+                Duration.ofMillis(coldRate), Clock.systemUTC());
+    }
+
+    // Constructor needed for tests
+    HistoricalPriceService(PriceProvider priceProvider,
+                           HistoricalPriceRepository historicalPriceRepository,
+                           PriceHistoryRepository priceHistoryRepository,
+                           PriceRollupRepository priceRollupRepository,
+                           long maxSize,
+                           Duration coldRate,
+                           Clock clock) {
+        this.priceProvider = priceProvider;
+        this.historicalPriceRepository = historicalPriceRepository;
+        this.priceHistoryRepository = priceHistoryRepository;
+        this.priceRollupRepository = priceRollupRepository;
+        this.coldRate = coldRate;
+        this.clock = clock;
+        // Loads are non-blocking, nothing needs to run on the cache executor
+        this.memory = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .maximumSize(maxSize)
+                .buildAsync();
+    }
+
+    /**
+     * Retrieves the daily price of an asset on a given date, the average of its prices over the UTC day.
+     *
+     * @param symbol The asset symbol
+     * @param date The date to get the price for
+     * @return The daily price of the date, or null if no price data is available
+     * @throws CoinCapServerException if the price has to be fetched and the API is unavailable
+     */
+    public BigDecimal getPriceForDate(String symbol, LocalDate date) {
+        try {
+            return fetchPriceForDate(symbol, date).toFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Non-blocking version of {@link #getPriceForDate(String, LocalDate)}.
+     * Database access runs on the bounded elastic scheduler.
+     *
+     * @param symbol The asset symbol
+     * @param date The date to get the price for
+     * @return Mono of the daily price of the date, empty if no price data is available
+     */
+    public Mono<BigDecimal> fetchPriceForDate(String symbol, LocalDate date) {
+        PriceKey key = new PriceKey(symbol.toLowerCase(), date);
+        if (!isClosedDay(date)) {
+            return fetchDailyPrice(key);
+        }
+
+        // Concurrent lookups of the same day share a single load. Days without price data are not cached
+        return Mono.fromFuture(() -> memory.get(key, (day, executor) -> loadPrice(day).toFuture()), true);
+    }
+
+    /**
+     * Prefetches the prices of an asset on several days, so their lookups need no upstream call.
+     * Days known in memory or in the database are not fetched. The range spanned by the other closed days is fetched
+     * with one request per upstream window, and their prices are written through to the table and kept in memory.
+     * Database access runs on the bounded elastic scheduler.
+     *
+     * @param symbol The asset symbol
+     * @param dates The days to prefetch, days not closed yet are ignored
+     * @return Mono of the number of fetched days
+     * @throws CoinCapServerException through the Mono, if the API is unavailable
+     */
+    public Mono<Integer> prefetch(String symbol, Collection<LocalDate> dates) {
+        String id = symbol.toLowerCase();
+        List<PriceKey> keys = dates.stream()
+                .filter(this::isClosedDay)
+                .distinct()
+                .map(date -> new PriceKey(id, date))
+                .filter(key -> memory.getIfPresent(key) == null)
+                .toList();
+        if (keys.isEmpty()) {
+            return Mono.just(0);
+        }
+
+        return Mono.fromCallable(() -> {
+                    List<PriceKey> missing = new ArrayList<>();
+                    for (PriceKey key : keys) {
+                        findLocalPrice(key).ifPresentOrElse(price -> memory.put(key, CompletableFuture.completedFuture(price)),
+                                () -> missing.add(key));
+                    }
+                    return missing;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(missing -> missing.isEmpty() ? Mono.just(0) : fetchDailyPrices(id, missing));
+    }
+
+    /**
+     * Fetches the daily prices of the range spanned by the given days, and stores those of the given days.
+     */
+    private Mono<Integer> fetchDailyPrices(String symbol, List<PriceKey> keys) {
+        LocalDate first = keys.stream().map(PriceKey::day).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDate last = keys.stream().map(PriceKey::day).max(Comparator.naturalOrder()).orElseThrow();
+
+        return priceProvider.fetchAssetHistoryRange(symbol, ApiClientService.CoinCapInterval.DAY_1,
+                        first.atStartOfDay(UTC_ZONE).toInstant().toEpochMilli(),
+                        last.plusDays(1).atStartOfDay(UTC_ZONE).toInstant().toEpochMilli())
+                .onErrorResume(e -> !(e instanceof CoinCapServerException), e -> {
+                    log.error("Error fetching price data for {} between {} and {}: {}", symbol, first, last, e.getMessage());
+                    return Mono.just(List.of());
+                })
+                .flatMap(history -> Mono.fromCallable(() -> {
+                    // Keep the first price of each day, as single day lookups do
+                    Map<LocalDate, BigDecimal> pricesByDay = new HashMap<>();
+                    for (CoinCapAssetHistoryDto price : history) {
+                        if (price.getPriceUsd() != null) {
+                            pricesByDay.putIfAbsent(Instant.ofEpochMilli(price.getTime()).atZone(UTC_ZONE).toLocalDate(),
+                                    price.getPriceUsd());
+                        }
+                    }
+
+                    int fetched = 0;
+                    for (PriceKey key : keys) {
+                        BigDecimal price = pricesByDay.get(key.day());
+                        if (price != null) {
+                            persist(key, price);
+                            memory.put(key, CompletableFuture.completedFuture(price));
+                            fetched++;
+                        }
+                    }
+                    log.info("Prefetched {} daily prices for {} between {} and {}", fetched, symbol, first, last);
+                    return fetched;
+                }).subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    /**
+     * Loads the price of a closed day, from the database first, then from the {@link PriceProvider}.
+     * Database access runs on the bounded elastic scheduler and the API call is non-blocking,
+     * so nothing blocks the thread completing the cache entry.
+     *
+     * @param key The day to get the price for
+     * @return Mono of the price of the day, empty if no price data is available
+     */
+    private Mono<BigDecimal> loadPrice(PriceKey key) {
+        return Mono.fromCallable(() -> findLocalPrice(key).orElse(null))
+                .subscribeOn(Schedulers.boundedElastic())
+                .switchIfEmpty(Mono.defer(() -> fetchDailyPrice(key)
+                        .flatMap(price -> Mono.fromRunnable(() -> persist(key, price))
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .thenReturn(price))));
+    }
+
+    /**
+     * Looks up the daily price of a closed day in the database only.
+     * A recorded day is priced at the average of its recorded prices, as the {@code d1} price fetched for the other
+     * days is the average of the prices of the day, so both give the same price for a day.
+     *
+     * @param key The day to get the price for
+     * @return The average of the recorded ticks of the day, else of its daily rollup, if recorded throughout the day,
+     * else the stored daily price of the day, empty if the day is unknown locally
+     */
+    private Optional<BigDecimal> findLocalPrice(PriceKey key) {
+        Instant dayStart = key.day().atStartOfDay(UTC_ZONE).toInstant();
+        Instant dayEnd = key.day().plusDays(1).atStartOfDay(UTC_ZONE).toInstant();
+
+        Optional<BigDecimal> recorded = priceHistoryRepository.summarizeRange(key.symbol(), dayStart, dayEnd)
+                .filter(summary -> coversDay(summary, dayStart, dayEnd))
+                .or(() -> priceRollupRepository.findSummary(key.symbol(), PriceRollup.Resolution.DAY, dayStart)
+                        .filter(summary -> coversDay(summary, dayStart, dayEnd)))
+                .map(HistoricalPriceService::averagePrice);
+        if (recorded.isPresent()) {
+            log.debug("Price for {} on {} served from the recorded history", key.symbol(), key.day());
+            return recorded;
+        }
+
+        return historicalPriceRepository.findBySymbolAndIntervalAndDay(key.symbol(), DAILY_INTERVAL, key.day())
+                .map(HistoricalPrice::getPrice);
+    }
+
+    /**
+     * Fetches the daily ({@code d1}) price of a day, the average of its prices, days yet to come have none.
+     * A rejected request is a missing price, while an unavailable API fails the lookup,
+     * so it is neither cached nor mistaken for a day without data.
+     */
+    private Mono<BigDecimal> fetchDailyPrice(PriceKey key) {
+        Instant dayStart = key.day().atStartOfDay(UTC_ZONE).toInstant();
+        if (!dayStart.isBefore(clock.instant())) {
+            return Mono.empty();
+        }
+
+        return priceProvider.fetchAssetHistory(key.symbol(), DAILY_INTERVAL, dayStart.toEpochMilli(),
+                        key.day().plusDays(1).atStartOfDay(UTC_ZONE).toInstant().toEpochMilli())
+                .mapNotNull(HistoricalPriceService::firstPrice)
+                .onErrorResume(e -> !(e instanceof CoinCapServerException), e -> {
+                    log.error("Error fetching price data for {} on {}: {}", key.symbol(), key.day(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private void persist(PriceKey key, BigDecimal price) {
+        HistoricalPrice historicalPrice = new HistoricalPrice();
+        historicalPrice.setSymbol(key.symbol());
+        historicalPrice.setInterval(DAILY_INTERVAL);
+        historicalPrice.setDay(key.day());
+        historicalPrice.setPrice(price);
+
+        try {
+            historicalPriceRepository.save(historicalPrice);
+        } catch (DataIntegrityViolationException e) {
+            // Another instance stored the same day first, the price is the same
+            log.debug("Price for {} on {} was already stored", key.symbol(), key.day());
+        }
+    }
+
+    private static BigDecimal firstPrice(List<CoinCapAssetHistoryDto> prices) {
+        return prices.isEmpty() ? null : prices.getFirst().getPriceUsd();
+    }
+
+    private boolean isClosedDay(LocalDate date) {
+        return date.isBefore(LocalDate.now(clock.withZone(UTC_ZONE)));
+    }
+
+    /**
+     * A held symbol is refreshed at least once per cold rate, so a day recorded throughout has prices
+     * in its first and last cold rate. A later first or earlier last price means the day was recorded in part.
+     */
+    private boolean coversDay(PriceSummary summary, Instant dayStart, Instant dayEnd) {
+        return summary.first() != null && summary.last() != null
+                && !summary.first().isAfter(dayStart.plus(coldRate))
+                && !summary.last().isBefore(dayEnd.minus(coldRate));
+    }
+
+    /**
+     * @return The average of the summarized prices, at the scale they are stored at
+     */
+    private static BigDecimal averagePrice(PriceSummary summary) {
+        return summary.sum().divide(BigDecimal.valueOf(summary.count()), summary.sum().scale(), RoundingMode.HALF_UP);
+    }
+}
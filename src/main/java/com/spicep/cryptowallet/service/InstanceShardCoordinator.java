@@ -0,0 +1,193 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.repository.InstanceHeartbeatRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Shares the price updates between the running instances of the application, so each symbol is fetched
+ * by a single instance.
+ * <p>
+ * Every instance writes a heartbeat to the {@code instance_heartbeat} table every
+ * {@code crypto.update.sharding.heartbeat-rate} milliseconds and reads the instances seen within
+ * {@code crypto.update.sharding.instance-timeout}, both by the clock of the database, so the clocks
+ * of the instances do not need to agree. Each symbol is owned by one live instance, chosen by
+ * rendezvous hashing: the instance with the highest hash of the instance id and symbol. When an instance
+ * stops or misses its heartbeats, only its symbols move to the other instances.
+ * The other instances follow the quotes written by the owner, see
+ * {@link com.spicep.cryptowallet.scheduler.PriceUpdateScheduler}.
+ * The instance running the price history retention job is elected the same way, as the owner of its key.
+ * Until the instances agree on the live set, after a start or a failure, a symbol may be fetched twice
+ * or once late.
+ * <p>
+ * Disabled with {@code crypto.update.sharding.enabled=false}, every symbol is then owned by this instance.
+ */
+@Service
+public class InstanceShardCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(InstanceShardCoordinator.class);
+
+    // Heartbeats of gone instances are kept for a while, they are ignored past the instance timeout anyway
+    private static final int EXPIRED_HEARTBEAT_TIMEOUTS = 10;
+
+    private final InstanceHeartbeatRepository instanceHeartbeatRepository;
+    private final String instanceId;
+    private volatile List<String> liveInstances;
+
+    @Value("${crypto.update.sharding.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${crypto.update.sharding.instance-timeout:15s}")
+    private Duration instanceTimeout = Duration.ofSeconds(15);
+
+    public InstanceShardCoordinator(InstanceHeartbeatRepository instanceHeartbeatRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${crypto.update.sharding.instance-id:}") String instanceId) {
+        this.instanceHeartbeatRepository = instanceHeartbeatRepository;
+        this.instanceId = instanceId == null || instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+
+        Gauge.builder("price.update.instances", this, InstanceShardCoordinator::getInstanceCount)
+                .description("Instances sharing the price updates")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return The id of this instance, generated on startup unless {@code crypto.update.sharding.instance-id} is set
+     */
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Writes the heartbeat of this instance and reloads the live instances.
+     */
+    @Scheduled(fixedRateString = "${crypto.update.sharding.heartbeat-rate:5000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+
+        instanceHeartbeatRepository.beat(instanceId);
+        Instant now = instanceHeartbeatRepository.currentTime();
+        List<String> live = instanceHeartbeatRepository.findLiveInstances(now.minus(instanceTimeout));
+        if (!live.contains(instanceId)) {
+            // Read from a replica lagging behind the heartbeat
+            live = new ArrayList<>(live);
+            live.add(instanceId);
+        }
+
+        List<String> previous = liveInstances;
+        liveInstances = List.copyOf(live);
+        if (previous == null || !previous.equals(liveInstances)) {
+            log.info("Price updates shared by {} instances", liveInstances.size());
+        }
+
+        instanceHeartbeatRepository.deleteOlderThan(now.minus(instanceTimeout.multipliedBy(EXPIRED_HEARTBEAT_TIMEOUTS)));
+    }
+
+    /**
+     * Removes the heartbeat of this instance, so its symbols move to the other instances right away.
+     */
+    @PreDestroy
+    public void leave() {
+        if (enabled && liveInstances != null) {
+            instanceHeartbeatRepository.deleteById(instanceId);
+            liveInstances = null;
+        }
+    }
+
+    /**
+     * @param holdersBySymbol The number of wallets holding each tracked symbol
+     * @return The entries of the symbols owned by this instance
+     */
+    public Map<String, Long> ownedSymbols(Map<String, Long> holdersBySymbol) {
+        List<String> live = live();
+        if (live.size() == 1) {
+            return holdersBySymbol;
+        }
+
+        Map<String, Long> owned = new HashMap<>();
+        holdersBySymbol.forEach((symbol, holders) -> {
+            if (instanceId.equals(owner(symbol, live))) {
+                owned.put(symbol, holders);
+            }
+        });
+        return owned;
+    }
+
+    /**
+     * @param symbol The asset symbol
+     * @return Whether this instance updates the price of the symbol
+     */
+    public boolean owns(String symbol) {
+        List<String> live = live();
+        return live.size() == 1 || instanceId.equals(owner(symbol, live));
+    }
+
+    /**
+     * @return The number of instances sharing the price updates, one until the first heartbeat
+     */
+    public int getInstanceCount() {
+        List<String> live = liveInstances;
+        return enabled && live != null ? live.size() : 1;
+    }
+
+    /**
+     * @param symbol The asset symbol
+     * @param instances The live instances
+     * @return The instance owning the symbol
+     */
+    static String owner(String symbol, List<String> instances) {
+        String owner = null;
+        long ownerScore = 0;
+        for (String instance : instances) {
+            long score = score(instance, symbol);
+            if (owner == null || score > ownerScore || (score == ownerScore && instance.compareTo(owner) < 0)) {
+                owner = instance;
+                ownerScore = score;
+            }
+        }
+        return owner;
+    }
+
+    private List<String> live() {
+        if (!enabled) {
+            return List.of(instanceId);
+        }
+
+        List<String> live = liveInstances;
+        if (live == null) {
+            heartbeat();
+            live = liveInstances;
+        }
+        return live;
+    }
+
+    /**
+     * Mixes the hashes of the instance and symbol with the finalizer of MurmurHash3,
+     * so every instance gets an even share of the symbols.
+     */
+    private static long score(String instance, String symbol) {
+        long hash = instance.hashCode() * 0x9E3779B97F4A7C15L + symbol.hashCode();
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
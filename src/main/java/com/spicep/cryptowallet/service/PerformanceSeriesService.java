@@ -0,0 +1,168 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetHistoryDto;
+import com.spicep.cryptowallet.dto.request.AssetEvaluationRequestDto;
+import com.spicep.cryptowallet.dto.response.PerformancePoint;
+import com.spicep.cryptowallet.dto.response.PerformanceSeriesResponse;
+import com.spicep.cryptowallet.exception.wallet.WalletException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Service class that evaluates a portfolio over a range of dates.
+ * The history of each symbol is fetched with one range request per upstream window instead of one request per day,
+ * and the series is then computed in a single pass over the merged price points.
+ */
+@Service
+public class PerformanceSeriesService {
+
+    private static final Logger log = LoggerFactory.getLogger(PerformanceSeriesService.class);
+    private static final ZoneId UTC_ZONE = ZoneId.of("UTC");
+    private static final int PERCENTAGE_SCALE = 2;
+
+    private final PriceProvider priceProvider;
+
+    @Value("${crypto.evaluation.concurrency:8}")
+    private int evaluationConcurrency = 8;
+
+    @Value("${crypto.evaluation.series.timeout:30s}")
+    private Duration seriesTimeout = Duration.ofSeconds(30);
+
+    @Value("${crypto.evaluation.series.max-days:3650}")
+    private long maxDays = 3650;
+
+    public PerformanceSeriesService(PriceProvider priceProvider) {
+        this.priceProvider = priceProvider;
+    }
+
+    /**
+     * Evaluates a portfolio at every point of the given interval between two dates.
+     * A point is emitted at each time one of the symbols has a price, once every symbol has one;
+     * symbols without a price at that exact time keep their previous price.
+     * Performance is computed against the provided asset values, as in a single date evaluation.
+     *
+     * @param inputAssets List of assets and their values
+     * @param from First date of the series (inclusive)
+     * @param to Last date of the series (inclusive)
+     * @param interval The CoinCap interval between points, e.g. "d1"
+     * @return Mono of the series, oldest point first
+     * @throws WalletException if the request is invalid
+     */
+    public Mono<PerformanceSeriesResponse> evaluateSeries(List<AssetEvaluationRequestDto> inputAssets,
+                                                          LocalDate from, LocalDate to, String interval) {
+        if (inputAssets == null || inputAssets.isEmpty()) {
+            throw new WalletException("Asset list cannot be empty");
+        }
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new WalletException("The start of the range must not be after its end");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new WalletException("The range cannot be longer than " + maxDays + " days");
+        }
+        ApiClientService.CoinCapInterval coinCapInterval = ApiClientService.CoinCapInterval.fromValue(interval)
+                .orElseThrow(() -> new WalletException("Unknown interval: " + interval));
+
+        long startMillis = from.atStartOfDay(UTC_ZONE).toInstant().toEpochMilli();
+        long endMillis = Math.min(to.plusDays(1).atStartOfDay(UTC_ZONE).toInstant().toEpochMilli(),
+                Instant.now().toEpochMilli());
+
+        List<String> symbols = inputAssets.stream().map(AssetEvaluationRequestDto::getSymbol).distinct().toList();
+        log.info("Evaluating {} assets from {} to {} every {}", inputAssets.size(), from, to, interval);
+
+        return Flux.fromIterable(symbols)
+                .flatMap(symbol -> priceProvider.fetchAssetHistoryRange(symbol, coinCapInterval, startMillis, endMillis)
+                                .map(history -> Map.entry(symbol, history)),
+                        evaluationConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .timeout(seriesTimeout)
+                .onErrorMap(TimeoutException.class,
+                        e -> new WalletException("Series evaluation did not complete within " + seriesTimeout))
+                .map(histories -> {
+                    for (String symbol : symbols) {
+                        if (histories.getOrDefault(symbol, List.of()).isEmpty()) {
+                            throw new WalletException("No price data available for " + symbol + " between " + from + " and " + to);
+                        }
+                    }
+                    return new PerformanceSeriesResponse(from, to, interval, computeSeries(inputAssets, symbols, histories));
+                });
+    }
+
+    /**
+     * Merges the histories of all symbols by time and values the portfolio at each time, in a single pass.
+     */
+    private List<PerformancePoint> computeSeries(List<AssetEvaluationRequestDto> inputAssets, List<String> symbols,
+                                                 Map<String, List<CoinCapAssetHistoryDto>> histories) {
+        int symbolCount = symbols.size();
+        List<List<CoinCapAssetHistoryDto>> historyBySymbol = symbols.stream().map(histories::get).toList();
+        int[] positions = new int[symbolCount];
+        BigDecimal[] lastPrices = new BigDecimal[symbolCount];
+        int pricedSymbols = 0;
+
+        Map<String, Integer> indexBySymbol = new HashMap<>();
+        for (int i = 0; i < symbolCount; i++) {
+            indexBySymbol.put(symbols.get(i), i);
+        }
+        int[] symbolOfAsset = inputAssets.stream().mapToInt(asset -> indexBySymbol.get(asset.getSymbol())).toArray();
+        List<PerformancePoint> points = new ArrayList<>();
+
+        while (true) {
+            // Next time at which any symbol has a price
+            long time = Long.MAX_VALUE;
+            for (int i = 0; i < symbolCount; i++) {
+                if (positions[i] < historyBySymbol.get(i).size()) {
+                    time = Math.min(time, historyBySymbol.get(i).get(positions[i]).getTime());
+                }
+            }
+            if (time == Long.MAX_VALUE) {
+                return points;
+            }
+
+            for (int i = 0; i < symbolCount; i++) {
+                List<CoinCapAssetHistoryDto> history = historyBySymbol.get(i);
+                while (positions[i] < history.size() && history.get(positions[i]).getTime() == time) {
+                    BigDecimal price = history.get(positions[i]++).getPriceUsd();
+                    if (price != null) {
+                        if (lastPrices[i] == null) {
+                            pricedSymbols++;
+                        }
+                        lastPrices[i] = price;
+                    }
+                }
+            }
+
+            if (pricedSymbols == symbolCount) {
+                points.add(valuePortfolio(inputAssets, symbolOfAsset, lastPrices, time));
+            }
+        }
+    }
+
+    private static PerformancePoint valuePortfolio(List<AssetEvaluationRequestDto> inputAssets, int[] symbolOfAsset,
+                                                   BigDecimal[] prices, long time) {
+        BigDecimal total = BigDecimal.ZERO;
+        Map<String, BigDecimal> performanceByAsset = new LinkedHashMap<>();
+
+        for (int i = 0; i < inputAssets.size(); i++) {
+            AssetEvaluationRequestDto asset = inputAssets.get(i);
+            BigDecimal value = asset.getQuantity().multiply(prices[symbolOfAsset[i]]);
+            total = total.add(value);
+            performanceByAsset.put(asset.getSymbol(),
+                    WalletService.calculatePerformance(value, asset.getValue()).setScale(PERCENTAGE_SCALE, RoundingMode.HALF_UP));
+        }
+
+        return new PerformancePoint(Instant.ofEpochMilli(time), total.setScale(2, RoundingMode.HALF_UP), performanceByAsset);
+    }
+}
@@ -0,0 +1,170 @@
+package com.spicep.cryptowallet.service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetDto;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapServerException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Service class that caches current asset prices in front of the {@link PriceProvider}.
+ * Concurrent misses for the same symbol share a single upstream call, and the cache is
+ * refreshed with the prices fetched by the scheduler.
+ * Prices loaded on a miss live {@code crypto.cache.price.ttl}. Prices stored by the scheduler live at least twice the
+ * {@code crypto.update.cold-rate}, so the prices of symbols refreshed at the cold rate are still cached when their
+ * refresh is late, instead of being fetched again on the next lookup.
+ * Hit, miss and load time metrics are published under the "prices.current" cache name.
+ * While the API is unavailable, lookups fall back to the last known price of the asset, read from the
+ * {@link PriceTickStore} and counted in the {@code prices.fallback} counter.
+ */
+@Service
+public class PriceCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceCacheService.class);
+    private static final String CACHE_NAME = "prices.current";
+
+    private final PriceProvider priceProvider;
+    private final AsyncLoadingCache<String, CachedPrice> cache;
+    private final PriceTickStore priceTickStore;
+    private final Counter fallbackCounter;
+
+    public PriceCacheService(PriceProvider priceProvider,
+                             PriceTickStore priceTickStore,
+                             MeterRegistry meterRegistry,
+                             @Value("${crypto.cache.price.ttl:60s}") Duration ttl,
+                             @Value("${crypto.cache.price.max-size:10000}") long maxSize,
+                             @Value("${crypto.update.cold-rate:300000}") long coldRate) {
+        this.priceProvider = priceProvider;
+        this.priceTickStore = priceTickStore;
+        // Cold symbols are refreshed once per cold rate, their prices must not expire in between
+        Duration coldTtl = Duration.ofMillis(coldRate).multipliedBy(2);
+        // Loads are non-blocking API calls, nothing needs to run on the cache executor
+        this.cache = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .expireAfter(new PriceExpiry(ttl, ttl.compareTo(coldTtl) >= 0 ? ttl : coldTtl))
+                .maximumSize(maxSize)
+                .recordStats()
+                .buildAsync((symbol, executor) -> loadPrice(symbol)
+                        .map(price -> new CachedPrice(price, false))
+                        .toFuture());
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.fallbackCounter = Counter.builder("prices.fallback")
+                .description("Price lookups answered with the last known price while the API is unavailable")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Retrieves the current price of an asset, calling the API only on a cache miss.
+     *
+     * @param symbol The asset symbol
+     * @return The current price, or null if the API has no price for the asset
+     * @throws CoinCapServerException if the API is unavailable and the asset has no known price
+     */
+    public BigDecimal getCurrentPrice(String symbol) {
+        String id = symbol.toLowerCase();
+        try {
+            CachedPrice cachedPrice = cache.get(id).join();
+            return cachedPrice == null ? null : cachedPrice.price();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof CoinCapServerException cause) {
+                BigDecimal lastKnownPrice = lastKnownPrice(id, cause);
+                if (lastKnownPrice != null) {
+                    return lastKnownPrice;
+                }
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Non-blocking version of {@link #getCurrentPrice(String)}.
+     * Cancelling the returned Mono does not cancel a load shared with other callers.
+     *
+     * @param symbol The asset symbol
+     * @return Mono of the current price, empty if the API has no price for the asset
+     */
+    public Mono<BigDecimal> fetchCurrentPrice(String symbol) {
+        String id = symbol.toLowerCase();
+        return Mono.fromFuture(() -> cache.get(id), true)
+                .map(CachedPrice::price)
+                .onErrorResume(CoinCapServerException.class, e -> Mono.justOrEmpty(lastKnownPrice(id, e))
+                        .switchIfEmpty(Mono.error(e)));
+    }
+
+    /**
+     * Stores the prices fetched by the scheduler, resetting their time to live.
+     *
+     * @param prices Map of symbol to its current price
+     */
+    public void putAll(Map<String, BigDecimal> prices) {
+        Map<String, CachedPrice> pricesById = new HashMap<>();
+        prices.forEach((symbol, price) -> pricesById.put(symbol.toLowerCase(), new CachedPrice(price, true)));
+        cache.synchronous().putAll(pricesById);
+    }
+
+    private Mono<BigDecimal> loadPrice(String symbol) {
+        log.debug("Price cache miss for {}", symbol);
+
+        return priceProvider.fetchCurrentAssetDataBySymbol(symbol)
+                .mapNotNull(CoinCapAssetDto::getPriceUsd)
+                // The scheduler records the prices it fetches, prices fetched on a miss are recorded here
+                .doOnNext(price -> priceTickStore.record(symbol, System.currentTimeMillis(), price));
+    }
+
+    private BigDecimal lastKnownPrice(String symbol, CoinCapServerException cause) {
+        BigDecimal price = PriceTickStore.toPrice(priceTickStore.latestPrice(symbol));
+        if (price != null) {
+            log.warn("Using the last known price of {}: {}", symbol, cause.getMessage());
+            fallbackCounter.increment();
+        }
+        return price;
+    }
+
+    /**
+     * Cached price of an asset.
+     *
+     * @param price The current price
+     * @param scheduled Whether the price was stored by the scheduler, rather than loaded on a miss
+     */
+    private record CachedPrice(BigDecimal price, boolean scheduled) {
+    }
+
+    /**
+     * Expires loaded prices after the configured time to live, and scheduled prices after their own.
+     */
+    private record PriceExpiry(Duration ttl, Duration scheduledTtl) implements Expiry<String, CachedPrice> {
+
+        @Override
+        public long expireAfterCreate(String symbol, CachedPrice cachedPrice, long currentTime) {
+            return (cachedPrice.scheduled() ? scheduledTtl : ttl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String symbol, CachedPrice cachedPrice, long currentTime, long currentDuration) {
+            return expireAfterCreate(symbol, cachedPrice, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String symbol, CachedPrice cachedPrice, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
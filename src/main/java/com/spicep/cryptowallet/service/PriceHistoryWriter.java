@@ -0,0 +1,208 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.entity.PriceHistory;
+import com.spicep.cryptowallet.repository.PriceHistoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer of the price history.
+ * <p>
+ * Price updates queue their rows without waiting for the database, and a background thread inserts them
+ * with JDBC batches of up to {@code crypto.history.writer.batch-size} rows, as soon as a batch is full or
+ * {@code crypto.history.writer.flush-interval} after its first row.
+ * The queue holds up to {@code crypto.history.writer.capacity} rows, rows offered to a full queue are dropped
+ * so price updates never block.
+ * <p>
+ * Queued rows are only in memory: a graceful shutdown writes them all, within
+ * {@code crypto.history.writer.drain-timeout}, but they are lost if the process dies.
+ * Batches failing to insert are dropped. The queue depth, written, dropped and failed rows are published as metrics.
+ */
+@Service
+public class PriceHistoryWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceHistoryWriter.class);
+
+    // Queued on stop, so the writer stops waiting for rows and drains the queue, matched by identity
+    private static final PriceHistory WAKE_UP = new PriceHistory();
+
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final BlockingQueue<PriceHistory> queue;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Counter writtenRowsCounter;
+    private final Counter droppedRowsCounter;
+    private final Counter failedRowsCounter;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    @Value("${crypto.history.writer.drain-timeout:30s}")
+    private Duration drainTimeout = Duration.ofSeconds(30);
+
+    public PriceHistoryWriter(PriceHistoryRepository priceHistoryRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${crypto.history.writer.capacity:100000}") int capacity,
+                              @Value("${crypto.history.writer.batch-size:1000}") int batchSize,
+                              @Value("${crypto.history.writer.flush-interval:1s}") Duration flushInterval) {
+        if (capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("The history writer capacity and batch size must be positive");
+        }
+        this.priceHistoryRepository = priceHistoryRepository;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+
+        Gauge.builder("price.history.queue.depth", queue, BlockingQueue::size)
+                .description("Price history rows waiting to be written")
+                .register(meterRegistry);
+        this.writtenRowsCounter = Counter.builder("price.update.rows")
+                .description("Rows written by price updates")
+                .tag("table", "price_history")
+                .register(meterRegistry);
+        this.droppedRowsCounter = Counter.builder("price.history.dropped")
+                .description("Price history rows dropped by the writer")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        this.failedRowsCounter = Counter.builder("price.history.dropped")
+                .description("Price history rows dropped by the writer")
+                .tag("reason", "insert_failed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the background writer.
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = Thread.ofPlatform()
+                .name("price-history-writer")
+                .daemon(true)
+                .start(this::writeUntilStopped);
+    }
+
+    /**
+     * Stops the background writer once the queued rows are written, or the drain timeout elapsed.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writerThread == null) {
+            return;
+        }
+        // A full queue means the writer is not waiting for rows
+        queue.offer(WAKE_UP);
+
+        try {
+            writerThread.join(drainTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.warn("Stopped the price history writer with {} rows left", queue.size());
+            writerThread.interrupt();
+        }
+    }
+
+    /**
+     * Queues rows to be written, without blocking.
+     *
+     * @param priceHistories The rows to write
+     * @return The number of queued rows, the others are dropped because the queue is full
+     */
+    public int enqueue(List<PriceHistory> priceHistories) {
+        int queued = 0;
+        for (PriceHistory priceHistory : priceHistories) {
+            if (!queue.offer(priceHistory)) {
+                break;
+            }
+            queued++;
+        }
+
+        int dropped = priceHistories.size() - queued;
+        if (dropped > 0) {
+            log.warn("Price history queue is full, dropped {} rows", dropped);
+            droppedRowsCounter.increment(dropped);
+        }
+        return queued;
+    }
+
+    /**
+     * @return The number of rows waiting to be written
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void writeUntilStopped() {
+        List<PriceHistory> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                if (fillBatch(batch)) {
+                    write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for a row, then for the batch to fill up until the flush interval elapsed.
+     * Once stopping, the queued rows are taken without waiting.
+     *
+     * @return Whether the batch has rows to write
+     * @throws InterruptedException if interrupted while waiting for rows
+     */
+    private boolean fillBatch(List<PriceHistory> batch) throws InterruptedException {
+        PriceHistory first = running ? queue.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS) : queue.poll();
+        if (first == null || first == WAKE_UP) {
+            return false;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + flushInterval.toNanos();
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            batch.removeIf(row -> row == WAKE_UP);
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || !running || remaining <= 0) {
+                break;
+            }
+
+            PriceHistory next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            if (next != WAKE_UP) {
+                batch.add(next);
+            }
+        }
+        return true;
+    }
+
+    private void write(List<PriceHistory> batch) {
+        try {
+            priceHistoryRepository.insertAll(batch);
+            writtenRowsCounter.increment(batch.size());
+        } catch (Exception e) {
+            log.error("Failed to write {} price history rows", batch.size(), e);
+            failedRowsCounter.increment(batch.size());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetDto;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetHistoryDto;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Source of current and historical asset prices.
+ * Prices come from the CoinCap API by default, see {@link ApiClientService}. They can be replayed
+ * from a recorded tick file instead with {@code crypto.price.provider=replay}, see {@link ReplayPriceProvider}.
+ * Assets are identified by their CoinCap id, symbols are matched case-insensitively.
+ */
+public interface PriceProvider {
+
+    /**
+     * Retrieves the current information of an asset.
+     *
+     * @param symbol The asset symbol
+     * @return Mono of the asset information, failing with a CoinCapAssetNotFoundException if the asset is unknown
+     */
+    Mono<CoinCapAssetDto> fetchCurrentAssetDataBySymbol(String symbol);
+
+    /**
+     * Retrieves the current prices of several assets.
+     *
+     * @param symbols The asset symbols, at most {@link #getBulkChunkSize()} of them per call is the cheapest
+     * @return Map of each requested symbol to its current price, unknown symbols are left out
+     */
+    Map<String, BigDecimal> getCurrentPrices(Collection<String> symbols);
+
+    /**
+     * @return The number of symbols a single {@link #getCurrentPrices(Collection)} call should request
+     */
+    int getBulkChunkSize();
+
+    /**
+     * Retrieves the prices of an asset on a given UTC date.
+     *
+     * @param symbol The asset symbol
+     * @param interval The time interval
+     * @param date The date to get prices for
+     * @return List of price data for the date, oldest first, empty if there is none
+     */
+    List<CoinCapAssetHistoryDto> getAssetPriceForDate(String symbol, String interval, LocalDate date);
+
+    /**
+     * Retrieves the prices of an asset over a time range.
+     *
+     * @param symbol The asset symbol
+     * @param interval The time interval
+     * @param startMillis Start of the range, in epoch milliseconds (inclusive)
+     * @param endMillis End of the range, in epoch milliseconds (exclusive)
+     * @return List of price data for the range, oldest first
+     */
+    default List<CoinCapAssetHistoryDto> getAssetHistory(String symbol, String interval, long startMillis, long endMillis) {
+        return fetchAssetHistory(symbol, interval, startMillis, endMillis).block();
+    }
+
+    /**
+     * Non-blocking version of {@link #getAssetHistory(String, String, long, long)}.
+     * The range may be limited by the provider, see {@link #fetchAssetHistoryRange} for ranges of any length.
+     */
+    Mono<List<CoinCapAssetHistoryDto>> fetchAssetHistory(String symbol, String interval, long startMillis, long endMillis);
+
+    /**
+     * Retrieves the prices of an asset over a time range of any length.
+     *
+     * @param symbol The asset symbol
+     * @param interval The time interval
+     * @param startMillis Start of the range, in epoch milliseconds (inclusive)
+     * @param endMillis End of the range, in epoch milliseconds (exclusive)
+     * @return Mono of the price data for the range, oldest first
+     */
+    Mono<List<CoinCapAssetHistoryDto>> fetchAssetHistoryRange(String symbol, ApiClientService.CoinCapInterval interval,
+                                                              long startMillis, long endMillis);
+}
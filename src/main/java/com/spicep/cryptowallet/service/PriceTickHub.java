@@ -0,0 +1,60 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.event.WalletHoldingsChangedEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * In-process hub of price ticks and wallet changes, used to push live valuations to clients.
+ * Events are only delivered to current subscribers, nothing is replayed or buffered.
+ */
+@Service
+public class PriceTickHub {
+
+    /**
+     * Prices stored by a price update.
+     *
+     * @param prices The new prices by symbol
+     * @param timestamp The time of the prices
+     */
+    public record PriceTick(Map<String, BigDecimal> prices, Instant timestamp) {
+    }
+
+    private final Sinks.Many<PriceTick> ticks = Sinks.many().multicast().directBestEffort();
+    private final Sinks.Many<Long> holdingChanges = Sinks.many().multicast().directBestEffort();
+
+    /**
+     * Publishes the prices stored by a price update.
+     * Chunks are stored concurrently, emissions are serialized as the sink requires.
+     *
+     * @param prices The new prices by symbol
+     * @param timestamp The time of the prices
+     */
+    public synchronized void publish(Map<String, BigDecimal> prices, Instant timestamp) {
+        ticks.tryEmitNext(new PriceTick(Map.copyOf(prices), timestamp));
+    }
+
+    /**
+     * Publishes the id of a changed wallet, once the change is committed.
+     *
+     * @param event The wallet change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onHoldingsChanged(WalletHoldingsChangedEvent event) {
+        holdingChanges.tryEmitNext(event.walletId());
+    }
+
+    public Flux<PriceTick> ticks() {
+        return ticks.asFlux();
+    }
+
+    public Flux<Long> holdingChanges() {
+        return holdingChanges.asFlux();
+    }
+}
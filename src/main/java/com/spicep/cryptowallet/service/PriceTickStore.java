@@ -0,0 +1,311 @@
+package com.spicep.cryptowallet.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory store of the recent price ticks of each symbol, filled by the price updates.
+ * <p>
+ * Each symbol keeps its latest {@code crypto.tick-store.capacity} ticks in a ring buffer of primitive longs,
+ * the time in epoch milliseconds and the price in fixed point with {@link #PRICE_SCALE} decimals,
+ * so a tick takes 16 bytes. Buffers grow with the ticks they hold, up to the capacity.
+ * <p>
+ * Lookups are lock-free optimistic reads that allocate nothing, as long as the symbol is passed in lower case.
+ * Prices are returned in fixed point, {@link #NO_PRICE} standing for a missing one, see {@link #toPrice(long)}.
+ * Symbols are matched case-insensitively. Ticks older than the latest tick of their symbol are ignored.
+ */
+@Service
+public class PriceTickStore {
+
+    /**
+     * Number of decimals of the fixed point prices
+     */
+    public static final int PRICE_SCALE = 10;
+
+    /**
+     * Returned by the lookups when there is no matching tick
+     */
+    public static final long NO_PRICE = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, TickRing> ringsBySymbol = new ConcurrentHashMap<>();
+    private final int capacity;
+
+    public PriceTickStore(@Value("${crypto.tick-store.capacity:1440}") int capacity,
+                          MeterRegistry meterRegistry) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The tick store capacity must be positive");
+        }
+        this.capacity = capacity;
+
+        Gauge.builder("price.tick.store.ticks", this, PriceTickStore::tickCount)
+                .description("Price ticks held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the prices stored by a price update.
+     *
+     * @param prices The new prices by symbol
+     * @param timestamp The time of the prices
+     */
+    public void record(Map<String, BigDecimal> prices, Instant timestamp) {
+        long time = timestamp.toEpochMilli();
+        prices.forEach((symbol, price) -> record(symbol, time, price));
+    }
+
+    /**
+     * Records the price of a symbol.
+     * Prices that do not fit in fixed point are ignored.
+     *
+     * @param symbol The asset symbol
+     * @param time The time of the price, in epoch milliseconds
+     * @param price The price
+     */
+    public void record(String symbol, long time, BigDecimal price) {
+        long fixedPoint = toFixedPoint(price);
+        if (fixedPoint != NO_PRICE) {
+            ringsBySymbol.computeIfAbsent(symbol.toLowerCase(), id -> new TickRing(Math.min(INITIAL_CAPACITY, capacity), capacity))
+                    .append(time, fixedPoint);
+        }
+    }
+
+    /**
+     * @param symbol The asset symbol
+     * @return The latest price of the symbol in fixed point, {@link #NO_PRICE} if it has no tick
+     */
+    public long latestPrice(String symbol) {
+        TickRing ring = ringsBySymbol.get(symbol.toLowerCase());
+        return ring == null ? NO_PRICE : ring.priceAtOrBefore(Long.MAX_VALUE);
+    }
+
+    /**
+     * @param symbol The asset symbol
+     * @param time A time in epoch milliseconds
+     * @return The price of the latest tick at or before the time in fixed point, {@link #NO_PRICE} if there is none
+     */
+    public long priceAtOrBefore(String symbol, long time) {
+        TickRing ring = ringsBySymbol.get(symbol.toLowerCase());
+        return ring == null ? NO_PRICE : ring.priceAtOrBefore(time);
+    }
+
+    /**
+     * Copies the ticks of a symbol over a time range into the given arrays, oldest first.
+     *
+     * @param symbol The asset symbol
+     * @param from Start of the range in epoch milliseconds (inclusive)
+     * @param to End of the range in epoch milliseconds (exclusive)
+     * @param times Receives the times of the ticks
+     * @param prices Receives the prices of the ticks in fixed point
+     * @return The number of ticks copied, at most the length of the shortest array
+     */
+    public int range(String symbol, long from, long to, long[] times, long[] prices) {
+        TickRing ring = ringsBySymbol.get(symbol.toLowerCase());
+        return ring == null ? 0 : ring.copyRange(from, to, times, prices);
+    }
+
+    /**
+     * @return The number of ticks held in memory
+     */
+    public long tickCount() {
+        long ticks = 0;
+        for (TickRing ring : ringsBySymbol.values()) {
+            ticks += ring.size();
+        }
+        return ticks;
+    }
+
+    /**
+     * @param price A price
+     * @return The price in fixed point, {@link #NO_PRICE} if it does not fit
+     */
+    public static long toFixedPoint(BigDecimal price) {
+        BigInteger unscaled = price.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue();
+        // NO_PRICE is the only long of 64 bits, so it is left out too
+        return unscaled.bitLength() > 63 ? NO_PRICE : unscaled.longValue();
+    }
+
+    /**
+     * @param fixedPoint A price in fixed point
+     * @return The price, null for {@link #NO_PRICE}
+     */
+    public static BigDecimal toPrice(long fixedPoint) {
+        if (fixedPoint == NO_PRICE) {
+            return null;
+        }
+        BigDecimal price = BigDecimal.valueOf(fixedPoint, PRICE_SCALE).stripTrailingZeros();
+        return price.scale() < 0 ? price.setScale(0) : price;
+    }
+
+    /**
+     * Ring buffer of the ticks of one symbol, oldest first.
+     * Times and prices are interleaved in a single array, so a reader always sees a consistent length.
+     * Writers take the write lock, readers read optimistically and retry under the read lock
+     * when a write happened meanwhile.
+     */
+    private static final class TickRing {
+
+        private final StampedLock lock = new StampedLock();
+        private final int capacity;
+        private long[] ticks;
+        private int start;
+        private int size;
+
+        TickRing(int initialCapacity, int capacity) {
+            this.ticks = new long[2 * initialCapacity];
+            this.capacity = capacity;
+        }
+
+        void append(long time, long price) {
+            long stamp = lock.writeLock();
+            try {
+                int length = ticks.length / 2;
+                if (size > 0 && time < ticks[2 * physical(size - 1, length)]) {
+                    return;
+                }
+
+                if (size == length && length < capacity) {
+                    grow(length);
+                    length = ticks.length / 2;
+                }
+
+                if (size < length) {
+                    int slot = physical(size, length);
+                    ticks[2 * slot] = time;
+                    ticks[2 * slot + 1] = price;
+                    size++;
+                } else {
+                    // Full, the oldest tick is overwritten
+                    ticks[2 * start] = time;
+                    ticks[2 * start + 1] = price;
+                    start = start + 1 == length ? 0 : start + 1;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        long priceAtOrBefore(long time) {
+            long stamp = lock.tryOptimisticRead();
+            long price = readPriceAtOrBefore(time);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    price = readPriceAtOrBefore(time);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return price;
+        }
+
+        int copyRange(long from, long to, long[] times, long[] prices) {
+            long stamp = lock.tryOptimisticRead();
+            int copied = readRange(from, to, times, prices);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    copied = readRange(from, to, times, prices);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return copied;
+        }
+
+        int size() {
+            long stamp = lock.tryOptimisticRead();
+            int ticksHeld = size;
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    ticksHeld = size;
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return ticksHeld;
+        }
+
+        // The read methods may run concurrently with a write, they must not fail on an inconsistent state
+
+        private long readPriceAtOrBefore(long time) {
+            long[] snapshot = ticks;
+            int length = snapshot.length / 2;
+            int first = Math.min(start, length - 1);
+            int count = Math.min(size, length);
+
+            int index = lastIndexAtOrBefore(snapshot, first, count, length, time);
+            return index < 0 ? NO_PRICE : snapshot[2 * wrap(first + index, length) + 1];
+        }
+
+        private int readRange(long from, long to, long[] times, long[] prices) {
+            long[] snapshot = ticks;
+            int length = snapshot.length / 2;
+            int first = Math.min(start, length - 1);
+            int count = Math.min(size, length);
+            int limit = Math.min(times.length, prices.length);
+
+            int copied = 0;
+            for (int index = lastIndexAtOrBefore(snapshot, first, count, length, from - 1) + 1;
+                 index < count && copied < limit; index++) {
+                int slot = wrap(first + index, length);
+                long time = snapshot[2 * slot];
+                if (time >= to) {
+                    break;
+                }
+                times[copied] = time;
+                prices[copied] = snapshot[2 * slot + 1];
+                copied++;
+            }
+            return copied;
+        }
+
+        /**
+         * @return The logical index of the last tick at or before the time, -1 if there is none
+         */
+        private static int lastIndexAtOrBefore(long[] snapshot, int first, int count, int length, long time) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (snapshot[2 * wrap(first + middle, length)] <= time) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return high;
+        }
+
+        private void grow(int length) {
+            long[] grown = new long[2 * Math.min(2 * length, capacity)];
+            for (int index = 0; index < size; index++) {
+                int slot = physical(index, length);
+                grown[2 * index] = ticks[2 * slot];
+                grown[2 * index + 1] = ticks[2 * slot + 1];
+            }
+            ticks = grown;
+            start = 0;
+        }
+
+        private int physical(int index, int length) {
+            return wrap(start + index, length);
+        }
+
+        private static int wrap(int slot, int length) {
+            return slot >= length ? slot - length : slot;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.request.AssetEvaluationRequestDto;
+import com.spicep.cryptowallet.dto.request.WalletInfoDto;
+import com.spicep.cryptowallet.dto.response.WalletEvaluationResponse;
+import com.spicep.cryptowallet.entity.Asset;
+import com.spicep.cryptowallet.entity.Wallet;
+import com.spicep.cryptowallet.exception.wallet.WalletException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking counterpart of {@link WalletService}, used by the reactive stack.
+ * Prices are resolved without blocking any thread, and the blocking JPA work is
+ * delegated to WalletService on the bounded elastic scheduler.
+ */
+@Service
+public class ReactiveWalletService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveWalletService.class);
+
+    private final WalletService walletService;
+    private final PriceCacheService priceCacheService;
+    private final HistoricalPriceService historicalPriceService;
+
+    @Value("${crypto.evaluation.concurrency:8}")
+    private int evaluationConcurrency = 8;
+
+    @Value("${crypto.evaluation.timeout:10s}")
+    private Duration evaluationTimeout = Duration.ofSeconds(10);
+
+    public ReactiveWalletService(WalletService walletService,
+                                 PriceCacheService priceCacheService,
+                                 HistoricalPriceService historicalPriceService) {
+        this.walletService = walletService;
+        this.priceCacheService = priceCacheService;
+        this.historicalPriceService = historicalPriceService;
+    }
+
+    public Mono<Wallet> createNewWallet(String email) {
+        return Mono.fromCallable(() -> walletService.createNewWallet(email))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<Asset> addAsset(Long walletId, String symbol, BigDecimal quantity) {
+        return priceCacheService.fetchCurrentPrice(symbol)
+                .switchIfEmpty(Mono.error(() -> new WalletException("Cannot add asset. Symbol not found: " + symbol)))
+                .publishOn(Schedulers.boundedElastic())
+                .map(currentPrice -> walletService.addAsset(walletId, symbol, quantity, currentPrice));
+    }
+
+    public Mono<WalletInfoDto> getWalletInformation(Long walletId) {
+        return Mono.fromCallable(() -> walletService.getWalletInformation(walletId))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Evaluates a wallet's performance, see {@link WalletService#evaluateWallet(List, LocalDate)}.
+     *
+     * @param inputAssets List of assets and their values
+     * @param referenceDate Date to evaluate assets against (defaults to today if null)
+     * @return Mono of the evaluation result with total value and performance metrics
+     */
+    public Mono<WalletEvaluationResponse> evaluateWallet(List<AssetEvaluationRequestDto> inputAssets, LocalDate referenceDate) {
+        if (inputAssets == null || inputAssets.isEmpty()) {
+            log.warn("Wallet evaluation attempted with empty asset list");
+            return Mono.error(new WalletException("Asset list cannot be empty"));
+        }
+
+        log.info("Evaluating wallet with {} assets for date {}", inputAssets.size(), referenceDate);
+
+        return Flux.fromIterable(inputAssets)
+                .flatMapSequential(inputAsset -> resolveReferencePrice(inputAsset.getSymbol(), referenceDate), evaluationConcurrency)
+                .collectList()
+                .timeout(evaluationTimeout)
+                .onErrorMap(TimeoutException.class,
+                        e -> new WalletException("Wallet evaluation did not complete within " + evaluationTimeout))
+                .map(referencePrices -> walletService.summarizeEvaluation(inputAssets, referencePrices, referenceDate));
+    }
+
+    /**
+     * Resolves the price of an asset on the reference date without blocking.
+     *
+     * @param symbol The asset symbol
+     * @param referenceDate Date to get the price for (current price if null or today)
+     * @return Mono of the price, or an error if no price data is available
+     */
+    Mono<BigDecimal> resolveReferencePrice(String symbol, LocalDate referenceDate) {
+        Mono<BigDecimal> priceOnDate;
+        if (referenceDate == null || referenceDate.isEqual(LocalDate.now())) {
+            priceOnDate = priceCacheService.fetchCurrentPrice(symbol);
+        } else {
+            priceOnDate = historicalPriceService.fetchPriceForDate(symbol, referenceDate);
+        }
+
+        return priceOnDate.switchIfEmpty(Mono.error(() -> {
+            log.error("No price data available for {} on {}", symbol, referenceDate);
+            return new WalletException("No price data available for " + symbol + " on " + referenceDate);
+        }));
+    }
+}
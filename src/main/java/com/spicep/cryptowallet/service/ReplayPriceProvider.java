@@ -0,0 +1,314 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetDto;
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetHistoryDto;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapAssetNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Price provider that replays a recorded tick file instead of calling the CoinCap API, for offline load tests.
+ * Enabled with {@code crypto.price.provider=replay}, see the replay profile.
+ * <p>
+ * The file is a CSV of {@code timestamp,symbol,price} lines, the timestamp either in epoch milliseconds or
+ * as an ISO-8601 instant. A header line and lines starting with {@code #} are skipped.
+ * <p>
+ * Current prices follow a replay clock, which starts at the first tick of the file when the provider is created,
+ * runs {@code crypto.price.replay.speed} times faster than the wall clock and loops at the end of the file.
+ * Historical prices are served by their recorded timestamps, keeping the first tick of each interval.
+ * Every call waits for {@code crypto.price.replay.latency}, give or take {@code crypto.price.replay.latency-jitter}.
+ */
+@Service
+@ConditionalOnProperty(name = "crypto.price.provider", havingValue = "replay")
+public class ReplayPriceProvider implements PriceProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplayPriceProvider.class);
+    private static final ZoneId UTC_ZONE = ZoneId.of("UTC");
+
+    private final Map<String, Ticks> ticksById;
+    private final long firstTick;
+    private final long recordingLength;
+    private final Clock clock;
+    private final long startedAt;
+    private final double speed;
+    private final Duration latency;
+    private final Duration latencyJitter;
+    private final int bulkChunkSize;
+
+    private record Tick(long time, BigDecimal price) {
+    }
+
+    /**
+     * Ticks of a symbol, sorted by time
+     */
+    private record Ticks(long[] times, BigDecimal[] prices) {
+
+        /**
+         * @return The index of the last tick at or before the time, -1 if there is none
+         */
+        int indexAt(long time) {
+            int index = Arrays.binarySearch(times, time);
+            if (index >= 0) {
+                // Several ticks may share the time, take the last one
+                while (index + 1 < times.length && times[index + 1] == time) {
+                    index++;
+                }
+                return index;
+            }
+            return -index - 2;
+        }
+    }
+
+    @Autowired
+    public ReplayPriceProvider(@Value("${crypto.price.replay.file}") Resource file,
+                               @Value("${crypto.price.replay.speed:1.0}") double speed,
+                               @Value("${crypto.price.replay.latency:0ms}") Duration latency,
+                               @Value("${crypto.price.replay.latency-jitter:0ms}") Duration latencyJitter,
+                               @Value("${crypto.api.bulk-chunk-size:100}") int bulkChunkSize) throws IOException {
+        this(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8), speed, latency, latencyJitter,
+                bulkChunkSize, Clock.systemUTC());
+        log.info("Replaying {} symbols from {}", ticksById.size(), file.getDescription());
+    }
+
+    // Constructor needed for tests
+    ReplayPriceProvider(Reader ticks, double speed, Duration latency, Duration latencyJitter,
+                        int bulkChunkSize, Clock clock) {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("The replay speed must be positive");
+        }
+        this.ticksById = load(ticks);
+        if (ticksById.isEmpty()) {
+            throw new IllegalArgumentException("The tick file has no ticks");
+        }
+
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (Ticks symbolTicks : ticksById.values()) {
+            first = Math.min(first, symbolTicks.times()[0]);
+            last = Math.max(last, symbolTicks.times()[symbolTicks.times().length - 1]);
+        }
+        this.firstTick = first;
+        this.recordingLength = last - first + 1;
+
+        this.speed = speed;
+        this.latency = latency;
+        this.latencyJitter = latencyJitter;
+        this.bulkChunkSize = bulkChunkSize;
+        this.clock = clock;
+        this.startedAt = clock.millis();
+    }
+
+    @Override
+    public Mono<CoinCapAssetDto> fetchCurrentAssetDataBySymbol(String symbol) {
+        return delayed(() -> {
+            String id = symbol.toLowerCase();
+            BigDecimal price = currentPrice(id);
+            if (price == null) {
+                throw new CoinCapAssetNotFoundException("Asset not found for symbol: " + symbol);
+            }
+
+            CoinCapAssetDto asset = new CoinCapAssetDto();
+            asset.setId(id);
+            asset.setSymbol(symbol.toUpperCase());
+            asset.setPriceUsd(price);
+            return asset;
+        });
+    }
+
+    @Override
+    public Map<String, BigDecimal> getCurrentPrices(Collection<String> symbols) {
+        if (symbols.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        return delayed(() -> {
+            Map<String, BigDecimal> prices = new HashMap<>();
+            for (String symbol : symbols) {
+                BigDecimal price = currentPrice(symbol.toLowerCase());
+                if (price != null) {
+                    prices.put(symbol, price);
+                }
+            }
+            return prices;
+        }).block();
+    }
+
+    @Override
+    public int getBulkChunkSize() {
+        return bulkChunkSize;
+    }
+
+    @Override
+    public List<CoinCapAssetHistoryDto> getAssetPriceForDate(String symbol, String interval, LocalDate date) {
+        return getAssetHistory(symbol, interval, startOfDayMillis(date), startOfDayMillis(date.plusDays(1)));
+    }
+
+    @Override
+    public Mono<List<CoinCapAssetHistoryDto>> fetchAssetHistory(String symbol, String interval, long startMillis, long endMillis) {
+        return delayed(() -> history(symbol.toLowerCase(), intervalMillis(interval), startMillis, endMillis));
+    }
+
+    @Override
+    public Mono<List<CoinCapAssetHistoryDto>> fetchAssetHistoryRange(String symbol, ApiClientService.CoinCapInterval interval,
+                                                                     long startMillis, long endMillis) {
+        // The whole range is served at once, there is no request limit to split it for
+        return fetchAssetHistory(symbol, interval.getValue(), startMillis, endMillis);
+    }
+
+    /**
+     * @return The time of the recording currently replayed, in epoch milliseconds
+     */
+    long replayTime() {
+        long elapsed = (long) ((clock.millis() - startedAt) * speed);
+        return firstTick + Math.floorMod(elapsed, recordingLength);
+    }
+
+    private BigDecimal currentPrice(String id) {
+        Ticks symbolTicks = ticksById.get(id);
+        if (symbolTicks == null) {
+            return null;
+        }
+        // Symbols recorded later than the replay time are priced at their first tick
+        int index = symbolTicks.indexAt(replayTime());
+        return symbolTicks.prices()[Math.max(index, 0)];
+    }
+
+    private List<CoinCapAssetHistoryDto> history(String id, long step, long startMillis, long endMillis) {
+        Ticks symbolTicks = ticksById.get(id);
+        List<CoinCapAssetHistoryDto> history = new ArrayList<>();
+        if (symbolTicks == null) {
+            return history;
+        }
+
+        long[] times = symbolTicks.times();
+        long lastBucket = Long.MIN_VALUE;
+        for (int i = Math.max(symbolTicks.indexAt(startMillis - 1) + 1, 0); i < times.length && times[i] < endMillis; i++) {
+            long bucket = Math.floorDiv(times[i], step);
+            if (bucket != lastBucket) {
+                CoinCapAssetHistoryDto price = new CoinCapAssetHistoryDto();
+                price.setTime(times[i]);
+                price.setPriceUsd(symbolTicks.prices()[i]);
+                history.add(price);
+                lastBucket = bucket;
+            }
+        }
+        return history;
+    }
+
+    private <T> Mono<T> delayed(Supplier<T> answer) {
+        Mono<T> response = Mono.fromSupplier(answer);
+        long delayMillis = latency.toMillis();
+        long jitterMillis = latencyJitter.toMillis();
+        if (jitterMillis > 0) {
+            delayMillis += ThreadLocalRandom.current().nextLong(-jitterMillis, jitterMillis + 1);
+        }
+        return delayMillis > 0 ? response.delaySubscription(Duration.ofMillis(delayMillis)) : response;
+    }
+
+    /**
+     * @param interval A CoinCap interval, e.g. "m5" or "d1"
+     * @return The length of the interval in milliseconds
+     */
+    private static long intervalMillis(String interval) {
+        if (interval == null || interval.length() < 2) {
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        }
+
+        long count;
+        try {
+            count = Long.parseLong(interval.substring(1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        }
+
+        Duration unit = switch (interval.charAt(0)) {
+            case 'm' -> Duration.ofMinutes(1);
+            case 'h' -> Duration.ofHours(1);
+            case 'd' -> Duration.ofDays(1);
+            default -> throw new IllegalArgumentException("Invalid interval: " + interval);
+        };
+        return unit.multipliedBy(count).toMillis();
+    }
+
+    private static Map<String, Ticks> load(Reader source) {
+        Map<String, List<Tick>> recordedById = new HashMap<>();
+
+        try (BufferedReader reader = new BufferedReader(source)) {
+            String line;
+            int lineNumber = 0;
+            boolean firstLine = true;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split(",");
+                // Timestamps start with a digit in both formats, anything else on the first line is a header
+                boolean header = firstLine && !Character.isDigit(line.charAt(0));
+                firstLine = false;
+                if (header) {
+                    continue;
+                }
+                if (fields.length != 3) {
+                    throw new IllegalArgumentException("Invalid tick on line " + lineNumber + ": " + line);
+                }
+
+                try {
+                    recordedById.computeIfAbsent(fields[1].strip().toLowerCase(), id -> new ArrayList<>())
+                            .add(new Tick(parseTime(fields[0].strip()), new BigDecimal(fields[2].strip())));
+                } catch (NumberFormatException | DateTimeParseException e) {
+                    throw new IllegalArgumentException("Invalid tick on line " + lineNumber + ": " + line, e);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the tick file", e);
+        }
+
+        Map<String, Ticks> ticksById = new HashMap<>();
+        recordedById.forEach((id, recorded) -> {
+            // Stable, so ticks sharing a time keep the order of the file
+            recorded.sort(Comparator.comparingLong(Tick::time));
+            long[] times = new long[recorded.size()];
+            BigDecimal[] prices = new BigDecimal[recorded.size()];
+            for (int i = 0; i < recorded.size(); i++) {
+                times[i] = recorded.get(i).time();
+                prices[i] = recorded.get(i).price();
+            }
+            ticksById.put(id, new Ticks(times, prices));
+        });
+        return ticksById;
+    }
+
+    private static long parseTime(String time) {
+        return time.chars().allMatch(Character::isDigit) ? Long.parseLong(time) : Instant.parse(time).toEpochMilli();
+    }
+
+    private static long startOfDayMillis(LocalDate date) {
+        return date.atStartOfDay(UTC_ZONE).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,130 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.projection.SymbolHolders;
+import com.spicep.cryptowallet.event.WalletHoldingsChangedEvent;
+import com.spicep.cryptowallet.repository.AssetRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the symbols held in at least one wallet, the symbols the price updates fetch,
+ * with the number of wallets holding each of them.
+ * The registry is loaded with a single {@code SELECT symbol, COUNT(*) ... GROUP BY symbol} query on first use,
+ * and a symbol is tracked as soon as an asset holding it is committed, so reading the symbols never touches
+ * the database. It is rebuilt from the database every {@code crypto.symbols.rebuild-rate} milliseconds,
+ * which refreshes the holder counts, drops the symbols nobody holds anymore and picks up the symbols added
+ * by other instances.
+ */
+@Service
+public class TrackedSymbolRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackedSymbolRegistry.class);
+
+    private final AssetRepository assetRepository;
+
+    // Replaced as a whole by rebuilds, symbols tracked meanwhile are carried over
+    private volatile Map<String, Long> holdersBySymbol;
+    private final Set<String> trackedDuringRebuild = new HashSet<>();
+    private boolean rebuilding;
+    private final Object rebuildLock = new Object();
+
+    public TrackedSymbolRegistry(AssetRepository assetRepository, MeterRegistry meterRegistry) {
+        this.assetRepository = assetRepository;
+
+        Gauge.builder("price.tracked.symbols", this,
+                        registry -> registry.holdersBySymbol == null ? 0 : registry.holdersBySymbol.size())
+                .description("Symbols held in at least one wallet")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return Read-only view of the number of wallets holding each symbol, loaded from the database on first use,
+     * as of the last rebuild. Symbols tracked since count one holder.
+     */
+    public Map<String, Long> getHolderCounts() {
+        return Collections.unmodifiableMap(loaded());
+    }
+
+    /**
+     * Tracks the symbol of an asset once it is committed.
+     *
+     * @param event The wallet change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHoldingsChanged(WalletHoldingsChangedEvent event) {
+        track(event.symbol());
+    }
+
+    /**
+     * Tracks a symbol, if it is not tracked already.
+     *
+     * @param symbol The asset symbol
+     */
+    public void track(String symbol) {
+        Map<String, Long> tracked = holdersBySymbol;
+        if (tracked != null && tracked.containsKey(symbol)) {
+            return;
+        }
+
+        synchronized (this) {
+            if (rebuilding) {
+                trackedDuringRebuild.add(symbol);
+            }
+            if (holdersBySymbol != null && holdersBySymbol.putIfAbsent(symbol, 1L) == null) {
+                log.info("Tracking prices of {}", symbol);
+            }
+        }
+    }
+
+    /**
+     * Reloads the symbols and their holder counts from the assets, dropping the symbols nobody holds anymore.
+     */
+    @Scheduled(fixedRateString = "${crypto.symbols.rebuild-rate:300000}",
+            initialDelayString = "${crypto.symbols.rebuild-rate:300000}")
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                rebuilding = true;
+                trackedDuringRebuild.clear();
+            }
+
+            try {
+                List<SymbolHolders> held = assetRepository.findHolderCounts();
+
+                synchronized (this) {
+                    Map<String, Long> rebuilt = new ConcurrentHashMap<>(held.size() + trackedDuringRebuild.size());
+                    held.forEach(row -> rebuilt.put(row.symbol(), row.holders()));
+                    // Symbols committed while the query ran may be missing from its result
+                    trackedDuringRebuild.forEach(symbol -> rebuilt.putIfAbsent(symbol, 1L));
+                    holdersBySymbol = rebuilt;
+                }
+                log.debug("Rebuilt the tracked symbols, {} symbols held", held.size());
+            } finally {
+                synchronized (this) {
+                    rebuilding = false;
+                }
+            }
+        }
+    }
+
+    private Map<String, Long> loaded() {
+        Map<String, Long> tracked = holdersBySymbol;
+        if (tracked == null) {
+            rebuild();
+            tracked = holdersBySymbol;
+        }
+        return tracked;
+    }
+}
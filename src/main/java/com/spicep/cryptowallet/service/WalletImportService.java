@@ -0,0 +1,251 @@
+package com.spicep.cryptowallet.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spicep.cryptowallet.dto.projection.ImportedWallets;
+import com.spicep.cryptowallet.dto.projection.WalletHolding;
+import com.spicep.cryptowallet.dto.response.WalletImportResult;
+import com.spicep.cryptowallet.event.WalletHoldingsChangedEvent;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Service class for bulk imports of wallets and their assets, e.g. when onboarding a partner.
+ * <p>
+ * The file is streamed line by line, as CSV {@code email,symbol,quantity} lines with an optional header,
+ * or as newline-delimited JSON {@code {"email": ..., "symbol": ..., "quantity": ...}} objects.
+ * A line without symbol only creates the wallet.
+ * Lines are imported in chunks of {@code crypto.import.batch-size}: the users and wallets of a chunk are
+ * created with one JDBC batch each, and its assets are added with one batch per statement, each chunk in its
+ * own transaction. Quantities are added to the assets already held, as when adding an asset.
+ * <p>
+ * The current price of each distinct symbol is fetched once per import, with bulk requests.
+ * Invalid lines and lines of unknown symbols are rejected and reported, without stopping the import.
+ */
+@Service
+public class WalletImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletImportService.class);
+
+    // Only the first rejections are reported, the others are counted
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final WalletRepository walletRepository;
+    private final PriceProvider priceProvider;
+    private final PriceCacheService priceCacheService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${crypto.import.batch-size:5000}")
+    private int batchSize = 5000;
+
+    public WalletImportService(WalletRepository walletRepository, PriceProvider priceProvider,
+                               PriceCacheService priceCacheService, ApplicationEventPublisher eventPublisher,
+                               ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.walletRepository = walletRepository;
+        this.priceProvider = priceProvider;
+        this.priceCacheService = priceCacheService;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Format of an imported file
+     */
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    /**
+     * Imports the wallets and assets of a file.
+     *
+     * @param input The file content
+     * @param format The file format
+     * @return The number of imported lines, created wallets and imported assets, and the rejected lines
+     * @throws IOException if the file cannot be read
+     */
+    public WalletImportResult importWallets(Reader input, Format format) throws IOException {
+        long start = System.nanoTime();
+        Import state = new Import();
+        List<ImportLine> chunk = new ArrayList<>(batchSize);
+
+        BufferedReader reader = input instanceof BufferedReader buffered ? buffered : new BufferedReader(input);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (format == Format.CSV && lineNumber == 1 && line.startsWith("email"))) {
+                continue;
+            }
+
+            state.lines++;
+            ImportLine importLine = parse(line, lineNumber, format, state);
+            if (importLine != null) {
+                chunk.add(importLine);
+            }
+            if (chunk.size() >= batchSize) {
+                importChunk(chunk, state);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, state);
+        }
+
+        log.info("Imported {} lines in {} ms: {} created wallets, {} assets, {} rejected lines", state.lines,
+                (System.nanoTime() - start) / 1_000_000, state.wallets, state.assets, state.rejected);
+        return new WalletImportResult(state.lines, state.wallets, state.assets, state.rejected, state.errors);
+    }
+
+    private ImportLine parse(String line, int lineNumber, Format format, Import state) {
+        String email;
+        String symbol;
+        BigDecimal quantity;
+        try {
+            if (format == Format.NDJSON) {
+                ImportedHolding holding = objectMapper.readValue(line, ImportedHolding.class);
+                email = holding.email();
+                symbol = holding.symbol();
+                quantity = holding.quantity();
+            } else {
+                String[] fields = line.split(",", -1);
+                if (fields.length > 3) {
+                    state.reject(lineNumber, "expected email,symbol,quantity");
+                    return null;
+                }
+                email = fields[0];
+                symbol = fields.length > 1 ? fields[1] : null;
+                quantity = fields.length > 2 && !fields[2].isBlank() ? new BigDecimal(fields[2].trim()) : null;
+            }
+        } catch (JsonProcessingException | NumberFormatException e) {
+            state.reject(lineNumber, "unreadable line");
+            return null;
+        }
+
+        email = email == null ? "" : email.trim();
+        symbol = symbol == null || symbol.isBlank() ? null : symbol.trim();
+        if (email.isEmpty() || !email.contains("@")) {
+            state.reject(lineNumber, "invalid email");
+            return null;
+        }
+        if (symbol != null && (quantity == null || quantity.compareTo(BigDecimal.ZERO) <= 0)) {
+            state.reject(lineNumber, "quantity must be positive");
+            return null;
+        }
+        return new ImportLine(lineNumber, email, symbol, quantity);
+    }
+
+    private void importChunk(List<ImportLine> chunk, Import state) {
+        try {
+            resolvePrices(chunk, state);
+        } catch (RuntimeException e) {
+            log.error("Failed to fetch the prices of {} imported lines", chunk.size(), e);
+            chunk.forEach(line -> state.reject(line.number(), "price unavailable"));
+            return;
+        }
+
+        List<ImportLine> accepted = new ArrayList<>(chunk.size());
+        Set<String> emails = new LinkedHashSet<>();
+        Map<String, Map<String, BigDecimal>> quantities = new LinkedHashMap<>();
+        for (ImportLine line : chunk) {
+            if (line.symbol() != null && !state.prices.containsKey(line.symbol())) {
+                state.reject(line.number(), "unknown symbol " + line.symbol());
+                continue;
+            }
+
+            accepted.add(line);
+            emails.add(line.email());
+            if (line.symbol() != null) {
+                quantities.computeIfAbsent(line.email(), email -> new LinkedHashMap<>())
+                        .merge(line.symbol(), line.quantity(), BigDecimal::add);
+            }
+        }
+
+        List<WalletHolding> holdings = new ArrayList<>();
+        try {
+            // The wallets and assets of a chunk are committed together, a failed chunk creates nothing
+            ImportedWallets wallets = transactionTemplate.execute(status -> {
+                ImportedWallets created = walletRepository.findOrCreateWallets(emails);
+                quantities.forEach((email, bySymbol) -> bySymbol.forEach((symbol, quantity) ->
+                        holdings.add(new WalletHolding(created.walletIds().get(email), symbol, quantity))));
+                walletRepository.addHoldings(holdings, state.prices);
+                return created;
+            });
+
+            // Wallets of the users already registered are not counted
+            state.wallets += wallets.created();
+            state.assets += holdings.size();
+            holdings.forEach(holding ->
+                    eventPublisher.publishEvent(new WalletHoldingsChangedEvent(holding.walletId(), holding.symbol())));
+        } catch (RuntimeException e) {
+            log.error("Failed to import a chunk of {} lines", accepted.size(), e);
+            accepted.forEach(line -> state.reject(line.number(), "import failed"));
+        }
+    }
+
+    /**
+     * Fetches the prices of the symbols of a chunk that were not resolved by a previous chunk.
+     */
+    private void resolvePrices(List<ImportLine> chunk, Import state) {
+        List<String> symbols = chunk.stream()
+                .map(ImportLine::symbol)
+                .filter(symbol -> symbol != null && !state.prices.containsKey(symbol) && !state.unknownSymbols.contains(symbol))
+                .distinct()
+                .toList();
+
+        int chunkSize = priceProvider.getBulkChunkSize();
+        for (int i = 0; i < symbols.size(); i += chunkSize) {
+            List<String> requested = symbols.subList(i, Math.min(i + chunkSize, symbols.size()));
+            Map<String, BigDecimal> prices = priceProvider.getCurrentPrices(requested);
+            priceCacheService.putAll(prices);
+
+            state.prices.putAll(prices);
+            requested.stream().filter(symbol -> !prices.containsKey(symbol)).forEach(state.unknownSymbols::add);
+        }
+    }
+
+    /**
+     * Line of an NDJSON file
+     */
+    record ImportedHolding(String email, String symbol, BigDecimal quantity) {
+    }
+
+    private record ImportLine(int number, String email, String symbol, BigDecimal quantity) {
+    }
+
+    /**
+     * Progress of an import
+     */
+    private static class Import {
+
+        private final Map<String, BigDecimal> prices = new HashMap<>();
+        private final Set<String> unknownSymbols = new HashSet<>();
+        private final List<String> errors = new ArrayList<>();
+        private long lines;
+        private long wallets;
+        private long assets;
+        private long rejected;
+
+        void reject(int lineNumber, String reason) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Line " + lineNumber + ": " + reason);
+            }
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.spicep.cryptowallet.service;
 
-import com.spicep.cryptowallet.dto.coincap.CoinCapAssetDto;
-import com.spicep.cryptowallet.dto.coincap.CoinCapAssetHistoryDto;
+import com.spicep.cryptowallet.dto.projection.WalletAssetRow;
 import com.spicep.cryptowallet.dto.request.AssetEvaluationRequestDto;
 import com.spicep.cryptowallet.dto.request.AssetInfoDto;
 import com.spicep.cryptowallet.dto.request.WalletInfoDto;
@@ -9,21 +8,29 @@ import com.spicep.cryptowallet.dto.response.WalletEvaluationResponse;
 import com.spicep.cryptowallet.entity.Asset;
 import com.spicep.cryptowallet.entity.User;
 import com.spicep.cryptowallet.entity.Wallet;
+import com.spicep.cryptowallet.event.WalletHoldingsChangedEvent;
 import com.spicep.cryptowallet.exception.wallet.WalletAlreadyExistsException;
 import com.spicep.cryptowallet.exception.wallet.WalletException;
 import com.spicep.cryptowallet.exception.wallet.WalletNotFoundException;
 import com.spicep.cryptowallet.repository.AssetRepository;
 import com.spicep.cryptowallet.repository.UserRepository;
 import com.spicep.cryptowallet.repository.WalletRepository;
-import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Service class for wallet operations.
@@ -34,17 +41,29 @@ public class WalletService {
     private final WalletRepository walletRepository;
     private final UserRepository userRepository;
     private final AssetRepository assetRepository;
-    private final ApiClientService clientService;
+    private final PriceCacheService priceCacheService;
+    private final HistoricalPriceService historicalPriceService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${crypto.evaluation.concurrency:8}")
+    private int evaluationConcurrency = 8;
+
+    @Value("${crypto.evaluation.timeout:10s}")
+    private Duration evaluationTimeout = Duration.ofSeconds(10);
 
     private static final Logger log = LoggerFactory.getLogger(WalletService.class);
     private static final String DEFAULT_ASSET = "N/A";
     private static final int PERCENTAGE_SCALE = 2;
 
-    public WalletService(WalletRepository walletRepository, UserRepository userRepository, ApiClientService clientService, AssetRepository assetRepository) {
+    public WalletService(WalletRepository walletRepository, UserRepository userRepository, AssetRepository assetRepository,
+                         PriceCacheService priceCacheService, HistoricalPriceService historicalPriceService,
+                         ApplicationEventPublisher eventPublisher) {
         this.walletRepository = walletRepository;
         this.userRepository = userRepository;
-        this.clientService = clientService;
         this.assetRepository = assetRepository;
+        this.priceCacheService = priceCacheService;
+        this.historicalPriceService = historicalPriceService;
+        this.eventPublisher = eventPublisher;
     }
 
 
@@ -77,58 +96,97 @@ public class WalletService {
 
     @Transactional
     public Asset addAsset(Long walletId, String symbol, BigDecimal quantity) {
-        Wallet wallet = walletRepository.findById(walletId)
-                .orElseThrow(() -> new WalletNotFoundException("Wallet not found with id: " + walletId));
-
-        CoinCapAssetDto assetDto = clientService.getCurrentAssetDataBySymbol(symbol);
-        if(assetDto == null || assetDto.getPriceUsd() == null) {
+        // Resolved before the locks, a cache miss calls the API and must not hold up the price updates
+        BigDecimal currentPrice = priceCacheService.getCurrentPrice(symbol);
+        if(currentPrice == null) {
             throw new WalletException("Cannot add asset. Symbol not found: " + symbol);
         }
-        BigDecimal currentPrice = assetDto.getPriceUsd();
 
+        // Serializes with the price updates of the symbol, before the wallet as they do
+        walletRepository.lockSymbols(List.of(symbol));
+        Wallet wallet = walletRepository.findByIdForUpdate(walletId)
+                .orElseThrow(() -> new WalletNotFoundException("Wallet not found with id: " + walletId));
+
+        return storeAsset(wallet, symbol, quantity, currentPrice);
+    }
+
+    /**
+     * Adds an asset to a wallet with a price that was already resolved by the caller.
+     *
+     * @param walletId The wallet id
+     * @param symbol The asset symbol
+     * @param quantity The quantity to add
+     * @param currentPrice The current price of the asset
+     * @return The new or updated asset
+     */
+    @Transactional
+    public Asset addAsset(Long walletId, String symbol, BigDecimal quantity, BigDecimal currentPrice) {
+        walletRepository.lockSymbols(List.of(symbol));
+        Wallet wallet = walletRepository.findByIdForUpdate(walletId)
+                .orElseThrow(() -> new WalletNotFoundException("Wallet not found with id: " + walletId));
+
+        return storeAsset(wallet, symbol, quantity, currentPrice);
+    }
+
+    private Asset storeAsset(Wallet wallet, String symbol, BigDecimal quantity, BigDecimal currentPrice) {
         Asset existingAsset = wallet.getAssets().stream()
                 .filter(a -> a.getSymbol().equals(symbol))
                 .findFirst().orElse(null);
 
+        Asset storedAsset;
         if (existingAsset != null) {
             existingAsset.addQuantity(quantity);
-            existingAsset.setPrice(currentPrice.setScale(2, RoundingMode.HALF_UP));
-            return assetRepository.save(existingAsset);
+            wallet.addToTotalValue(existingAsset.reprice(currentPrice));
+            storedAsset = assetRepository.save(existingAsset);
         } else {
             Asset newAsset = new Asset();
             newAsset.setSymbol(symbol);
             newAsset.setQuantity(quantity);
-            newAsset.setPrice(currentPrice.setScale(2, RoundingMode.HALF_UP));
             newAsset.setWallet(wallet);
+            wallet.addToTotalValue(newAsset.reprice(currentPrice));
 
             wallet.getAssets().add(newAsset);
-            return assetRepository.save(newAsset);
+            storedAsset = assetRepository.save(newAsset);
         }
+
+        eventPublisher.publishEvent(new WalletHoldingsChangedEvent(wallet.getId(), symbol));
+        return storedAsset;
     }
 
-    @Transactional
+    /**
+     * Retrieves the assets of a wallet with their values.
+     * The wallet is read with a single projection query, without loading any entity.
+     * Values and the total are maintained by the writes, so nothing is computed here.
+     *
+     * @param walletId The wallet id
+     * @return The wallet assets and their total value
+     */
+    @Transactional(readOnly = true)
     public WalletInfoDto getWalletInformation(Long walletId) {
-        Wallet wallet = walletRepository.findById(walletId)
-                .orElseThrow(() -> new WalletNotFoundException("Wallet not found with id: " + walletId));
-
-        List<AssetInfoDto> assetInfoList = new ArrayList<>();
-        BigDecimal totalValue = BigDecimal.ZERO;
+        List<WalletAssetRow> rows = walletRepository.findWalletAssetRows(walletId);
+        if (rows.isEmpty()) {
+            throw new WalletNotFoundException("Wallet not found with id: " + walletId);
+        }
 
-        for (Asset asset : wallet.getAssets()) {
-            BigDecimal value = asset.getValue();
-            totalValue = totalValue.add(value);
+        List<AssetInfoDto> assetInfoList = new ArrayList<>(rows.size());
+        for (WalletAssetRow row : rows) {
+            if (row.symbol() == null) {
+                continue;
+            }
 
             AssetInfoDto assetInfo = new AssetInfoDto();
-            assetInfo.setSymbol(asset.getSymbol());
-            assetInfo.setQuantity(asset.getQuantity());
-            assetInfo.setPrice(asset.getPrice());
-            assetInfo.setValue(value);
+            assetInfo.setSymbol(row.symbol());
+            assetInfo.setQuantity(row.quantity());
+            assetInfo.setPrice(row.price());
+            assetInfo.setValue(row.value() != null ? row.value() : BigDecimal.ZERO);
 
             assetInfoList.add(assetInfo);
         }
 
+        BigDecimal totalValue = rows.getFirst().total() != null ? rows.getFirst().total() : BigDecimal.ZERO;
+
         WalletInfoDto walletInfo = new WalletInfoDto();
-        walletInfo.setId(wallet.getId().toString());
+        walletInfo.setId(walletId.toString());
         walletInfo.setAssets(assetInfoList);
         walletInfo.setTotal(totalValue);
 
@@ -137,6 +195,8 @@ public class WalletService {
 
     /**
      * Evaluates a wallet's performance by comparing provided asset values with their values on a specific date.
+     * Reference prices are resolved concurrently, up to {@code crypto.evaluation.concurrency} at a time,
+     * and the whole resolution must finish within {@code crypto.evaluation.timeout}.
      *
      * @param inputAssets List of assets and their values
      * @param referenceDate Date to evaluate assets against (defaults to today if null)
@@ -150,48 +210,72 @@ public class WalletService {
 
         log.info("Evaluating wallet with {} assets for date {}", inputAssets.size(), referenceDate);
 
-        // Get asset values based on reference date prices
-        List<AssetEvaluationRequestDto> assetsWithReferenceDateValues = inputAssets.stream().map(inputAsset -> {
-            String symbol = inputAsset.getSymbol();
-            BigDecimal quantity = inputAsset.getQuantity();
-
-            log.debug("Processing asset: {} with quantity: {}", symbol, quantity);
-
-            List<CoinCapAssetHistoryDto> historicalPrices;
-            if (referenceDate == null || referenceDate.isEqual(LocalDate.now())) {
+        // Price lookups block on the cache, database or API, so they run on the bounded elastic scheduler.
+        // flatMapSequential keeps the prices in the same order as the input assets
+        List<BigDecimal> referencePrices = Flux.fromIterable(inputAssets)
+                .flatMapSequential(inputAsset -> Mono.fromCallable(() -> resolveReferencePrice(inputAsset.getSymbol(), referenceDate))
+                                .subscribeOn(Schedulers.boundedElastic()),
+                        evaluationConcurrency)
+                .collectList()
+                .timeout(evaluationTimeout)
+                .onErrorMap(TimeoutException.class,
+                        e -> new WalletException("Wallet evaluation did not complete within " + evaluationTimeout))
+                .block();
+
+        return summarizeEvaluation(inputAssets, referencePrices, referenceDate);
+    }
 
-                // For current date, use the current price API
-                CoinCapAssetDto currentAssetData = clientService.getCurrentAssetDataBySymbol(symbol);
+    /**
+     * Resolves the price of an asset on the reference date.
+     *
+     * @param symbol The asset symbol
+     * @param referenceDate Date to get the price for (current price if null or today)
+     * @return The price of the asset on the reference date
+     * @throws WalletException if no price data is available
+     */
+    BigDecimal resolveReferencePrice(String symbol, LocalDate referenceDate) {
+        BigDecimal priceOnDate;
+        if (referenceDate == null || referenceDate.isEqual(LocalDate.now())) {
 
-                CoinCapAssetHistoryDto currentPriceData = new CoinCapAssetHistoryDto();
-                currentPriceData.setPriceUsd(currentAssetData.getPriceUsd());
-                currentPriceData.setTime(System.currentTimeMillis());
+            // For current date, use the cached current price
+            priceOnDate = priceCacheService.getCurrentPrice(symbol);
+        } else {
 
-                historicalPrices = Collections.singletonList(currentPriceData);
-            } else {
+            // For historical date, use the daily price
+            priceOnDate = historicalPriceService.getPriceForDate(symbol, referenceDate);
+        }
 
-                // For historical date, use the date-based API
-                historicalPrices = clientService.getAssetPriceForDate(
-                        symbol,
-                        ApiClientService.CoinCapInterval.DAY_1.getValue(),
-                        referenceDate);
-            }
+        if (priceOnDate == null) {
+            log.error("No price data available for {} on {}", symbol, referenceDate);
+            throw new WalletException("No price data available for " + symbol + " on " + referenceDate);
+        }
 
-            if (historicalPrices.isEmpty()) {
-                log.error("No price data available for {} on {}", symbol, referenceDate);
-                throw new WalletException("No price data available for " + symbol + " on " + referenceDate);
-            }
+        log.debug("Retrieved price for {}: {} on date {}", symbol, priceOnDate, referenceDate);
+        return priceOnDate;
+    }
 
-            //Get the most recent price for that day
-            CoinCapAssetHistoryDto priceData = historicalPrices.getFirst();
-            BigDecimal priceOnDate = priceData.getPriceUsd();
-            BigDecimal valueOnReferenceDate = quantity.multiply(priceOnDate);
+    /**
+     * Computes the evaluation of a wallet once the reference prices of its assets are known.
+     *
+     * @param inputAssets List of assets and their values
+     * @param referencePrices Price of each asset on the reference date, in the same order as the assets
+     * @param referenceDate Date the assets are evaluated against
+     * @return Evaluation result with total value and performance metrics
+     */
+    WalletEvaluationResponse summarizeEvaluation(List<AssetEvaluationRequestDto> inputAssets,
+                                                 List<BigDecimal> referencePrices,
+                                                 LocalDate referenceDate) {
+        // Get asset values based on reference date prices
+        List<AssetEvaluationRequestDto> assetsWithReferenceDateValues = new ArrayList<>(inputAssets.size());
+        for (int i = 0; i < inputAssets.size(); i++) {
+            AssetEvaluationRequestDto inputAsset = inputAssets.get(i);
+            BigDecimal valueOnReferenceDate = inputAsset.getQuantity().multiply(referencePrices.get(i));
 
-            log.debug("Retrieved price for {}: {} on date {}, calculated value: {}",
-                    symbol, priceOnDate, referenceDate, valueOnReferenceDate);
+            log.debug("Calculated value for {} on date {}: {}", inputAsset.getSymbol(), referenceDate, valueOnReferenceDate);
 
-            return new AssetEvaluationRequestDto(symbol, quantity, valueOnReferenceDate);
-        }).toList();
+            assetsWithReferenceDateValues.add(
+                    new AssetEvaluationRequestDto(inputAsset.getSymbol(), inputAsset.getQuantity(), valueOnReferenceDate));
+        }
 
         // Calculate performance metrics
         Map<String, BigDecimal> performanceByAsset = new HashMap<>();
@@ -233,16 +317,15 @@ public class WalletService {
     }
 
     /**
-     * Calculates the percentage performance between two values.
+     * Calculates the percentage performance between two values, shared by single date and series evaluations.
      * Performance = ((reference value - provided value) / provided value) * 100
      *
      * @param currentValue The new value
      * @param pastValue The reference value
-     * @return The performance percentage
+     * @return The performance percentage at scale 4, zero if the past value is zero or null
      */
-    private BigDecimal calculatePerformance(BigDecimal currentValue, BigDecimal pastValue) {
+    static BigDecimal calculatePerformance(BigDecimal currentValue, BigDecimal pastValue) {
         if (pastValue == null || pastValue.compareTo(BigDecimal.ZERO) == 0) {
-            log.warn("Attempted to calculate performance with zero or null past value");
             return BigDecimal.ZERO;
         }
 
@@ -0,0 +1,58 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.request.WalletInfoDto;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Service class that streams live wallet valuations.
+ * The wallet is read from the database once, and again only when its assets change.
+ * Price ticks update the valuation in memory, and a new valuation is pushed only when a held asset's price changed.
+ */
+@Service
+public class WalletStreamService {
+
+    private final WalletService walletService;
+    private final PriceTickHub priceTickHub;
+
+    public WalletStreamService(WalletService walletService, PriceTickHub priceTickHub) {
+        this.walletService = walletService;
+        this.priceTickHub = priceTickHub;
+    }
+
+    /**
+     * Streams the valuations of a wallet, starting with the given one.
+     * Valuations are delivered on their own thread, so a slow consumer never blocks the publisher of the ticks.
+     * Slow consumers only get the latest valuation, intermediate ones are dropped.
+     *
+     * @param walletInfo The current valuation of the wallet
+     * @return Infinite stream of valuations of the wallet
+     */
+    public Flux<WalletInfoDto> streamWallet(WalletInfoDto walletInfo) {
+        Long walletId = Long.valueOf(walletInfo.getId());
+
+        Flux<WalletInfoDto> reloads = priceTickHub.holdingChanges()
+                .filter(walletId::equals)
+                .concatMap(id -> Mono.fromCallable(() -> walletService.getWalletInformation(id))
+                        .subscribeOn(Schedulers.boundedElastic()));
+
+        return Flux.concat(Mono.just(walletInfo), reloads)
+                .switchMap(this::valuations)
+                // The hub emits on the publishing thread, the latest valuation waits there for the hand-off
+                .onBackpressureLatest()
+                .publishOn(Schedulers.boundedElastic(), 1)
+                // and then for the consumer
+                .onBackpressureLatest();
+    }
+
+    private Flux<WalletInfoDto> valuations(WalletInfoDto walletInfo) {
+        WalletValuation valuation = new WalletValuation(walletInfo);
+
+        return priceTickHub.ticks()
+                .filter(tick -> valuation.apply(tick.prices()))
+                .map(tick -> valuation.snapshot())
+                .startWith(valuation.snapshot());
+    }
+}
@@ -0,0 +1,87 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.request.AssetInfoDto;
+import com.spicep.cryptowallet.dto.request.WalletInfoDto;
+import com.spicep.cryptowallet.entity.Asset;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory valuation of a wallet, updated incrementally from price ticks.
+ * Only the assets whose price changed are revalued, and the total is adjusted by their difference.
+ * Prices and values are rounded as {@link Asset#reprice(BigDecimal)} does, so the valuation matches the stored
+ * wallet and moves below a cent are not changes.
+ * Not thread safe, ticks must be applied sequentially.
+ */
+class WalletValuation {
+
+    private final String walletId;
+    private final Map<String, AssetInfoDto> assetsBySymbol = new LinkedHashMap<>();
+    private BigDecimal total;
+
+    WalletValuation(WalletInfoDto walletInfo) {
+        this.walletId = walletInfo.getId();
+        this.total = walletInfo.getTotal() != null ? walletInfo.getTotal() : BigDecimal.ZERO;
+        for (AssetInfoDto asset : walletInfo.getAssets()) {
+            assetsBySymbol.put(asset.getSymbol(), copy(asset));
+        }
+    }
+
+    /**
+     * Applies new prices to the held assets.
+     *
+     * @param prices The new prices by symbol
+     * @return true if the price of at least one held asset changed by a cent or more
+     */
+    boolean apply(Map<String, BigDecimal> prices) {
+        boolean changed = false;
+
+        for (AssetInfoDto asset : assetsBySymbol.values()) {
+            BigDecimal tickPrice = prices.get(asset.getSymbol());
+            if (tickPrice == null) {
+                continue;
+            }
+            BigDecimal price = Asset.roundPrice(tickPrice);
+            if (asset.getPrice() != null && price.compareTo(asset.getPrice()) == 0) {
+                continue;
+            }
+
+            BigDecimal value = asset.getQuantity() == null ? BigDecimal.ZERO : Asset.valueOf(asset.getQuantity(), price);
+            BigDecimal previousValue = asset.getValue() != null ? asset.getValue() : BigDecimal.ZERO;
+
+            total = total.add(value.subtract(previousValue));
+            asset.setPrice(price);
+            asset.setValue(value);
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return A copy of the current valuation, safe to publish
+     */
+    WalletInfoDto snapshot() {
+        List<AssetInfoDto> assets = new ArrayList<>(assetsBySymbol.size());
+        assetsBySymbol.values().forEach(asset -> assets.add(copy(asset)));
+
+        WalletInfoDto walletInfo = new WalletInfoDto();
+        walletInfo.setId(walletId);
+        walletInfo.setAssets(assets);
+        walletInfo.setTotal(total);
+        return walletInfo;
+    }
+
+    private static AssetInfoDto copy(AssetInfoDto asset) {
+        AssetInfoDto copy = new AssetInfoDto();
+        copy.setSymbol(asset.getSymbol());
+        copy.setQuantity(asset.getQuantity());
+        copy.setPrice(asset.getPrice());
+        copy.setValue(asset.getValue());
+        return copy;
+    }
+}
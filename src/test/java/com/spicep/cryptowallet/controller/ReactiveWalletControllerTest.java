@@ -0,0 +1,245 @@
+package com.spicep.cryptowallet.controller;
+
+import com.spicep.cryptowallet.dto.request.*;
+import com.spicep.cryptowallet.dto.response.PerformancePoint;
+import com.spicep.cryptowallet.dto.response.PerformanceSeriesResponse;
+import com.spicep.cryptowallet.dto.response.PortfolioEvaluationResult;
+import com.spicep.cryptowallet.dto.response.WalletEvaluationResponse;
+import com.spicep.cryptowallet.entity.Asset;
+import com.spicep.cryptowallet.entity.Wallet;
+import com.spicep.cryptowallet.exception.wallet.WalletException;
+import com.spicep.cryptowallet.exception.wallet.WalletNotFoundException;
+import com.spicep.cryptowallet.service.BatchEvaluationService;
+import com.spicep.cryptowallet.service.PerformanceSeriesService;
+import com.spicep.cryptowallet.service.ReactiveWalletService;
+import com.spicep.cryptowallet.service.WalletStreamService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.when;
+
+@ActiveProfiles("reactive")
+@WebFluxTest(ReactiveWalletController.class)
+class ReactiveWalletControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private ReactiveWalletService walletService;
+
+    @MockitoBean
+    private WalletStreamService walletStreamService;
+
+    @MockitoBean
+    private BatchEvaluationService batchEvaluationService;
+
+    @MockitoBean
+    private PerformanceSeriesService performanceSeriesService;
+
+    @Test
+    void shouldCreateWallet() {
+        Wallet mockedWallet = new Wallet();
+        mockedWallet.setId(1L);
+
+        when(walletService.createNewWallet(anyString())).thenReturn(Mono.just(mockedWallet));
+
+        webTestClient.post().uri("/api/wallets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new CreateWalletRequest("test@spicep.com"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.email").isEqualTo("test@spicep.com");
+    }
+
+    @Test
+    void shouldAddAssetToWallet() {
+        Asset mockedAsset = new Asset();
+        mockedAsset.setId(1L);
+        mockedAsset.setSymbol("BTC");
+        mockedAsset.setQuantity(BigDecimal.ONE);
+        mockedAsset.reprice(new BigDecimal("30000.00"));
+
+        when(walletService.addAsset(anyLong(), anyString(), any(BigDecimal.class))).thenReturn(Mono.just(mockedAsset));
+
+        webTestClient.post().uri("/api/wallets/{walletId}/assets", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new AddAssetRequest("BTC", new BigDecimal("1.0")))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.symbol").isEqualTo("BTC")
+                .jsonPath("$.value").isEqualTo(30000.00);
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenGetWalletInfoForNonExistentWallet() {
+        when(walletService.getWalletInformation(999L))
+                .thenReturn(Mono.error(new WalletNotFoundException("Wallet not found with id: 999")));
+
+        webTestClient.get().uri("/api/wallets/{walletId}", 999L)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldReturnWalletInfoSuccessfully() {
+        WalletInfoDto mockedWalletInfoDto = new WalletInfoDto();
+        mockedWalletInfoDto.setId("1");
+        mockedWalletInfoDto.setTotal(new BigDecimal("1000.00"));
+        mockedWalletInfoDto.setAssets(List.of());
+
+        when(walletService.getWalletInformation(1L)).thenReturn(Mono.just(mockedWalletInfoDto));
+
+        webTestClient.get().uri("/api/wallets/{walletId}", 1L)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("1")
+                .jsonPath("$.total").isEqualTo(1000.00);
+    }
+
+    @Test
+    void shouldEvaluateWalletSuccessfully() {
+        WalletEvaluationRequest request = new WalletEvaluationRequest(List.of(
+                new AssetEvaluationRequestDto("BTC", BigDecimal.ONE, BigDecimal.valueOf(30000))));
+
+        when(walletService.evaluateWallet(any(), any())).thenReturn(Mono.just(
+                new WalletEvaluationResponse(BigDecimal.valueOf(30000), "BTC", BigDecimal.ZERO, "ADA", BigDecimal.ZERO)));
+
+        webTestClient.post().uri("/api/wallets/evaluate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.total").isEqualTo(30000)
+                .jsonPath("$.bestAsset").isEqualTo("BTC")
+                .jsonPath("$.worstAsset").isEqualTo("ADA");
+    }
+
+    @Test
+    void shouldReturnBadRequestForEvaluateWalletWithEmptyAssets() {
+        when(walletService.evaluateWallet(any(), any()))
+                .thenReturn(Mono.error(new WalletException("Asset list cannot be empty")));
+
+        webTestClient.post().uri("/api/wallets/evaluate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new WalletEvaluationRequest(List.of()))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldStreamWalletInfo() {
+        WalletInfoDto walletInfo = new WalletInfoDto();
+        walletInfo.setId("1");
+        walletInfo.setTotal(new BigDecimal("100.00"));
+        walletInfo.setAssets(List.of());
+
+        WalletInfoDto updatedWalletInfo = new WalletInfoDto();
+        updatedWalletInfo.setId("1");
+        updatedWalletInfo.setTotal(new BigDecimal("120.00"));
+        updatedWalletInfo.setAssets(List.of());
+
+        when(walletService.getWalletInformation(1L)).thenReturn(Mono.just(walletInfo));
+        when(walletStreamService.streamWallet(walletInfo)).thenReturn(Flux.just(walletInfo, updatedWalletInfo));
+
+        Flux<WalletInfoDto> events = webTestClient.get().uri("/api/wallets/{walletId}/stream", 1L)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(WalletInfoDto.class)
+                .getResponseBody();
+
+        StepVerifier.create(events)
+                .assertNext(event -> assertEquals(0, new BigDecimal("100.00").compareTo(event.getTotal())))
+                .assertNext(event -> assertEquals(0, new BigDecimal("120.00").compareTo(event.getTotal())))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenStreamingNonExistentWallet() {
+        when(walletService.getWalletInformation(999L))
+                .thenReturn(Mono.error(new WalletNotFoundException("Wallet not found with id: 999")));
+
+        webTestClient.get().uri("/api/wallets/{walletId}/stream", 999L)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldStreamBatchEvaluationAsNdjson() {
+        LocalDate firstDate = LocalDate.of(2025, 1, 7);
+        LocalDate secondDate = LocalDate.of(2025, 1, 8);
+        BatchEvaluationRequest request = new BatchEvaluationRequest(List.of(
+                new PortfolioEvaluationRequest("first", List.of(new AssetEvaluationRequestDto("BTC", BigDecimal.ONE, BigDecimal.TEN)))),
+                List.of(firstDate, secondDate));
+
+        when(batchEvaluationService.evaluate(request.getPortfolios(), List.of(firstDate, secondDate))).thenReturn(Flux.just(
+                new PortfolioEvaluationResult("first", firstDate,
+                        new WalletEvaluationResponse(new BigDecimal("20.00"), "BTC", new BigDecimal("100.00"), "BTC", new BigDecimal("100.00")), null),
+                new PortfolioEvaluationResult("first", secondDate,
+                        new WalletEvaluationResponse(new BigDecimal("30.00"), "BTC", new BigDecimal("200.00"), "BTC", new BigDecimal("200.00")), null)));
+
+        Flux<PortfolioEvaluationResult> results = webTestClient.post().uri("/api/wallets/evaluate/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(PortfolioEvaluationResult.class)
+                .getResponseBody();
+
+        StepVerifier.create(results)
+                .assertNext(result -> assertEquals(firstDate, result.getDate()))
+                .assertNext(result -> assertEquals(0, new BigDecimal("30.00").compareTo(result.getEvaluation().getTotal())))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldEvaluateWalletSeries() {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 1, 2);
+        WalletEvaluationRequest request = new WalletEvaluationRequest(List.of(
+                new AssetEvaluationRequestDto("BTC", BigDecimal.ONE, new BigDecimal("50000"))));
+
+        when(performanceSeriesService.evaluateSeries(request.getAssets(), from, to, "h12")).thenReturn(Mono.just(
+                new PerformanceSeriesResponse(from, to, "h12", List.of(
+                        new PerformancePoint(Instant.parse("2025-01-01T12:00:00Z"), new BigDecimal("55000.00"), Map.of("BTC", new BigDecimal("10.00")))))));
+
+        webTestClient.post().uri(uriBuilder -> uriBuilder.path("/api/wallets/evaluate/series")
+                        .queryParam("from", from)
+                        .queryParam("to", to)
+                        .queryParam("interval", "h12")
+                        .build())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.interval").isEqualTo("h12")
+                .jsonPath("$.points[0].time").isEqualTo("2025-01-01T12:00:00Z")
+                .jsonPath("$.points[0].performanceByAsset.BTC").isEqualTo(10.00);
+    }
+}
@@ -4,27 +4,46 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.spicep.cryptowallet.dto.request.*;
 import com.spicep.cryptowallet.dto.response.AssetResponseDto;
 import com.spicep.cryptowallet.dto.response.CreateWalletResponse;
+import com.spicep.cryptowallet.dto.response.PerformancePoint;
+import com.spicep.cryptowallet.dto.response.PerformanceSeriesResponse;
+import com.spicep.cryptowallet.dto.response.PortfolioEvaluationResult;
 import com.spicep.cryptowallet.dto.response.WalletEvaluationResponse;
+import com.spicep.cryptowallet.dto.response.WalletImportResult;
 import com.spicep.cryptowallet.entity.Asset;
 import com.spicep.cryptowallet.entity.Wallet;
 import com.spicep.cryptowallet.exception.wallet.WalletException;
 import com.spicep.cryptowallet.exception.wallet.WalletNotFoundException;
+import com.spicep.cryptowallet.service.BatchEvaluationService;
+import com.spicep.cryptowallet.service.PerformanceSeriesService;
+import com.spicep.cryptowallet.service.WalletImportService;
 import com.spicep.cryptowallet.service.WalletService;
+import com.spicep.cryptowallet.service.WalletStreamService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(WalletController.class)
@@ -36,6 +55,18 @@ class WalletControllerTest {
     @MockitoBean
     private WalletService walletService;
 
+    @MockitoBean
+    private WalletStreamService walletStreamService;
+
+    @MockitoBean
+    private BatchEvaluationService batchEvaluationService;
+
+    @MockitoBean
+    private PerformanceSeriesService performanceSeriesService;
+
+    @MockitoBean
+    private WalletImportService walletImportService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -64,7 +95,7 @@ class WalletControllerTest {
         mockedAsset.setId(1L);
         mockedAsset.setSymbol("BTC");
         mockedAsset.setQuantity(BigDecimal.ONE);
-        mockedAsset.setPrice(new BigDecimal("30000.00"));
+        mockedAsset.reprice(new BigDecimal("30000.00"));
         AssetResponseDto responseDto = new AssetResponseDto(mockedAsset.getId(), mockedAsset.getSymbol(), mockedAsset.getQuantity(), mockedAsset.getPrice(), mockedAsset.getValue());
 
 
@@ -165,4 +196,148 @@ class WalletControllerTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void shouldStreamWalletInfo() throws Exception {
+        WalletInfoDto walletInfo = new WalletInfoDto();
+        walletInfo.setId("1");
+        walletInfo.setTotal(new BigDecimal("100.00"));
+        walletInfo.setAssets(List.of());
+
+        WalletInfoDto updatedWalletInfo = new WalletInfoDto();
+        updatedWalletInfo.setId("1");
+        updatedWalletInfo.setTotal(new BigDecimal("120.00"));
+        updatedWalletInfo.setAssets(List.of());
+
+        when(walletService.getWalletInformation(1L)).thenReturn(walletInfo);
+        when(walletStreamService.streamWallet(walletInfo)).thenReturn(Flux.just(walletInfo, updatedWalletInfo));
+
+        MvcResult result = mockMvc.perform(get("/api/wallets/{walletId}/stream", 1L)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // The stream is never timed out
+        assertEquals(0, result.getRequest().getAsyncContext().getTimeout());
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("\"total\":100.00")))
+                .andExpect(content().string(containsString("\"total\":120.00")));
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenStreamingNonExistentWallet() throws Exception {
+        when(walletService.getWalletInformation(999L))
+                .thenThrow(new WalletNotFoundException("Wallet not found with id: 999"));
+
+        mockMvc.perform(get("/api/wallets/{walletId}/stream", 999L)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldStreamBatchEvaluationAsNdjson() throws Exception {
+        LocalDate date = LocalDate.of(2025, 1, 7);
+        BatchEvaluationRequest request = new BatchEvaluationRequest(List.of(
+                new PortfolioEvaluationRequest("first", List.of(new AssetEvaluationRequestDto("BTC", BigDecimal.ONE, BigDecimal.TEN))),
+                new PortfolioEvaluationRequest("second", List.of(new AssetEvaluationRequestDto("ETH", BigDecimal.ONE, BigDecimal.TEN)))),
+                null);
+
+        when(batchEvaluationService.evaluate(request.getPortfolios(), List.of(date))).thenReturn(Flux.just(
+                new PortfolioEvaluationResult("first", date,
+                        new WalletEvaluationResponse(new BigDecimal("20.00"), "BTC", new BigDecimal("100.00"), "BTC", new BigDecimal("100.00")), null),
+                new PortfolioEvaluationResult("second", date, null, "No price data available for ETH on " + date)));
+
+        MvcResult result = mockMvc.perform(post("/api/wallets/evaluate/batch")
+                        .param("date", date.toString())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString().trim().split("\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"portfolioId\":\"first\""));
+        assertTrue(lines[0].contains("\"total\":20.00"));
+        assertTrue(lines[1].contains("\"error\":\"No price data available for ETH on 2025-01-07\""));
+        assertFalse(lines[1].contains("evaluation"));
+    }
+
+    @Test
+    void shouldEvaluateWalletSeries() throws Exception {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 1, 2);
+        WalletEvaluationRequest request = new WalletEvaluationRequest(List.of(
+                new AssetEvaluationRequestDto("BTC", BigDecimal.ONE, new BigDecimal("50000"))));
+
+        when(performanceSeriesService.evaluateSeries(request.getAssets(), from, to, "d1")).thenReturn(Mono.just(
+                new PerformanceSeriesResponse(from, to, "d1", List.of(
+                        new PerformancePoint(Instant.parse("2025-01-01T00:00:00Z"), new BigDecimal("50000.00"), Map.of("BTC", new BigDecimal("0.00"))),
+                        new PerformancePoint(Instant.parse("2025-01-02T00:00:00Z"), new BigDecimal("55000.00"), Map.of("BTC", new BigDecimal("10.00")))))));
+
+        MvcResult result = mockMvc.perform(post("/api/wallets/evaluate/series")
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.interval").value("d1"))
+                .andExpect(jsonPath("$.points.length()").value(2))
+                .andExpect(jsonPath("$.points[1].time").value("2025-01-02T00:00:00Z"))
+                .andExpect(jsonPath("$.points[1].total").value(55000.00))
+                .andExpect(jsonPath("$.points[1].performanceByAsset.BTC").value(10.00));
+    }
+
+    @Test
+    void shouldReturnBadRequestForInvalidSeriesRange() throws Exception {
+        WalletEvaluationRequest request = new WalletEvaluationRequest(List.of(
+                new AssetEvaluationRequestDto("BTC", BigDecimal.ONE, new BigDecimal("50000"))));
+
+        when(performanceSeriesService.evaluateSeries(anyList(), any(LocalDate.class), any(LocalDate.class), anyString()))
+                .thenThrow(new WalletException("The start of the range must not be after its end"));
+
+        mockMvc.perform(post("/api/wallets/evaluate/series")
+                        .param("from", "2025-01-02")
+                        .param("to", "2025-01-01")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldImportWalletsFromCsv() throws Exception {
+        WalletImportResult result = new WalletImportResult(2, 1, 1, 1, List.of("Line 3: invalid email"));
+        when(walletImportService.importWallets(any(), eq(WalletImportService.Format.CSV))).thenReturn(result);
+
+        mockMvc.perform(post("/api/wallets/import")
+                        .contentType("text/csv")
+                        .content("email,symbol,quantity\ntest@spicep.com,bitcoin,1.5\nnot-an-email,bitcoin,1\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lines").value(2))
+                .andExpect(jsonPath("$.assets").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.errors[0]").value("Line 3: invalid email"));
+    }
+
+    @Test
+    void shouldImportWalletsFromNdjson() throws Exception {
+        WalletImportResult result = new WalletImportResult(1, 1, 1, 0, List.of());
+        when(walletImportService.importWallets(any(), eq(WalletImportService.Format.NDJSON))).thenReturn(result);
+
+        mockMvc.perform(post("/api/wallets/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"email\":\"test@spicep.com\",\"symbol\":\"bitcoin\",\"quantity\":1.5}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.wallets").value(1));
+    }
 }
@@ -1,13 +1,16 @@
 package com.spicep.cryptowallet.repository;
 
+import com.spicep.cryptowallet.dto.projection.SymbolHolders;
 import com.spicep.cryptowallet.entity.*;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.math.BigDecimal;
-import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -50,7 +53,7 @@ class AssetRepositoryTest extends RepositoryTestBase {
     }
     
     @Test
-    void testFindBySymbol() {
+    void testFindByWalletIdAndSymbol() {
         User user = createTestUser();
         userRepository.save(user);
         
@@ -66,9 +69,45 @@ class AssetRepositoryTest extends RepositoryTestBase {
         asset.setWallet(wallet);
         assetRepository.save(asset);
         
-        List<Asset> foundAssets = assetRepository.findBySymbol("ETH");
+        Optional<Asset> foundAsset = assetRepository.findByWalletIdAndSymbol(wallet.getId(), "ETH");
         
-        assertFalse(foundAssets.isEmpty());
-        assertEquals("ETH", foundAssets.getFirst().getSymbol());
+        assertTrue(foundAsset.isPresent());
+        assertEquals(asset.getId(), foundAsset.get().getId());
+        assertTrue(assetRepository.findByWalletIdAndSymbol(wallet.getId(), "BTC").isEmpty());
+    }
+
+    @Test
+    void testFindHolderCounts() {
+        Wallet firstWallet = createTestWallet();
+        Wallet secondWallet = createTestWallet();
+        assetRepository.save(createAsset(firstWallet, "HOLDERSBTC", "50000.00"));
+        assetRepository.save(createAsset(secondWallet, "HOLDERSBTC", "50000.00"));
+        assetRepository.save(createAsset(firstWallet, "HOLDERSETH", "3000.00"));
+
+        Map<String, Long> holders = assetRepository.findHolderCounts().stream()
+                .collect(Collectors.toMap(SymbolHolders::symbol, SymbolHolders::holders));
+
+        assertEquals(2L, holders.get("HOLDERSBTC"));
+        assertEquals(1L, holders.get("HOLDERSETH"));
+    }
+
+    private Wallet createTestWallet() {
+        User user = new User();
+        user.setEmail("test-" + UUID.randomUUID() + "@spicep.com");
+        userRepository.save(user);
+
+        Wallet wallet = new Wallet();
+        wallet.setUser(user);
+        user.setWallet(wallet);
+        return walletRepository.save(wallet);
+    }
+
+    private Asset createAsset(Wallet wallet, String symbol, String price) {
+        Asset asset = new Asset();
+        asset.setSymbol(symbol);
+        asset.setQuantity(BigDecimal.ONE);
+        asset.setPrice(new BigDecimal(price));
+        asset.setWallet(wallet);
+        return asset;
     }
-}
\ No newline at end of file
+}
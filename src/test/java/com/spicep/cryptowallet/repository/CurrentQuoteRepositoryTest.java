@@ -0,0 +1,125 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.entity.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+@SpringBootTest
+class CurrentQuoteRepositoryTest extends RepositoryTestBase {
+
+    @Autowired
+    private CurrentQuoteRepository currentQuoteRepository;
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testUpsertAll() {
+        Instant firstTick = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Instant secondTick = firstTick.plusSeconds(60);
+
+        currentQuoteRepository.upsertAll(Map.of("UPSERTBTC", new BigDecimal("50000.00")), firstTick);
+        currentQuoteRepository.upsertAll(Map.of(
+                "UPSERTBTC", new BigDecimal("51000.00"),
+                "UPSERTETH", new BigDecimal("3000.00")), secondTick);
+
+        CurrentQuote btc = currentQuoteRepository.findById("UPSERTBTC").orElseThrow();
+        assertEquals(0, new BigDecimal("51000.00").compareTo(btc.getPrice()));
+        assertEquals(secondTick, btc.getUpdatedAt());
+        assertEquals(0, new BigDecimal("3000.00").compareTo(currentQuoteRepository.findById("UPSERTETH").orElseThrow().getPrice()));
+    }
+
+    @Test
+    void testUpsertAllWithoutUpdateCounts() {
+        Instant tick = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        currentQuoteRepository.upsertAll(Map.of("NOINFOBTC", new BigDecimal("50000.00")), tick);
+        // Driver executing the batches without reporting their counts
+        JdbcTemplate noInfoTemplate = spy(jdbcTemplate);
+        doAnswer(invocation -> {
+            int[] counts = (int[]) invocation.callRealMethod();
+            Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+            return counts;
+        }).when(noInfoTemplate).batchUpdate(startsWith("UPDATE"), anyList());
+
+        new CurrentQuoteRepositoryCustomImpl(noInfoTemplate).upsertAll(Map.of(
+                "NOINFOBTC", new BigDecimal("51000.00"),
+                "NOINFOETH", new BigDecimal("3000.00")), tick.plusSeconds(60));
+
+        assertEquals(0, new BigDecimal("51000.00").compareTo(currentQuoteRepository.findById("NOINFOBTC").orElseThrow().getPrice()));
+        assertEquals(0, new BigDecimal("3000.00").compareTo(currentQuoteRepository.findById("NOINFOETH").orElseThrow().getPrice()));
+    }
+
+    @Test
+    void testUpsertAllUpdatesQuotesInsertedByAnotherInstance() {
+        Instant tick = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        // Another instance inserts a quote between the updates and the inserts
+        JdbcTemplate racingTemplate = spy(jdbcTemplate);
+        doAnswer(invocation -> {
+            currentQuoteRepository.upsertAll(Map.of("RACEBTC", new BigDecimal("49000.00")), tick.minusSeconds(1));
+            return invocation.callRealMethod();
+        }).doCallRealMethod().when(racingTemplate).batchUpdate(startsWith("INSERT"), anyList());
+
+        new CurrentQuoteRepositoryCustomImpl(racingTemplate).upsertAll(Map.of(
+                "RACEBTC", new BigDecimal("50000.00"),
+                "RACEETH", new BigDecimal("3000.00")), tick);
+
+        CurrentQuote btc = currentQuoteRepository.findById("RACEBTC").orElseThrow();
+        assertEquals(0, new BigDecimal("50000.00").compareTo(btc.getPrice()));
+        assertEquals(tick, btc.getUpdatedAt());
+        assertEquals(0, new BigDecimal("3000.00").compareTo(currentQuoteRepository.findById("RACEETH").orElseThrow().getPrice()));
+    }
+
+    @Test
+    void testBackfillFromAssets() {
+        User user = createTestUser();
+        userRepository.save(user);
+
+        Wallet wallet = new Wallet();
+        wallet.setUser(user);
+        user.setWallet(wallet);
+        walletRepository.save(wallet);
+
+        currentQuoteRepository.upsertAll(Map.of("BACKFILLETH", new BigDecimal("3500.00")), Instant.now());
+        assetRepository.save(createAsset(wallet, "BACKFILLBTC", "50000.00"));
+        assetRepository.save(createAsset(wallet, "BACKFILLETH", "3000.00"));
+
+        assertTrue(currentQuoteRepository.backfillFromAssets() >= 1);
+        assertEquals(0, currentQuoteRepository.backfillFromAssets());
+
+        assertEquals(0, new BigDecimal("50000.00").compareTo(currentQuoteRepository.findById("BACKFILLBTC").orElseThrow().getPrice()));
+        assertEquals(0, new BigDecimal("3500.00").compareTo(currentQuoteRepository.findById("BACKFILLETH").orElseThrow().getPrice()));
+    }
+
+    private Asset createAsset(Wallet wallet, String symbol, String price) {
+        Asset asset = new Asset();
+        asset.setSymbol(symbol);
+        asset.setQuantity(BigDecimal.ONE);
+        asset.setPrice(new BigDecimal(price));
+        asset.setWallet(wallet);
+        return asset;
+    }
+}
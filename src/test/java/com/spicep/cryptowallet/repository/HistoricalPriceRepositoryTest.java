@@ -0,0 +1,52 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.entity.HistoricalPrice;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class HistoricalPriceRepositoryTest extends RepositoryTestBase {
+
+    private static final String DAY_1_INTERVAL = "d1";
+
+    @Autowired
+    private HistoricalPriceRepository historicalPriceRepository;
+
+    @Test
+    void testSaveAndFindBySymbolIntervalAndDay() {
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        historicalPriceRepository.save(historicalPrice("cardano", day, "0.71"));
+
+        Optional<HistoricalPrice> found = historicalPriceRepository.findBySymbolAndIntervalAndDay("cardano", DAY_1_INTERVAL, day);
+
+        assertTrue(found.isPresent());
+        assertEquals(0, new BigDecimal("0.71").compareTo(found.get().getPrice()));
+        assertTrue(historicalPriceRepository.findBySymbolAndIntervalAndDay("cardano", "h1", day).isEmpty());
+    }
+
+    @Test
+    void testRejectDuplicateDay() {
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        historicalPriceRepository.save(historicalPrice("polkadot", day, "7.1"));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> historicalPriceRepository.save(historicalPrice("polkadot", day, "7.1")));
+    }
+
+    private static HistoricalPrice historicalPrice(String symbol, LocalDate day, String price) {
+        HistoricalPrice historicalPrice = new HistoricalPrice();
+        historicalPrice.setSymbol(symbol);
+        historicalPrice.setInterval(DAY_1_INTERVAL);
+        historicalPrice.setDay(day);
+        historicalPrice.setPrice(new BigDecimal(price));
+        return historicalPrice;
+    }
+}
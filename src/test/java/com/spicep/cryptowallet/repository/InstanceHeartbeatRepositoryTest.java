@@ -0,0 +1,59 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.entity.InstanceHeartbeat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class InstanceHeartbeatRepositoryTest extends RepositoryTestBase {
+
+    @Autowired
+    private InstanceHeartbeatRepository instanceHeartbeatRepository;
+
+    @AfterEach
+    void tearDown() {
+        // Other tests read the live instances of the shared database
+        instanceHeartbeatRepository.deleteAllById(List.of("heartbeat-a", "heartbeat-b"));
+    }
+
+    @Test
+    void testBeatAndFindLiveInstances() {
+        Instant start = instanceHeartbeatRepository.currentTime();
+
+        instanceHeartbeatRepository.beat("heartbeat-a");
+        // Last seen by the database a minute ago, whatever the clock of its instance
+        instanceHeartbeatRepository.save(heartbeat("heartbeat-b", start.minusSeconds(60)));
+        instanceHeartbeatRepository.beat("heartbeat-a");
+
+        assertFalse(instanceHeartbeatRepository.findById("heartbeat-a").orElseThrow().getLastSeen().isBefore(start));
+        List<String> live = instanceHeartbeatRepository.findLiveInstances(start.minusSeconds(5));
+        assertTrue(live.contains("heartbeat-a"));
+        assertFalse(live.contains("heartbeat-b"));
+    }
+
+    @Test
+    void testDeleteOlderThan() {
+        Instant start = Instant.parse("1990-01-01T00:00:00Z");
+
+        instanceHeartbeatRepository.save(heartbeat("heartbeat-gone", start));
+        instanceHeartbeatRepository.save(heartbeat("heartbeat-kept", start.plusSeconds(60)));
+
+        assertEquals(1, instanceHeartbeatRepository.deleteOlderThan(start.plusSeconds(30)));
+        assertFalse(instanceHeartbeatRepository.existsById("heartbeat-gone"));
+        assertTrue(instanceHeartbeatRepository.existsById("heartbeat-kept"));
+    }
+
+    private static InstanceHeartbeat heartbeat(String instanceId, Instant lastSeen) {
+        InstanceHeartbeat heartbeat = new InstanceHeartbeat();
+        heartbeat.setInstanceId(instanceId);
+        heartbeat.setLastSeen(lastSeen);
+        return heartbeat;
+    }
+}
@@ -0,0 +1,123 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.dto.projection.PriceSummary;
+import com.spicep.cryptowallet.entity.PriceHistory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class PriceHistoryRepositoryTest extends RepositoryTestBase {
+
+    @Autowired
+    private PriceHistoryRepository priceHistoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testInsertAll() {
+        Instant timestamp = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        priceHistoryRepository.insertAll(List.of(
+                createPriceHistory("HISTBTC", "50000.00", timestamp),
+                createPriceHistory("HISTETH", "3000.00", timestamp)));
+
+        // Symbols are stored in lower case
+        List<PriceHistory> btcHistory = priceHistoryRepository.findBySymbolInRange("histbtc", timestamp, timestamp.plusMillis(1));
+        assertEquals(1, btcHistory.size());
+        assertNotNull(btcHistory.getFirst().getId());
+        assertEquals(0, new BigDecimal("50000.00").compareTo(btcHistory.getFirst().getPrice()));
+        assertEquals(timestamp, btcHistory.getFirst().getTimestamp());
+        assertEquals("histbtc", btcHistory.getFirst().getSymbol());
+        assertEquals(1, priceHistoryRepository.findBySymbolInRange("histeth", timestamp, timestamp.plusMillis(1)).size());
+    }
+
+    @Test
+    void testFindBySymbolInRange() {
+        Instant start = Instant.parse("2019-06-01T00:00:00Z");
+
+        priceHistoryRepository.insertAll(List.of(
+                createPriceHistory("RANGEBTC", "3.00", start.plus(2, ChronoUnit.MINUTES)),
+                createPriceHistory("RANGEBTC", "1.00", start),
+                createPriceHistory("RANGEBTC", "2.00", start.plus(1, ChronoUnit.MINUTES)),
+                createPriceHistory("RANGEBTC", "4.00", start.plus(3, ChronoUnit.MINUTES)),
+                createPriceHistory("RANGEETH", "9.00", start.plus(1, ChronoUnit.MINUTES))));
+
+        List<PriceHistory> history = priceHistoryRepository.findBySymbolInRange("rangebtc", start, start.plus(3, ChronoUnit.MINUTES));
+
+        assertEquals(List.of(start, start.plus(1, ChronoUnit.MINUTES), start.plus(2, ChronoUnit.MINUTES)),
+                history.stream().map(PriceHistory::getTimestamp).toList());
+    }
+
+    @Test
+    void testSummarizeRange() {
+        Instant day = Instant.parse("2019-07-01T00:00:00Z");
+
+        priceHistoryRepository.insertAll(List.of(
+                createPriceHistory("LASTBTC", "1.00", day.plus(1, ChronoUnit.HOURS)),
+                createPriceHistory("LASTBTC", "2.00", day.plus(23, ChronoUnit.HOURS)),
+                createPriceHistory("LASTBTC", "3.00", day.plus(1, ChronoUnit.DAYS)),
+                createPriceHistory("lastbtc", "4.00", day.plus(2, ChronoUnit.HOURS))));
+
+        // Both spellings are stored as one symbol
+        PriceSummary summary = priceHistoryRepository.summarizeRange("lastbtc", day, day.plus(1, ChronoUnit.DAYS)).orElseThrow();
+        assertEquals(0, new BigDecimal("7.00").compareTo(summary.sum()));
+        assertEquals(3L, summary.count());
+        assertEquals(day.plus(1, ChronoUnit.HOURS), summary.first());
+        assertEquals(day.plus(23, ChronoUnit.HOURS), summary.last());
+
+        PriceSummary empty = priceHistoryRepository.summarizeRange("lastbtc", day.minus(1, ChronoUnit.DAYS), day).orElseThrow();
+        assertEquals(0L, empty.count());
+        assertNull(empty.first());
+    }
+
+    @Test
+    void testLowerCaseSymbols() {
+        Instant timestamp = Instant.parse("2019-08-01T00:00:00Z");
+        priceHistoryRepository.insertAll(List.of(createPriceHistory("lowerbtc", "1.00", timestamp)));
+        // Written before symbols were normalized
+        jdbcTemplate.update("UPDATE price_history SET symbol = 'LowerBTC' WHERE symbol = 'lowerbtc'");
+
+        assertTrue(priceHistoryRepository.lowerCaseSymbols() >= 1);
+
+        assertEquals(1, priceHistoryRepository.findBySymbolInRange("lowerbtc", timestamp, timestamp.plusSeconds(1)).size());
+        assertEquals(0, priceHistoryRepository.lowerCaseSymbols());
+    }
+
+    @Test
+    void testDeleteOlderThanInBatches() {
+        // Earlier than the ticks of every other test, the delete is not limited to a symbol
+        Instant start = Instant.parse("1990-01-01T00:00:00Z");
+        priceHistoryRepository.insertAll(List.of(
+                createPriceHistory("OLDBTC", "1.00", start),
+                createPriceHistory("OLDBTC", "2.00", start.plusSeconds(60)),
+                createPriceHistory("OLDBTC", "3.00", start.plusSeconds(120)),
+                createPriceHistory("OLDBTC", "4.00", start.plusSeconds(180))));
+
+        Instant cutoff = start.plusSeconds(180);
+        assertEquals(2, priceHistoryRepository.deleteOlderThan(cutoff, 2));
+        assertEquals(1, priceHistoryRepository.deleteOlderThan(cutoff, 2));
+        assertEquals(0, priceHistoryRepository.deleteOlderThan(cutoff, 2));
+
+        List<PriceHistory> remaining = priceHistoryRepository.findBySymbolInRange("oldbtc", start, start.plusSeconds(3600));
+        assertEquals(1, remaining.size());
+        assertEquals(cutoff, remaining.getFirst().getTimestamp());
+    }
+
+    private PriceHistory createPriceHistory(String symbol, String price, Instant timestamp) {
+        PriceHistory priceHistory = new PriceHistory();
+        priceHistory.setSymbol(symbol);
+        priceHistory.setPrice(new BigDecimal(price));
+        priceHistory.setTimestamp(timestamp);
+        return priceHistory;
+    }
+}
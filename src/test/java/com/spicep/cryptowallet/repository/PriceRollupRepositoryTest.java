@@ -0,0 +1,176 @@
+package com.spicep.cryptowallet.repository;
+
+import com.spicep.cryptowallet.dto.projection.PriceSummary;
+import com.spicep.cryptowallet.entity.PriceHistory;
+import com.spicep.cryptowallet.entity.PriceRollup;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class PriceRollupRepositoryTest extends RepositoryTestBase {
+
+    @Autowired
+    private PriceHistoryRepository priceHistoryRepository;
+
+    @Autowired
+    private PriceRollupRepository priceRollupRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testRollUpHoursFromTicks() {
+        Instant hour = Instant.parse("2018-03-01T10:00:00Z");
+        priceHistoryRepository.insertAll(List.of(
+                createPriceHistory("ROLLBTC", "100.00", hour.plus(5, ChronoUnit.MINUTES)),
+                createPriceHistory("ROLLBTC", "120.00", hour.plus(20, ChronoUnit.MINUTES)),
+                createPriceHistory("ROLLBTC", "90.00", hour.plus(40, ChronoUnit.MINUTES)),
+                createPriceHistory("ROLLBTC", "110.00", hour.plus(55, ChronoUnit.MINUTES)),
+                createPriceHistory("ROLLBTC", "130.00", hour.plus(65, ChronoUnit.MINUTES)),
+                createPriceHistory("ROLLETH", "7.00", hour.plus(10, ChronoUnit.MINUTES))));
+
+        int stored = priceRollupRepository.rollUp(PriceRollup.Resolution.HOUR, hour, hour.plus(2, ChronoUnit.HOURS));
+
+        assertEquals(3, stored);
+        List<PriceRollup> btcHours = priceRollupRepository.findBySymbolInRange("rollbtc", PriceRollup.Resolution.HOUR,
+                hour, hour.plus(2, ChronoUnit.HOURS));
+        assertEquals(2, btcHours.size());
+        assertRollup(btcHours.get(0), hour, "100.00", "120.00", "90.00", "110.00", 4);
+        assertRollup(btcHours.get(1), hour.plus(1, ChronoUnit.HOURS), "130.00", "130.00", "130.00", "130.00", 1);
+    }
+
+    @Test
+    void testRollUpDaysFromHours() {
+        Instant day = Instant.parse("2018-04-01T00:00:00Z");
+        priceHistoryRepository.insertAll(List.of(
+                createPriceHistory("DAYBTC", "50.00", day.plus(1, ChronoUnit.HOURS)),
+                createPriceHistory("DAYBTC", "70.00", day.plus(2, ChronoUnit.HOURS)),
+                createPriceHistory("DAYBTC", "40.00", day.plus(13, ChronoUnit.HOURS)),
+                createPriceHistory("DAYBTC", "60.00", day.plus(23, ChronoUnit.HOURS)),
+                createPriceHistory("DAYBTC", "80.00", day.plus(25, ChronoUnit.HOURS))));
+        priceRollupRepository.rollUp(PriceRollup.Resolution.HOUR, day, day.plus(2, ChronoUnit.DAYS));
+
+        priceRollupRepository.rollUp(PriceRollup.Resolution.DAY, day, day.plus(2, ChronoUnit.DAYS));
+
+        List<PriceRollup> days = priceRollupRepository.findBySymbolInRange("daybtc", PriceRollup.Resolution.DAY,
+                day, day.plus(2, ChronoUnit.DAYS));
+        assertEquals(2, days.size());
+        assertRollup(days.get(0), day, "50.00", "70.00", "40.00", "60.00", 4);
+        assertRollup(days.get(1), day.plus(1, ChronoUnit.DAYS), "80.00", "80.00", "80.00", "80.00", 1);
+        assertEquals(day.plus(23, ChronoUnit.HOURS), days.get(0).getCloseTime());
+        assertEquals(day.plus(1, ChronoUnit.HOURS), days.get(0).getOpenTime());
+        assertEquals(0, new BigDecimal("220.00").compareTo(days.get(0).getPriceSum()));
+    }
+
+    @Test
+    void testFindSummary() {
+        Instant day = Instant.parse("2018-06-01T00:00:00Z");
+        priceHistoryRepository.insertAll(List.of(
+                createPriceHistory("CLOSEBTC", "5.00", day.plus(3, ChronoUnit.HOURS)),
+                createPriceHistory("CLOSEBTC", "6.00", day.plus(20, ChronoUnit.HOURS)),
+                createPriceHistory("CLOSEBTC", "7.00", day.plus(20, ChronoUnit.HOURS).plusSeconds(60))));
+        priceRollupRepository.rollUp(PriceRollup.Resolution.HOUR, day, day.plus(1, ChronoUnit.DAYS));
+        priceRollupRepository.rollUp(PriceRollup.Resolution.DAY, day, day.plus(1, ChronoUnit.DAYS));
+
+        PriceSummary summary = priceRollupRepository.findSummary("closebtc", PriceRollup.Resolution.DAY, day).orElseThrow();
+        assertEquals(0, new BigDecimal("18.00").compareTo(summary.sum()));
+        assertEquals(3L, summary.count());
+        assertEquals(day.plus(3, ChronoUnit.HOURS), summary.first());
+        assertEquals(day.plus(20, ChronoUnit.HOURS).plusSeconds(60), summary.last());
+        assertTrue(priceRollupRepository.findSummary(
+                "closebtc", PriceRollup.Resolution.DAY, day.plus(1, ChronoUnit.DAYS)).isEmpty());
+
+        // Rolled up before the sum was recorded
+        jdbcTemplate.update("UPDATE price_rollup SET price_sum = NULL WHERE symbol = 'closebtc'");
+        assertTrue(priceRollupRepository.findSummary("closebtc", PriceRollup.Resolution.DAY, day).isEmpty());
+    }
+
+    @Test
+    void testLowerCaseSymbols() {
+        Instant hour = Instant.parse("2018-07-01T10:00:00Z");
+        priceHistoryRepository.insertAll(List.of(
+                createPriceHistory("casebtc", "1.00", hour),
+                createPriceHistory("casebtc", "2.00", hour.plus(1, ChronoUnit.HOURS))));
+        priceRollupRepository.rollUp(PriceRollup.Resolution.HOUR, hour, hour.plus(2, ChronoUnit.HOURS));
+        // Written before symbols were normalized, the first hour under both spellings
+        jdbcTemplate.update("""
+                INSERT INTO price_rollup (symbol, resolution, bucket_start, open_price, high_price, low_price, close_price, tick_count)
+                SELECT 'CaseBTC', resolution, bucket_start, open_price, high_price, low_price, close_price, tick_count
+                FROM price_rollup WHERE symbol = 'casebtc'
+                """);
+        jdbcTemplate.update("DELETE FROM price_rollup WHERE symbol = 'casebtc' AND bucket_start > ?",
+                hour.atOffset(ZoneOffset.UTC));
+
+        assertTrue(priceRollupRepository.lowerCaseSymbols() >= 1);
+
+        List<PriceRollup> hours = priceRollupRepository.findBySymbolInRange("casebtc", PriceRollup.Resolution.HOUR,
+                hour, hour.plus(2, ChronoUnit.HOURS));
+        assertEquals(List.of(hour, hour.plus(1, ChronoUnit.HOURS)), hours.stream().map(PriceRollup::getBucketStart).toList());
+        assertEquals(0, priceRollupRepository.lowerCaseSymbols());
+    }
+
+    @Test
+    void testRollUpAgainReplacesTheRange() {
+        Instant hour = Instant.parse("2018-05-01T08:00:00Z");
+        priceHistoryRepository.insertAll(List.of(createPriceHistory("REROLLBTC", "10.00", hour.plusSeconds(60))));
+        priceRollupRepository.rollUp(PriceRollup.Resolution.HOUR, hour, hour.plus(1, ChronoUnit.HOURS));
+
+        // A late tick is picked up by the rerun without duplicating the rollup
+        priceHistoryRepository.insertAll(List.of(createPriceHistory("REROLLBTC", "12.00", hour.plusSeconds(120))));
+        priceRollupRepository.rollUp(PriceRollup.Resolution.HOUR, hour, hour.plus(1, ChronoUnit.HOURS));
+
+        List<PriceRollup> hours = priceRollupRepository.findBySymbolInRange("rerollbtc", PriceRollup.Resolution.HOUR,
+                hour, hour.plus(1, ChronoUnit.HOURS));
+        assertEquals(1, hours.size());
+        assertRollup(hours.getFirst(), hour, "10.00", "12.00", "10.00", "12.00", 2);
+    }
+
+    @Test
+    void testDeleteOlderThanKeepsOtherResolutions() {
+        Instant hour = Instant.parse("2000-01-01T00:00:00Z");
+        priceHistoryRepository.insertAll(List.of(
+                createPriceHistory("EXPBTC", "1.00", hour),
+                createPriceHistory("EXPBTC", "2.00", hour.plus(1, ChronoUnit.HOURS)),
+                createPriceHistory("EXPBTC", "3.00", hour.plus(2, ChronoUnit.HOURS))));
+        priceRollupRepository.rollUp(PriceRollup.Resolution.HOUR, hour, hour.plus(1, ChronoUnit.DAYS));
+        priceRollupRepository.rollUp(PriceRollup.Resolution.DAY, hour, hour.plus(1, ChronoUnit.DAYS));
+
+        Instant cutoff = hour.plus(2, ChronoUnit.HOURS);
+        assertEquals(1, priceRollupRepository.deleteOlderThan(PriceRollup.Resolution.HOUR, cutoff, 1));
+        assertEquals(1, priceRollupRepository.deleteOlderThan(PriceRollup.Resolution.HOUR, cutoff, 1));
+        assertEquals(0, priceRollupRepository.deleteOlderThan(PriceRollup.Resolution.HOUR, cutoff, 1));
+
+        assertEquals(List.of(cutoff), priceRollupRepository.findBySymbolInRange("expbtc", PriceRollup.Resolution.HOUR,
+                hour, hour.plus(1, ChronoUnit.DAYS)).stream().map(PriceRollup::getBucketStart).toList());
+        assertEquals(1, priceRollupRepository.findBySymbolInRange("expbtc", PriceRollup.Resolution.DAY,
+                hour, hour.plus(1, ChronoUnit.DAYS)).size());
+    }
+
+    private void assertRollup(PriceRollup rollup, Instant bucketStart, String open, String high, String low, String close,
+                              int tickCount) {
+        assertEquals(bucketStart, rollup.getBucketStart());
+        assertEquals(0, new BigDecimal(open).compareTo(rollup.getOpen()));
+        assertEquals(0, new BigDecimal(high).compareTo(rollup.getHigh()));
+        assertEquals(0, new BigDecimal(low).compareTo(rollup.getLow()));
+        assertEquals(0, new BigDecimal(close).compareTo(rollup.getClose()));
+        assertEquals(tickCount, rollup.getTickCount());
+    }
+
+    private PriceHistory createPriceHistory(String symbol, String price, Instant timestamp) {
+        PriceHistory priceHistory = new PriceHistory();
+        priceHistory.setSymbol(symbol);
+        priceHistory.setPrice(new BigDecimal(price));
+        priceHistory.setTimestamp(timestamp);
+        return priceHistory;
+    }
+}
@@ -1,15 +1,30 @@
 package com.spicep.cryptowallet.repository;
 
+import com.spicep.cryptowallet.dto.projection.ImportedWallets;
+import com.spicep.cryptowallet.dto.projection.WalletHolding;
+import com.spicep.cryptowallet.entity.Asset;
 import com.spicep.cryptowallet.entity.User;
 import com.spicep.cryptowallet.entity.Wallet;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
 
 @SpringBootTest
 class WalletRepositoryTest extends RepositoryTestBase {
@@ -20,6 +35,15 @@ class WalletRepositoryTest extends RepositoryTestBase {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AssetRepository assetRepository;
+
+    @Autowired
+    private CurrentQuoteRepository currentQuoteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     void testCreateAndFindWallet() {
         User user = createTestUser();
@@ -37,4 +61,142 @@ class WalletRepositoryTest extends RepositoryTestBase {
         assertEquals(user.getId(), foundWallet.get().getUser().getId());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testApplyPricesUpdatesValuesAndTotals() {
+        String symbol = "APPLY-" + UUID.randomUUID();
+        Wallet firstWallet = createWallet();
+        Wallet secondWallet = createWallet();
+        saveAsset(firstWallet, symbol, "0.5", "100.00");
+        saveAsset(firstWallet, "OTHER-" + UUID.randomUUID(), "1", "10.00");
+        saveAsset(secondWallet, symbol, "0.333", "100.00");
+
+        int revalued = walletRepository.applyPrices(Map.of(symbol, new BigDecimal("120.005")));
+
+        assertEquals(2, revalued);
+        // 0.5 * 120.01 = 60.005 and 0.33 * 120.01 = 39.6033, rounded per asset
+        assertEquals(new BigDecimal("70.01"), totalValue(firstWallet));
+        assertEquals(new BigDecimal("39.60"), totalValue(secondWallet));
+        assertEquals(new BigDecimal("120.01"), assetRepository.findByWalletIdAndSymbol(firstWallet.getId(), symbol).orElseThrow().getPrice());
+    }
+
+    @Test
+    void testApplyPricesSkipsUnchangedPrices() {
+        String symbol = "UNCHANGED-" + UUID.randomUUID();
+        Wallet wallet = createWallet();
+        saveAsset(wallet, symbol, "2", "100.00");
+
+        assertEquals(0, walletRepository.applyPrices(Map.of(symbol, new BigDecimal("100.00"))));
+        assertEquals(0, walletRepository.applyPrices(Map.of("UNHELD-" + UUID.randomUUID(), BigDecimal.ONE)));
+        assertEquals(new BigDecimal("200.00"), totalValue(wallet));
+    }
+
+    @Test
+    void testBackfillValuesOfStoredAssets() {
+        String quotedSymbol = "QUOTED-" + UUID.randomUUID();
+        Wallet wallet = createWallet();
+        Asset quoted = saveAsset(wallet, quotedSymbol, "2", "10.00");
+        Asset unquoted = saveAsset(wallet, "UNQUOTED-" + UUID.randomUUID(), "3", "10.00");
+        currentQuoteRepository.upsertAll(Map.of(quotedSymbol, new BigDecimal("15.00")), Instant.now());
+
+        // Data stored before the values were materialized
+        jdbcTemplate.update("UPDATE asset SET market_value = NULL WHERE id IN (?, ?)", quoted.getId(), unquoted.getId());
+        jdbcTemplate.update("UPDATE wallets SET total_value = NULL WHERE id = ?", wallet.getId());
+
+        assertTrue(walletRepository.backfillValues() >= 2);
+        assertEquals(new BigDecimal("30.00"), assetRepository.findById(quoted.getId()).orElseThrow().getValue());
+        assertEquals(new BigDecimal("30.00"), assetRepository.findById(unquoted.getId()).orElseThrow().getValue());
+        assertEquals(new BigDecimal("60.00"), totalValue(wallet));
+        assertEquals(0, walletRepository.backfillValues());
+    }
+
+    @Test
+    void testFindOrCreateWalletsCreatesMissingUsersAndWallets() {
+        Wallet existing = createWallet();
+        String existingEmail = existing.getUser().getEmail();
+        String newEmail = "import-" + UUID.randomUUID() + "@spicep.com";
+
+        ImportedWallets wallets = walletRepository.findOrCreateWallets(List.of(existingEmail, newEmail));
+
+        assertEquals(1, wallets.created());
+        assertEquals(existing.getId(), wallets.walletIds().get(existingEmail));
+        Wallet created = walletRepository.findById(wallets.walletIds().get(newEmail)).orElseThrow();
+        assertEquals(newEmail, created.getUser().getEmail());
+        assertEquals(0, BigDecimal.ZERO.compareTo(created.getTotalValue()));
+        assertEquals(new ImportedWallets(wallets.walletIds(), 0),
+                walletRepository.findOrCreateWallets(List.of(existingEmail, newEmail)));
+    }
+
+    @Test
+    void testAddHoldingsAddsQuantitiesAndRecomputesTotals() {
+        String heldSymbol = "HELD-" + UUID.randomUUID();
+        String newSymbol = "NEW-" + UUID.randomUUID();
+        Wallet wallet = createWallet();
+        saveAsset(wallet, heldSymbol, "1", "10.00");
+
+        int created = walletRepository.addHoldings(List.of(
+                        new WalletHolding(wallet.getId(), heldSymbol, new BigDecimal("0.5")),
+                        new WalletHolding(wallet.getId(), newSymbol, new BigDecimal("0.333"))),
+                Map.of(heldSymbol, new BigDecimal("20.00"), newSymbol, new BigDecimal("100.005")));
+
+        assertEquals(1, created);
+        Asset held = assetRepository.findByWalletIdAndSymbol(wallet.getId(), heldSymbol).orElseThrow();
+        assertEquals(0, new BigDecimal("1.5").compareTo(held.getQuantity()));
+        assertEquals(new BigDecimal("30.00"), held.getValue());
+        // 0.33 * 100.01 = 33.0033, rounded as when adding an asset
+        Asset added = assetRepository.findByWalletIdAndSymbol(wallet.getId(), newSymbol).orElseThrow();
+        assertEquals(new BigDecimal("33.00"), added.getValue());
+        assertEquals(new BigDecimal("63.00"), totalValue(wallet));
+    }
+
+    @Test
+    void testAddHoldingsWithoutBatchCounts() {
+        String heldSymbol = "HELD-" + UUID.randomUUID();
+        String newSymbol = "NEW-" + UUID.randomUUID();
+        Wallet wallet = createWallet();
+        saveAsset(wallet, heldSymbol, "1", "10.00");
+        // Some drivers do not report the count of each statement of a batch
+        JdbcTemplate noCountJdbcTemplate = spy(jdbcTemplate);
+        doAnswer(invocation -> {
+            int[] counts = (int[]) invocation.callRealMethod();
+            Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+            return counts;
+        }).when(noCountJdbcTemplate).batchUpdate(startsWith("UPDATE asset SET quantity"), anyList());
+
+        int created = new WalletRepositoryCustomImpl(noCountJdbcTemplate).addHoldings(List.of(
+                        new WalletHolding(wallet.getId(), heldSymbol, new BigDecimal("0.5")),
+                        new WalletHolding(wallet.getId(), newSymbol, new BigDecimal("2"))),
+                Map.of(heldSymbol, new BigDecimal("20.00"), newSymbol, new BigDecimal("10.00")));
+
+        assertEquals(1, created);
+        assertEquals(0, new BigDecimal("1.5").compareTo(
+                assetRepository.findByWalletIdAndSymbol(wallet.getId(), heldSymbol).orElseThrow().getQuantity()));
+        assertTrue(assetRepository.findByWalletIdAndSymbol(wallet.getId(), newSymbol).isPresent());
+        assertEquals(new BigDecimal("50.00"), totalValue(wallet));
+    }
+
+    private Wallet createWallet() {
+        User user = new User();
+        user.setEmail("wallet-" + UUID.randomUUID() + "@spicep.com");
+        userRepository.save(user);
+
+        Wallet wallet = new Wallet();
+        wallet.setUser(user);
+        user.setWallet(wallet);
+        return walletRepository.save(wallet);
+    }
+
+    private Asset saveAsset(Wallet wallet, String symbol, String quantity, String price) {
+        Asset asset = new Asset();
+        asset.setSymbol(symbol);
+        asset.setQuantity(new BigDecimal(quantity));
+        asset.setWallet(wallet);
+        BigDecimal delta = asset.reprice(new BigDecimal(price));
+        Asset savedAsset = assetRepository.save(asset);
+        jdbcTemplate.update("UPDATE wallets SET total_value = total_value + ? WHERE id = ?", delta, wallet.getId());
+        return savedAsset;
+    }
+
+    private BigDecimal totalValue(Wallet wallet) {
+        return walletRepository.findById(wallet.getId()).orElseThrow().getTotalValue();
+    }
+}
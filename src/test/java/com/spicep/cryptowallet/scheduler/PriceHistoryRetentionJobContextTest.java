@@ -0,0 +1,68 @@
+package com.spicep.cryptowallet.scheduler;
+
+import com.spicep.cryptowallet.entity.PriceHistory;
+import com.spicep.cryptowallet.entity.PriceRollup;
+import com.spicep.cryptowallet.repository.PriceHistoryRepository;
+import com.spicep.cryptowallet.repository.PriceRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class that tests the retention job in an application started with it enabled
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = "crypto.history.retention.enabled=true")
+class PriceHistoryRetentionJobContextTest {
+
+    @Autowired
+    private PriceHistoryRetentionJob job;
+
+    @Autowired
+    private PriceHistoryRepository priceHistoryRepository;
+
+    @Autowired
+    private PriceRollupRepository priceRollupRepository;
+
+    private final String symbol = "retain" + UUID.randomUUID().toString().substring(0, 8);
+
+    @Test
+    void shouldRollUpAndDeleteExpiredTicks() {
+        Instant currentHour = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        Instant expiredHour = currentHour.minus(Duration.ofDays(31));
+        Instant recentHour = currentHour.minus(2, ChronoUnit.HOURS);
+        priceHistoryRepository.insertAll(List.of(
+                createPriceHistory("10.00", expiredHour.plus(10, ChronoUnit.MINUTES)),
+                createPriceHistory("20.00", recentHour.plus(10, ChronoUnit.MINUTES))));
+
+        job.run();
+        // Reruns find the periods already rolled up
+        job.run();
+
+        List<PriceRollup> hours = priceRollupRepository.findBySymbolInRange(symbol, PriceRollup.Resolution.HOUR,
+                expiredHour, currentHour);
+        assertEquals(List.of(expiredHour, recentHour), hours.stream().map(PriceRollup::getBucketStart).toList());
+        assertEquals(0, new BigDecimal("10.00").compareTo(hours.getFirst().getClose()));
+        // Only the recent tick is kept
+        assertEquals(List.of(recentHour.plus(10, ChronoUnit.MINUTES)), priceHistoryRepository
+                .findBySymbolInRange(symbol, expiredHour, currentHour).stream().map(PriceHistory::getTimestamp).toList());
+    }
+
+    private PriceHistory createPriceHistory(String price, Instant timestamp) {
+        PriceHistory priceHistory = new PriceHistory();
+        priceHistory.setSymbol(symbol);
+        priceHistory.setPrice(new BigDecimal(price));
+        priceHistory.setTimestamp(timestamp);
+        return priceHistory;
+    }
+}
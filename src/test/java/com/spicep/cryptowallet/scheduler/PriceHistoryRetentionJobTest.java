@@ -0,0 +1,166 @@
+package com.spicep.cryptowallet.scheduler;
+
+import com.spicep.cryptowallet.entity.PriceRollup;
+import com.spicep.cryptowallet.repository.PriceHistoryRepository;
+import com.spicep.cryptowallet.repository.PriceRollupRepository;
+import com.spicep.cryptowallet.service.InstanceShardCoordinator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class that tests which periods the retention job rolls up and which rows it deletes
+ */
+@ExtendWith(MockitoExtension.class)
+class PriceHistoryRetentionJobTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-10T12:30:00Z");
+
+    @Mock
+    private PriceHistoryRepository priceHistoryRepository;
+
+    @Mock
+    private PriceRollupRepository priceRollupRepository;
+
+    @Mock
+    private InstanceShardCoordinator instanceShardCoordinator;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PriceHistoryRetentionJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new PriceHistoryRetentionJob(priceHistoryRepository, priceRollupRepository, instanceShardCoordinator,
+                meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC));
+        lenient().when(instanceShardCoordinator.owns(PriceHistoryRetentionJob.JOB_KEY)).thenReturn(true);
+    }
+
+    @Test
+    void shouldLeaveTheJobToItsOwner() {
+        when(instanceShardCoordinator.owns(PriceHistoryRetentionJob.JOB_KEY)).thenReturn(false);
+
+        job.run();
+
+        verifyNoInteractions(priceHistoryRepository, priceRollupRepository);
+    }
+
+    @Test
+    void shouldStopAtTheRangeRolledUpByAnotherInstance() {
+        ReflectionTestUtils.setField(job, "rawRetention", Duration.ZERO);
+        when(priceRollupRepository.findLastBucketStart(PriceRollup.Resolution.HOUR))
+                .thenReturn(Optional.of(Instant.parse("2024-03-08T11:00:00Z")));
+        when(priceRollupRepository.findLastBucketStart(PriceRollup.Resolution.DAY))
+                .thenReturn(Optional.of(Instant.parse("2024-03-09T00:00:00Z")));
+        when(priceRollupRepository.rollUp(PriceRollup.Resolution.HOUR,
+                Instant.parse("2024-03-08T12:00:00Z"), Instant.parse("2024-03-09T12:00:00Z"))).thenReturn(24);
+        when(priceRollupRepository.rollUp(PriceRollup.Resolution.HOUR,
+                Instant.parse("2024-03-09T12:00:00Z"), Instant.parse("2024-03-10T12:00:00Z")))
+                .thenThrow(new DuplicateKeyException("price_rollup unique constraint"));
+
+        job.run();
+
+        // Only the ticks of the hours rolled up by this instance are deleted
+        verify(priceHistoryRepository).deleteOlderThan(Instant.parse("2024-03-09T12:00:00Z"), 10000);
+        assertEquals(24.0, meterRegistry.get("price.history.rollups").tag("resolution", "hour").counter().count());
+    }
+
+    @Test
+    void shouldDoNothingWithoutHistory() {
+        when(priceRollupRepository.findLastBucketStart(any())).thenReturn(Optional.empty());
+        when(priceRollupRepository.findFirstBucketStart(PriceRollup.Resolution.HOUR)).thenReturn(Optional.empty());
+        when(priceHistoryRepository.findFirstTimestamp()).thenReturn(Optional.empty());
+
+        job.run();
+
+        verify(priceRollupRepository, never()).rollUp(any(), any(), any());
+        verify(priceRollupRepository, never()).deleteOlderThan(any(), any(), anyInt());
+        verify(priceHistoryRepository, never()).deleteOlderThan(any(), anyInt());
+    }
+
+    @Test
+    void shouldRollUpClosedPeriodsFromTheFirstSource() {
+        when(priceRollupRepository.findLastBucketStart(any())).thenReturn(Optional.empty());
+        when(priceHistoryRepository.findFirstTimestamp()).thenReturn(Optional.of(Instant.parse("2024-03-09T20:10:00Z")));
+        when(priceRollupRepository.findFirstBucketStart(PriceRollup.Resolution.HOUR))
+                .thenReturn(Optional.of(Instant.parse("2024-03-09T20:00:00Z")));
+        when(priceRollupRepository.rollUp(eq(PriceRollup.Resolution.HOUR), any(), any())).thenReturn(17);
+        when(priceRollupRepository.rollUp(eq(PriceRollup.Resolution.DAY), any(), any())).thenReturn(1);
+
+        job.run();
+
+        // The current hour and day are still open
+        verify(priceRollupRepository).rollUp(PriceRollup.Resolution.HOUR,
+                Instant.parse("2024-03-09T20:00:00Z"), Instant.parse("2024-03-10T12:00:00Z"));
+        verify(priceRollupRepository).rollUp(PriceRollup.Resolution.DAY,
+                Instant.parse("2024-03-09T00:00:00Z"), Instant.parse("2024-03-10T00:00:00Z"));
+        assertEquals(17.0, meterRegistry.get("price.history.rollups").tag("resolution", "hour").counter().count());
+        assertEquals(1.0, meterRegistry.get("price.history.rollups").tag("resolution", "day").counter().count());
+    }
+
+    @Test
+    void shouldRollUpInBatchesFromTheLastRollup() {
+        when(priceRollupRepository.findLastBucketStart(PriceRollup.Resolution.HOUR))
+                .thenReturn(Optional.of(Instant.parse("2024-03-08T11:00:00Z")));
+        when(priceRollupRepository.findLastBucketStart(PriceRollup.Resolution.DAY))
+                .thenReturn(Optional.of(Instant.parse("2024-03-09T00:00:00Z")));
+
+        job.run();
+
+        verify(priceRollupRepository).rollUp(PriceRollup.Resolution.HOUR,
+                Instant.parse("2024-03-08T12:00:00Z"), Instant.parse("2024-03-09T12:00:00Z"));
+        verify(priceRollupRepository).rollUp(PriceRollup.Resolution.HOUR,
+                Instant.parse("2024-03-09T12:00:00Z"), Instant.parse("2024-03-10T12:00:00Z"));
+        // Days are up to date
+        verify(priceRollupRepository, never()).rollUp(eq(PriceRollup.Resolution.DAY), any(), any());
+        verify(priceHistoryRepository, never()).findFirstTimestamp();
+    }
+
+    @Test
+    void shouldDeleteExpiredRowsInBatches() {
+        ReflectionTestUtils.setField(job, "deleteBatchSize", 2);
+        when(priceRollupRepository.findLastBucketStart(PriceRollup.Resolution.HOUR))
+                .thenReturn(Optional.of(Instant.parse("2024-03-10T11:00:00Z")));
+        when(priceRollupRepository.findLastBucketStart(PriceRollup.Resolution.DAY))
+                .thenReturn(Optional.of(Instant.parse("2024-03-09T00:00:00Z")));
+        when(priceHistoryRepository.deleteOlderThan(any(), eq(2))).thenReturn(2, 2, 1);
+        when(priceRollupRepository.deleteOlderThan(eq(PriceRollup.Resolution.HOUR), any(), eq(2))).thenReturn(0);
+
+        job.run();
+
+        verify(priceHistoryRepository, times(3)).deleteOlderThan(Instant.parse("2024-02-09T12:30:00Z"), 2);
+        verify(priceRollupRepository).deleteOlderThan(PriceRollup.Resolution.HOUR, Instant.parse("2023-03-11T12:30:00Z"), 2);
+        verify(priceRollupRepository, never()).deleteOlderThan(eq(PriceRollup.Resolution.DAY), any(), anyInt());
+        assertEquals(5.0, meterRegistry.get("price.history.deleted").tag("table", "price_history").counter().count());
+    }
+
+    @Test
+    void shouldNotDeleteRowsThatAreNotRolledUp() {
+        ReflectionTestUtils.setField(job, "rawRetention", Duration.ZERO);
+        ReflectionTestUtils.setField(job, "hourlyRetention", Duration.ZERO);
+        when(priceRollupRepository.findLastBucketStart(PriceRollup.Resolution.HOUR))
+                .thenReturn(Optional.of(Instant.parse("2024-03-10T11:00:00Z")));
+        when(priceRollupRepository.findLastBucketStart(PriceRollup.Resolution.DAY))
+                .thenReturn(Optional.of(Instant.parse("2024-03-09T00:00:00Z")));
+
+        job.run();
+
+        // The open hour and day keep their source rows
+        verify(priceHistoryRepository).deleteOlderThan(Instant.parse("2024-03-10T12:00:00Z"), 10000);
+        verify(priceRollupRepository).deleteOlderThan(PriceRollup.Resolution.HOUR, Instant.parse("2024-03-10T00:00:00Z"), 10000);
+    }
+}
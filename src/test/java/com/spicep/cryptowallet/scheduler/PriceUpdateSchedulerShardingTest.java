@@ -0,0 +1,182 @@
+package com.spicep.cryptowallet.scheduler;
+
+import com.spicep.cryptowallet.dto.request.AssetInfoDto;
+import com.spicep.cryptowallet.dto.request.WalletInfoDto;
+import com.spicep.cryptowallet.repository.CurrentQuoteRepository;
+import com.spicep.cryptowallet.repository.InstanceHeartbeatRepository;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import com.spicep.cryptowallet.service.InstanceShardCoordinator;
+import com.spicep.cryptowallet.service.PriceCacheService;
+import com.spicep.cryptowallet.service.PriceHistoryWriter;
+import com.spicep.cryptowallet.service.PriceProvider;
+import com.spicep.cryptowallet.service.PriceTickHub;
+import com.spicep.cryptowallet.service.PriceTickStore;
+import com.spicep.cryptowallet.service.TrackedSymbolRegistry;
+import com.spicep.cryptowallet.service.WalletService;
+import com.spicep.cryptowallet.service.WalletStreamService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class that tests that the instances not fetching a symbol still get its price updates
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+class PriceUpdateSchedulerShardingTest {
+
+    private static final BigDecimal PRICE = new BigDecimal("123.45");
+
+    @Autowired
+    private InstanceHeartbeatRepository instanceHeartbeatRepository;
+
+    @Autowired
+    private CurrentQuoteRepository currentQuoteRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final String prefix = "follow-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+    private final List<InstanceShardCoordinator> coordinators = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        coordinators.forEach(InstanceShardCoordinator::leave);
+    }
+
+    @Test
+    void shouldStreamThePricesFetchedByAnotherInstance() {
+        InstanceShardCoordinator owner = coordinator("a");
+        InstanceShardCoordinator follower = coordinator("b");
+        coordinators.forEach(InstanceShardCoordinator::heartbeat);
+        coordinators.forEach(InstanceShardCoordinator::heartbeat);
+        assertEquals(2, follower.getInstanceCount());
+
+        String symbol = IntStream.range(0, 100)
+                .mapToObj(i -> prefix + "coin-" + i)
+                .filter(candidate -> owner.owns(candidate) && !follower.owns(candidate))
+                .findFirst().orElseThrow();
+        TrackedSymbolRegistry trackedSymbolRegistry = mock(TrackedSymbolRegistry.class);
+        when(trackedSymbolRegistry.getHolderCounts()).thenReturn(Map.of(symbol, 1L));
+
+        PriceProvider ownerProvider = mock(PriceProvider.class);
+        when(ownerProvider.getBulkChunkSize()).thenReturn(10);
+        when(ownerProvider.getCurrentPrices(anyCollection())).thenReturn(Map.of(symbol, PRICE));
+        PriceProvider followerProvider = mock(PriceProvider.class);
+        PriceCacheService followerCache = mock(PriceCacheService.class);
+        PriceTickStore followerTickStore = new PriceTickStore(10, new SimpleMeterRegistry());
+        PriceTickHub followerHub = new PriceTickHub();
+
+        PriceUpdateScheduler ownerScheduler = scheduler(owner, ownerProvider, trackedSymbolRegistry,
+                mock(PriceCacheService.class), new PriceTickStore(10, new SimpleMeterRegistry()), new PriceTickHub());
+        PriceUpdateScheduler followerScheduler = scheduler(follower, followerProvider, trackedSymbolRegistry,
+                followerCache, followerTickStore, followerHub);
+
+        WalletStreamService followerStreams = new WalletStreamService(mock(WalletService.class), followerHub);
+        StepVerifier.create(followerStreams.streamWallet(walletInfo(symbol)))
+                .assertNext(valuation -> assertEquals(new BigDecimal("200.00"), valuation.getTotal()))
+                .then(ownerScheduler::updatePrices)
+                .then(followerScheduler::updatePrices)
+                .assertNext(valuation -> assertEquals(new BigDecimal("246.90"), valuation.getTotal()))
+                // Already followed, not streamed again
+                .then(followerScheduler::updatePrices)
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        verify(followerProvider, never()).getCurrentPrices(anyCollection());
+        verify(followerCache).putAll(Map.of(symbol, PRICE));
+        assertEquals(PriceTickStore.toFixedPoint(PRICE), followerTickStore.latestPrice(symbol));
+    }
+
+    @Test
+    void shouldFetchASymbolUnknownToItsOwnerUntilTheOwnerTracksIt() {
+        InstanceShardCoordinator owner = coordinator("a");
+        InstanceShardCoordinator follower = coordinator("b");
+        coordinators.forEach(InstanceShardCoordinator::heartbeat);
+        coordinators.forEach(InstanceShardCoordinator::heartbeat);
+
+        String symbol = IntStream.range(0, 100)
+                .mapToObj(i -> prefix + "new-coin-" + i)
+                .filter(candidate -> owner.owns(candidate) && !follower.owns(candidate))
+                .findFirst().orElseThrow();
+        // Added through the follower, the owner has not rebuilt its registry yet
+        TrackedSymbolRegistry ownerRegistry = mock(TrackedSymbolRegistry.class);
+        when(ownerRegistry.getHolderCounts()).thenReturn(Map.of());
+        TrackedSymbolRegistry followerRegistry = mock(TrackedSymbolRegistry.class);
+        when(followerRegistry.getHolderCounts()).thenReturn(Map.of(symbol, 1L));
+
+        PriceProvider followerProvider = mock(PriceProvider.class);
+        when(followerProvider.getBulkChunkSize()).thenReturn(10);
+        when(followerProvider.getCurrentPrices(anyCollection())).thenReturn(Map.of(symbol, PRICE));
+
+        PriceUpdateScheduler ownerScheduler = scheduler(owner, mock(PriceProvider.class), ownerRegistry,
+                mock(PriceCacheService.class), new PriceTickStore(10, new SimpleMeterRegistry()), new PriceTickHub());
+        PriceUpdateScheduler followerScheduler = scheduler(follower, followerProvider, followerRegistry,
+                mock(PriceCacheService.class), new PriceTickStore(10, new SimpleMeterRegistry()), new PriceTickHub());
+
+        ownerScheduler.updatePrices();
+        followerScheduler.updatePrices();
+        ownerScheduler.updatePrices();
+        followerScheduler.updatePrices();
+
+        verify(followerProvider, times(1)).getCurrentPrices(List.of(symbol));
+        assertEquals(0, PRICE.compareTo(currentQuoteRepository.findById(symbol).orElseThrow().getPrice()));
+        verify(ownerRegistry).track(symbol);
+    }
+
+    private InstanceShardCoordinator coordinator(String name) {
+        InstanceShardCoordinator coordinator = new InstanceShardCoordinator(instanceHeartbeatRepository,
+                new SimpleMeterRegistry(), prefix + name);
+        coordinators.add(coordinator);
+        return coordinator;
+    }
+
+    private PriceUpdateScheduler scheduler(InstanceShardCoordinator coordinator, PriceProvider priceProvider,
+                                           TrackedSymbolRegistry trackedSymbolRegistry,
+                                           PriceCacheService priceCacheService, PriceTickStore priceTickStore,
+                                           PriceTickHub priceTickHub) {
+        PriceUpdateScheduler scheduler = new PriceUpdateScheduler(priceProvider, trackedSymbolRegistry, coordinator,
+                mock(PriceHistoryWriter.class), currentQuoteRepository, walletRepository, priceCacheService,
+                priceTickHub, priceTickStore, transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "maxThreads", 1);
+        ReflectionTestUtils.setField(scheduler, "maxConcurrentRequests", 1);
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    private static WalletInfoDto walletInfo(String symbol) {
+        AssetInfoDto asset = new AssetInfoDto();
+        asset.setSymbol(symbol);
+        asset.setQuantity(new BigDecimal("2"));
+        asset.setPrice(new BigDecimal("100.00"));
+        asset.setValue(new BigDecimal("200.00"));
+
+        WalletInfoDto walletInfo = new WalletInfoDto();
+        walletInfo.setId("1");
+        walletInfo.setAssets(List.of(asset));
+        walletInfo.setTotal(asset.getValue());
+        return walletInfo;
+    }
+}
@@ -0,0 +1,300 @@
+package com.spicep.cryptowallet.scheduler;
+
+import com.spicep.cryptowallet.entity.CurrentQuote;
+import com.spicep.cryptowallet.entity.PriceHistory;
+import com.spicep.cryptowallet.repository.CurrentQuoteRepository;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import com.spicep.cryptowallet.service.ApiClientService;
+import com.spicep.cryptowallet.service.InstanceShardCoordinator;
+import com.spicep.cryptowallet.service.PriceCacheService;
+import com.spicep.cryptowallet.service.PriceHistoryWriter;
+import com.spicep.cryptowallet.service.PriceTickHub;
+import com.spicep.cryptowallet.service.PriceTickStore;
+import com.spicep.cryptowallet.service.TrackedSymbolRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class that tests how the scheduler runs price update tasks
+ */
+@ExtendWith(MockitoExtension.class)
+class PriceUpdateSchedulerTest {
+
+    private static final int TOKENS = 12;
+    private static final int MAX_CONCURRENT_REQUESTS = 2;
+
+    @Mock
+    private ApiClientService apiClientService;
+
+    @Mock
+    private TrackedSymbolRegistry trackedSymbolRegistry;
+
+    @Mock
+    private InstanceShardCoordinator instanceShardCoordinator;
+
+    @Mock
+    private PriceHistoryWriter priceHistoryWriter;
+
+    @Mock
+    private CurrentQuoteRepository currentQuoteRepository;
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private PriceCacheService priceCacheService;
+
+    @Mock
+    private PriceTickHub priceTickHub;
+
+    @Mock
+    private PriceTickStore priceTickStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PriceUpdateScheduler scheduler;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final Set<Boolean> virtualCallers = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new PriceUpdateScheduler(apiClientService, trackedSymbolRegistry, instanceShardCoordinator, priceHistoryWriter,
+                currentQuoteRepository, walletRepository, priceCacheService, priceTickHub, priceTickStore, transactionManager,
+                meterRegistry);
+        ReflectionTestUtils.setField(scheduler, "maxThreads", MAX_CONCURRENT_REQUESTS);
+        ReflectionTestUtils.setField(scheduler, "maxConcurrentRequests", MAX_CONCURRENT_REQUESTS);
+
+        Map<String, Long> holdersBySymbol = new HashMap<>();
+        IntStream.range(0, TOKENS).forEach(i -> holdersBySymbol.put("coin-" + i, 1L));
+        when(trackedSymbolRegistry.getHolderCounts()).thenReturn(holdersBySymbol);
+        // A single instance owning every symbol, unless a test shares them
+        lenient().when(instanceShardCoordinator.ownedSymbols(holdersBySymbol)).thenReturn(holdersBySymbol);
+        lenient().when(instanceShardCoordinator.getInstanceCount()).thenReturn(1);
+
+        // Each request holds its permit for a while
+        when(apiClientService.getCurrentPrices(anyCollection())).thenAnswer(invocation -> {
+            virtualCallers.add(Thread.currentThread().isVirtual());
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            Thread.sleep(30);
+            inFlight.decrementAndGet();
+
+            Collection<String> symbols = invocation.getArgument(0);
+            Map<String, BigDecimal> prices = new HashMap<>();
+            symbols.forEach(symbol -> prices.put(symbol, BigDecimal.ONE));
+            return prices;
+        });
+    }
+
+    @Test
+    void shouldCapConcurrentRequestsOnVirtualThreads() {
+        when(apiClientService.getBulkChunkSize()).thenReturn(1);
+        ReflectionTestUtils.setField(scheduler, "virtualThreads", true);
+        scheduler.initialize();
+
+        scheduler.updatePrices();
+
+        verify(apiClientService, times(TOKENS)).getCurrentPrices(anyCollection());
+        verify(priceHistoryWriter, times(TOKENS)).enqueue(anyList());
+        verify(currentQuoteRepository, times(TOKENS)).upsertAll(anyMap(), any());
+        assertEquals(Set.of(true), virtualCallers);
+        assertTrue(maxInFlight.get() <= MAX_CONCURRENT_REQUESTS,
+                "Expected at most " + MAX_CONCURRENT_REQUESTS + " concurrent requests but got " + maxInFlight.get());
+    }
+
+    @Test
+    void shouldCapConcurrentRequestsOnPlatformThreads() {
+        when(apiClientService.getBulkChunkSize()).thenReturn(1);
+        ReflectionTestUtils.setField(scheduler, "virtualThreads", false);
+        scheduler.initialize();
+
+        scheduler.updatePrices();
+
+        verify(apiClientService, times(TOKENS)).getCurrentPrices(anyCollection());
+        assertEquals(Set.of(false), virtualCallers);
+        assertTrue(maxInFlight.get() <= MAX_CONCURRENT_REQUESTS);
+    }
+
+    @Test
+    void shouldStoreEachChunkWithSetBasedWrites() {
+        when(apiClientService.getBulkChunkSize()).thenReturn(TOKENS);
+        ReflectionTestUtils.setField(scheduler, "virtualThreads", false);
+        scheduler.initialize();
+
+        scheduler.updatePrices();
+
+        ArgumentCaptor<List<PriceHistory>> histories = ArgumentCaptor.captor();
+        verify(priceHistoryWriter).enqueue(histories.capture());
+        assertEquals(TOKENS, histories.getValue().size());
+        assertEquals(1, histories.getValue().stream().map(PriceHistory::getTimestamp).distinct().count());
+
+        ArgumentCaptor<Map<String, BigDecimal>> prices = ArgumentCaptor.captor();
+        verify(currentQuoteRepository).upsertAll(prices.capture(), eq(histories.getValue().getFirst().getTimestamp()));
+        assertEquals(TOKENS, prices.getValue().size());
+        verify(walletRepository).applyPrices(prices.getValue());
+        verify(priceTickStore).record(prices.getValue(), histories.getValue().getFirst().getTimestamp());
+        verify(priceTickHub).publish(prices.getValue(), histories.getValue().getFirst().getTimestamp());
+
+        verify(trackedSymbolRegistry).getHolderCounts();
+        verifyNoMoreInteractions(trackedSymbolRegistry);
+    }
+
+    @Test
+    void shouldPublishTickMetrics() {
+        when(apiClientService.getBulkChunkSize()).thenReturn(TOKENS);
+        when(walletRepository.applyPrices(anyMap())).thenReturn(3);
+        // Every symbol is due again at the second update
+        ReflectionTestUtils.setField(scheduler, "hotRate", 0L);
+        ReflectionTestUtils.setField(scheduler, "coldRate", 0L);
+        ReflectionTestUtils.setField(scheduler, "virtualThreads", false);
+        scheduler.initialize();
+
+        scheduler.updatePrices();
+        scheduler.updatePrices();
+
+        assertEquals(2, meterRegistry.get("price.update.tick").timer().count());
+        assertEquals(1, meterRegistry.get("price.update.lag").timer().count());
+        assertEquals(2.0 * TOKENS, meterRegistry.get("price.update.symbols").tag("outcome", "priced").counter().count());
+        assertEquals(0.0, meterRegistry.get("price.update.symbols").tag("outcome", "missing").counter().count());
+        verify(priceHistoryWriter, times(2)).enqueue(anyList());
+        assertEquals(2.0 * TOKENS, meterRegistry.get("price.update.rows").tag("table", "current_quote").counter().count());
+        assertEquals(6.0, meterRegistry.get("price.update.rows").tag("table", "asset").counter().count());
+    }
+
+    @Test
+    void shouldRetryTheValuesUpdateAfterADeadlock() {
+        when(apiClientService.getBulkChunkSize()).thenReturn(TOKENS);
+        when(walletRepository.applyPrices(anyMap()))
+                .thenThrow(new CannotAcquireLockException("Deadlock detected"))
+                .thenReturn(TOKENS);
+        ReflectionTestUtils.setField(scheduler, "virtualThreads", false);
+        scheduler.initialize();
+
+        scheduler.updatePrices();
+
+        verify(walletRepository, times(2)).applyPrices(anyMap());
+        verify(currentQuoteRepository, times(2)).upsertAll(anyMap(), any());
+        verify(transactionManager).rollback(any());
+        assertEquals(TOKENS, meterRegistry.get("price.update.rows").tag("table", "asset").counter().count());
+        verify(priceTickHub).publish(anyMap(), any());
+    }
+
+    @Test
+    void shouldRollBackAndCountATickGivenUp() {
+        when(apiClientService.getBulkChunkSize()).thenReturn(TOKENS);
+        doThrow(new DuplicateKeyException("Quote inserted by another instance"))
+                .when(currentQuoteRepository).upsertAll(anyMap(), any());
+        ReflectionTestUtils.setField(scheduler, "virtualThreads", false);
+        scheduler.initialize();
+
+        scheduler.updatePrices();
+
+        verify(currentQuoteRepository, times(3)).upsertAll(anyMap(), any());
+        verify(transactionManager, times(3)).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(priceTickHub, never()).publish(anyMap(), any());
+        assertEquals(TOKENS, meterRegistry.get("price.update.symbols").tag("outcome", "failed").counter().count());
+        assertEquals(0.0, meterRegistry.get("price.update.symbols").tag("outcome", "priced").counter().count());
+        assertEquals(0.0, meterRegistry.get("price.update.rows").tag("table", "current_quote").counter().count());
+    }
+
+    @Test
+    void shouldOnlyRefreshDueSymbols() {
+        when(apiClientService.getBulkChunkSize()).thenReturn(TOKENS);
+        ReflectionTestUtils.setField(scheduler, "virtualThreads", false);
+        scheduler.initialize();
+
+        scheduler.updatePrices();
+        scheduler.updatePrices();
+
+        verify(apiClientService, times(1)).getCurrentPrices(anyCollection());
+        assertEquals(0, meterRegistry.get("price.update.lag").timer().count());
+    }
+
+    @Test
+    void shouldDeferDueSymbolsPastTheRequestBudget() {
+        when(apiClientService.getBulkChunkSize()).thenReturn(1);
+        ReflectionTestUtils.setField(scheduler, "requestsPerMinute", 5);
+        ReflectionTestUtils.setField(scheduler, "virtualThreads", false);
+        scheduler.initialize();
+
+        scheduler.updatePrices();
+        scheduler.updatePrices();
+
+        verify(apiClientService, times(5)).getCurrentPrices(anyCollection());
+        // Seven deferred by each update, the second one has no budget left
+        assertEquals(14.0, meterRegistry.get("price.update.deferred").counter().count());
+    }
+
+    @Test
+    void shouldOnlyRefreshOwnedSymbolsWithinTheBudgetShare() {
+        when(apiClientService.getBulkChunkSize()).thenReturn(1);
+        when(instanceShardCoordinator.ownedSymbols(anyMap())).thenReturn(Map.of("coin-0", 1L, "coin-1", 1L, "coin-2", 1L));
+        when(instanceShardCoordinator.getInstanceCount()).thenReturn(3);
+        // The other symbols are quoted by the other instances
+        when(currentQuoteRepository.findUpdatedSince(any())).thenReturn(IntStream.range(3, TOKENS)
+                .mapToObj(i -> quote("coin-" + i))
+                .toList());
+        ReflectionTestUtils.setField(scheduler, "requestsPerMinute", 6);
+        ReflectionTestUtils.setField(scheduler, "virtualThreads", false);
+        scheduler.initialize();
+
+        scheduler.updatePrices();
+
+        ArgumentCaptor<Collection<String>> requested = ArgumentCaptor.captor();
+        verify(apiClientService, times(2)).getCurrentPrices(requested.capture());
+        assertTrue(Set.of("coin-0", "coin-1", "coin-2").containsAll(
+                requested.getAllValues().stream().flatMap(Collection::stream).toList()));
+        assertEquals(1.0, meterRegistry.get("price.update.deferred").counter().count());
+    }
+
+    @Test
+    void shouldSkipOverlappingUpdates() {
+        when(apiClientService.getBulkChunkSize()).thenReturn(TOKENS);
+        ReflectionTestUtils.setField(scheduler, "virtualThreads", false);
+        scheduler.initialize();
+
+        // An update starting while the first one is fetching prices
+        doAnswer(invocation -> {
+            scheduler.updatePrices();
+            return null;
+        }).when(priceCacheService).putAll(anyMap());
+
+        scheduler.updatePrices();
+
+        verify(apiClientService, times(1)).getCurrentPrices(anyCollection());
+        assertEquals(1.0, meterRegistry.get("price.update.skipped").counter().count());
+        assertEquals(1, meterRegistry.get("price.update.tick").timer().count());
+    }
+
+    private static CurrentQuote quote(String symbol) {
+        CurrentQuote quote = new CurrentQuote();
+        quote.setSymbol(symbol);
+        quote.setPrice(BigDecimal.ONE);
+        quote.setUpdatedAt(Instant.parse("2031-01-01T00:00:00Z"));
+        return quote;
+    }
+}
@@ -0,0 +1,97 @@
+package com.spicep.cryptowallet.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class that tests how the price refreshes are planned
+ */
+class RefreshPlannerTest {
+
+    private static final long HOT_RATE = 5_000;
+    private static final long COLD_RATE = 300_000;
+    private static final long START = 1_735_689_600_000L;
+
+    @Test
+    void shouldRefreshWidelyHeldSymbolsMoreOften() {
+        RefreshPlanner planner = new RefreshPlanner(HOT_RATE, COLD_RATE, 0);
+
+        assertEquals(COLD_RATE, planner.interval(1));
+        assertEquals(COLD_RATE / 10, planner.interval(10));
+        assertEquals(HOT_RATE, planner.interval(1_000));
+    }
+
+    @Test
+    void shouldPlanDueSymbolsMostHeldFirst() {
+        RefreshPlanner planner = new RefreshPlanner(HOT_RATE, COLD_RATE, 0);
+        Map<String, Long> holders = Map.of("bitcoin", 1_000L, "ethereum", 30L, "amhcoin", 1L);
+
+        RefreshPlanner.Plan first = planner.plan(holders, 2, START, 1);
+        assertEquals(List.of(List.of("bitcoin", "ethereum"), List.of("amhcoin")), first.requests());
+        assertEquals(-1, first.maxDelayMillis());
+
+        // Only bitcoin is due after the hot rate
+        RefreshPlanner.Plan second = planner.plan(holders, 1, START + HOT_RATE + 200, 1);
+        assertEquals(List.of(List.of("bitcoin")), second.requests());
+        assertEquals(200, second.maxDelayMillis());
+
+        assertTrue(planner.plan(holders, 1, START + HOT_RATE + 300, 1).requests().isEmpty());
+    }
+
+    @Test
+    void shouldFillTheLastRequestWithSymbolsDueSoonest() {
+        RefreshPlanner planner = new RefreshPlanner(HOT_RATE, COLD_RATE, 0);
+        planner.plan(Map.of("ethereum", 30L, "amhcoin", 1L), 10, START, 1);
+
+        RefreshPlanner.Plan plan = planner.plan(Map.of("bitcoin", 1_000L, "ethereum", 30L, "amhcoin", 1L), 2, START + 1, 1);
+
+        assertEquals(List.of(List.of("bitcoin", "ethereum")), plan.requests());
+    }
+
+    @Test
+    void shouldDeferDueSymbolsPastTheBudget() {
+        RefreshPlanner planner = new RefreshPlanner(0, 0, 2);
+        Map<String, Long> holders = Map.of("bitcoin", 3L, "ethereum", 2L, "amhcoin", 1L);
+
+        RefreshPlanner.Plan first = planner.plan(holders, 1, START, 1);
+        assertEquals(List.of(List.of("bitcoin"), List.of("ethereum")), first.requests());
+        assertEquals(1, first.deferred());
+
+        RefreshPlanner.Plan spent = planner.plan(holders, 1, START + 59_999, 1);
+        assertTrue(spent.requests().isEmpty());
+        assertEquals(3, spent.deferred());
+
+        // The budget is restored a minute after the requests
+        assertEquals(2, planner.plan(holders, 1, START + 60_000, 1).requests().size());
+    }
+
+    @Test
+    void shouldShareTheBudgetBetweenInstances() {
+        RefreshPlanner planner = new RefreshPlanner(0, 0, 4);
+        Map<String, Long> holders = Map.of("bitcoin", 3L, "ethereum", 2L, "amhcoin", 1L);
+
+        assertEquals(2, planner.plan(holders, 1, START, 2).requests().size());
+        assertTrue(planner.plan(holders, 1, START + 1, 2).requests().isEmpty());
+    }
+
+    @Test
+    void shouldForgetSymbolsNoLongerHeld() {
+        RefreshPlanner planner = new RefreshPlanner(HOT_RATE, COLD_RATE, 0);
+        planner.plan(Map.of("bitcoin", 1L, "amhcoin", 1L), 10, START, 1);
+        planner.plan(Map.of("bitcoin", 1L), 10, START + 1, 1);
+
+        // Held again, amhcoin is new and due at once
+        RefreshPlanner.Plan plan = planner.plan(Map.of("bitcoin", 1L, "amhcoin", 1L), 10, START + 2, 1);
+
+        assertEquals(List.of(List.of("amhcoin", "bitcoin")), plan.requests());
+    }
+
+    @Test
+    void shouldRejectAHotRateAboveTheColdRate() {
+        assertThrows(IllegalArgumentException.class, () -> new RefreshPlanner(COLD_RATE, HOT_RATE, 0));
+    }
+}
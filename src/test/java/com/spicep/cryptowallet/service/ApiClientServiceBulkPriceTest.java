@@ -0,0 +1,123 @@
+package com.spicep.cryptowallet.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class that tests the bulk price fetch against a local mock CoinCap server
+ */
+class ApiClientServiceBulkPriceTest {
+
+    private static final int CHUNK_SIZE = 25;
+    private static final String UNKNOWN_ID = "amhcoin";
+
+    private HttpServer server;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private ApiClientService apiClientService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/assets", this::handleAssets);
+        server.start();
+
+        WebClient webClient = WebClient.create("http://localhost:" + server.getAddress().getPort());
+        apiClientService = new ApiClientService(webClient, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(apiClientService, "bulkChunkSize", CHUNK_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 24, 25, 26, 100, 260})
+    void shouldFetchPricesWithOneRequestPerChunk(int symbolCount) {
+        List<String> symbols = IntStream.range(0, symbolCount).mapToObj(i -> "coin-" + i).toList();
+
+        Map<String, BigDecimal> prices = apiClientService.getCurrentPrices(symbols);
+
+        int expectedRequests = (symbolCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        assertEquals(expectedRequests, requestCount.get());
+        assertEquals(symbolCount, prices.size());
+        assertEquals(new BigDecimal("0.5"), prices.get("coin-0"));
+    }
+
+    @Test
+    void shouldKeepRequestedSymbolsAndLeaveOutUnknownOnes() {
+        Map<String, BigDecimal> prices = apiClientService.getCurrentPrices(List.of("BITCOIN", "ethereum", UNKNOWN_ID));
+
+        assertEquals(1, requestCount.get());
+        assertEquals(Set.of("BITCOIN", "ethereum"), prices.keySet());
+    }
+
+    @Test
+    void shouldNotCallApiForEmptySymbolList() {
+        Map<String, BigDecimal> prices = apiClientService.getCurrentPrices(List.of());
+
+        assertTrue(prices.isEmpty());
+        assertEquals(0, requestCount.get());
+    }
+
+    /**
+     * Answers /assets?ids=... with a price for every requested id, except the unknown one.
+     * The price of "coin-N" is N + 0.5
+     */
+    private void handleAssets(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+
+        String ids = queryParams(exchange).getOrDefault("ids", "");
+        String data = Arrays.stream(ids.split(","))
+                .filter(id -> !id.isEmpty() && !id.equals(UNKNOWN_ID))
+                .map(id -> "{\"id\":\"" + id + "\",\"priceUsd\":\"" + priceFor(id) + "\"}")
+                .collect(Collectors.joining(","));
+
+        byte[] body = ("{\"data\":[" + data + "],\"timestamp\":" + System.currentTimeMillis() + "}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static String priceFor(String id) {
+        int dash = id.lastIndexOf('-');
+        return dash < 0 ? "100" : Integer.parseInt(id.substring(dash + 1)) + ".5";
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            String[] parts = pair.split("=", 2);
+            params.put(parts[0], parts.length > 1 ? URLDecoder.decode(parts[1], StandardCharsets.UTF_8) : "");
+        }
+        return params;
+    }
+}
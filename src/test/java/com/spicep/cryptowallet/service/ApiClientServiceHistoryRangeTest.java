@@ -0,0 +1,118 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetHistoryDto;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class that tests the history range fetch against a local mock CoinCap server
+ */
+class ApiClientServiceHistoryRangeTest {
+
+    private static final long DAY_MILLIS = Duration.ofDays(1).toMillis();
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+    private static final long START = LocalDate.of(2024, 1, 1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    private HttpServer server;
+    private final List<long[]> requestedWindows = new CopyOnWriteArrayList<>();
+    private ApiClientService apiClientService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/assets", this::handleHistory);
+        server.start();
+
+        WebClient webClient = WebClient.create("http://localhost:" + server.getAddress().getPort());
+        apiClientService = new ApiClientService(webClient, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void shouldFetchLongRangeInWindowsOfTheIntervalLimit() {
+        // h1 accepts 30 days per request
+        long end = START + 70 * DAY_MILLIS;
+
+        List<CoinCapAssetHistoryDto> history = apiClientService
+                .fetchAssetHistoryRange("bitcoin", ApiClientService.CoinCapInterval.HOUR_1, START, end)
+                .block();
+
+        assertEquals(3, requestedWindows.size());
+        assertArrayEquals(new long[]{START, START + 30 * DAY_MILLIS}, requestedWindows.get(0));
+        assertArrayEquals(new long[]{START + 30 * DAY_MILLIS, START + 60 * DAY_MILLIS}, requestedWindows.get(1));
+        assertArrayEquals(new long[]{START + 60 * DAY_MILLIS, end}, requestedWindows.get(2));
+
+        assertNotNull(history);
+        assertEquals(70 * 24, history.size());
+        assertEquals(START, history.getFirst().getTime());
+        assertEquals(end - HOUR_MILLIS, history.getLast().getTime());
+        for (int i = 1; i < history.size(); i++) {
+            assertEquals(HOUR_MILLIS, history.get(i).getTime() - history.get(i - 1).getTime());
+        }
+    }
+
+    @Test
+    void shouldFetchYearOfDailyPricesWithOneRequest() {
+        List<CoinCapAssetHistoryDto> history = apiClientService
+                .fetchAssetHistoryRange("bitcoin", ApiClientService.CoinCapInterval.DAY_1, START, START + 365 * DAY_MILLIS)
+                .block();
+
+        assertEquals(1, requestedWindows.size());
+        assertNotNull(history);
+        assertEquals(365, history.size());
+    }
+
+    @Test
+    void shouldResolveIntervalsByApiValue() {
+        assertEquals(Optional.of(ApiClientService.CoinCapInterval.HOUR_12), ApiClientService.CoinCapInterval.fromValue("h12"));
+        assertTrue(ApiClientService.CoinCapInterval.fromValue("w1").isEmpty());
+    }
+
+    /**
+     * Answers /assets/{id}/history with one point per interval step in [start, end], end included
+     * as the real API may do, so the client has to drop the point on the window boundary
+     */
+    private void handleHistory(HttpExchange exchange) throws IOException {
+        Map<String, String> params = Arrays.stream(exchange.getRequestURI().getRawQuery().split("&"))
+                .map(pair -> pair.split("=", 2))
+                .collect(Collectors.toMap(pair -> pair[0], pair -> pair[1]));
+        long start = Long.parseLong(params.get("start"));
+        long end = Long.parseLong(params.get("end"));
+        long step = params.get("interval").equals("d1") ? DAY_MILLIS : HOUR_MILLIS;
+        requestedWindows.add(new long[]{start, end});
+
+        String data = LongStream.iterate(start, time -> time <= end, time -> time + step)
+                .mapToObj(time -> "{\"priceUsd\":\"" + (time / HOUR_MILLIS) + ".5\",\"time\":" + time + "}")
+                .collect(Collectors.joining(","));
+
+        byte[] body = ("{\"data\":[" + data + "]}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}
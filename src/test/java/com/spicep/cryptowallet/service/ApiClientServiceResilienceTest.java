@@ -0,0 +1,192 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.exception.apiclient.CoinCapAssetNotFoundException;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapServerException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class that tests the timeouts, retries and circuit breaker of the api client against a local mock CoinCap server
+ */
+class ApiClientServiceResilienceTest {
+
+    private static final String ASSET_BODY = "{\"data\":{\"id\":\"bitcoin\",\"priceUsd\":\"50000\"}}";
+    private static final int FAILURE_THRESHOLD = 4;
+
+    private record ScriptedResponse(int status, Map<String, String> headers, Duration delay) {
+
+        static ScriptedResponse status(int status) {
+            return new ScriptedResponse(status, Map.of(), Duration.ZERO);
+        }
+    }
+
+    private HttpServer server;
+    private final ConcurrentLinkedQueue<ScriptedResponse> script = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private ApiClientService apiClientService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/assets", this::handleAsset);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        WebClient webClient = WebClient.create("http://localhost:" + server.getAddress().getPort());
+        apiClientService = new ApiClientService(webClient, meterRegistry,
+                new CircuitBreaker(FAILURE_THRESHOLD, Duration.ofMinutes(1)));
+        ReflectionTestUtils.setField(apiClientService, "minBackoff", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(apiClientService, "maxBackoff", Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void shouldRetryServerErrors() {
+        script.add(ScriptedResponse.status(503));
+        script.add(ScriptedResponse.status(500));
+
+        BigDecimal price = apiClientService.getAssetPrice("bitcoin");
+
+        assertEquals(new BigDecimal("50000"), price);
+        assertEquals(3, requestCount.get());
+        assertEquals(2.0, meterRegistry.get("coincap.retries").tag("endpoint", "asset").counter().count());
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxAttempts() {
+        for (int i = 0; i < 3; i++) {
+            script.add(ScriptedResponse.status(502));
+        }
+
+        assertThrows(CoinCapServerException.class, () -> apiClientService.getAssetPrice("bitcoin"));
+        assertEquals(3, requestCount.get());
+    }
+
+    @Test
+    void shouldNotRetryClientErrors() {
+        script.add(ScriptedResponse.status(404));
+
+        assertThrows(CoinCapAssetNotFoundException.class, () -> apiClientService.getAssetPrice("amhcoin"));
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    void shouldHonourRetryAfterWhenRateLimited() {
+        script.add(new ScriptedResponse(429, Map.of("Retry-After", "1"), Duration.ZERO));
+
+        long start = System.nanoTime();
+        BigDecimal price = apiClientService.getAssetPrice("bitcoin");
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertEquals(new BigDecimal("50000"), price);
+        assertEquals(2, requestCount.get());
+        assertTrue(elapsed.compareTo(Duration.ofMillis(950)) >= 0, "Retried after " + elapsed);
+    }
+
+    @Test
+    void shouldNotWaitForRetryAfterLongerThanMaxBackoff() {
+        script.add(new ScriptedResponse(429, Map.of("Retry-After", "120"), Duration.ZERO));
+
+        assertThrows(CoinCapServerException.class, () -> apiClientService.getAssetPrice("bitcoin"));
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    void shouldFailSlowCallsAtTheDeadline() {
+        ReflectionTestUtils.setField(apiClientService, "callTimeout", Duration.ofMillis(300));
+        script.add(new ScriptedResponse(200, Map.of(), Duration.ofSeconds(3)));
+
+        long start = System.nanoTime();
+        CoinCapServerException exception = assertThrows(CoinCapServerException.class, () -> apiClientService.getAssetPrice("bitcoin"));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertTrue(exception.getMessage().contains("did not respond"));
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(2)) < 0, "Failed after " + elapsed);
+    }
+
+    @Test
+    void shouldFailFastWhileCircuitIsOpen() {
+        ReflectionTestUtils.setField(apiClientService, "maxAttempts", 1);
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            script.add(ScriptedResponse.status(503));
+            assertThrows(CoinCapServerException.class, () -> apiClientService.getAssetPrice("bitcoin"));
+        }
+        assertEquals(1.0, meterRegistry.get("coincap.circuit.state").gauge().value());
+
+        assertThrows(CoinCapServerException.class, () -> apiClientService.getCurrentPrices(List.of("bitcoin")));
+        assertThrows(CoinCapServerException.class, () -> apiClientService.getAssetPrice("bitcoin"));
+
+        assertEquals(FAILURE_THRESHOLD, requestCount.get());
+        assertEquals(1.0, meterRegistry.get("coincap.circuit.rejected").tag("endpoint", "assets").counter().count());
+        assertEquals(1.0, meterRegistry.get("coincap.circuit.rejected").tag("endpoint", "asset").counter().count());
+    }
+
+    @Test
+    void shouldParseRetryAfterDates() {
+        Duration delay = ApiClientService.retryAfter(WebClientResponseException.create(
+                429, "Too Many Requests", headers("Retry-After", "Wed, 21 Oct 2015 07:28:00 GMT"), null, null)).orElseThrow();
+
+        // The date is in the past, so there is nothing to wait for
+        assertEquals(Duration.ZERO, delay);
+    }
+
+    private static HttpHeaders headers(String name, String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(name, value);
+        return headers;
+    }
+
+    /**
+     * Answers with the next scripted response, or with the price of the asset once the script is over
+     */
+    private void handleAsset(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        ScriptedResponse response = script.poll();
+        if (response == null) {
+            response = ScriptedResponse.status(200);
+        }
+
+        try {
+            Thread.sleep(response.delay().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        byte[] body = (response.status() == 200 ? ASSET_BODY : "{\"error\":\"scripted\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        response.headers().forEach(exchange.getResponseHeaders()::add);
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}
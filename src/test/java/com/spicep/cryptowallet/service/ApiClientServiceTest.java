@@ -4,17 +4,25 @@ import com.spicep.cryptowallet.dto.coincap.CoinCapAssetDto;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAssetHistoryDto;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAssetHistoryResponseDto;
 import com.spicep.cryptowallet.dto.coincap.CoinCapAssetResponseDto;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapAssetNotFoundException;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapServerException;
 import com.spicep.cryptowallet.exception.asset.AssetNotFoundException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.util.UriBuilder;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
@@ -43,7 +51,7 @@ class ApiClientServiceTest {
     @Mock
     private WebClient.ResponseSpec responseSpec;
 
-    @InjectMocks
+    private SimpleMeterRegistry meterRegistry;
     private ApiClientService apiClientService;
 
     private static final String DAY_1_INTERVAL = ApiClientService.CoinCapInterval.DAY_1.toString();
@@ -51,8 +59,11 @@ class ApiClientServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        apiClientService = new ApiClientService(webClient, meterRegistry);
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(anyString(), any(Object[].class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersUriSpec.uri(ArgumentMatchers.<Function<UriBuilder, URI>>any())).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
     }
 
@@ -110,7 +121,7 @@ class ApiClientServiceTest {
         WebClient.RequestHeadersSpec requestHeadersSpec = mock(WebClient.RequestHeadersSpec.class);
 
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
-        when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersUriSpec.uri(ArgumentMatchers.<Function<UriBuilder, URI>>any())).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
         when(responseSpec.bodyToMono(CoinCapAssetHistoryResponseDto.class)).thenReturn(Mono.just(responseDto));
 
@@ -125,7 +136,8 @@ class ApiClientServiceTest {
 
     @Test
     void shouldHandleExceptionWhenGettingAssetPriceForDate() {
-        when(responseSpec.bodyToMono(CoinCapAssetHistoryResponseDto.class)).thenThrow(WebClientResponseException.class);
+        when(responseSpec.bodyToMono(CoinCapAssetHistoryResponseDto.class))
+                .thenReturn(Mono.error(WebClientResponseException.create(404, "Not Found", null, null, null)));
 
         List<CoinCapAssetHistoryDto> history = apiClientService.getAssetPriceForDate("bitcoin", DAY_1_INTERVAL, LocalDate.now());
 
@@ -136,7 +148,8 @@ class ApiClientServiceTest {
 
     @Test
     void shouldHandleExceptionWhenGettingAssetPriceForNonexistentCoin() {
-        when(responseSpec.bodyToMono(CoinCapAssetHistoryResponseDto.class)).thenThrow(WebClientResponseException.class);
+        when(responseSpec.bodyToMono(CoinCapAssetHistoryResponseDto.class))
+                .thenReturn(Mono.error(WebClientResponseException.create(404, "Not Found", null, null, null)));
 
         List<CoinCapAssetHistoryDto> history = apiClientService.getAssetPriceForDate("MYCOIN", DAY_1_INTERVAL, LocalDate.now());
 
@@ -157,4 +170,43 @@ class ApiClientServiceTest {
         assertTrue(history.isEmpty());
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void shouldPropagateServerErrorWhenGettingAssetPriceForDate() {
+        ReflectionTestUtils.setField(apiClientService, "minBackoff", Duration.ofMillis(1));
+        when(responseSpec.bodyToMono(CoinCapAssetHistoryResponseDto.class))
+                .thenReturn(Mono.error(WebClientResponseException.create(503, "Service Unavailable", null, null, null)));
+
+        assertThrows(CoinCapServerException.class,
+                () -> apiClientService.getAssetPriceForDate("bitcoin", DAY_1_INTERVAL, LocalDate.now()));
+    }
+
+    @Test
+    void shouldTimeRequestsByEndpointAndOutcome() {
+        ReflectionTestUtils.setField(apiClientService, "minBackoff", Duration.ofMillis(1));
+        CoinCapAssetDto assetDto = new CoinCapAssetDto();
+        assetDto.setPriceUsd(BigDecimal.valueOf(100));
+        CoinCapAssetResponseDto responseDto = new CoinCapAssetResponseDto();
+        responseDto.setData(assetDto);
+
+        when(responseSpec.bodyToMono(CoinCapAssetResponseDto.class))
+                .thenReturn(Mono.just(responseDto))
+                .thenReturn(Mono.error(WebClientResponseException.create(404, "Not Found", null, null, null)))
+                .thenReturn(Mono.error(WebClientResponseException.create(503, "Service Unavailable", null, null, null)));
+
+        apiClientService.getCurrentAssetDataBySymbol("bitcoin");
+        assertThrows(CoinCapAssetNotFoundException.class, () -> apiClientService.getCurrentAssetDataBySymbol("AMHCOIN"));
+        assertThrows(CoinCapServerException.class, () -> apiClientService.getCurrentAssetDataBySymbol("bitcoin"));
+
+        // Server errors are retried, every attempt is timed
+        assertEquals(1, requestCount("asset", "success"));
+        assertEquals(1, requestCount("asset", "client_error"));
+        assertEquals(3, requestCount("asset", "server_error"));
+    }
+
+    private long requestCount(String endpoint, String outcome) {
+        Timer timer = meterRegistry.find("coincap.requests").tags("endpoint", endpoint, "outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
+
@@ -0,0 +1,201 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.request.AssetEvaluationRequestDto;
+import com.spicep.cryptowallet.dto.request.PortfolioEvaluationRequest;
+import com.spicep.cryptowallet.dto.response.PortfolioEvaluationResult;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapServerException;
+import com.spicep.cryptowallet.exception.wallet.WalletException;
+import com.spicep.cryptowallet.repository.AssetRepository;
+import com.spicep.cryptowallet.repository.UserRepository;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class that tests the evaluation of batches of portfolios
+ */
+@ExtendWith(MockitoExtension.class)
+class BatchEvaluationServiceTest {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2025, 1, 7);
+    private static final LocalDate SECOND_DATE = LocalDate.of(2025, 1, 8);
+
+    @Mock
+    private PriceCacheService priceCacheService;
+
+    @Mock
+    private HistoricalPriceService historicalPriceService;
+
+    private WalletService walletService;
+    private BatchEvaluationService batchEvaluationService;
+
+    @BeforeEach
+    void setUp() {
+        walletService = spy(new WalletService(mock(WalletRepository.class), mock(UserRepository.class), mock(AssetRepository.class),
+                priceCacheService, historicalPriceService, mock(ApplicationEventPublisher.class)));
+        ReactiveWalletService reactiveWalletService = new ReactiveWalletService(walletService, priceCacheService, historicalPriceService);
+        batchEvaluationService = new BatchEvaluationService(walletService, reactiveWalletService, historicalPriceService);
+    }
+
+    @Test
+    void shouldResolveEachPriceOnceForTheWholeBatch() {
+        List<PortfolioEvaluationRequest> portfolios = IntStream.range(0, 100)
+                .mapToObj(i -> new PortfolioEvaluationRequest("portfolio-" + i, List.of(
+                        new AssetEvaluationRequestDto("BTC", new BigDecimal("0.5"), new BigDecimal("35000")),
+                        new AssetEvaluationRequestDto("ETH", new BigDecimal("4.25"), new BigDecimal("15310.56")))))
+                .toList();
+
+        when(historicalPriceService.prefetch(anyString(), anyCollection())).thenReturn(Mono.just(2));
+        for (LocalDate date : List.of(FIRST_DATE, SECOND_DATE)) {
+            when(historicalPriceService.fetchPriceForDate("btc", date)).thenReturn(Mono.just(new BigDecimal("56999.9")));
+            when(historicalPriceService.fetchPriceForDate("eth", date)).thenReturn(Mono.just(new BigDecimal("2004.7")));
+        }
+
+        List<PortfolioEvaluationResult> results = batchEvaluationService
+                .evaluate(portfolios, List.of(FIRST_DATE, SECOND_DATE, FIRST_DATE))
+                .collectList()
+                .block();
+
+        assertNotNull(results);
+        assertEquals(200, results.size());
+        assertEquals(100, results.stream().filter(result -> FIRST_DATE.equals(result.getDate())).count());
+        verify(historicalPriceService).prefetch("btc", List.of(FIRST_DATE, SECOND_DATE));
+        verify(historicalPriceService).prefetch("eth", List.of(FIRST_DATE, SECOND_DATE));
+        verify(historicalPriceService, times(4)).fetchPriceForDate(anyString(), any(LocalDate.class));
+
+        PortfolioEvaluationResult result = results.stream()
+                .filter(r -> "portfolio-7".equals(r.getPortfolioId()) && SECOND_DATE.equals(r.getDate()))
+                .findFirst().orElseThrow();
+        assertNull(result.getError());
+        assertEquals(walletService.summarizeEvaluation(portfolios.get(7).getAssets(),
+                List.of(new BigDecimal("56999.9"), new BigDecimal("2004.7")), SECOND_DATE), result.getEvaluation());
+    }
+
+    @Test
+    void shouldOnlyFailPortfoliosWithMissingPrices() {
+        List<PortfolioEvaluationRequest> portfolios = List.of(
+                new PortfolioEvaluationRequest("priced", List.of(
+                        new AssetEvaluationRequestDto("BTC", BigDecimal.ONE, new BigDecimal("50000")))),
+                new PortfolioEvaluationRequest("unpriced", List.of(
+                        new AssetEvaluationRequestDto("BTC", BigDecimal.ONE, new BigDecimal("50000")),
+                        new AssetEvaluationRequestDto("AMHCOIN", BigDecimal.ONE, BigDecimal.TEN))),
+                new PortfolioEvaluationRequest("empty", List.of()));
+
+        when(historicalPriceService.fetchPriceForDate("btc", FIRST_DATE)).thenReturn(Mono.just(new BigDecimal("60000")));
+        when(historicalPriceService.fetchPriceForDate("amhcoin", FIRST_DATE)).thenReturn(Mono.empty());
+
+        List<PortfolioEvaluationResult> results = batchEvaluationService.evaluate(portfolios, List.of(FIRST_DATE))
+                .collectList()
+                .block();
+
+        assertNotNull(results);
+        results.sort(Comparator.comparing(PortfolioEvaluationResult::getPortfolioId));
+        assertEquals("empty", results.get(0).getPortfolioId());
+        assertEquals("Asset list cannot be empty", results.get(0).getError());
+        assertEquals(new BigDecimal("60000.00"), results.get(1).getEvaluation().getTotal());
+        assertNull(results.get(2).getEvaluation());
+        assertEquals("No price data available for AMHCOIN on " + FIRST_DATE, results.get(2).getError());
+    }
+
+    @Test
+    void shouldOnlyFailInvalidPortfolios() {
+        List<PortfolioEvaluationRequest> portfolios = List.of(
+                new PortfolioEvaluationRequest("first", List.of(
+                        new AssetEvaluationRequestDto("BTC", BigDecimal.ONE, new BigDecimal("50000")))),
+                new PortfolioEvaluationRequest("no-symbol", List.of(
+                        new AssetEvaluationRequestDto(null, BigDecimal.ONE, new BigDecimal("50000")))),
+                new PortfolioEvaluationRequest("no-quantity", List.of(
+                        new AssetEvaluationRequestDto("BTC", null, new BigDecimal("50000")))),
+                new PortfolioEvaluationRequest("failing", List.of(
+                        new AssetEvaluationRequestDto("BTC", new BigDecimal("3"), new BigDecimal("50000")))),
+                new PortfolioEvaluationRequest("second", List.of(
+                        new AssetEvaluationRequestDto("BTC", new BigDecimal("2"), new BigDecimal("50000")))));
+
+        when(historicalPriceService.fetchPriceForDate("btc", FIRST_DATE)).thenReturn(Mono.just(new BigDecimal("60000")));
+        lenient().doThrow(new IllegalStateException("Unexpected failure")).when(walletService)
+                .summarizeEvaluation(eq(portfolios.get(3).getAssets()), anyList(), eq(FIRST_DATE));
+
+        List<PortfolioEvaluationResult> results = batchEvaluationService.evaluate(portfolios, List.of(FIRST_DATE))
+                .collectList()
+                .block();
+
+        assertNotNull(results);
+        assertEquals(5, results.size());
+        results.sort(Comparator.comparing(PortfolioEvaluationResult::getPortfolioId));
+        assertEquals("Portfolio could not be evaluated", results.get(0).getError());
+        assertNull(results.get(0).getEvaluation());
+        assertEquals(new BigDecimal("60000.00"), results.get(1).getEvaluation().getTotal());
+        assertEquals("Quantity of BTC must be positive", results.get(2).getError());
+        assertEquals("Asset symbol cannot be empty", results.get(3).getError());
+        assertEquals(new BigDecimal("120000.00"), results.get(4).getEvaluation().getTotal());
+        verify(historicalPriceService, times(1)).fetchPriceForDate(anyString(), any(LocalDate.class));
+    }
+
+    @Test
+    void shouldEvaluateWhenPricesCannotBePrefetched() {
+        List<PortfolioEvaluationRequest> portfolios = List.of(new PortfolioEvaluationRequest("first", List.of(
+                new AssetEvaluationRequestDto("BTC", BigDecimal.ONE, new BigDecimal("50000")))));
+
+        when(historicalPriceService.prefetch("btc", List.of(FIRST_DATE, SECOND_DATE)))
+                .thenReturn(Mono.error(new CoinCapServerException("CoinCap API is unavailable, calls are suspended")));
+        when(historicalPriceService.fetchPriceForDate("btc", FIRST_DATE)).thenReturn(Mono.just(new BigDecimal("60000")));
+        when(historicalPriceService.fetchPriceForDate("btc", SECOND_DATE)).thenReturn(Mono.just(new BigDecimal("61000")));
+
+        List<PortfolioEvaluationResult> results = batchEvaluationService.evaluate(portfolios, List.of(FIRST_DATE, SECOND_DATE))
+                .collectList()
+                .block();
+
+        assertNotNull(results);
+        assertEquals(2, results.size());
+        assertTrue(results.stream().allMatch(result -> result.getError() == null));
+    }
+
+    @Test
+    void shouldPriceSymbolsDifferingInCaseOnce() {
+        List<PortfolioEvaluationRequest> portfolios = List.of(
+                new PortfolioEvaluationRequest("upper", List.of(
+                        new AssetEvaluationRequestDto("BTC", BigDecimal.ONE, new BigDecimal("50000")))),
+                new PortfolioEvaluationRequest("mixed", List.of(
+                        new AssetEvaluationRequestDto("Btc", BigDecimal.ONE, new BigDecimal("50000")),
+                        new AssetEvaluationRequestDto("bitcoin", new BigDecimal("2"), new BigDecimal("100000")),
+                        new AssetEvaluationRequestDto("BitCoin", BigDecimal.ONE, new BigDecimal("50000")))));
+
+        when(historicalPriceService.prefetch(anyString(), anyCollection())).thenReturn(Mono.just(2));
+        for (LocalDate date : List.of(FIRST_DATE, SECOND_DATE)) {
+            when(historicalPriceService.fetchPriceForDate("btc", date)).thenReturn(Mono.just(new BigDecimal("60000")));
+            when(historicalPriceService.fetchPriceForDate("bitcoin", date)).thenReturn(Mono.just(new BigDecimal("61000")));
+        }
+
+        List<PortfolioEvaluationResult> results = batchEvaluationService.evaluate(portfolios, List.of(FIRST_DATE, SECOND_DATE))
+                .collectList()
+                .block();
+
+        assertNotNull(results);
+        assertEquals(4, results.size());
+        assertTrue(results.stream().allMatch(result -> result.getError() == null));
+        assertTrue(results.stream().filter(result -> "mixed".equals(result.getPortfolioId()))
+                .allMatch(result -> new BigDecimal("243000.00").equals(result.getEvaluation().getTotal())));
+        verify(historicalPriceService).prefetch("btc", List.of(FIRST_DATE, SECOND_DATE));
+        verify(historicalPriceService).prefetch("bitcoin", List.of(FIRST_DATE, SECOND_DATE));
+        verify(historicalPriceService, times(4)).fetchPriceForDate(anyString(), any(LocalDate.class));
+    }
+
+    @Test
+    void shouldRejectEmptyBatch() {
+        assertThrows(WalletException.class, () -> batchEvaluationService.evaluate(List.of(), List.of(FIRST_DATE)));
+    }
+}
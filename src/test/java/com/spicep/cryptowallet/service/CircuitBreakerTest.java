@@ -0,0 +1,116 @@
+package com.spicep.cryptowallet.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class that tests the circuit breaker state transitions
+ */
+class CircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    private final AtomicLong now = new AtomicLong();
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker = new CircuitBreaker(3, OPEN_DURATION, now::get);
+    }
+
+    @Test
+    void shouldOpenAfterConsecutiveFailures() {
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void shouldLetASingleProbeThroughOnceOpenDurationElapsed() {
+        open();
+        now.addAndGet(OPEN_DURATION.toNanos());
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void shouldReopenWhenProbeFails() {
+        open();
+        now.addAndGet(OPEN_DURATION.toNanos());
+        assertTrue(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        now.addAndGet(OPEN_DURATION.toNanos() - 1);
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void shouldRejectCallsWithoutSubscribingWhileOpen() {
+        open();
+        AtomicLong subscriptions = new AtomicLong();
+        Mono<String> call = Mono.fromCallable(() -> {
+            subscriptions.incrementAndGet();
+            return "ok";
+        });
+
+        StepVerifier.create(circuitBreaker.protect(call, e -> true, () -> new IllegalStateException("open")))
+                .verifyErrorMessage("open");
+        assertEquals(0, subscriptions.get());
+    }
+
+    @Test
+    void shouldNotCountExpectedErrorsAsFailures() {
+        Mono<String> call = Mono.error(new IllegalArgumentException("rejected"));
+
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(circuitBreaker.protect(call, e -> !(e instanceof IllegalArgumentException),
+                            () -> new IllegalStateException("open")))
+                    .verifyError(IllegalArgumentException.class);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void shouldGiveProbeSlotBackWhenCancelled() {
+        open();
+        now.addAndGet(OPEN_DURATION.toNanos());
+
+        StepVerifier.create(circuitBreaker.protect(Mono.never(), e -> true, () -> new IllegalStateException("open")))
+                .thenCancel()
+                .verify();
+
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+}
@@ -0,0 +1,287 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetHistoryDto;
+import com.spicep.cryptowallet.dto.projection.PriceSummary;
+import com.spicep.cryptowallet.entity.HistoricalPrice;
+import com.spicep.cryptowallet.entity.PriceRollup;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapServerException;
+import com.spicep.cryptowallet.repository.HistoricalPriceRepository;
+import com.spicep.cryptowallet.repository.PriceHistoryRepository;
+import com.spicep.cryptowallet.repository.PriceRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class that tests the historical price store
+ */
+@ExtendWith(MockitoExtension.class)
+class HistoricalPriceServiceTest {
+
+    private static final ZoneId UTC_ZONE = ZoneId.of("UTC");
+    private static final String DAILY_INTERVAL = HistoricalPriceService.DAILY_INTERVAL;
+    private static final LocalDate PAST_DATE = LocalDate.of(2025, 1, 7);
+    private static final Instant DAY_START = PAST_DATE.atStartOfDay(UTC_ZONE).toInstant();
+    private static final Instant DAY_END = PAST_DATE.plusDays(1).atStartOfDay(UTC_ZONE).toInstant();
+    private static final Instant NOW = Instant.parse("2025-03-10T12:30:00Z");
+    private static final Duration COLD_RATE = Duration.ofMinutes(5);
+
+    @Mock
+    private ApiClientService apiClientService;
+
+    @Mock
+    private HistoricalPriceRepository historicalPriceRepository;
+
+    @Mock
+    private PriceHistoryRepository priceHistoryRepository;
+
+    @Mock
+    private PriceRollupRepository priceRollupRepository;
+
+    private HistoricalPriceService historicalPriceService;
+
+    @BeforeEach
+    void setUp() {
+        historicalPriceService = new HistoricalPriceService(apiClientService, historicalPriceRepository,
+                priceHistoryRepository, priceRollupRepository, 100, COLD_RATE, Clock.fixed(NOW, UTC_ZONE));
+    }
+
+    @Test
+    void shouldServeRecordedDayAtTheAverageOfItsTicks() {
+        when(priceHistoryRepository.summarizeRange("bitcoin", DAY_START, DAY_END))
+                .thenReturn(Optional.of(new PriceSummary(new BigDecimal("286500"), 3L, DAY_START.plusSeconds(60), DAY_END.minusSeconds(60))));
+
+        assertEquals(new BigDecimal("95500"), historicalPriceService.getPriceForDate("Bitcoin", PAST_DATE));
+        assertEquals(new BigDecimal("95500"), historicalPriceService.getPriceForDate("bitcoin", PAST_DATE));
+
+        verify(priceHistoryRepository, times(1)).summarizeRange(any(), any(), any());
+        verifyNoInteractions(apiClientService, historicalPriceRepository, priceRollupRepository);
+    }
+
+    @Test
+    void shouldServeRecordedDayFromTheDailyRollupOnceTicksExpired() {
+        when(priceHistoryRepository.summarizeRange("bitcoin", DAY_START, DAY_END))
+                .thenReturn(Optional.of(new PriceSummary(null, 0L, null, null)));
+        when(priceRollupRepository.findSummary("bitcoin", PriceRollup.Resolution.DAY, DAY_START))
+                .thenReturn(Optional.of(new PriceSummary(new BigDecimal("2289600"), 24L, DAY_START.plusSeconds(60), DAY_END.minusSeconds(60))));
+
+        assertEquals(new BigDecimal("95400"), historicalPriceService.getPriceForDate("BITCOIN", PAST_DATE));
+
+        verifyNoInteractions(apiClientService, historicalPriceRepository);
+    }
+
+    @Test
+    void shouldServeRecordedDayReactivelyWithoutNetwork() {
+        when(priceHistoryRepository.summarizeRange(any(), any(), any()))
+                .thenReturn(Optional.of(new PriceSummary(new BigDecimal("286500"), 3L, DAY_START, DAY_END.minusSeconds(1))));
+
+        StepVerifier.create(historicalPriceService.fetchPriceForDate("bitcoin", PAST_DATE))
+                .expectNext(new BigDecimal("95500"))
+                .verifyComplete();
+
+        verifyNoInteractions(apiClientService, historicalPriceRepository);
+    }
+
+    @Test
+    void shouldFetchADayRecordedInPart() {
+        // Only ticks of the morning were recorded, none reaches the end of the day
+        when(priceHistoryRepository.summarizeRange("bitcoin", DAY_START, DAY_END))
+                .thenReturn(Optional.of(new PriceSummary(new BigDecimal("190000"), 2L, DAY_START, DAY_START.plus(Duration.ofHours(6)))));
+        when(priceRollupRepository.findSummary("bitcoin", PriceRollup.Resolution.DAY, DAY_START))
+                .thenReturn(Optional.empty());
+        when(historicalPriceRepository.findBySymbolAndIntervalAndDay("bitcoin", DAILY_INTERVAL, PAST_DATE))
+                .thenReturn(Optional.empty());
+        when(apiClientService.fetchAssetHistory(eq("bitcoin"), eq(DAILY_INTERVAL), anyLong(), anyLong()))
+                .thenReturn(Mono.just(List.of(candle(PAST_DATE, "95000"))));
+
+        assertEquals(new BigDecimal("95000"), historicalPriceService.getPriceForDate("bitcoin", PAST_DATE));
+
+        verify(historicalPriceRepository, times(1)).save(any(HistoricalPrice.class));
+    }
+
+    @Test
+    void shouldPriceADayAlikeFromCoinCapAndOnceRecorded() {
+        // CoinCap's d1 price is the average of the prices of the day, as the recorded ticks of the day are
+        when(historicalPriceRepository.findBySymbolAndIntervalAndDay("bitcoin", DAILY_INTERVAL, PAST_DATE))
+                .thenReturn(Optional.empty());
+        when(apiClientService.fetchAssetHistory(eq("bitcoin"), eq(DAILY_INTERVAL), anyLong(), anyLong()))
+                .thenReturn(Mono.just(List.of(candle(PAST_DATE, "95000"))));
+        BigDecimal fetched = historicalPriceService.getPriceForDate("bitcoin", PAST_DATE);
+
+        when(priceHistoryRepository.summarizeRange("bitcoin", DAY_START, DAY_END))
+                .thenReturn(Optional.of(new PriceSummary(new BigDecimal("285000"), 3L, DAY_START.plusSeconds(60), DAY_END.minusSeconds(60))));
+        HistoricalPriceService recordingService = new HistoricalPriceService(apiClientService, historicalPriceRepository,
+                priceHistoryRepository, priceRollupRepository, 100, COLD_RATE, Clock.fixed(NOW, UTC_ZONE));
+        BigDecimal recorded = recordingService.getPriceForDate("bitcoin", PAST_DATE);
+
+        assertEquals(new BigDecimal("95000"), fetched);
+        assertEquals(fetched, recorded);
+        verify(apiClientService, times(1)).fetchAssetHistory(anyString(), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void shouldFetchTheDailyPriceOfAPastDayOnceAndWriteItThrough() {
+        when(historicalPriceRepository.findBySymbolAndIntervalAndDay("bitcoin", DAILY_INTERVAL, PAST_DATE))
+                .thenReturn(Optional.empty());
+        when(apiClientService.fetchAssetHistory("bitcoin", DAILY_INTERVAL,
+                PAST_DATE.atStartOfDay(UTC_ZONE).toInstant().toEpochMilli(),
+                PAST_DATE.plusDays(1).atStartOfDay(UTC_ZONE).toInstant().toEpochMilli()))
+                .thenReturn(Mono.just(List.of(candle(PAST_DATE, "95000"))));
+
+        assertEquals(new BigDecimal("95000"), historicalPriceService.getPriceForDate("BITCOIN", PAST_DATE));
+        assertEquals(new BigDecimal("95000"), historicalPriceService.getPriceForDate("bitcoin", PAST_DATE));
+
+        verify(apiClientService, times(1)).fetchAssetHistory(anyString(), anyString(), anyLong(), anyLong());
+        ArgumentCaptor<HistoricalPrice> stored = ArgumentCaptor.forClass(HistoricalPrice.class);
+        verify(historicalPriceRepository, times(1)).save(stored.capture());
+        assertEquals("bitcoin", stored.getValue().getSymbol());
+        assertEquals(DAILY_INTERVAL, stored.getValue().getInterval());
+    }
+
+    @Test
+    void shouldServeStoredDayWithoutNetwork() {
+        HistoricalPrice stored = new HistoricalPrice();
+        stored.setPrice(new BigDecimal("95000"));
+        when(historicalPriceRepository.findBySymbolAndIntervalAndDay("bitcoin", DAILY_INTERVAL, PAST_DATE))
+                .thenReturn(Optional.of(stored));
+
+        assertEquals(new BigDecimal("95000"), historicalPriceService.getPriceForDate("bitcoin", PAST_DATE));
+
+        verifyNoInteractions(apiClientService);
+    }
+
+    @Test
+    void shouldNotStoreMissingPrices() {
+        when(historicalPriceRepository.findBySymbolAndIntervalAndDay("amhcoin", DAILY_INTERVAL, PAST_DATE))
+                .thenReturn(Optional.empty());
+        when(apiClientService.fetchAssetHistory(eq("amhcoin"), eq(DAILY_INTERVAL), anyLong(), anyLong()))
+                .thenReturn(Mono.just(Collections.emptyList()));
+
+        assertNull(historicalPriceService.getPriceForDate("amhcoin", PAST_DATE));
+
+        verify(historicalPriceRepository, never()).save(any(HistoricalPrice.class));
+    }
+
+    @Test
+    void shouldServeTheDailyPriceOfTheCurrentDayWithoutStoringIt() {
+        LocalDate today = LocalDate.ofInstant(NOW, UTC_ZONE);
+        when(apiClientService.fetchAssetHistory("bitcoin", DAILY_INTERVAL,
+                today.atStartOfDay(UTC_ZONE).toInstant().toEpochMilli(),
+                today.plusDays(1).atStartOfDay(UTC_ZONE).toInstant().toEpochMilli()))
+                .thenReturn(Mono.just(List.of(candle(today, "95000"))));
+
+        assertEquals(new BigDecimal("95000"), historicalPriceService.getPriceForDate("bitcoin", today));
+        historicalPriceService.getPriceForDate("bitcoin", today);
+        assertNull(historicalPriceService.getPriceForDate("bitcoin", today.plusDays(1)));
+
+        verify(apiClientService, times(2)).fetchAssetHistory(anyString(), anyString(), anyLong(), anyLong());
+        verifyNoInteractions(historicalPriceRepository, priceHistoryRepository, priceRollupRepository);
+    }
+
+    @Test
+    void shouldFetchPastDayReactivelyAndWriteItThrough() {
+        when(historicalPriceRepository.findBySymbolAndIntervalAndDay("bitcoin", DAILY_INTERVAL, PAST_DATE))
+                .thenReturn(Optional.empty());
+        when(apiClientService.fetchAssetHistory(eq("bitcoin"), eq(DAILY_INTERVAL), anyLong(), anyLong()))
+                .thenReturn(Mono.just(List.of(candle(PAST_DATE, "95000"))));
+
+        StepVerifier.create(historicalPriceService.fetchPriceForDate("bitcoin", PAST_DATE))
+                .expectNext(new BigDecimal("95000"))
+                .verifyComplete();
+        StepVerifier.create(historicalPriceService.fetchPriceForDate("bitcoin", PAST_DATE))
+                .expectNext(new BigDecimal("95000"))
+                .verifyComplete();
+
+        verify(apiClientService, times(1)).fetchAssetHistory(anyString(), anyString(), anyLong(), anyLong());
+        verify(historicalPriceRepository, times(1)).save(any(HistoricalPrice.class));
+    }
+
+    @Test
+    void shouldShareOneLoadBetweenBlockingAndReactiveLookups() {
+        Sinks.One<List<CoinCapAssetHistoryDto>> response = Sinks.one();
+        when(historicalPriceRepository.findBySymbolAndIntervalAndDay("bitcoin", DAILY_INTERVAL, PAST_DATE))
+                .thenReturn(Optional.empty());
+        when(apiClientService.fetchAssetHistory(eq("bitcoin"), eq(DAILY_INTERVAL), anyLong(), anyLong()))
+                .thenReturn(response.asMono());
+
+        CompletableFuture<BigDecimal> blocking = CompletableFuture.supplyAsync(
+                () -> historicalPriceService.getPriceForDate("bitcoin", PAST_DATE));
+        StepVerifier.create(historicalPriceService.fetchPriceForDate("bitcoin", PAST_DATE))
+                .then(() -> response.tryEmitValue(List.of(candle(PAST_DATE, "95000"))))
+                .expectNext(new BigDecimal("95000"))
+                .verifyComplete();
+
+        assertEquals(new BigDecimal("95000"), blocking.join());
+        verify(apiClientService, times(1)).fetchAssetHistory(anyString(), anyString(), anyLong(), anyLong());
+        verify(historicalPriceRepository, times(1)).save(any(HistoricalPrice.class));
+    }
+
+    @Test
+    void shouldFailWithoutCachingWhileTheApiIsUnavailable() {
+        when(historicalPriceRepository.findBySymbolAndIntervalAndDay("bitcoin", DAILY_INTERVAL, PAST_DATE))
+                .thenReturn(Optional.empty());
+        when(apiClientService.fetchAssetHistory(eq("bitcoin"), eq(DAILY_INTERVAL), anyLong(), anyLong()))
+                .thenReturn(Mono.error(new CoinCapServerException("CoinCap API unavailable")))
+                .thenReturn(Mono.just(List.of(candle(PAST_DATE, "95000"))));
+
+        assertThrows(CoinCapServerException.class,
+                () -> historicalPriceService.getPriceForDate("bitcoin", PAST_DATE));
+        assertEquals(new BigDecimal("95000"), historicalPriceService.getPriceForDate("bitcoin", PAST_DATE));
+    }
+
+    @Test
+    void shouldPrefetchTheMissingDaysWithOneCall() {
+        LocalDate storedDate = PAST_DATE.plusDays(1);
+        LocalDate lastDate = PAST_DATE.plusDays(2);
+        HistoricalPrice stored = new HistoricalPrice();
+        stored.setPrice(new BigDecimal("96000"));
+        when(historicalPriceRepository.findBySymbolAndIntervalAndDay(eq("bitcoin"), eq(DAILY_INTERVAL), any()))
+                .thenReturn(Optional.empty());
+        when(historicalPriceRepository.findBySymbolAndIntervalAndDay("bitcoin", DAILY_INTERVAL, storedDate))
+                .thenReturn(Optional.of(stored));
+        when(apiClientService.fetchAssetHistoryRange("bitcoin", ApiClientService.CoinCapInterval.DAY_1,
+                PAST_DATE.atStartOfDay(UTC_ZONE).toInstant().toEpochMilli(),
+                lastDate.plusDays(1).atStartOfDay(UTC_ZONE).toInstant().toEpochMilli()))
+                .thenReturn(Mono.just(List.of(candle(PAST_DATE, "95000"), candle(storedDate, "96100"), candle(lastDate, "97000"))));
+
+        StepVerifier.create(historicalPriceService.prefetch("Bitcoin",
+                        List.of(PAST_DATE, storedDate, lastDate, LocalDate.ofInstant(NOW, UTC_ZONE))))
+                .expectNext(2)
+                .verifyComplete();
+
+        assertEquals(new BigDecimal("95000"), historicalPriceService.getPriceForDate("bitcoin", PAST_DATE));
+        assertEquals(new BigDecimal("96000"), historicalPriceService.getPriceForDate("bitcoin", storedDate));
+        assertEquals(new BigDecimal("97000"), historicalPriceService.getPriceForDate("bitcoin", lastDate));
+        verify(apiClientService, times(1)).fetchAssetHistoryRange(anyString(), any(), anyLong(), anyLong());
+        verify(apiClientService, never()).fetchAssetHistory(anyString(), anyString(), anyLong(), anyLong());
+        verify(historicalPriceRepository, times(2)).save(any(HistoricalPrice.class));
+    }
+
+    private static CoinCapAssetHistoryDto candle(LocalDate date, String price) {
+        CoinCapAssetHistoryDto historyDto = new CoinCapAssetHistoryDto();
+        historyDto.setPriceUsd(new BigDecimal(price));
+        historyDto.setTime(date.atStartOfDay(UTC_ZONE).toInstant().toEpochMilli());
+        return historyDto;
+    }
+}
@@ -0,0 +1,135 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.entity.InstanceHeartbeat;
+import com.spicep.cryptowallet.repository.InstanceHeartbeatRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class that tests how several instances sharing one database split the symbols to update
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+class InstanceShardCoordinatorTest {
+
+    private static final int SYMBOLS = 300;
+
+    @Autowired
+    private InstanceHeartbeatRepository instanceHeartbeatRepository;
+
+    private final String prefix = "shard-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+    private final Map<String, Long> holdersBySymbol = new HashMap<>();
+    private final List<InstanceShardCoordinator> instances = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        instances.forEach(InstanceShardCoordinator::leave);
+    }
+
+    @Test
+    void shouldFetchEachSymbolOnceAcrossInstances() {
+        IntStream.range(0, SYMBOLS).forEach(i -> holdersBySymbol.put("coin-" + i, 1L));
+        List<InstanceShardCoordinator> nodes = List.of(instance("a"), instance("b"), instance("c"));
+        converge(nodes);
+
+        List<Map<String, Long>> owned = nodes.stream().map(node -> node.ownedSymbols(holdersBySymbol)).toList();
+
+        assertEquals(SYMBOLS, owned.stream().mapToInt(Map::size).sum());
+        assertEquals(holdersBySymbol.keySet(), union(owned));
+        // Each instance gets a fair share
+        owned.forEach(symbols -> assertTrue(symbols.size() > SYMBOLS / 6, "Unbalanced share of " + symbols.size()));
+        nodes.forEach(node -> assertEquals(3, node.getInstanceCount()));
+    }
+
+    @Test
+    void shouldRebalanceOnlyTheSymbolsOfADeadInstance() {
+        IntStream.range(0, SYMBOLS).forEach(i -> holdersBySymbol.put("coin-" + i, 1L));
+        InstanceShardCoordinator a = instance("a");
+        InstanceShardCoordinator b = instance("b");
+        InstanceShardCoordinator c = instance("c");
+        converge(List.of(a, b, c));
+        Map<String, Long> ownedByA = a.ownedSymbols(holdersBySymbol);
+
+        // c stops beating and is gone once the timeout elapsed, by the clock of the database
+        lastSeen(c, Duration.ofSeconds(10));
+        a.heartbeat();
+        b.heartbeat();
+        assertEquals(3, a.getInstanceCount());
+        lastSeen(c, Duration.ofSeconds(20));
+        a.heartbeat();
+        b.heartbeat();
+
+        Map<String, Long> ownedByANow = a.ownedSymbols(holdersBySymbol);
+        Map<String, Long> ownedByB = b.ownedSymbols(holdersBySymbol);
+        assertEquals(2, a.getInstanceCount());
+        assertEquals(SYMBOLS, ownedByANow.size() + ownedByB.size());
+        assertEquals(holdersBySymbol.keySet(), union(List.of(ownedByANow, ownedByB)));
+        assertTrue(ownedByANow.keySet().containsAll(ownedByA.keySet()));
+    }
+
+    @Test
+    void shouldTakeOverRightAwayWhenAnInstanceLeaves() {
+        IntStream.range(0, SYMBOLS).forEach(i -> holdersBySymbol.put("coin-" + i, 1L));
+        InstanceShardCoordinator a = instance("a");
+        InstanceShardCoordinator b = instance("b");
+        converge(List.of(a, b));
+        assertTrue(a.ownedSymbols(holdersBySymbol).size() < SYMBOLS);
+
+        b.leave();
+        a.heartbeat();
+
+        assertEquals(holdersBySymbol, a.ownedSymbols(holdersBySymbol));
+    }
+
+    @Test
+    void shouldOwnEverySymbolWhenDisabled() {
+        holdersBySymbol.put("coin-0", 1L);
+        InstanceShardCoordinator a = instance("a");
+        instance("b").heartbeat();
+        ReflectionTestUtils.setField(a, "enabled", false);
+
+        assertEquals(holdersBySymbol, a.ownedSymbols(holdersBySymbol));
+        assertEquals(1, a.getInstanceCount());
+    }
+
+    private InstanceShardCoordinator instance(String name) {
+        InstanceShardCoordinator instance = new InstanceShardCoordinator(instanceHeartbeatRepository,
+                new SimpleMeterRegistry(), prefix + name);
+        instances.add(instance);
+        return instance;
+    }
+
+    /**
+     * Runs two rounds of heartbeats, after which every instance knows the others
+     */
+    private static void converge(List<InstanceShardCoordinator> nodes) {
+        nodes.forEach(InstanceShardCoordinator::heartbeat);
+        nodes.forEach(InstanceShardCoordinator::heartbeat);
+    }
+
+    /**
+     * Moves the last heartbeat of an instance back in time
+     */
+    private void lastSeen(InstanceShardCoordinator node, Duration ago) {
+        InstanceHeartbeat heartbeat = instanceHeartbeatRepository.findById(node.getInstanceId()).orElseThrow();
+        heartbeat.setLastSeen(instanceHeartbeatRepository.currentTime().minus(ago));
+        instanceHeartbeatRepository.save(heartbeat);
+    }
+
+    private static Set<String> union(List<Map<String, Long>> owned) {
+        Set<String> symbols = new HashSet<>();
+        owned.forEach(map -> symbols.addAll(map.keySet()));
+        return symbols;
+    }
+}
@@ -0,0 +1,133 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetHistoryDto;
+import com.spicep.cryptowallet.dto.request.AssetEvaluationRequestDto;
+import com.spicep.cryptowallet.dto.response.PerformancePoint;
+import com.spicep.cryptowallet.dto.response.PerformanceSeriesResponse;
+import com.spicep.cryptowallet.exception.wallet.WalletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class that tests the evaluation of a portfolio over a range of dates
+ */
+@ExtendWith(MockitoExtension.class)
+class PerformanceSeriesServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 1, 3);
+    private static final ApiClientService.CoinCapInterval DAY_1 = ApiClientService.CoinCapInterval.DAY_1;
+
+    @Mock
+    private ApiClientService apiClientService;
+
+    private PerformanceSeriesService performanceSeriesService;
+
+    @BeforeEach
+    void setUp() {
+        performanceSeriesService = new PerformanceSeriesService(apiClientService);
+    }
+
+    @Test
+    void shouldEvaluateEveryDayWithOneRangeRequestPerSymbol() {
+        List<AssetEvaluationRequestDto> assets = List.of(
+                new AssetEvaluationRequestDto("BTC", new BigDecimal("0.5"), new BigDecimal("25000")),
+                new AssetEvaluationRequestDto("ETH", new BigDecimal("2"), new BigDecimal("4000")));
+
+        long start = millis(FROM);
+        long end = millis(TO.plusDays(1));
+        when(apiClientService.fetchAssetHistoryRange("BTC", DAY_1, start, end)).thenReturn(Mono.just(List.of(
+                price(FROM, "50000"), price(FROM.plusDays(1), "55000"), price(TO, "45000"))));
+        // ETH has no price on the second day, its previous price is kept
+        when(apiClientService.fetchAssetHistoryRange("ETH", DAY_1, start, end)).thenReturn(Mono.just(List.of(
+                price(FROM, "2000"), price(TO, "2200"))));
+
+        PerformanceSeriesResponse series = performanceSeriesService.evaluateSeries(assets, FROM, TO, "d1").block();
+
+        assertNotNull(series);
+        assertEquals("d1", series.getInterval());
+        assertEquals(3, series.getPoints().size());
+
+        PerformancePoint first = series.getPoints().getFirst();
+        assertEquals(FROM.atStartOfDay().toInstant(ZoneOffset.UTC), first.getTime());
+        assertEquals(new BigDecimal("29000.00"), first.getTotal());
+        assertEquals(new BigDecimal("0.00"), first.getPerformanceByAsset().get("BTC"));
+        assertEquals(new BigDecimal("0.00"), first.getPerformanceByAsset().get("ETH"));
+
+        PerformancePoint second = series.getPoints().get(1);
+        assertEquals(new BigDecimal("31500.00"), second.getTotal());
+        assertEquals(new BigDecimal("10.00"), second.getPerformanceByAsset().get("BTC"));
+
+        PerformancePoint last = series.getPoints().getLast();
+        assertEquals(new BigDecimal("26900.00"), last.getTotal());
+        assertEquals(new BigDecimal("-10.00"), last.getPerformanceByAsset().get("BTC"));
+        assertEquals(new BigDecimal("10.00"), last.getPerformanceByAsset().get("ETH"));
+
+        verify(apiClientService, times(2)).fetchAssetHistoryRange(anyString(), eq(DAY_1), anyLong(), anyLong());
+    }
+
+    @Test
+    void shouldStartSeriesOnceEverySymbolHasAPrice() {
+        List<AssetEvaluationRequestDto> assets = List.of(
+                new AssetEvaluationRequestDto("BTC", BigDecimal.ONE, new BigDecimal("50000")),
+                new AssetEvaluationRequestDto("NEWCOIN", BigDecimal.TEN, BigDecimal.TEN));
+
+        when(apiClientService.fetchAssetHistoryRange(eq("BTC"), eq(DAY_1), anyLong(), anyLong())).thenReturn(Mono.just(List.of(
+                price(FROM, "50000"), price(FROM.plusDays(1), "51000"), price(TO, "52000"))));
+        when(apiClientService.fetchAssetHistoryRange(eq("NEWCOIN"), eq(DAY_1), anyLong(), anyLong())).thenReturn(Mono.just(List.of(
+                price(TO, "2"))));
+
+        StepVerifier.create(performanceSeriesService.evaluateSeries(assets, FROM, TO, "d1"))
+                .assertNext(series -> {
+                    assertEquals(1, series.getPoints().size());
+                    assertEquals(new BigDecimal("52020.00"), series.getPoints().getFirst().getTotal());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldFailWhenSymbolHasNoHistory() {
+        List<AssetEvaluationRequestDto> assets = List.of(new AssetEvaluationRequestDto("AMHCOIN", BigDecimal.ONE, BigDecimal.TEN));
+
+        when(apiClientService.fetchAssetHistoryRange(eq("AMHCOIN"), eq(DAY_1), anyLong(), anyLong())).thenReturn(Mono.just(List.of()));
+
+        StepVerifier.create(performanceSeriesService.evaluateSeries(assets, FROM, TO, "d1"))
+                .expectError(WalletException.class)
+                .verify();
+    }
+
+    @Test
+    void shouldRejectInvalidRequests() {
+        List<AssetEvaluationRequestDto> assets = List.of(new AssetEvaluationRequestDto("BTC", BigDecimal.ONE, BigDecimal.TEN));
+
+        assertThrows(WalletException.class, () -> performanceSeriesService.evaluateSeries(List.of(), FROM, TO, "d1"));
+        assertThrows(WalletException.class, () -> performanceSeriesService.evaluateSeries(assets, TO, FROM, "d1"));
+        assertThrows(WalletException.class, () -> performanceSeriesService.evaluateSeries(assets, FROM, TO, "w1"));
+        assertThrows(WalletException.class, () -> performanceSeriesService.evaluateSeries(assets, FROM.minusYears(20), TO, "d1"));
+        verifyNoInteractions(apiClientService);
+    }
+
+    private static CoinCapAssetHistoryDto price(LocalDate date, String price) {
+        CoinCapAssetHistoryDto history = new CoinCapAssetHistoryDto();
+        history.setPriceUsd(new BigDecimal(price));
+        history.setTime(millis(date));
+        return history;
+    }
+
+    private static long millis(LocalDate date) {
+        return date.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
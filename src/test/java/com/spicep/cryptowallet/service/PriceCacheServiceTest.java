@@ -0,0 +1,183 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetDto;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapServerException;
+import com.spicep.cryptowallet.exception.asset.AssetNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class that tests the current price cache
+ */
+@ExtendWith(MockitoExtension.class)
+class PriceCacheServiceTest {
+
+    @Mock
+    private ApiClientService apiClientService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PriceTickStore priceTickStore;
+    private PriceCacheService priceCacheService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        priceTickStore = new PriceTickStore(16, meterRegistry);
+        priceCacheService = new PriceCacheService(apiClientService, priceTickStore, meterRegistry, Duration.ofMinutes(1), 100, 0);
+    }
+
+    @Test
+    void shouldCallApiOnceForRepeatedLookups() {
+        when(apiClientService.fetchCurrentAssetDataBySymbol("bitcoin")).thenReturn(Mono.just(asset(new BigDecimal("50000"))));
+
+        assertEquals(new BigDecimal("50000"), priceCacheService.getCurrentPrice("bitcoin"));
+        assertEquals(new BigDecimal("50000"), priceCacheService.getCurrentPrice("BITCOIN"));
+
+        verify(apiClientService, times(1)).fetchCurrentAssetDataBySymbol("bitcoin");
+    }
+
+    @Test
+    void shouldShareOneUpstreamCallBetweenConcurrentMisses() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(apiClientService.fetchCurrentAssetDataBySymbol("bitcoin")).thenReturn(Mono.fromCallable(() -> {
+            release.await(5, TimeUnit.SECONDS);
+            return asset(new BigDecimal("50000"));
+        }).subscribeOn(Schedulers.boundedElastic()));
+
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<BigDecimal>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> priceCacheService.getCurrentPrice("bitcoin")));
+            }
+            release.countDown();
+
+            for (Future<BigDecimal> result : results) {
+                assertEquals(new BigDecimal("50000"), result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(apiClientService, times(1)).fetchCurrentAssetDataBySymbol("bitcoin");
+    }
+
+    @Test
+    void shouldServePricesPushedByScheduler() {
+        priceCacheService.putAll(Map.of("Ethereum", new BigDecimal("2500")));
+
+        assertEquals(new BigDecimal("2500"), priceCacheService.getCurrentPrice("ethereum"));
+        verify(apiClientService, never()).fetchCurrentAssetDataBySymbol(anyString());
+    }
+
+    @Test
+    void shouldKeepScheduledPricesLongerThanLoadedOnes() {
+        // Loaded prices expire immediately, scheduled prices live twice the cold rate
+        priceCacheService = new PriceCacheService(apiClientService, priceTickStore, meterRegistry, Duration.ZERO, 100, 60_000);
+        when(apiClientService.fetchCurrentAssetDataBySymbol("bitcoin"))
+                .thenReturn(Mono.just(asset(new BigDecimal("50000"))))
+                .thenReturn(Mono.just(asset(new BigDecimal("50100"))));
+
+        priceCacheService.putAll(Map.of("ethereum", new BigDecimal("2500")));
+        assertEquals(new BigDecimal("2500"), priceCacheService.getCurrentPrice("ethereum"));
+        assertEquals(new BigDecimal("50000"), priceCacheService.getCurrentPrice("bitcoin"));
+        assertEquals(new BigDecimal("50100"), priceCacheService.getCurrentPrice("bitcoin"));
+
+        verify(apiClientService, never()).fetchCurrentAssetDataBySymbol("ethereum");
+        verify(apiClientService, times(2)).fetchCurrentAssetDataBySymbol("bitcoin");
+    }
+
+    @Test
+    void shouldNotCacheFailedLookups() {
+        when(apiClientService.fetchCurrentAssetDataBySymbol("amhcoin"))
+                .thenReturn(Mono.error(new AssetNotFoundException("Asset not found for symbol: amhcoin")));
+
+        assertThrows(AssetNotFoundException.class, () -> priceCacheService.getCurrentPrice("amhcoin"));
+        assertThrows(AssetNotFoundException.class, () -> priceCacheService.getCurrentPrice("amhcoin"));
+
+        verify(apiClientService, times(2)).fetchCurrentAssetDataBySymbol("amhcoin");
+    }
+
+    @Test
+    void shouldExposeHitAndMissMetrics() {
+        when(apiClientService.fetchCurrentAssetDataBySymbol("bitcoin")).thenReturn(Mono.just(asset(new BigDecimal("50000"))));
+
+        priceCacheService.getCurrentPrice("bitcoin");
+        priceCacheService.getCurrentPrice("bitcoin");
+        priceCacheService.getCurrentPrice("bitcoin");
+
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+        assertTrue(meterRegistry.get("cache.load.duration").gauge().value() > 0);
+    }
+
+    @Test
+    void shouldShareCachedPricesWithReactiveCallers() {
+        when(apiClientService.fetchCurrentAssetDataBySymbol("bitcoin")).thenReturn(Mono.just(asset(new BigDecimal("50000"))));
+
+        StepVerifier.create(priceCacheService.fetchCurrentPrice("bitcoin"))
+                .expectNext(new BigDecimal("50000"))
+                .verifyComplete();
+        assertEquals(new BigDecimal("50000"), priceCacheService.getCurrentPrice("bitcoin"));
+
+        verify(apiClientService, times(1)).fetchCurrentAssetDataBySymbol("bitcoin");
+    }
+
+    @Test
+    void shouldFallBackToLastKnownPriceWhileApiIsUnavailable() {
+        // Cached prices expire immediately, so every lookup calls the API
+        priceCacheService = new PriceCacheService(apiClientService, priceTickStore, meterRegistry, Duration.ZERO, 100, 0);
+        when(apiClientService.fetchCurrentAssetDataBySymbol("bitcoin"))
+                .thenReturn(Mono.just(asset(new BigDecimal("50000"))))
+                .thenReturn(Mono.error(new CoinCapServerException("CoinCap API is unavailable, calls are suspended")));
+        // Recorded by the scheduler
+        priceTickStore.record(Map.of("ethereum", new BigDecimal("2500")), Instant.now());
+        when(apiClientService.fetchCurrentAssetDataBySymbol("ethereum"))
+                .thenReturn(Mono.error(new CoinCapServerException("CoinCap API is unavailable, calls are suspended")));
+
+        assertEquals(new BigDecimal("50000"), priceCacheService.getCurrentPrice("bitcoin"));
+        assertEquals(new BigDecimal("50000"), priceCacheService.getCurrentPrice("bitcoin"));
+        StepVerifier.create(priceCacheService.fetchCurrentPrice("ETHEREUM"))
+                .expectNext(new BigDecimal("2500"))
+                .verifyComplete();
+
+        assertEquals(2.0, meterRegistry.get("prices.fallback").counter().count());
+    }
+
+    @Test
+    void shouldFailWithoutLastKnownPriceWhileApiIsUnavailable() {
+        when(apiClientService.fetchCurrentAssetDataBySymbol("bitcoin"))
+                .thenReturn(Mono.error(new CoinCapServerException("CoinCap API is unavailable, calls are suspended")));
+
+        assertThrows(CoinCapServerException.class, () -> priceCacheService.getCurrentPrice("bitcoin"));
+        StepVerifier.create(priceCacheService.fetchCurrentPrice("bitcoin"))
+                .verifyError(CoinCapServerException.class);
+        assertEquals(0.0, meterRegistry.get("prices.fallback").counter().count());
+    }
+
+    private static CoinCapAssetDto asset(BigDecimal price) {
+        CoinCapAssetDto assetDto = new CoinCapAssetDto();
+        assetDto.setPriceUsd(price);
+        return assetDto;
+    }
+}
@@ -0,0 +1,120 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.entity.PriceHistory;
+import com.spicep.cryptowallet.repository.PriceHistoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class that tests the write-behind buffering of the price history
+ */
+@ExtendWith(MockitoExtension.class)
+class PriceHistoryWriterTest {
+
+    private static final long TIMEOUT_MILLIS = 2000;
+
+    @Mock
+    private PriceHistoryRepository priceHistoryRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PriceHistoryWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void shouldWriteFullBatchesWithoutWaitingForTheInterval() {
+        writer = new PriceHistoryWriter(priceHistoryRepository, meterRegistry, 100, 3, Duration.ofSeconds(10));
+        writer.start();
+
+        assertEquals(6, writer.enqueue(rows(6)));
+
+        ArgumentCaptor<List<PriceHistory>> batches = ArgumentCaptor.captor();
+        verify(priceHistoryRepository, timeout(TIMEOUT_MILLIS).times(2)).insertAll(batches.capture());
+        batches.getAllValues().forEach(batch -> assertEquals(3, batch.size()));
+    }
+
+    @Test
+    void shouldFlushAPartialBatchAfterTheInterval() {
+        writer = new PriceHistoryWriter(priceHistoryRepository, meterRegistry, 100, 100, Duration.ofMillis(50));
+        writer.start();
+
+        writer.enqueue(rows(2));
+
+        verify(priceHistoryRepository, timeout(TIMEOUT_MILLIS)).insertAll(argThat(batch -> batch.size() == 2));
+    }
+
+    @Test
+    void shouldDrainTheQueueOnStop() {
+        writer = new PriceHistoryWriter(priceHistoryRepository, meterRegistry, 100, 2, Duration.ofSeconds(10));
+        writer.start();
+        writer.enqueue(rows(5));
+
+        long start = System.nanoTime();
+        writer.stop();
+
+        // Stopping does not wait for the flush interval
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+        ArgumentCaptor<List<PriceHistory>> batches = ArgumentCaptor.captor();
+        verify(priceHistoryRepository, atLeastOnce()).insertAll(batches.capture());
+        assertEquals(5, batches.getAllValues().stream().mapToInt(List::size).sum());
+        assertEquals(0, writer.getQueueDepth());
+        assertEquals(5.0, meterRegistry.get("price.update.rows").tag("table", "price_history").counter().count());
+    }
+
+    @Test
+    void shouldDropRowsWhenTheQueueIsFull() {
+        writer = new PriceHistoryWriter(priceHistoryRepository, meterRegistry, 2, 10, Duration.ofSeconds(1));
+
+        assertEquals(2, writer.enqueue(rows(3)));
+
+        assertEquals(2.0, meterRegistry.get("price.history.queue.depth").gauge().value());
+        assertEquals(1.0, meterRegistry.get("price.history.dropped").tag("reason", "queue_full").counter().count());
+        verifyNoInteractions(priceHistoryRepository);
+    }
+
+    @Test
+    void shouldKeepWritingAfterAFailedBatch() {
+        doThrow(new DataAccessResourceFailureException("Connection refused"))
+                .doNothing()
+                .when(priceHistoryRepository).insertAll(anyList());
+        writer = new PriceHistoryWriter(priceHistoryRepository, meterRegistry, 100, 1, Duration.ofSeconds(10));
+        writer.start();
+
+        writer.enqueue(rows(2));
+
+        verify(priceHistoryRepository, timeout(TIMEOUT_MILLIS).times(2)).insertAll(anyList());
+        assertEquals(1.0, meterRegistry.get("price.history.dropped").tag("reason", "insert_failed").counter().count());
+    }
+
+    private static List<PriceHistory> rows(int count) {
+        Instant timestamp = Instant.parse("2025-01-01T00:00:00Z");
+        return IntStream.range(0, count).mapToObj(i -> {
+            PriceHistory priceHistory = new PriceHistory();
+            priceHistory.setSymbol("coin-" + i);
+            priceHistory.setPrice(BigDecimal.ONE);
+            priceHistory.setTimestamp(timestamp);
+            return priceHistory;
+        }).toList();
+    }
+}
@@ -0,0 +1,118 @@
+package com.spicep.cryptowallet.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class that tests the in-memory tick store
+ */
+class PriceTickStoreTest {
+
+    private static final int CAPACITY = 4;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PriceTickStore store = new PriceTickStore(CAPACITY, meterRegistry);
+
+    @Test
+    void shouldLookUpTheLatestTickAtOrBeforeATime() {
+        store.record("Bitcoin", 1000, new BigDecimal("50000.12"));
+        store.record("bitcoin", 2000, new BigDecimal("51000"));
+        store.record("bitcoin", 3000, new BigDecimal("0.0000012345"));
+
+        assertEquals(new BigDecimal("0.0000012345"), PriceTickStore.toPrice(store.latestPrice("BITCOIN")));
+        assertEquals(new BigDecimal("51000"), PriceTickStore.toPrice(store.priceAtOrBefore("bitcoin", 2999)));
+        assertEquals(new BigDecimal("51000"), PriceTickStore.toPrice(store.priceAtOrBefore("bitcoin", 2000)));
+        assertEquals(new BigDecimal("50000.12"), PriceTickStore.toPrice(store.priceAtOrBefore("bitcoin", 1999)));
+        assertEquals(PriceTickStore.NO_PRICE, store.priceAtOrBefore("bitcoin", 999));
+        assertEquals(PriceTickStore.NO_PRICE, store.latestPrice("ethereum"));
+        assertNull(PriceTickStore.toPrice(PriceTickStore.NO_PRICE));
+    }
+
+    @Test
+    void shouldKeepOnlyTheLatestTicksOnceFull() {
+        for (int i = 1; i <= 6; i++) {
+            store.record("bitcoin", i * 1000L, BigDecimal.valueOf(i));
+        }
+
+        // Ticks 1 and 2 were overwritten
+        assertEquals(PriceTickStore.NO_PRICE, store.priceAtOrBefore("bitcoin", 2500));
+        assertEquals(BigDecimal.valueOf(3), PriceTickStore.toPrice(store.priceAtOrBefore("bitcoin", 3500)));
+        assertEquals(BigDecimal.valueOf(6), PriceTickStore.toPrice(store.latestPrice("bitcoin")));
+        assertEquals(CAPACITY, store.tickCount());
+        assertEquals(4.0, meterRegistry.get("price.tick.store.ticks").gauge().value());
+    }
+
+    @Test
+    void shouldCopyRangesOldestFirst() {
+        for (int i = 1; i <= 6; i++) {
+            store.record("bitcoin", i * 1000L, BigDecimal.valueOf(i));
+        }
+        long[] times = new long[CAPACITY];
+        long[] prices = new long[CAPACITY];
+
+        int copied = store.range("bitcoin", 3500, 6000, times, prices);
+
+        assertEquals(2, copied);
+        assertEquals(4000, times[0]);
+        assertEquals(5000, times[1]);
+        assertEquals(BigDecimal.valueOf(4), PriceTickStore.toPrice(prices[0]));
+        assertEquals(BigDecimal.valueOf(5), PriceTickStore.toPrice(prices[1]));
+        assertEquals(1, store.range("bitcoin", 0, Long.MAX_VALUE, new long[1], new long[1]));
+        assertEquals(0, store.range("ethereum", 0, Long.MAX_VALUE, times, prices));
+    }
+
+    @Test
+    void shouldIgnoreOutOfOrderTicksAndPricesThatDoNotFit() {
+        store.record(Map.of("bitcoin", new BigDecimal("51000")), Instant.ofEpochMilli(2000));
+        store.record("bitcoin", 1000, new BigDecimal("50000"));
+        store.record("ethereum", 1000, new BigDecimal("1E+10"));
+
+        assertEquals(1, store.tickCount());
+        assertEquals(PriceTickStore.NO_PRICE, store.latestPrice("ethereum"));
+        assertEquals(PriceTickStore.NO_PRICE, PriceTickStore.toFixedPoint(new BigDecimal("-922337203.6854775808")));
+    }
+
+    @Test
+    void shouldServeConsistentTicksWhileWriting() throws Exception {
+        PriceTickStore largeStore = new PriceTickStore(1024, meterRegistry);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        // Every tick is priced at its time, a torn read would break that
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            for (long time = 1; time <= 200_000; time++) {
+                largeStore.record("bitcoin", time, BigDecimal.valueOf(time));
+            }
+            writing.set(false);
+        });
+
+        long[] times = new long[16];
+        long[] prices = new long[16];
+        while (writing.get()) {
+            long latest = largeStore.latestPrice("bitcoin");
+            if (latest != PriceTickStore.NO_PRICE) {
+                long time = PriceTickStore.toPrice(latest).longValueExact();
+                // The tick may already be overwritten
+                long atOrBefore = largeStore.priceAtOrBefore("bitcoin", time);
+                if (atOrBefore != PriceTickStore.NO_PRICE) {
+                    assertEquals(time, PriceTickStore.toPrice(atOrBefore).longValueExact());
+                }
+
+                int copied = largeStore.range("bitcoin", time - 8, time + 1, times, prices);
+                for (int i = 0; i < copied; i++) {
+                    assertEquals(times[i], PriceTickStore.toPrice(prices[i]).longValueExact());
+                }
+            }
+        }
+        writer.get(10, TimeUnit.SECONDS);
+        assertEquals(1024, largeStore.tickCount());
+    }
+}
@@ -0,0 +1,110 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.request.AssetEvaluationRequestDto;
+import com.spicep.cryptowallet.dto.response.WalletEvaluationResponse;
+import com.spicep.cryptowallet.entity.Asset;
+import com.spicep.cryptowallet.exception.wallet.WalletException;
+import com.spicep.cryptowallet.repository.AssetRepository;
+import com.spicep.cryptowallet.repository.UserRepository;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class that tests the non-blocking wallet service
+ */
+@ExtendWith(MockitoExtension.class)
+class ReactiveWalletServiceTest {
+
+    private static final LocalDate REFERENCE_DATE = LocalDate.of(2025, 1, 7);
+
+    @Mock
+    private PriceCacheService priceCacheService;
+
+    @Mock
+    private HistoricalPriceService historicalPriceService;
+
+    private WalletService walletService;
+    private ReactiveWalletService reactiveWalletService;
+
+    @BeforeEach
+    void setUp() {
+        walletService = spy(new WalletService(mock(WalletRepository.class), mock(UserRepository.class), mock(AssetRepository.class),
+                priceCacheService, historicalPriceService, mock(ApplicationEventPublisher.class)));
+        reactiveWalletService = new ReactiveWalletService(walletService, priceCacheService, historicalPriceService);
+    }
+
+    @Test
+    void shouldEvaluateWalletLikeBlockingService() {
+        List<AssetEvaluationRequestDto> assets = List.of(
+                new AssetEvaluationRequestDto("BTC", new BigDecimal("0.5"), new BigDecimal("35000")),
+                new AssetEvaluationRequestDto("ETH", new BigDecimal("4.25"), new BigDecimal("15310.56")));
+
+        when(historicalPriceService.fetchPriceForDate("BTC", REFERENCE_DATE)).thenReturn(Mono.just(new BigDecimal("56999.9")));
+        when(historicalPriceService.fetchPriceForDate("ETH", REFERENCE_DATE)).thenReturn(Mono.just(new BigDecimal("2004.7")));
+        when(historicalPriceService.getPriceForDate("BTC", REFERENCE_DATE)).thenReturn(new BigDecimal("56999.9"));
+        when(historicalPriceService.getPriceForDate("ETH", REFERENCE_DATE)).thenReturn(new BigDecimal("2004.7"));
+
+        WalletEvaluationResponse expected = walletService.evaluateWallet(assets, REFERENCE_DATE);
+
+        StepVerifier.create(reactiveWalletService.evaluateWallet(assets, REFERENCE_DATE))
+                .assertNext(response -> assertEquals(expected, response))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldFailEvaluationWhenNoPriceForDate() {
+        List<AssetEvaluationRequestDto> assets = List.of(new AssetEvaluationRequestDto("AMHCOIN", BigDecimal.ONE, BigDecimal.TEN));
+
+        when(historicalPriceService.fetchPriceForDate("AMHCOIN", REFERENCE_DATE)).thenReturn(Mono.empty());
+
+        StepVerifier.create(reactiveWalletService.evaluateWallet(assets, REFERENCE_DATE))
+                .expectError(WalletException.class)
+                .verify();
+    }
+
+    @Test
+    void shouldFailEvaluationForEmptyAssetList() {
+        StepVerifier.create(reactiveWalletService.evaluateWallet(List.of(), REFERENCE_DATE))
+                .expectError(WalletException.class)
+                .verify();
+    }
+
+    @Test
+    void shouldAddAssetWithPriceResolvedWithoutBlocking() {
+        Asset asset = new Asset();
+        when(priceCacheService.fetchCurrentPrice("BTC")).thenReturn(Mono.just(new BigDecimal("50000")));
+        doReturn(asset).when(walletService).addAsset(1L, "BTC", BigDecimal.ONE, new BigDecimal("50000"));
+
+        StepVerifier.create(reactiveWalletService.addAsset(1L, "BTC", BigDecimal.ONE))
+                .expectNext(asset)
+                .verifyComplete();
+
+        verify(priceCacheService, never()).getCurrentPrice(any());
+    }
+
+    @Test
+    void shouldNotAddUnknownAsset() {
+        when(priceCacheService.fetchCurrentPrice("AMHCOIN")).thenReturn(Mono.empty());
+
+        StepVerifier.create(reactiveWalletService.addAsset(1L, "AMHCOIN", BigDecimal.ONE))
+                .expectError(WalletException.class)
+                .verify();
+
+        verify(walletService, never()).addAsset(any(), any(), any(), any());
+    }
+}
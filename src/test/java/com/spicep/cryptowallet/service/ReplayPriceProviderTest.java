@@ -0,0 +1,169 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.coincap.CoinCapAssetHistoryDto;
+import com.spicep.cryptowallet.exception.apiclient.CoinCapAssetNotFoundException;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class that tests the replay of a recorded tick file
+ */
+class ReplayPriceProviderTest {
+
+    private static final LocalDate RECORDED_DAY = LocalDate.of(2025, 1, 1);
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void shouldFollowTheReplayClock() throws IOException {
+        ReplayPriceProvider provider = provider(1.0, Duration.ZERO);
+
+        assertEquals(new BigDecimal("93000.10"), currentPrice(provider, "bitcoin"));
+        // Symbols recorded later are priced at their first tick
+        assertEquals(new BigDecimal("3350.50"), currentPrice(provider, "ETHEREUM"));
+
+        clock.advance(Duration.ofMinutes(45));
+        assertEquals(new BigDecimal("93100.20"), currentPrice(provider, "bitcoin"));
+
+        clock.advance(Duration.ofMinutes(45));
+        assertEquals(new BigDecimal("93300.40"), currentPrice(provider, "bitcoin"));
+        assertEquals(new BigDecimal("3360.60"), currentPrice(provider, "ethereum"));
+    }
+
+    @Test
+    void shouldReplayFasterAndLoopAtTheEnd() throws IOException {
+        ReplayPriceProvider provider = provider(60.0, Duration.ZERO);
+
+        clock.advance(Duration.ofMinutes(1));
+        assertEquals(new BigDecimal("93200.30"), currentPrice(provider, "bitcoin"));
+
+        // The recording lasts a day, a day of replay later the same tick is served again
+        clock.advance(Duration.ofMinutes(24).plusSeconds(1));
+        assertEquals(new BigDecimal("93200.30"), currentPrice(provider, "bitcoin"));
+    }
+
+    @Test
+    void shouldGetCurrentPricesOfKnownSymbols() throws IOException {
+        ReplayPriceProvider provider = provider(1.0, Duration.ZERO);
+
+        Map<String, BigDecimal> prices = provider.getCurrentPrices(List.of("BITCOIN", "ethereum", "amhcoin"));
+
+        assertEquals(Map.of("BITCOIN", new BigDecimal("93000.10"), "ethereum", new BigDecimal("3350.50")), prices);
+        assertEquals(25, provider.getBulkChunkSize());
+    }
+
+    @Test
+    void shouldFailForUnknownSymbols() throws IOException {
+        ReplayPriceProvider provider = provider(1.0, Duration.ZERO);
+
+        StepVerifier.create(provider.fetchCurrentAssetDataBySymbol("amhcoin"))
+                .verifyError(CoinCapAssetNotFoundException.class);
+    }
+
+    @Test
+    void shouldServeHistoryByRecordedTimeKeepingFirstTickOfEachInterval() throws IOException {
+        ReplayPriceProvider provider = provider(1.0, Duration.ZERO);
+
+        assertEquals(List.of(new BigDecimal("93000.10"), new BigDecimal("93100.20"), new BigDecimal("93200.30"), new BigDecimal("93300.40")),
+                prices(provider.getAssetPriceForDate("bitcoin", "m30", RECORDED_DAY)));
+        assertEquals(List.of(new BigDecimal("93000.10"), new BigDecimal("93200.30")),
+                prices(provider.getAssetPriceForDate("bitcoin", "h1", RECORDED_DAY)));
+        assertEquals(List.of(new BigDecimal("93000.10")),
+                prices(provider.getAssetPriceForDate("bitcoin", "d1", RECORDED_DAY)));
+        assertEquals(List.of(new BigDecimal("94000.00")),
+                prices(provider.getAssetPriceForDate("bitcoin", "d1", RECORDED_DAY.plusDays(1))));
+        assertTrue(provider.getAssetPriceForDate("amhcoin", "d1", RECORDED_DAY).isEmpty());
+    }
+
+    @Test
+    void shouldServeHistoryRangesAtOnce() throws IOException {
+        ReplayPriceProvider provider = provider(1.0, Duration.ZERO);
+        long start = RECORDED_DAY.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        long end = RECORDED_DAY.plusDays(2).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+
+        StepVerifier.create(provider.fetchAssetHistoryRange("bitcoin", ApiClientService.CoinCapInterval.DAY_1, start, end))
+                .assertNext(history -> assertEquals(List.of(new BigDecimal("93000.10"), new BigDecimal("94000.00")), prices(history)))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldDelayAnswersBySyntheticLatency() throws IOException {
+        ReplayPriceProvider provider = provider(1.0, Duration.ofMillis(250));
+
+        StepVerifier.withVirtualTime(() -> provider.fetchCurrentAssetDataBySymbol("bitcoin"))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(249))
+                .thenAwait(Duration.ofMillis(1))
+                .assertNext(asset -> assertEquals(new BigDecimal("93000.10"), asset.getPriceUsd()))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldRejectInvalidTicks() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new ReplayPriceProvider(
+                new StringReader("timestamp,symbol,price\n1735689600000,bitcoin,93000.10\n1735691400000,bitcoin\n"),
+                1.0, Duration.ZERO, Duration.ZERO, 25, clock));
+
+        assertTrue(exception.getMessage().contains("line 3"));
+    }
+
+    private ReplayPriceProvider provider(double speed, Duration latency) throws IOException {
+        try (Reader ticks = new InputStreamReader(Objects.requireNonNull(
+                getClass().getResourceAsStream("/replay/ticks.csv")), StandardCharsets.UTF_8)) {
+            return new ReplayPriceProvider(ticks, speed, latency, Duration.ZERO, 25, clock);
+        }
+    }
+
+    private static BigDecimal currentPrice(ReplayPriceProvider provider, String symbol) {
+        return Objects.requireNonNull(provider.fetchCurrentAssetDataBySymbol(symbol).block()).getPriceUsd();
+    }
+
+    private static List<BigDecimal> prices(List<CoinCapAssetHistoryDto> history) {
+        return history.stream().map(CoinCapAssetHistoryDto::getPriceUsd).toList();
+    }
+
+    /**
+     * Clock moved forward by the tests
+     */
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2026-03-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.projection.SymbolHolders;
+import com.spicep.cryptowallet.event.WalletHoldingsChangedEvent;
+import com.spicep.cryptowallet.repository.AssetRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class that tests the registry of the symbols to update
+ */
+@ExtendWith(MockitoExtension.class)
+class TrackedSymbolRegistryTest {
+
+    @Mock
+    private AssetRepository assetRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TrackedSymbolRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new TrackedSymbolRegistry(assetRepository, meterRegistry);
+    }
+
+    @Test
+    void shouldLoadSymbolsOnceAndTrackNewOnes() {
+        when(assetRepository.findHolderCounts()).thenReturn(held("bitcoin", "ethereum"));
+
+        assertEquals(Set.of("bitcoin", "ethereum"), registry.getHolderCounts().keySet());
+        registry.onHoldingsChanged(new WalletHoldingsChangedEvent(1L, "solana"));
+        registry.onHoldingsChanged(new WalletHoldingsChangedEvent(2L, "bitcoin"));
+
+        assertEquals(Set.of("bitcoin", "ethereum", "solana"), registry.getHolderCounts().keySet());
+        assertEquals(Map.of("bitcoin", 5L, "ethereum", 1L, "solana", 1L), registry.getHolderCounts());
+        assertEquals(3.0, meterRegistry.get("price.tracked.symbols").gauge().value());
+        verify(assetRepository, times(1)).findHolderCounts();
+    }
+
+    @Test
+    void shouldDropSymbolsNobodyHoldsOnRebuild() {
+        when(assetRepository.findHolderCounts())
+                .thenReturn(held("bitcoin", "ethereum"))
+                .thenReturn(held("bitcoin"));
+        registry.getHolderCounts();
+
+        registry.rebuild();
+
+        assertEquals(Set.of("bitcoin"), registry.getHolderCounts().keySet());
+    }
+
+    @Test
+    void shouldKeepSymbolsTrackedWhileRebuilding() {
+        when(assetRepository.findHolderCounts())
+                .thenReturn(held("bitcoin"))
+                .thenAnswer(invocation -> {
+                    // Committed after the query read the assets
+                    registry.track("solana");
+                    return held("bitcoin");
+                });
+        registry.getHolderCounts();
+
+        registry.rebuild();
+
+        assertEquals(Set.of("bitcoin", "solana"), registry.getHolderCounts().keySet());
+    }
+
+    @Test
+    void shouldLoadOnFirstUseWhenTrackedBefore() {
+        registry.track("solana");
+        when(assetRepository.findHolderCounts()).thenReturn(held("bitcoin", "solana"));
+
+        assertEquals(Set.of("bitcoin", "solana"), registry.getHolderCounts().keySet());
+    }
+
+    /**
+     * @return Holder counts of the symbols, the first symbol held by five wallets
+     */
+    private static List<SymbolHolders> held(String... symbols) {
+        return IntStream.range(0, symbols.length)
+                .mapToObj(i -> new SymbolHolders(symbols[i], i == 0 ? 5L : 1L))
+                .toList();
+    }
+}
@@ -0,0 +1,103 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.request.AssetEvaluationRequestDto;
+import com.spicep.cryptowallet.dto.response.WalletEvaluationResponse;
+import com.spicep.cryptowallet.exception.wallet.WalletException;
+import com.spicep.cryptowallet.repository.AssetRepository;
+import com.spicep.cryptowallet.repository.UserRepository;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Class that tests how wallet evaluation runs its price lookups: how many overlap and when it gives up.
+ * The latency itself is measured by {@code WalletEvaluationLatencyBenchmark}, run with the jmh profile.
+ */
+class WalletEvaluationLatencyTest {
+
+    private static final long LOOKUP_LATENCY_MILLIS = 20;
+    private static final long LATCH_TIMEOUT_SECONDS = 5;
+    // Within the 10 threads per core of the bounded elastic scheduler, so every lookup gets a thread
+    private static final int CONCURRENCY = 8;
+    private static final LocalDate REFERENCE_DATE = LocalDate.of(2025, 1, 7);
+
+    private HistoricalPriceService historicalPriceService;
+    private WalletService walletService;
+
+    @BeforeEach
+    void setUp() {
+        historicalPriceService = mock(HistoricalPriceService.class);
+        walletService = new WalletService(mock(WalletRepository.class), mock(UserRepository.class), mock(AssetRepository.class),
+                mock(PriceCacheService.class), historicalPriceService, mock(ApplicationEventPublisher.class));
+
+        when(historicalPriceService.getPriceForDate(anyString(), any())).thenAnswer(invocation -> {
+            Thread.sleep(LOOKUP_LATENCY_MILLIS);
+            return price(invocation.getArgument(0));
+        });
+    }
+
+    @Test
+    void shouldOverlapLookupsUpToTheConcurrency() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch overlapping = new CountDownLatch(CONCURRENCY);
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                // The first lookups only return once as many as the concurrency run at the same time
+                overlapping.countDown();
+                overlapping.await(LATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                return price(invocation.getArgument(0));
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }).when(historicalPriceService).getPriceForDate(anyString(), any());
+        List<AssetEvaluationRequestDto> assets = assets(50);
+
+        ReflectionTestUtils.setField(walletService, "evaluationConcurrency", CONCURRENCY);
+        WalletEvaluationResponse concurrent = walletService.evaluateWallet(assets, REFERENCE_DATE);
+        assertEquals(0, overlapping.getCount());
+        assertEquals(CONCURRENCY, maxInFlight.get());
+
+        maxInFlight.set(0);
+        ReflectionTestUtils.setField(walletService, "evaluationConcurrency", 1);
+        WalletEvaluationResponse sequential = walletService.evaluateWallet(assets, REFERENCE_DATE);
+        assertEquals(1, maxInFlight.get());
+        assertEquals(sequential, concurrent);
+    }
+
+    @Test
+    void shouldFailWhenPricesAreNotResolvedBeforeDeadline() {
+        ReflectionTestUtils.setField(walletService, "evaluationConcurrency", 1);
+        ReflectionTestUtils.setField(walletService, "evaluationTimeout", Duration.ofMillis(LOOKUP_LATENCY_MILLIS * 3));
+
+        assertThrows(WalletException.class, () -> walletService.evaluateWallet(assets(10), REFERENCE_DATE));
+    }
+
+    private static BigDecimal price(String symbol) {
+        return new BigDecimal(symbol.substring(symbol.indexOf('-') + 1) + ".5");
+    }
+
+    private static List<AssetEvaluationRequestDto> assets(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new AssetEvaluationRequestDto("coin-" + i, BigDecimal.valueOf(i + 1), BigDecimal.valueOf(100L * (i + 1))))
+                .toList();
+    }
+}
@@ -0,0 +1,188 @@
+package com.spicep.cryptowallet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spicep.cryptowallet.dto.projection.ImportedWallets;
+import com.spicep.cryptowallet.dto.projection.WalletHolding;
+import com.spicep.cryptowallet.dto.response.WalletImportResult;
+import com.spicep.cryptowallet.event.WalletHoldingsChangedEvent;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class that tests the bulk import of wallets
+ */
+@ExtendWith(MockitoExtension.class)
+class WalletImportServiceTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private PriceProvider priceProvider;
+
+    @Mock
+    private PriceCacheService priceCacheService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private WalletImportService walletImportService;
+
+    @BeforeEach
+    void setUp() {
+        walletImportService = new WalletImportService(walletRepository, priceProvider, priceCacheService,
+                eventPublisher, new ObjectMapper(), transactionManager);
+    }
+
+    @Test
+    void shouldImportCsvLinesWithOneWalletPerEmail() throws Exception {
+        when(priceProvider.getBulkChunkSize()).thenReturn(50);
+        when(priceProvider.getCurrentPrices(anyCollection())).thenReturn(Map.of("bitcoin", new BigDecimal("30000.00")));
+        when(walletRepository.findOrCreateWallets(anyCollection()))
+                .thenReturn(new ImportedWallets(Map.of("a@spicep.com", 1L, "b@spicep.com", 2L), 1));
+
+        WalletImportResult result = walletImportService.importWallets(new StringReader("""
+                email,symbol,quantity
+                a@spicep.com,bitcoin,1.5
+                a@spicep.com,bitcoin,0.5
+                b@spicep.com,,
+                """), WalletImportService.Format.CSV);
+
+        assertEquals(3, result.getLines());
+        // The wallet of a@spicep.com already existed
+        assertEquals(1, result.getWallets());
+        assertEquals(1, result.getAssets());
+        assertEquals(0, result.getRejected());
+        verify(walletRepository).findOrCreateWallets(Set.of("a@spicep.com", "b@spicep.com"));
+        // Lines of the same wallet and symbol are added up
+        verify(walletRepository).addHoldings(List.of(new WalletHolding(1L, "bitcoin", new BigDecimal("2.0"))),
+                Map.of("bitcoin", new BigDecimal("30000.00")));
+        verify(priceCacheService).putAll(Map.of("bitcoin", new BigDecimal("30000.00")));
+        verify(eventPublisher).publishEvent(new WalletHoldingsChangedEvent(1L, "bitcoin"));
+    }
+
+    @Test
+    void shouldResolveEachSymbolPriceOncePerImport() throws Exception {
+        ReflectionTestUtils.setField(walletImportService, "batchSize", 2);
+        when(priceProvider.getBulkChunkSize()).thenReturn(50);
+        when(priceProvider.getCurrentPrices(anyCollection())).thenReturn(Map.of("bitcoin", BigDecimal.TEN));
+        when(walletRepository.findOrCreateWallets(anyCollection())).thenReturn(new ImportedWallets(Map.of("a@spicep.com", 1L), 1));
+
+        walletImportService.importWallets(new StringReader("""
+                {"email": "a@spicep.com", "symbol": "bitcoin", "quantity": 1}
+                {"email": "a@spicep.com", "symbol": "amhcoin", "quantity": 1}
+                {"email": "a@spicep.com", "symbol": "bitcoin", "quantity": 2}
+                {"email": "a@spicep.com", "symbol": "amhcoin", "quantity": 2}
+                """), WalletImportService.Format.NDJSON);
+
+        // Unknown symbols are not requested again either
+        verify(priceProvider, times(1)).getCurrentPrices(anyCollection());
+        verify(walletRepository, times(2)).addHoldings(anyList(), anyMap());
+    }
+
+    @Test
+    void shouldRequestPricesInBulkChunks() throws Exception {
+        when(priceProvider.getBulkChunkSize()).thenReturn(2);
+        when(priceProvider.getCurrentPrices(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> symbols = invocation.getArgument(0);
+            return symbols.stream().collect(Collectors.toMap(symbol -> symbol, symbol -> BigDecimal.ONE));
+        });
+        when(walletRepository.findOrCreateWallets(anyCollection())).thenReturn(new ImportedWallets(Map.of("a@spicep.com", 1L), 1));
+
+        WalletImportResult result = walletImportService.importWallets(new StringReader("""
+                a@spicep.com,bitcoin,1
+                a@spicep.com,ethereum,1
+                a@spicep.com,amhcoin,1
+                """), WalletImportService.Format.CSV);
+
+        verify(priceProvider).getCurrentPrices(List.of("bitcoin", "ethereum"));
+        verify(priceProvider).getCurrentPrices(List.of("amhcoin"));
+        assertEquals(3, result.getAssets());
+    }
+
+    @Test
+    void shouldRejectInvalidLinesAndUnknownSymbols() throws Exception {
+        when(priceProvider.getBulkChunkSize()).thenReturn(50);
+        when(priceProvider.getCurrentPrices(anyCollection())).thenReturn(Map.of("bitcoin", BigDecimal.TEN));
+        when(walletRepository.findOrCreateWallets(anyCollection())).thenReturn(new ImportedWallets(Map.of("a@spicep.com", 1L), 1));
+
+        WalletImportResult result = walletImportService.importWallets(new StringReader("""
+                a@spicep.com,bitcoin,1
+                not-an-email,bitcoin,1
+                a@spicep.com,bitcoin,-1
+                a@spicep.com,bitcoin,many
+                a@spicep.com,amhcoin,1
+                a@spicep.com,bitcoin,1,extra
+                """), WalletImportService.Format.CSV);
+
+        assertEquals(6, result.getLines());
+        assertEquals(1, result.getAssets());
+        assertEquals(5, result.getRejected());
+        assertEquals(List.of("Line 2: invalid email", "Line 3: quantity must be positive", "Line 4: unreadable line",
+                "Line 6: expected email,symbol,quantity", "Line 5: unknown symbol amhcoin"), result.getErrors());
+    }
+
+    @Test
+    void shouldRejectTheLinesOfAFailedChunkAndContinue() throws Exception {
+        ReflectionTestUtils.setField(walletImportService, "batchSize", 1);
+        when(priceProvider.getBulkChunkSize()).thenReturn(50);
+        when(priceProvider.getCurrentPrices(anyCollection())).thenReturn(Map.of("bitcoin", BigDecimal.TEN));
+        when(walletRepository.findOrCreateWallets(anyCollection()))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"))
+                .thenReturn(new ImportedWallets(Map.of("b@spicep.com", 2L), 1));
+
+        WalletImportResult result = walletImportService.importWallets(new StringReader("""
+                a@spicep.com,bitcoin,1
+                b@spicep.com,bitcoin,1
+                """), WalletImportService.Format.CSV);
+
+        assertEquals(1, result.getRejected());
+        assertEquals(List.of("Line 1: import failed"), result.getErrors());
+        ArgumentCaptor<List<WalletHolding>> holdings = ArgumentCaptor.captor();
+        verify(walletRepository).addHoldings(holdings.capture(), anyMap());
+        assertEquals(2L, holdings.getValue().getFirst().walletId());
+        verify(eventPublisher, never()).publishEvent(new WalletHoldingsChangedEvent(1L, "bitcoin"));
+    }
+
+    @Test
+    void shouldRollBackTheWalletsOfAChunkWhoseAssetsFail() throws Exception {
+        when(priceProvider.getBulkChunkSize()).thenReturn(50);
+        when(priceProvider.getCurrentPrices(anyCollection())).thenReturn(Map.of("bitcoin", BigDecimal.TEN));
+        when(walletRepository.findOrCreateWallets(anyCollection())).thenReturn(new ImportedWallets(Map.of("a@spicep.com", 1L), 1));
+        when(walletRepository.addHoldings(anyList(), anyMap())).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        WalletImportResult result = walletImportService.importWallets(new StringReader("a@spicep.com,bitcoin,1\n"),
+                WalletImportService.Format.CSV);
+
+        assertEquals(0, result.getWallets());
+        assertEquals(0, result.getAssets());
+        assertEquals(List.of("Line 1: import failed"), result.getErrors());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verifyNoInteractions(eventPublisher);
+    }
+}
@@ -0,0 +1,103 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.request.WalletInfoDto;
+import com.spicep.cryptowallet.entity.User;
+import com.spicep.cryptowallet.entity.Wallet;
+import com.spicep.cryptowallet.exception.wallet.WalletNotFoundException;
+import com.spicep.cryptowallet.repository.UserRepository;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class that tests the database cost of the wallet view, using Hibernate statistics
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class WalletInformationQueryTest {
+
+    private static final int ASSETS = 50;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void shouldReadWalletInformationWithASingleStatement() {
+        Wallet wallet = createWallet();
+        Map<String, BigDecimal> quotes = new HashMap<>();
+        for (int i = 0; i < ASSETS; i++) {
+            String symbol = "QUERY" + i + "-" + wallet.getId();
+            walletService.addAsset(wallet.getId(), symbol, new BigDecimal("3"), new BigDecimal("10.00"));
+            if (i % 2 == 0) {
+                quotes.put(symbol, new BigDecimal("20.00"));
+            }
+        }
+        walletRepository.applyPrices(quotes);
+
+        statistics.clear();
+        WalletInfoDto walletInfo = walletService.getWalletInformation(wallet.getId());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(ASSETS, walletInfo.getAssets().size());
+        // Half of the assets were repriced at 20, the others keep their price of 10
+        assertEquals(new BigDecimal("2250.00"), walletInfo.getTotal());
+    }
+
+    @Test
+    void shouldReadEmptyWalletWithASingleStatement() {
+        Wallet wallet = createWallet();
+
+        statistics.clear();
+        WalletInfoDto walletInfo = walletService.getWalletInformation(wallet.getId());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(walletInfo.getAssets().isEmpty());
+        assertEquals(0, BigDecimal.ZERO.compareTo(walletInfo.getTotal()));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenWalletNotFound() {
+        assertThrows(WalletNotFoundException.class, () -> walletService.getWalletInformation(-1L));
+    }
+
+    private Wallet createWallet() {
+        User user = new User();
+        user.setEmail("query-" + UUID.randomUUID() + "@spicep.com");
+        userRepository.save(user);
+
+        Wallet wallet = new Wallet();
+        wallet.setUser(user);
+        user.setWallet(wallet);
+        return walletRepository.save(wallet);
+    }
+}
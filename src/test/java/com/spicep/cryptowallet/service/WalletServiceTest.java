@@ -1,7 +1,9 @@
 package com.spicep.cryptowallet.service;
 
-import com.spicep.cryptowallet.dto.coincap.CoinCapAssetDto;
+import com.spicep.cryptowallet.dto.projection.WalletAssetRow;
+import com.spicep.cryptowallet.dto.request.AssetEvaluationRequestDto;
 import com.spicep.cryptowallet.dto.request.WalletInfoDto;
+import com.spicep.cryptowallet.dto.response.WalletEvaluationResponse;
 import com.spicep.cryptowallet.entity.*;
 import com.spicep.cryptowallet.exception.wallet.WalletAlreadyExistsException;
 import com.spicep.cryptowallet.exception.wallet.WalletException;
@@ -11,15 +13,21 @@ import com.spicep.cryptowallet.repository.UserRepository;
 import com.spicep.cryptowallet.repository.WalletRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -39,7 +47,13 @@ class WalletServiceTest {
     private AssetRepository assetRepository;
 
     @Mock
-    private ApiClientService apiClientService;
+    private PriceCacheService priceCacheService;
+
+    @Mock
+    private HistoricalPriceService historicalPriceService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private WalletService walletService;
@@ -106,11 +120,8 @@ class WalletServiceTest {
         wallet.setId(walletId);
         wallet.setAssets(new ArrayList<>());
 
-        CoinCapAssetDto assetDto = new CoinCapAssetDto();
-        assetDto.setPriceUsd(new BigDecimal("50000"));
-
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
-        when(apiClientService.getCurrentAssetDataBySymbol(symbol)).thenReturn(assetDto);
+        when(walletRepository.findByIdForUpdate(walletId)).thenReturn(Optional.of(wallet));
+        when(priceCacheService.getCurrentPrice(symbol)).thenReturn(new BigDecimal("50000"));
         when(assetRepository.save(any(Asset.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         Asset asset = walletService.addAsset(walletId, symbol, quantity);
@@ -119,7 +130,14 @@ class WalletServiceTest {
         assertEquals(symbol, asset.getSymbol());
         assertEquals(quantity, asset.getQuantity());
         assertEquals(new BigDecimal("50000.00"), asset.getPrice());
+        assertEquals(new BigDecimal("25000.00"), asset.getValue());
+        assertEquals(new BigDecimal("25000.00"), wallet.getTotalValue());
         verify(assetRepository).save(any(Asset.class));
+        // Priced before the locks, taken in the same order as the price updates
+        InOrder lockOrder = inOrder(priceCacheService, walletRepository);
+        lockOrder.verify(priceCacheService).getCurrentPrice(symbol);
+        lockOrder.verify(walletRepository).lockSymbols(List.of(symbol));
+        lockOrder.verify(walletRepository).findByIdForUpdate(walletId);
     }
 
     @Test
@@ -130,18 +148,17 @@ class WalletServiceTest {
         BigDecimal additionalQuantity = new BigDecimal("0.3");
         Wallet wallet = new Wallet();
         wallet.setId(walletId);
+        wallet.setTotalValue(new BigDecimal("26000.00"));
 
         Asset existingAsset = new Asset();
         existingAsset.setSymbol(symbol);
         existingAsset.setQuantity(initialQuantity);
         existingAsset.setPrice(new BigDecimal("50000"));
+        existingAsset.setValue(new BigDecimal("25000.00"));
         wallet.setAssets(new ArrayList<>(Collections.singletonList(existingAsset)));
 
-        CoinCapAssetDto assetDto = new CoinCapAssetDto();
-        assetDto.setPriceUsd(new BigDecimal("52000"));
-
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
-        when(apiClientService.getCurrentAssetDataBySymbol(symbol)).thenReturn(assetDto);
+        when(walletRepository.findByIdForUpdate(walletId)).thenReturn(Optional.of(wallet));
+        when(priceCacheService.getCurrentPrice(symbol)).thenReturn(new BigDecimal("52000"));
         when(assetRepository.save(any(Asset.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         Asset updatedAsset = walletService.addAsset(walletId, symbol, additionalQuantity);
@@ -150,6 +167,9 @@ class WalletServiceTest {
         assertEquals(symbol, updatedAsset.getSymbol());
         assertEquals(new BigDecimal("0.8"), updatedAsset.getQuantity());
         assertEquals(new BigDecimal("52000.00"), updatedAsset.getPrice());
+        assertEquals(new BigDecimal("41600.00"), updatedAsset.getValue());
+        // The other assets of the wallet are worth 1000.00
+        assertEquals(new BigDecimal("42600.00"), wallet.getTotalValue());
         verify(assetRepository).save(any(Asset.class));
     }
 
@@ -159,7 +179,8 @@ class WalletServiceTest {
         String symbol = "BTC";
         BigDecimal quantity = new BigDecimal("0.5");
 
-        when(walletRepository.findById(walletId)).thenReturn(Optional.empty());
+        when(priceCacheService.getCurrentPrice(symbol)).thenReturn(new BigDecimal("50000"));
+        when(walletRepository.findByIdForUpdate(walletId)).thenReturn(Optional.empty());
 
         assertThrows(WalletNotFoundException.class, () -> walletService.addAsset(walletId, symbol, quantity));
     }
@@ -169,14 +190,11 @@ class WalletServiceTest {
         Long walletId = 1L;
         String symbol = "AMHCOIN";
         BigDecimal quantity = new BigDecimal("0.5");
-        Wallet wallet = new Wallet();
-        wallet.setId(walletId);
-        wallet.setAssets(new ArrayList<>());
 
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
-        when(apiClientService.getCurrentAssetDataBySymbol(symbol)).thenReturn(null);
+        when(priceCacheService.getCurrentPrice(symbol)).thenReturn(null);
 
         assertThrows(WalletException.class, () -> walletService.addAsset(walletId, symbol, quantity));
+        verify(walletRepository, never()).lockSymbols(any());
     }
 
     /**
@@ -186,23 +204,10 @@ class WalletServiceTest {
     @Test
     void shouldReturnWalletInformation() {
         Long walletId = 1L;
-        Wallet wallet = new Wallet();
-        wallet.setId(walletId);
-
-        Asset btc = new Asset();
-        btc.setSymbol("BTC");
-        btc.setQuantity(new BigDecimal("0.5"));
-        btc.setPrice(new BigDecimal("50000"));
-        btc.setWallet(wallet);
-
-        Asset eth = new Asset();
-        eth.setSymbol("ETH");
-        eth.setQuantity(new BigDecimal("2.0"));
-        eth.setPrice(new BigDecimal("2500"));
-        eth.setWallet(wallet);
-        wallet.setAssets(List.of(btc, eth));
 
-        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
+        when(walletRepository.findWalletAssetRows(walletId)).thenReturn(List.of(
+                new WalletAssetRow(walletId, new BigDecimal("30000.00"), "BTC", new BigDecimal("0.5"), new BigDecimal("50000"), new BigDecimal("25000.00")),
+                new WalletAssetRow(walletId, new BigDecimal("30000.00"), "ETH", new BigDecimal("2.0"), new BigDecimal("2500"), new BigDecimal("5000.00"))));
 
         WalletInfoDto response = walletService.getWalletInformation(walletId);
 
@@ -212,13 +217,73 @@ class WalletServiceTest {
         assertEquals(new BigDecimal("30000.00"), response.getTotal());
     }
 
+    @Test
+    void shouldReturnMaterializedValuesOfWalletInformation() {
+        Long walletId = 1L;
+
+        when(walletRepository.findWalletAssetRows(walletId)).thenReturn(List.of(
+                new WalletAssetRow(walletId, new BigDecimal("19980.04"), "BTC", new BigDecimal("0.333"), new BigDecimal("60000.12"), new BigDecimal("19980.04")),
+                new WalletAssetRow(walletId, new BigDecimal("19980.04"), "ETH", new BigDecimal("2.0"), null, null)));
+
+        WalletInfoDto response = walletService.getWalletInformation(walletId);
+
+        assertEquals(new BigDecimal("19980.04"), response.getAssets().getFirst().getValue());
+        assertEquals(BigDecimal.ZERO, response.getAssets().get(1).getValue());
+        assertEquals(new BigDecimal("19980.04"), response.getTotal());
+    }
+
+    @Test
+    void shouldReturnEmptyWalletInformation() {
+        Long walletId = 1L;
+
+        when(walletRepository.findWalletAssetRows(walletId)).thenReturn(List.of(
+                new WalletAssetRow(walletId, BigDecimal.ZERO, null, null, null, null)));
+
+        WalletInfoDto response = walletService.getWalletInformation(walletId);
+
+        assertTrue(response.getAssets().isEmpty());
+        assertEquals(BigDecimal.ZERO, response.getTotal());
+    }
+
     @Test
     void shouldThrowExceptionWhenWalletNotFoundForGetWalletInformation() {
         Long walletId = 99L;
 
-        when(walletRepository.findById(walletId)).thenReturn(Optional.empty());
+        when(walletRepository.findWalletAssetRows(walletId)).thenReturn(List.of());
 
         assertThrows(WalletNotFoundException.class, () -> walletService.getWalletInformation(walletId));
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldEvaluateWalletAgainstHistoricalPrices() {
+        LocalDate referenceDate = LocalDate.of(2025, 1, 7);
+        List<AssetEvaluationRequestDto> assets = List.of(
+                new AssetEvaluationRequestDto("BTC", new BigDecimal("0.5"), new BigDecimal("35000")),
+                new AssetEvaluationRequestDto("ETH", new BigDecimal("4.25"), new BigDecimal("15310.56")));
+
+        when(historicalPriceService.getPriceForDate("BTC", referenceDate)).thenReturn(new BigDecimal("56999.9"));
+        when(historicalPriceService.getPriceForDate("ETH", referenceDate)).thenReturn(new BigDecimal("2004.7"));
+
+        WalletEvaluationResponse response = walletService.evaluateWallet(assets, referenceDate);
+
+        assertEquals(new BigDecimal("37019.93"), response.getTotal());
+        assertEquals("BTC", response.getBestAsset());
+        assertEquals(new BigDecimal("-18.57"), response.getBestPerformance());
+        assertEquals("ETH", response.getWorstAsset());
+        assertEquals(new BigDecimal("-44.35"), response.getWorstPerformance());
+        verify(priceCacheService, never()).getCurrentPrice(anyString());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenNoPriceForEvaluationDate() {
+        LocalDate referenceDate = LocalDate.of(2025, 1, 7);
+        List<AssetEvaluationRequestDto> assets = List.of(
+                new AssetEvaluationRequestDto("AMHCOIN", BigDecimal.ONE, BigDecimal.TEN));
+
+        when(historicalPriceService.getPriceForDate("AMHCOIN", referenceDate))
+                .thenReturn(null);
+
+        assertThrows(WalletException.class, () -> walletService.evaluateWallet(assets, referenceDate));
+    }
+
+}
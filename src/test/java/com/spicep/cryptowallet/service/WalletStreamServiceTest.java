@@ -0,0 +1,180 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.request.AssetInfoDto;
+import com.spicep.cryptowallet.dto.request.WalletInfoDto;
+import com.spicep.cryptowallet.event.WalletHoldingsChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class that tests the live wallet valuation stream
+ */
+@ExtendWith(MockitoExtension.class)
+class WalletStreamServiceTest {
+
+    @Mock
+    private WalletService walletService;
+
+    private PriceTickHub priceTickHub;
+    private WalletStreamService walletStreamService;
+
+    @BeforeEach
+    void setUp() {
+        priceTickHub = new PriceTickHub();
+        walletStreamService = new WalletStreamService(walletService, priceTickHub);
+    }
+
+    @Test
+    void shouldPushValuationOnlyWhenHeldPriceChanges() {
+        WalletInfoDto walletInfo = walletInfo(
+                asset("BTC", "0.5", "50000"),
+                asset("ETH", "2.0", "2500"));
+
+        StepVerifier.create(walletStreamService.streamWallet(walletInfo))
+                .assertNext(valuation -> assertEquals(new BigDecimal("30000.00"), valuation.getTotal()))
+                .then(() -> priceTickHub.publish(Map.of("SOL", new BigDecimal("150")), Instant.now()))
+                .then(() -> priceTickHub.publish(Map.of("BTC", new BigDecimal("50000")), Instant.now()))
+                .then(() -> priceTickHub.publish(Map.of("BTC", new BigDecimal("60000"), "SOL", new BigDecimal("151")), Instant.now()))
+                .assertNext(valuation -> {
+                    assertEquals(new BigDecimal("35000.00"), valuation.getTotal());
+                    assertEquals(new BigDecimal("60000.00"), valuation.getAssets().getFirst().getPrice());
+                    assertEquals(new BigDecimal("30000.00"), valuation.getAssets().getFirst().getValue());
+                })
+                .then(() -> priceTickHub.publish(Map.of("ETH", new BigDecimal("2000")), Instant.now()))
+                .assertNext(valuation -> assertEquals(new BigDecimal("34000.00"), valuation.getTotal()))
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        verifyNoInteractions(walletService);
+    }
+
+    @Test
+    void shouldValueTicksAsTheStoredWallets() {
+        WalletInfoDto walletInfo = walletInfo(asset("BTC", "1.005", "100.00"));
+
+        StepVerifier.create(walletStreamService.streamWallet(walletInfo))
+                .assertNext(valuation -> assertEquals(new BigDecimal("100.50"), valuation.getTotal()))
+                // Less than a cent
+                .then(() -> priceTickHub.publish(Map.of("BTC", new BigDecimal("100.004")), Instant.now()))
+                .expectNoEvent(Duration.ofMillis(100))
+                .then(() -> priceTickHub.publish(Map.of("BTC", new BigDecimal("200.004")), Instant.now()))
+                .assertNext(valuation -> {
+                    // round(1.01 * 200.00), as a price update stores it
+                    assertEquals(new BigDecimal("202.00"), valuation.getTotal());
+                    assertEquals(new BigDecimal("200.00"), valuation.getAssets().getFirst().getPrice());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void shouldReloadWalletWhenItsHoldingsChange() {
+        WalletInfoDto walletInfo = walletInfo(asset("BTC", "0.5", "50000"));
+        WalletInfoDto reloadedWalletInfo = walletInfo(
+                asset("BTC", "0.5", "50000"),
+                asset("ETH", "1.0", "2500"));
+        when(walletService.getWalletInformation(1L)).thenReturn(reloadedWalletInfo);
+
+        StepVerifier.create(walletStreamService.streamWallet(walletInfo))
+                .assertNext(valuation -> assertEquals(new BigDecimal("25000.00"), valuation.getTotal()))
+                .then(() -> priceTickHub.onHoldingsChanged(new WalletHoldingsChangedEvent(2L, "ethereum")))
+                .then(() -> priceTickHub.onHoldingsChanged(new WalletHoldingsChangedEvent(1L, "bitcoin")))
+                .assertNext(valuation -> assertEquals(new BigDecimal("27500.00"), valuation.getTotal()))
+                .then(() -> priceTickHub.publish(Map.of("ETH", new BigDecimal("3000")), Instant.now()))
+                .assertNext(valuation -> assertEquals(new BigDecimal("28000.00"), valuation.getTotal()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        verify(walletService, times(1)).getWalletInformation(1L);
+    }
+
+    @Test
+    void shouldKeepOnlyLatestValuationForSlowConsumers() {
+        WalletInfoDto walletInfo = walletInfo(asset("BTC", "1", "50000"));
+
+        StepVerifier.create(walletStreamService.streamWallet(walletInfo), 1)
+                .assertNext(valuation -> assertEquals(new BigDecimal("50000.00"), valuation.getTotal()))
+                .then(() -> {
+                    for (int price = 50001; price <= 50100; price++) {
+                        priceTickHub.publish(Map.of("BTC", BigDecimal.valueOf(price)), Instant.now());
+                    }
+                })
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenRequest(1)
+                .assertNext(valuation -> assertEquals(new BigDecimal("50100.00"), valuation.getTotal()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void shouldNotBlockPublishersOnASlowConsumer() throws Exception {
+        WalletInfoDto walletInfo = walletInfo(asset("BTC", "1", "50000"));
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        CountDownLatch latestReceived = new CountDownLatch(1);
+
+        Disposable subscription = walletStreamService.streamWallet(walletInfo).subscribe(valuation -> {
+            if (valuation.getTotal().compareTo(new BigDecimal("50100")) == 0) {
+                latestReceived.countDown();
+            }
+            // The consumer is stuck sending its first valuation
+            blocked.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+                for (int price = 50001; price <= 50100; price++) {
+                    priceTickHub.publish(Map.of("BTC", BigDecimal.valueOf(price)), Instant.now());
+                }
+            });
+
+            released.countDown();
+            assertTrue(latestReceived.await(5, TimeUnit.SECONDS));
+        } finally {
+            released.countDown();
+            subscription.dispose();
+        }
+    }
+
+    private static WalletInfoDto walletInfo(AssetInfoDto... assets) {
+        WalletInfoDto walletInfo = new WalletInfoDto();
+        walletInfo.setId("1");
+        walletInfo.setAssets(List.of(assets));
+        walletInfo.setTotal(List.of(assets).stream()
+                .map(AssetInfoDto::getValue)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        return walletInfo;
+    }
+
+    private static AssetInfoDto asset(String symbol, String quantity, String price) {
+        AssetInfoDto asset = new AssetInfoDto();
+        asset.setSymbol(symbol);
+        asset.setQuantity(new BigDecimal(quantity));
+        asset.setPrice(new BigDecimal(price));
+        asset.setValue(asset.getQuantity().multiply(asset.getPrice()).setScale(2));
+        return asset;
+    }
+}
@@ -0,0 +1,85 @@
+package com.spicep.cryptowallet.service;
+
+import com.spicep.cryptowallet.dto.request.AssetInfoDto;
+import com.spicep.cryptowallet.dto.request.WalletInfoDto;
+import com.spicep.cryptowallet.entity.Wallet;
+import com.spicep.cryptowallet.repository.WalletRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Class that tests that the incrementally maintained wallet totals always match a full recompute
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+class WalletValueConsistencyTest {
+
+    private static final int WALLETS = 5;
+    private static final int SYMBOLS = 8;
+    private static final int ROUNDS = 40;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Test
+    void shouldKeepTotalsConsistentWithFullRecompute() {
+        Random random = new Random(42);
+        String prefix = "CONSISTENCY" + UUID.randomUUID().toString().substring(0, 8) + "-";
+
+        List<Long> walletIds = new ArrayList<>();
+        for (int i = 0; i < WALLETS; i++) {
+            Wallet wallet = walletService.createNewWallet("consistency-" + UUID.randomUUID() + "@spicep.com");
+            walletIds.add(wallet.getId());
+        }
+
+        Map<String, BigDecimal> prices = new HashMap<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            // Quantities and prices with more decimals than stored, so every rounding path is exercised
+            for (int i = 0; i < 3; i++) {
+                String symbol = prefix + random.nextInt(SYMBOLS);
+                BigDecimal price = prices.computeIfAbsent(symbol, s -> randomPrice(random));
+                walletService.addAsset(walletIds.get(random.nextInt(WALLETS)), symbol,
+                        BigDecimal.valueOf(1 + random.nextInt(100_000), 3), price);
+            }
+
+            Map<String, BigDecimal> tick = new HashMap<>();
+            for (String symbol : prices.keySet()) {
+                if (random.nextBoolean()) {
+                    tick.put(symbol, randomPrice(random));
+                }
+            }
+            walletRepository.applyPrices(tick);
+            prices.putAll(tick);
+
+            walletIds.forEach(this::assertConsistent);
+        }
+    }
+
+    private void assertConsistent(Long walletId) {
+        WalletInfoDto walletInfo = walletService.getWalletInformation(walletId);
+
+        BigDecimal recomputedTotal = BigDecimal.ZERO;
+        for (AssetInfoDto asset : walletInfo.getAssets()) {
+            BigDecimal recomputedValue = asset.getQuantity().multiply(asset.getPrice()).setScale(2, RoundingMode.HALF_UP);
+            assertEquals(0, recomputedValue.compareTo(asset.getValue()), "Value of " + asset.getSymbol());
+            recomputedTotal = recomputedTotal.add(recomputedValue);
+        }
+
+        assertEquals(0, recomputedTotal.compareTo(walletInfo.getTotal()), "Total of wallet " + walletId);
+    }
+
+    private static BigDecimal randomPrice(Random random) {
+        return BigDecimal.valueOf(1 + random.nextInt(10_000_000), 4);
+    }
+}